@@ -18,6 +18,7 @@
 #include "cmdenvsimulationrunner.h"
 #include "envir/args.h"
 #include "envir/appreg.h"
+#include "envir/progresschannel.h"
 #include "common/stringutil.h"
 #include "sim/pythonutil.h"
 
@@ -102,6 +103,8 @@ int CmdenvApp::doRunApp()
 void CmdenvApp::displayException(std::exception& ex)
 {
     std::string msg = cException::getFormattedMessage(ex);
+    if (cException::isError(ex))
+        ProgressChannel::getInstance()->sendError(msg);
     std::ostream& os = (cException::isError(ex) && useStderr) ? std::cerr : out;
     os << "\n<!> " << msg << endl << endl;
 }
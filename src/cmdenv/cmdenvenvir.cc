@@ -20,6 +20,7 @@
 #include "omnetpp/cproperties.h"
 #include "omnetpp/cproperty.h"
 #include "envir/appbase.h"
+#include "envir/progresschannel.h"
 
 using namespace omnetpp::common;
 using namespace omnetpp::internal;
@@ -139,6 +140,7 @@ std::string CmdenvEnvir::input(const char *prompt, const char *defaultReply)
     if (!opp_isempty(defaultReply))
         out << "(default: " << defaultReply << ") ";
     out.flush();
+    ProgressChannel::getInstance()->sendWaitingForInput();
 
     std::string buffer;
     std::getline(std::cin, buffer);
@@ -155,6 +157,7 @@ bool CmdenvEnvir::askYesNo(const char *question)
     for (;;) {
         out << question <<" (y/n) ";
         out.flush();
+        ProgressChannel::getInstance()->sendWaitingForInput();
         std::string buffer;
         std::getline(std::cin, buffer);
         if (buffer == "\x1b")  // ESC?
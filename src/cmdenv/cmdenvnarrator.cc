@@ -17,6 +17,7 @@
 #include "cmdenvnarrator.h"
 #include "omnetpp/checkandcast.h"
 #include "omnetpp/ccomponenttype.h"
+#include "envir/progresschannel.h"
 
 namespace omnetpp {
 namespace cmdenv {
@@ -113,6 +114,9 @@ void CmdenvNarrator::simulationLifecycleEvent(cSimulation *simulation, std::ofst
 
 void CmdenvNarrator::displayException(std::exception& ex)
 {
+    if (cException::isError(ex))
+        envir::ProgressChannel::getInstance()->sendError(cException::getFormattedMessage(ex));
+
     // if verbose, it was already printed (maybe only in the redirection file though)
     if (!verbose || useStderr) {
         std::string msg = cException::getFormattedMessage(ex);
@@ -78,6 +78,10 @@ void GenericEventLoopRunner::doRunNormal()
         if (simulation->hasRealTimeLimit())
             simulation->checkRealTimeLimits();
 
+        // there are no status updates in normal mode, so report the progress to the IDE separately
+        if (progressChannel->isOpen() && elapsed(statusFrequencyMs, lastProgressReportTime))
+            reportProgress(false);
+
         if (sigintReceived)
             throw cTerminationException("SIGINT or SIGTERM received, exiting");
     }
@@ -273,9 +277,35 @@ void GenericEventLoopRunner::printStatusUpdate()
 
     // status update is always autoflushed (not only if opt->autoflush is on)
     out.flush();
+
+    reportProgress(true);
+}
+
+void GenericEventLoopRunner::reportProgress(bool withSpeed)
+{
+    if (!progressChannel->isOpen())
+        return;
+    double ratio = getProgressRatio();
+    if (ratio != -1)
+        progressChannel->sendProgress(ratio, (ratio + runsTried - 1) / numRuns);
+    if (withSpeed)
+        progressChannel->sendSpeed(speedometer.getEventsPerSec(), speedometer.getSimSecPerSec(), speedometer.getEventsPerSimSec());
 }
 
 std::string GenericEventLoopRunner::getProgressPercentage()
+{
+    double ratio = getProgressRatio();
+    if (ratio == -1)
+        return "";
+    else {
+        double totalRatio = (ratio + runsTried - 1) / numRuns;
+        // DO NOT change the "% completed" string. The IDE launcher plugin matches
+        // against this string for detecting user input
+        return opp_stringf("  %d%% completed  (%d%% total)", (int)(100*ratio), (int)(100*totalRatio));
+    }
+}
+
+double GenericEventLoopRunner::getProgressRatio()
 {
     double simtimeRatio = -1;
     simtime_t simtimeLimit = simulation->getSimulationTimeLimit();
@@ -293,16 +323,7 @@ std::string GenericEventLoopRunner::getProgressPercentage()
         cpuTimeRatio = simulation->getCpuUsageTime() / cpuTimeLimit;
 
     double ratio = std::max(simtimeRatio, std::max(elapsedTimeRatio, cpuTimeRatio));
-    ratio = std::min(ratio, 1.0);  // eliminate occasional "101% completed" message
-    if (ratio == -1)
-        return "";
-    else {
-        double totalRatio = (ratio + runsTried - 1) / numRuns;
-        // DO NOT change the "% completed" string. The IDE launcher plugin matches
-        // against this string for detecting user input
-        return opp_stringf("  %d%% completed  (%d%% total)", (int)(100*ratio), (int)(100*totalRatio));
-    }
-    return "";
+    return std::min(ratio, 1.0);  // eliminate occasional "101% completed" message; -1 if there is no limit
 }
 
 void GenericEventLoopRunner::printEventBanner(eventnumber_t eventNumber, cEvent *event)
@@ -20,6 +20,7 @@
 #include "omnetpp/ceventlooprunner.h"
 #include "omnetpp/csimulation.h"
 #include "speedometer.h"
+#include "progresschannel.h"
 
 namespace omnetpp {
 
@@ -49,6 +50,9 @@ class ENVIR_API GenericEventLoopRunner : public cIEventLoopRunner
     Speedometer speedometer;
     simtime_t simulatedTime;  // sim. time after finishing simulation
 
+    ProgressChannel *progressChannel;
+    int64_t lastProgressReportTime = 0;  // for doRunNormal()
+
   protected:
     virtual void doRunNormal();
     virtual void doRunExpressWithFakeGUI();
@@ -59,11 +63,13 @@ class ENVIR_API GenericEventLoopRunner : public cIEventLoopRunner
     virtual void printEventBanner(eventnumber_t eventNumber, cEvent *event);
     virtual void printStatusUpdate();
     virtual std::string getProgressPercentage();
+    virtual double getProgressRatio();
+    virtual void reportProgress(bool withSpeed);
 
     bool elapsed(long millis, int64_t& since);
 
   public:
-    GenericEventLoopRunner(cSimulation *simulation, std::ostream& out, bool& sigintReceived) : cIEventLoopRunner(simulation), out(out), sigintReceived(sigintReceived) {}
+    GenericEventLoopRunner(cSimulation *simulation, std::ostream& out, bool& sigintReceived) : cIEventLoopRunner(simulation), out(out), sigintReceived(sigintReceived), progressChannel(ProgressChannel::getInstance()) {}
     virtual ~GenericEventLoopRunner() {}
     virtual void configure(cConfiguration *cfg) override;
 
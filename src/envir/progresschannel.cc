@@ -0,0 +1,166 @@
+//==========================================================================
+//  PROGRESSCHANNEL.CC - part of
+//                     OMNeT++/OMNEST
+//            Discrete System Simulation in C++
+//
+//==========================================================================
+
+/*--------------------------------------------------------------*
+  Copyright (C) 1992-2017 Andras Varga
+  Copyright (C) 2006-2017 OpenSim Ltd.
+
+  This file is distributed WITHOUT ANY WARRANTY. See the file
+  `license' for details on this and other legal matters.
+*--------------------------------------------------------------*/
+
+#include <cstdlib>
+#include <cstring>
+#include <algorithm>
+#include "omnetpp/platdep/sockets.h"
+#include "progresschannel.h"
+
+#ifdef MSG_NOSIGNAL
+#define SEND_FLAGS  MSG_NOSIGNAL   // don't get killed by SIGPIPE if the IDE goes away
+#else
+#define SEND_FLAGS  0
+#endif
+
+namespace omnetpp {
+namespace envir {
+
+// longer error messages are truncated
+#define MAX_ERROR_LENGTH  4096
+
+static void appendUInt16(std::string& buf, unsigned int value)
+{
+    buf += (char)((value >> 8) & 0xff);
+    buf += (char)(value & 0xff);
+}
+
+static void appendDouble(std::string& buf, double value)
+{
+    uint64_t bits;
+    memcpy(&bits, &value, sizeof(bits));
+    for (int shift = 56; shift >= 0; shift -= 8)
+        buf += (char)((bits >> shift) & 0xff);
+}
+
+static unsigned int toPermille(double ratio)
+{
+    return (unsigned int)(1000 * std::min(1.0, std::max(0.0, ratio)));
+}
+
+ProgressChannel::ProgressChannel()
+{
+    sock = -1;
+    const char *portStr = getenv("OMNETPP_PROGRESS_PORT");
+    if (!portStr || !*portStr)
+        return;
+    int port = atoi(portStr);
+    if (port <= 0 || port > 65535)
+        return;
+
+    if (initsocketlibonce() != 0)
+        return;
+    SOCKET fd = socket(AF_INET, SOCK_STREAM, 0);
+    if (fd == INVALID_SOCKET)
+        return;
+
+    sockaddr_in addr;
+    memset(&addr, 0, sizeof(addr));
+    addr.sin_family = AF_INET;
+    addr.sin_port = htons((unsigned short)port);
+    addr.sin_addr.s_addr = htonl(INADDR_LOOPBACK);
+    if (connect(fd, (sockaddr *)&addr, sizeof(addr)) == SOCKET_ERROR) {
+        closesocket(fd);
+        return;
+    }
+
+#ifdef SO_NOSIGPIPE
+    int one = 1;
+    setsockopt(fd, SOL_SOCKET, SO_NOSIGPIPE, &one, sizeof(one));
+#endif
+
+    sock = (intptr_t)fd;
+    open = true;
+}
+
+ProgressChannel::~ProgressChannel()
+{
+    if (open)
+        closesocket((SOCKET)sock);
+}
+
+ProgressChannel *ProgressChannel::getInstance()
+{
+    static ProgressChannel instance;
+    return &instance;
+}
+
+void ProgressChannel::send(const std::string& record)
+{
+    std::lock_guard<std::mutex> lock(mutex);
+    if (!open)
+        return;
+    const char *data = record.data();
+    size_t remaining = record.size();
+    while (remaining > 0) {
+        int n = ::send((SOCKET)sock, data, (int)remaining, SEND_FLAGS);
+        if (n <= 0) {
+            // the IDE went away; the console output is still there
+            closesocket((SOCKET)sock);
+            open = false;
+            return;
+        }
+        data += n;
+        remaining -= n;
+    }
+}
+
+void ProgressChannel::sendProgress(double runRatio, double totalRatio)
+{
+    if (!open)
+        return;
+    std::string record(1, (char)RECORD_PROGRESS);
+    appendUInt16(record, toPermille(runRatio));
+    appendUInt16(record, toPermille(totalRatio));
+    send(record);
+}
+
+void ProgressChannel::sendSpeed(double eventsPerSec, double simsecPerSec, double eventsPerSimsec)
+{
+    if (!open)
+        return;
+    std::string record(1, (char)RECORD_SPEED);
+    appendDouble(record, eventsPerSec);
+    appendDouble(record, simsecPerSec);
+    appendDouble(record, eventsPerSimsec);
+    send(record);
+}
+
+void ProgressChannel::sendError(const std::string& message)
+{
+    if (!open)
+        return;
+    size_t length = message.size();
+    if (length > MAX_ERROR_LENGTH) {
+        length = MAX_ERROR_LENGTH;
+        while (length > 0 && (message[length] & 0xc0) == 0x80)
+            length--;  // don't cut a multi-byte UTF-8 character in half
+    }
+    std::string record(1, (char)RECORD_ERROR);
+    appendUInt16(record, (unsigned int)length);
+    record.append(message, 0, length);
+    send(record);
+}
+
+void ProgressChannel::sendWaitingForInput()
+{
+    if (!open)
+        return;
+    send(std::string(1, (char)RECORD_INPUT));
+}
+
+}  // namespace envir
+}  // namespace omnetpp
+
@@ -0,0 +1,82 @@
+//==========================================================================
+//  PROGRESSCHANNEL.H - part of
+//                     OMNeT++/OMNEST
+//            Discrete System Simulation in C++
+//
+//==========================================================================
+
+/*--------------------------------------------------------------*
+  Copyright (C) 1992-2017 Andras Varga
+  Copyright (C) 2006-2017 OpenSim Ltd.
+
+  This file is distributed WITHOUT ANY WARRANTY. See the file
+  `license' for details on this and other legal matters.
+*--------------------------------------------------------------*/
+
+#ifndef __OMNETPP_ENVIR_PROGRESSCHANNEL_H
+#define __OMNETPP_ENVIR_PROGRESSCHANNEL_H
+
+#include <string>
+#include <mutex>
+#include <atomic>
+#include <cstdint>
+#include "envirdefs.h"
+
+namespace omnetpp {
+namespace envir {
+
+/**
+ * Reports the progress of the simulation to the IDE over a loopback TCP
+ * connection, so that the launcher doesn't need to parse the console output.
+ *
+ * The IDE passes the port number in the OMNETPP_PROGRESS_PORT environment
+ * variable. If the variable is not set or the connection cannot be established
+ * (or is broken later), the channel is closed, and all send functions are no-ops.
+ *
+ * Records consist of a type byte and a fixed or length-prefixed payload;
+ * all numbers are in network byte order:
+ *   - 'P': progress: uint16 run progress, uint16 total progress (both in permille)
+ *   - 'S': speed: double ev/sec, double simsec/sec, double ev/simsec
+ *   - 'E': error: uint16 length, UTF-8 message text
+ *   - 'I': waiting for user input on the console
+ *
+ * This class is thread-safe, as runs may be executed on multiple threads.
+ */
+class ENVIR_API ProgressChannel
+{
+  public:
+    enum RecordType {RECORD_PROGRESS='P', RECORD_SPEED='S', RECORD_ERROR='E', RECORD_INPUT='I'};
+
+  private:
+    intptr_t sock;  // SOCKET, but we don't want to pull in the socket headers here
+    std::atomic<bool> open {false};
+    std::mutex mutex;  // protects sock
+
+  private:
+    ProgressChannel();
+    void send(const std::string& record);
+
+  public:
+    ~ProgressChannel();
+
+    /**
+     * Returns the channel of this process, connecting on the first call.
+     */
+    static ProgressChannel *getInstance();
+
+    /**
+     * Returns true if the channel is connected to the IDE.
+     */
+    bool isOpen() const {return open;}
+
+    void sendProgress(double runRatio, double totalRatio);
+    void sendSpeed(double eventsPerSec, double simsecPerSec, double eventsPerSimsec);
+    void sendError(const std::string& message);
+    void sendWaitingForInput();
+};
+
+}  // namespace envir
+}  // namespace omnetpp
+
+#endif
+
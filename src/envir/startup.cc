@@ -41,6 +41,7 @@
 #include "appreg.h"
 #include "fsutils.h"
 #include "startup.h"
+#include "progresschannel.h"
 #include "speedometer.h"
 #include "filesnapshotmgr.h"
 #include "eventlogfilemgr.h"
@@ -104,6 +105,13 @@ static std::ostream& err()
     return err;
 }
 
+static void reportError(const char *message)
+{
+    // the IDE stops parsing the console output once the progress channel is connected
+    ProgressChannel::getInstance()->sendError(std::string("Error: ") + message);
+    err() << message << endl;
+}
+
 int setupUserInterface(int argc, char *argv[])
 {
     //
@@ -274,7 +282,7 @@ int setupUserInterface(int argc, char *argv[])
         app = appReg->createOne();
     }
     catch (std::exception& e) {
-        err() << e.what() << endl;
+        reportError(e.what());
         if (app) {
             delete app;
             app = nullptr;
@@ -298,7 +306,7 @@ int setupUserInterface(int argc, char *argv[])
         }
     }
     catch (std::exception& e) {
-        err() << e.what() << endl;
+        reportError(e.what());
         exitCode = 1;
     }
 
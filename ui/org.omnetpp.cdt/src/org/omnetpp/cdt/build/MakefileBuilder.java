@@ -12,6 +12,11 @@ import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.eclipse.cdt.core.model.CoreModel;
 import org.eclipse.cdt.core.settings.model.ICConfigurationDescription;
@@ -22,6 +27,7 @@ import org.eclipse.cdt.managedbuilder.core.IToolChain;
 import org.eclipse.cdt.managedbuilder.core.ManagedBuildManager;
 import org.eclipse.core.resources.ICommand;
 import org.eclipse.core.resources.IContainer;
+import org.eclipse.core.resources.IFile;
 import org.eclipse.core.resources.IMarker;
 import org.eclipse.core.resources.IProject;
 import org.eclipse.core.resources.IResource;
@@ -62,6 +68,23 @@ public class MakefileBuilder extends IncrementalProjectBuilder {
     private BuildSpecification buildSpec = null;  // re-read for each build
     private ProblemMarkerSynchronizer markerSynchronizer = null; // new instance for each build
 
+    // the fingerprint of the makemake inputs and the modification stamp of the Makefile
+    // last generated in each folder; Makefiles are only regenerated when these change
+    private Map<IContainer, String> makefileFingerprints = new ConcurrentHashMap<IContainer, String>();
+
+    /**
+     * The result of generating the Makefile content for a folder.
+     */
+    private static class GeneratedMakefile {
+        final String fingerprint;
+        final String content; // null if the Makefile is up to date
+
+        GeneratedMakefile(String fingerprint, String content) {
+            this.fingerprint = fingerprint;
+            this.content = content;
+        }
+    }
+
     /**
      * Method declared on IncrementalProjectBuilder. Main entry point.
      */
@@ -113,6 +136,7 @@ public class MakefileBuilder extends IncrementalProjectBuilder {
     @Override
     protected void clean(IProgressMonitor monitor) throws CoreException {
         super.clean(monitor);
+        makefileFingerprints.clear();
         getProject().deleteMarkers(MARKER_ID, true, IResource.DEPTH_INFINITE);
     }
 
@@ -364,29 +388,75 @@ public class MakefileBuilder extends IncrementalProjectBuilder {
         for (IContainer makemakeFolder : makemakeFolders)
             markerSynchronizer.register(makemakeFolder);
 
-        // generate Makefiles in all folders
-        long startTime = System.currentTimeMillis();
+        // collect the folders to generate Makefiles in
+        List<IContainer> folders = new ArrayList<IContainer>();
         for (IContainer makemakeFolder : makemakeFolders) {
             if (makemakeFolder.isAccessible())
-                generateMakefileFor(makemakeFolder, configuration, monitor);
+                folders.add(makemakeFolder);
             else
                 Debug.println("generateMakefiles(): ignoring nonexisting folder listed in buildspec: " + makemakeFolder.getFullPath());
         }
-        Debug.println("Generated " + makemakeFolders.size() + " makefiles in: " + (System.currentTimeMillis()-startTime) + "ms");
+        if (folders.isEmpty())
+            return;
+
+        // refresh existing Makefiles here, because the background threads must not modify the workspace
+        // (the builder thread holds the workspace lock)
+        for (IContainer folder : folders)
+            folder.getFile(new Path("Makefile")).refreshLocal(IResource.DEPTH_ZERO, null);
+
+        // generate the content of the Makefiles in parallel, and write them in order in this thread
+        long startTime = System.currentTimeMillis();
+        int numUpToDate = 0;
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(folders.size(), Runtime.getRuntime().availableProcessors()));
+        try {
+            List<Future<GeneratedMakefile>> futures = new ArrayList<Future<GeneratedMakefile>>();
+            for (IContainer folder : folders)
+                futures.add(executor.submit(() -> generateMakefileContentFor(folder, configuration, monitor)));
+            for (int i = 0; i < folders.size(); i++)
+                if (!writeMakefileFor(folders.get(i), futures.get(i)))
+                    numUpToDate++;
+        }
+        finally {
+            executor.shutdownNow();
+        }
+        Debug.println("Generated " + (folders.size() - numUpToDate) + " makefiles (" + numUpToDate + " up to date) in: " + (System.currentTimeMillis()-startTime) + "ms");
     }
 
     /**
-     * Generate makefile in the given folder.
+     * Translates the makemake options of the given folder, and returns the content of the Makefile,
+     * or only the fingerprint if the inputs of the Makefile haven't changed since it was last generated.
+     * Invoked on a background thread, so it must not modify the workspace.
      */
-    protected void generateMakefileFor(IContainer folder, ICConfigurationDescription configuration, IProgressMonitor monitor) throws CoreException {
+    protected GeneratedMakefile generateMakefileContentFor(IContainer folder, ICConfigurationDescription configuration, IProgressMonitor monitor) throws CoreException, MakemakeException {
+        //Debug.println("Generating makefile in: " + folder.getFullPath());
+        Assert.isTrue(folder.getProject().equals(getProject()));
+        MakemakeOptions options = buildSpec.getMakemakeOptions(folder);
+        Assert.isTrue(options != null);
+        MakemakeOptions translatedOptions = MetaMakemake.translateOptions(folder, buildSpec, configuration, monitor);
+        Makemake makemake = new Makemake();
+        String fingerprint = makemake.computeFingerprint(folder, translatedOptions);
+        IFile makefile = folder.getFile(new Path("Makefile"));
+        if (makefile.exists() && (fingerprint + makefile.getModificationStamp()).equals(makefileFingerprints.get(folder)))
+            return new GeneratedMakefile(fingerprint, null);
+        return new GeneratedMakefile(fingerprint, makemake.generateMakefileContent(folder, translatedOptions));
+    }
+
+    /**
+     * Writes the Makefile generated in the background into the given folder. Returns false if it was up to date.
+     */
+    protected boolean writeMakefileFor(IContainer folder, Future<GeneratedMakefile> future) throws CoreException {
         boolean deleteMakeFiles = true;
         try {
-            //Debug.println("Generating makefile in: " + folder.getFullPath());
-            Assert.isTrue(folder.getProject().equals(getProject()));
-            MakemakeOptions options = buildSpec.getMakemakeOptions(folder);
-            Assert.isTrue(options != null);
-            MetaMakemake.generateMakefile(folder, buildSpec, configuration, monitor);
+            GeneratedMakefile result = getResult(future);
+            IFile makefile = folder.getFile(new Path("Makefile"));
+            if (result.content != null) {
+                // only overwrite file if it does not already exist with the same content,
+                // to avoid excessive Eclipse workspace refreshes and infinite builder invocations
+                MakefileTools.ensureFileContent(makefile, result.content.getBytes(), null);
+                makefileFingerprints.put(folder, result.fingerprint + makefile.getModificationStamp());
+            }
             deleteMakeFiles = false;
+            return result.content != null;
         }
         catch (MakemakeException e) {
             deleteMakeFiles = e.getDeleteMakefile();
@@ -395,11 +465,31 @@ public class MakefileBuilder extends IncrementalProjectBuilder {
         finally {
             if (deleteMakeFiles) {
                 // remove stale/incomplete makefile, so that build won't continue with CDT
+                makefileFingerprints.remove(folder);
                 try { folder.getFile(new Path("Makefile")).delete(true, null); } catch (CoreException e1) {}
             }
         }
     }
 
+    private static GeneratedMakefile getResult(Future<GeneratedMakefile> future) throws CoreException, MakemakeException {
+        try {
+            return future.get();
+        }
+        catch (InterruptedException e) {
+            throw Activator.wrapIntoCoreException(e);
+        }
+        catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof CoreException)
+                throw (CoreException)cause;
+            if (cause instanceof MakemakeException)
+                throw (MakemakeException)cause;
+            if (cause instanceof RuntimeException)
+                throw (RuntimeException)cause;
+            throw Activator.wrapIntoCoreException(cause);
+        }
+    }
+
     protected void addMarker(IResource resource, int severity, String message) {
         Map<String, Object> map = new HashMap<String, Object>();
         map.put(IMarker.SEVERITY, severity);
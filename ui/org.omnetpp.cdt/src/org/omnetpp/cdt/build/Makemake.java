@@ -48,6 +48,7 @@ import org.omnetpp.common.util.StringUtils;
 public class Makemake {
     private static final String MAKEFILE_TEMPLATE_NAME = "Makefile.TEMPLATE";
     private static final String GENERATED_MAKEFILE_MAGIC_STRING = "# This file was generated"; // template must contain this
+    private static final String[] SOURCE_FILE_EXTENSIONS = { "cc", "cpp", "msg", "sm", "ned" };
 
     private static String template;
 
@@ -93,6 +94,21 @@ public class Makemake {
      * Generates Makefile in the given folder.
      */
     public void generateMakefile(IContainer folder, final MakemakeOptions options) throws CoreException, MakemakeException {
+        IFile makefile = folder.getFile(new Path("Makefile"));
+        makefile.refreshLocal(IResource.DEPTH_ZERO, null);
+        String content = generateMakefileContent(folder, options);
+
+        // only overwrite file if it does not already exist with the same content,
+        // to avoid excessive Eclipse workspace refreshes and infinite builder invocations
+        MakefileTools.ensureFileContent(makefile, content.getBytes(), null);
+    }
+
+    /**
+     * Returns the content of the Makefile for the given folder. This method doesn't modify
+     * the workspace, so it can be called from a background thread; the existing Makefile
+     * (if any) should be refreshed beforehand.
+     */
+    public String generateMakefileContent(IContainer folder, final MakemakeOptions options) throws CoreException, MakemakeException {
         this.folder = folder;
 
         File directory = folder.getLocation().toFile();
@@ -100,9 +116,7 @@ public class Makemake {
         boolean isDeep = options.isDeep;
         boolean isRecursive = false; // not supported from the IDE, because we have metaRecurse
 
-        String makefileName = "Makefile";
-        IFile makefile = folder.getFile(new Path(makefileName));
-        makefile.refreshLocal(IResource.DEPTH_ZERO, null);
+        IFile makefile = folder.getFile(new Path("Makefile"));
         if (makefile.exists() && !options.force)
             throw new MakemakeException("use -f to force overwriting existing " + makefile.getFullPath().toString(), false);
         if (makefile.exists() && !isGeneratedMakefile(makefile))
@@ -352,6 +366,41 @@ public class Makemake {
 
         // now generate the makefile
         Debug.println("generating makefile for " + folder.toString());
+        String content = StringUtils.substituteIntoTemplate(getTemplate(), m);
+        content = content.replace("\r\n", "\n");  // make line endings consistent
+
+        Assert.isTrue(content.contains(GENERATED_MAKEFILE_MAGIC_STRING)); // so that we recognize our own generated file
+        return content;
+    }
+
+    /**
+     * Returns a string that changes whenever the Makefile generated with the given options
+     * in the given folder would change: it contains the options, the OMNeT++ root, and the
+     * source files (.cc, .cpp, .msg, .sm, .ned) in the source folders. Source files are
+     * collected from the workspace resource tree, which is much cheaper than globbing the
+     * file system; the builder runs after the workspace has been refreshed anyway.
+     */
+    public String computeFingerprint(IContainer folder, MakemakeOptions options) throws CoreException {
+        StringBuilder result = new StringBuilder();
+        result.append(options.toString()).append('\n');
+        result.append(OmnetppDirs.getOmnetppRootDir()).append('\n');
+
+        List<String> sourceDirs = options.isDeep || !options.exceptSubdirs.contains(".") ? getSourceDirs(folder, options) : new ArrayList<String>();
+        for (String sourceDir : sourceDirs) {
+            IContainer container = sourceDir.equals(".") ? folder : folder.getFolder(new Path(sourceDir));
+            if (!container.exists())
+                continue;
+            result.append(sourceDir).append(':');
+            for (IResource member : container.members()) {
+                if (member instanceof IFile && ArrayUtils.contains(SOURCE_FILE_EXTENSIONS, member.getFileExtension()))
+                    result.append(' ').append(member.getName());
+            }
+            result.append('\n');
+        }
+        return result.toString();
+    }
+
+    protected static synchronized String getTemplate() throws CoreException {
         if (template == null) {
             try {
                 template = FileUtils.readTextFile(Makemake.class.getResourceAsStream(MAKEFILE_TEMPLATE_NAME), null);
@@ -360,15 +409,7 @@ public class Makemake {
                 throw Activator.wrapIntoCoreException(e);
             }
         }
-        String content = StringUtils.substituteIntoTemplate(template, m);
-        content = content.replace("\r\n", "\n");  // make line endings consistent
-
-        Assert.isTrue(content.contains(GENERATED_MAKEFILE_MAGIC_STRING)); // so that we recognize our own generated file
-
-        // only overwrite file if it does not already exist with the same content,
-        // to avoid excessive Eclipse workspace refreshes and infinite builder invocations
-        byte[] bytes = content.getBytes();
-        MakefileTools.ensureFileContent(makefile, bytes, null);
+        return template;
     }
 
     protected String getOutDir(IContainer folder, String outRoot) {
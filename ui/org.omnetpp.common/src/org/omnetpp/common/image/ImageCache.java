@@ -0,0 +1,134 @@
+/*--------------------------------------------------------------*
+  Copyright (C) 2006-2015 OpenSim Ltd.
+
+  This file is distributed WITHOUT ANY WARRANTY. See the file
+  'License' for details on this and other legal matters.
+*--------------------------------------------------------------*/
+
+package org.omnetpp.common.image;
+
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.eclipse.core.runtime.Assert;
+import org.eclipse.swt.graphics.Image;
+import org.eclipse.swt.graphics.Rectangle;
+import org.omnetpp.common.Debug;
+
+/**
+ * A memory bounded cache of the images created from NedImageDescriptors, typically
+ * the scaled and colorized variants of image files. The images are reference counted:
+ * when the estimated size of the cached images exceeds the limit, the least recently
+ * used images that are not referenced are disposed. Referenced images are never disposed.
+ *
+ * <p>Descriptors contain the image version, so images of modified files are
+ * cached under a new key, and the old ones drop out as they become unreferenced.
+ *
+ * @see ImageFactory#acquireImage(String, String, org.eclipse.swt.graphics.RGB, int)
+ * @see ImageFactory#releaseImage(Image)
+ */
+class ImageCache {
+    private static class Entry {
+        final Image image;
+        final long size;
+        int referenceCount;
+
+        Entry(Image image, long size) {
+            this.image = image;
+            this.size = size;
+        }
+    }
+
+    private final long maxSize;
+    private long size;
+    // in least recently used first order
+    private final LinkedHashMap<NedImageDescriptor, Entry> entries = new LinkedHashMap<NedImageDescriptor, Entry>(16, 0.75f, true);
+    private final Map<Image, Entry> entriesByImage = new IdentityHashMap<Image, Entry>();
+
+    /**
+     * Creates a cache that keeps at most {@code maxSize} bytes of unreferenced images.
+     */
+    ImageCache(long maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Returns the image of the descriptor, creating it if it is not yet in the cache,
+     * and increments its reference count. Returns {@code null} if the image cannot be created.
+     */
+    public synchronized Image acquire(NedImageDescriptor descriptor) {
+        Entry entry = entries.get(descriptor);
+        if (entry == null) {
+            Image image = descriptor.createImage(false);
+            if (image == null)
+                return null;
+            Rectangle bounds = image.getBounds();
+            entry = new Entry(image, 4L * bounds.width * bounds.height);
+            entries.put(descriptor, entry);
+            entriesByImage.put(image, entry);
+            size += entry.size;
+        }
+        entry.referenceCount++;
+        trim();
+        return entry.image;
+    }
+
+    /**
+     * Increments the reference count of an image previously returned by acquire().
+     * Returns false if the image is not (or no longer) in the cache.
+     */
+    public synchronized boolean retain(Image image) {
+        Entry entry = entriesByImage.get(image);
+        if (entry == null)
+            return false;
+        entry.referenceCount++;
+        return true;
+    }
+
+    /**
+     * Decrements the reference count of an image previously returned by acquire().
+     * Images not managed by this cache are ignored.
+     */
+    public synchronized void release(Image image) {
+        Entry entry = entriesByImage.get(image);
+        if (entry == null)
+            return;
+        Assert.isTrue(entry.referenceCount > 0);
+        entry.referenceCount--;
+        trim();
+    }
+
+    /**
+     * Returns the estimated size of the cached images in bytes.
+     */
+    public synchronized long getSize() {
+        return size;
+    }
+
+    /**
+     * Returns the number of cached images.
+     */
+    public synchronized int getNumberOfImages() {
+        return entries.size();
+    }
+
+    private void trim() {
+        if (size <= maxSize)
+            return;
+        int count = 0;
+        for (Iterator<Entry> it = entries.values().iterator(); it.hasNext() && size > maxSize; ) {
+            Entry entry = it.next();
+            if (entry.referenceCount == 0) {
+                it.remove();
+                entriesByImage.remove(entry.image);
+                size -= entry.size;
+                entry.image.dispose();
+                count++;
+            }
+        }
+        if (Debug.debug && count != 0)
+            Debug.println("ImageCache: disposed " + count + " images, " + entries.size() + " images (" + size + " bytes) remain");
+    }
+}
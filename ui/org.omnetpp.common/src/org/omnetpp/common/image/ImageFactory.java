@@ -7,7 +7,7 @@
 
 package org.omnetpp.common.image;
 
-import java.net.URI;
+import java.io.File;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
@@ -18,23 +18,19 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
-import org.eclipse.core.filesystem.EFS;
-import org.eclipse.core.filesystem.IFileStore;
-import org.eclipse.core.filesystem.URIUtil;
 import org.eclipse.core.resources.IContainer;
 import org.eclipse.core.resources.IFile;
 import org.eclipse.core.resources.IFolder;
 import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IResource;
 import org.eclipse.core.resources.IResourceChangeEvent;
 import org.eclipse.core.resources.IResourceChangeListener;
 import org.eclipse.core.resources.IResourceDelta;
 import org.eclipse.core.resources.IResourceDeltaVisitor;
-import org.eclipse.core.resources.IWorkspace;
 import org.eclipse.core.resources.ResourcesPlugin;
 import org.eclipse.core.runtime.Assert;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IPath;
-import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Path;
 import org.eclipse.jface.preference.IPreferenceStore;
 import org.eclipse.jface.resource.ImageRegistry;
@@ -178,6 +174,9 @@ public class ImageFactory {
     // tried file extensions in the order of preference
     private static final String[] fileExtensions = new String[] {"png", "gif"}; // TODO svg?
 
+    // maximum size of the unreferenced images kept in the variant cache (in bytes)
+    private static final long MAX_IMAGE_CACHE_SIZE = 32 * 1024 * 1024;
+
     // icon geometry
     private static final Padding ICON_PADDING = new Padding(1);
     private static final Scaling ICON_SIZE = new Scaling(16,16);
@@ -193,16 +192,22 @@ public class ImageFactory {
     // The variable is increased when an image file change is detected.
     private static int currentVersion = 0;
 
+    // image file indices of the directories in the image paths, shared by the factories
+    private static Map<IPath, ImageIndex> imageIndices = new HashMap<IPath, ImageIndex>();
+
+    // reference counted images returned by acquireImage(), shared by the factories
+    private static ImageCache imageCache = new ImageCache(MAX_IMAGE_CACHE_SIZE);
+
     // image search path: absolute path of directories
     final IPath[] imagePath;
+    // the indices of the directories in imagePath
+    final ImageIndex[] indices;
     // the search continued in the fallback when not found in this cache
     ImageFactory fallback;
     // for images and icons
     ImageRegistry imageRegistry = new ImageRegistry(Display.getDefault());
     // name of png and gif images in imagePath
     List<String> imageNameList = null;
-    // workspace folders in the imagePath
-    IContainer[] workspaceFoldersInPath;
 
     /**
      * Sets the global image directories as file system paths.
@@ -298,20 +303,11 @@ public class ImageFactory {
         this.imagePath = imagePath;
         this.fallback = fallback;
 
-        IWorkspace workspace = ResourcesPlugin.getWorkspace();
-        List<IContainer> folders = new ArrayList<IContainer>();
-
-        for (IPath dir : imagePath) {
-            URI uri = URIUtil.toURI(dir);
-            try {
-                IContainer[] containers = workspace.getRoot().findContainersForLocationURI(uri);
-                folders.addAll(Arrays.asList(containers));
-            } catch (IllegalArgumentException e) {
-                CommonPlugin.log(IStatus.ERROR, "Invalid path segment in OMNETPP_IMAGE_PATH: '" + dir.toOSString()+"'");
-            }
-        }
-
-        workspaceFoldersInPath = folders.toArray(new IContainer[folders.size()]);
+        List<ImageIndex> indexList = new ArrayList<ImageIndex>();
+        for (IPath dir : imagePath)
+            if (dir != null)
+                indexList.add(getImageIndex(dir));
+        indices = indexList.toArray(new ImageIndex[indexList.size()]);
     }
 
     /**
@@ -383,6 +379,38 @@ public class ImageFactory {
         return key != null ? imageRegistry.get(key) : null;
     }
 
+    /**
+     * Returns an image for a given ID, scaling and shading, and increments its reference
+     * count. Unlike images returned by getImage(), these images are kept in a memory bounded
+     * cache, and the caller MUST call releaseImage() when the image is no longer used.
+     * If imageId is empty or null, the function returns null.
+     * If the image is not found, returns the "unknown" image (id=UNKNOWN).
+     * You should NEVER modify or dispose the returned instance.
+     */
+    public Image acquireImage(String imageId, String scaling, RGB shade, int weight) {
+        NedImageDescriptor descriptor = getDescriptor(imageId, Scaling.parse(scaling), null, shade, weight);
+        return descriptor != null ? imageCache.acquire(descriptor) : null;
+    }
+
+    /**
+     * Increments the reference count of an image returned by acquireImage().
+     * Returns false if the image has already been disposed, because it was released
+     * by all of its users. Images obtained in other ways are ignored.
+     */
+    public static boolean retainImage(Image image) {
+        return image != null && imageCache.retain(image);
+    }
+
+    /**
+     * Decrements the reference count of an image returned by acquireImage().
+     * Unreferenced images may be disposed any time later. Images obtained
+     * in other ways (e.g. by getImage()) are ignored.
+     */
+    public static void releaseImage(Image image) {
+        if (image != null)
+            imageCache.release(image);
+    }
+
     /**
      * Returns an image descriptor for a given ID.
      * If imageId is empty or null, the function returns null.
@@ -446,12 +474,8 @@ public class ImageFactory {
             return imageNameList;
 
         Set<String> result = new HashSet<String>();
-        for (IPath basedir : imagePath) {
-            try {
-                IFileStore baseStore = EFS.getStore(URIUtil.toURI(basedir).normalize());
-                result.addAll(getNameList(baseStore, baseStore.toURI().toString().length()));
-            } catch (CoreException e) { }
-        }
+        for (ImageIndex index : indices)
+            result.addAll(index.getImageNames());
 
         if (fallback != null) {
             result.addAll(fallback.getImageNameList());
@@ -465,10 +489,13 @@ public class ImageFactory {
     }
 
     /**
-     * Re-reads the cached image names.
+     * Re-reads the cached image names. The image directories are scanned again,
+     * so changes made outside the workspace are also detected.
      */
     public synchronized void rereadImageNameList() {
         imageNameList = null;
+        for (ImageIndex index : indices)
+            index.rebuild();
         if (fallback != null)
             fallback.rereadImageNameList();
         getImageNameList();
@@ -565,8 +592,8 @@ public class ImageFactory {
     private NedImageDescriptor createDescriptor(String baseName, Scaling scaling, Padding padding, RGB shade, int weight) {
         NedImageDescriptor result;
         for (String extension : fileExtensions) {
-            for (IPath dir : imagePath)
-                if ((result = createDescriptor(null, dir, baseName, extension, scaling, padding, shade, weight)) != null)
+            for (ImageIndex index : indices)
+                if ((result = createDescriptor(index, baseName, extension, scaling, padding, shade, weight)) != null)
                     return result;
             // if not found in the filesystem, look for it in the JAR file
             if (this == globalFactory)
@@ -583,6 +610,7 @@ public class ImageFactory {
         if (Debug.debug)
             Debug.println("ImageFactory: dropping images from cache: " + StringUtils.join(imagePath, pathSeparator));
         // do not dispose old registry, because images are used by widgets, figures, etc.
+        // (images returned by acquireImage() are not affected, they are disposed when released)
         imageRegistry = new ImageRegistry(Display.getDefault());
         if (imageNameList != null)
             imageNameList.clear();
@@ -617,6 +645,30 @@ public class ImageFactory {
         return key;
     }
 
+    /**
+     * Returns the descriptor of the specified image file in the image directory of {@code index},
+     * or {@code null} if not found. Like the other createDescriptor(), but looks up the file
+     * in the index instead of probing the file system.
+     */
+    private static NedImageDescriptor createDescriptor(ImageIndex index, String baseName, String ext, Scaling scaling, Padding padding, RGB shade, int weight) {
+        // add a size suffix to the filename if we need some of the predefined scaling factors
+        String sizeSuffix = scaling != null ? scaling.getFilenameSuffix() : "";
+
+        if (!"".equals(sizeSuffix)) {
+            // try to load the resized image
+            File file = index.find(baseName + sizeSuffix + "." + ext);
+            if (file != null)
+                return new NedImageDescriptor(null, file.getPath(), currentVersion, Scaling.NORMAL, padding, shade, weight);
+        }
+
+        // load the normal size image and scale it
+        File file = index.find(baseName + "." + ext);
+        if (file != null)
+            return new NedImageDescriptor(null, file.getPath(), currentVersion, scaling, padding, shade, weight);
+
+        return null;
+    }
+
     /**
      * Returns the descriptor of the specified image, or {@code null} if not found.
      * If {@code scaling} is relative and one of the standard sizes (40%, 60%, 100%, 150%, 250%),
@@ -658,53 +710,6 @@ public class ImageFactory {
     }
 
 
-    /**
-     * Get the image ID for a file or image IDs if it is a directory (recursively).
-     *
-     * @param fileStore A file or directory
-     * @param stripBeginning (how much should be stripped at the beginning of the absolute path)
-     * @return
-     */
-    private static Set<String> getNameList(IFileStore fileStore, int stripBeginning) {
-        Set<String> result = new HashSet<String>(1);
-        // check if this is a real file
-        if (fileStore.fetchInfo().exists() && !fileStore.fetchInfo().isDirectory()) {
-            String toAdd;
-            toAdd = fileStore.toURI().toString().substring(stripBeginning);
-            // convert backslash to slash on windows
-            toAdd = toAdd.replace('\\','/');
-            // strip the leading / -s if any
-            while (toAdd.charAt(0) == '/')
-                    toAdd = toAdd.substring(1);
-            // check if this is an image file, otherwise return with empty result
-            if (!toAdd.endsWith(".gif") && !toAdd.endsWith(".png"))
-                return result;
-
-            // strip the extension
-            toAdd = toAdd.substring(0, toAdd.length()-4);
-
-            // look for size extensions and remove them
-            if (toAdd.endsWith("_s") || toAdd.endsWith("_l"))
-                toAdd = toAdd.substring(0, toAdd.length()-2);
-            if (toAdd.endsWith("_vs") || toAdd.endsWith("_vl"))
-                toAdd = toAdd.substring(0, toAdd.length()-3);
-
-            result.add(toAdd);
-        }
-
-        // if this is a directory (but not the internal directory)iterate through all contained files
-        if (fileStore.fetchInfo().isDirectory()
-                && !fileStore.fetchInfo().getName().startsWith("_internal"))
-            try {
-                for (IFileStore childToAdd : fileStore.childStores(EFS.NONE, null)) {
-                    result.addAll(getNameList(childToAdd, stripBeginning));
-                }
-            } catch (CoreException e) { // do nothing if error occurred
-            }
-
-        return result;
-    }
-
     /**
      * This method is called after some resource changed in the workspace.
      * It is responsible for dropping stale information from the cache.
@@ -715,10 +720,10 @@ public class ImageFactory {
      *      from the cache of the project and its dependent projects.
      * <li> If some project description is changed, then drop everything
      *      from the cache of the project and its dependent projects.
-     * <li> If some content is changed in an image path, then drop everything
-     *      from the cache of the project and its dependent projects.
-     * <li> If some image file is changed in an image path, then increase
-     *      currentVersion.
+     * <li> If some image file is added, removed, or changed in an image path,
+     *      then update the image index of the directory, drop everything
+     *      from the cache of the factories whose image path contains the directory,
+     *      and increase currentVersion.
      * </ul>
      */
     private static void handleResourceChangeEvent(IResourceChangeEvent e) {
@@ -748,38 +753,68 @@ public class ImageFactory {
             for (IProject project : projectsChanged)
                 invalidateCache(project);
 
-            // check that there are some change in the image path
-            Set<IProject> projectsInCache = new HashSet<IProject>(projectFactories.keySet());
-            final boolean[] imageFileChanged = new boolean[1];
-            for (IProject project : projectsInCache) {
-                for (IContainer dir : ImageFactory.of(project).workspaceFoldersInPath) {
-                    IResourceDelta dirDelta = delta.findMember(dir.getFullPath());
-                    if (dirDelta != null) {
-                        invalidateCache(project);
-                        if (!imageFileChanged[0]) {
-                            try {
-                                dirDelta.accept(new IResourceDeltaVisitor() {
-                                    @Override
-                                    public boolean visit(IResourceDelta delta) throws CoreException {
-                                        if (delta.getResource() instanceof IFile &&
-                                                Arrays.asList(fileExtensions).contains(delta.getResource().getFullPath().getFileExtension().toLowerCase()) &&
-                                                (delta.getFlags() & (IResourceDelta.CONTENT | IResourceDelta.REPLACED)) != 0)
-                                            imageFileChanged[0] = true;
-                                        return !imageFileChanged[0];
-                                    }
-                                });
+            // update the indices of the image directories from the changed image files
+            final Map<IPath, ImageIndex> indices = getImageIndices();
+            final Set<IPath> changedDirs = new HashSet<IPath>();
+            try {
+                delta.accept(new IResourceDeltaVisitor() {
+                    @Override
+                    public boolean visit(IResourceDelta delta) throws CoreException {
+                        IResource resource = delta.getResource();
+                        if (resource instanceof IFile && resource.getLocation() != null &&
+                                Arrays.asList(fileExtensions).contains(StringUtils.nullToEmpty(resource.getFileExtension()).toLowerCase())) {
+                            IPath location = resource.getLocation();
+                            for (Map.Entry<IPath, ImageIndex> entry : indices.entrySet()) {
+                                IPath dir = entry.getKey();
+                                if (dir.isPrefixOf(location) && entry.getValue().update(location.makeRelativeTo(dir).toString()))
+                                    changedDirs.add(dir);
                             }
-                            catch (CoreException ex) {}
                         }
-                        break;
+                        return true;
                     }
-                }
+                });
             }
+            catch (CoreException ex) {}
 
-            if (imageFileChanged[0]) {
+            // drop the caches of the factories that may have resolved images from the changed directories
+            if (!changedDirs.isEmpty()) {
                 Debug.println("ImageFactory: increasing image version number");
                 currentVersion++;
+
+                if (!Collections.disjoint(changedDirs, Arrays.asList(globalFactory.imagePath)))
+                    invalidateCache(null);
+                else {
+                    Set<IProject> projectsInCache = new HashSet<IProject>(projectFactories.keySet());
+                    for (IProject project : projectsInCache) {
+                        ImageFactory factory = projectFactories.get(project);
+                        if (factory != null && !Collections.disjoint(changedDirs, Arrays.asList(factory.imagePath)))
+                            invalidateCache(project);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the (shared) image index of the specified directory.
+     */
+    private static ImageIndex getImageIndex(IPath dir) {
+        synchronized (imageIndices) {
+            ImageIndex index = imageIndices.get(dir);
+            if (index == null) {
+                index = new ImageIndex(dir, fileExtensions);
+                imageIndices.put(dir, index);
             }
+            return index;
+        }
+    }
+
+    /**
+     * Returns a snapshot of the image indices.
+     */
+    private static Map<IPath, ImageIndex> getImageIndices() {
+        synchronized (imageIndices) {
+            return new HashMap<IPath, ImageIndex>(imageIndices);
         }
     }
 
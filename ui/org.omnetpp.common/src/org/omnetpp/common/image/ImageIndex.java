@@ -0,0 +1,191 @@
+/*--------------------------------------------------------------*
+  Copyright (C) 2006-2015 OpenSim Ltd.
+
+  This file is distributed WITHOUT ANY WARRANTY. See the file
+  'License' for details on this and other legal matters.
+*--------------------------------------------------------------*/
+
+package org.omnetpp.common.image;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.core.runtime.IPath;
+import org.omnetpp.common.Debug;
+
+/**
+ * Index of the image files in one directory of the image path. It maps the path of each
+ * image file relative to the directory (e.g. "device/pc_s.png") to the file and its
+ * modification time, so resolving an image ID doesn't need to probe the file system
+ * for each extension and size suffix, and listing the image names doesn't need to walk
+ * the directory tree again.
+ *
+ * <p>The index is built on first use. ImageFactory keeps it up to date using
+ * resource deltas (for directories in the workspace) and by rebuilding it on
+ * explicit refresh requests.
+ */
+class ImageIndex {
+    // on case insensitive file systems (Windows) keys are stored in lower case, otherwise only their extension
+    private static final boolean caseSensitive = !new File("a").equals(new File("A"));
+
+    private static class Entry {
+        final File file;
+        final long lastModified;
+
+        Entry(File file, long lastModified) {
+            this.file = file;
+            this.lastModified = lastModified;
+        }
+    }
+
+    private final File baseDir;
+    private final String[] fileExtensions;
+    // relative path -> file; null if not yet built
+    private Map<String, Entry> entries;
+    // image IDs (without extension and size suffix) outside the _internal directories; null if stale
+    private Set<String> imageNames;
+
+    ImageIndex(IPath dir, String[] fileExtensions) {
+        this.baseDir = dir.toFile();
+        this.fileExtensions = fileExtensions;
+    }
+
+    /**
+     * Returns the image file with the given relative path (using '/' as separator,
+     * and including the extension), or {@code null} if there is no such file.
+     */
+    public synchronized File find(String relativePath) {
+        ensureBuilt();
+        Entry entry = entries.get(toKey(relativePath));
+        return entry == null ? null : entry.file;
+    }
+
+    /**
+     * Returns the IDs of the images in the directory, excluding the ones in
+     * the _internal directories. Size suffixes ("_s", "_vl", etc.) are stripped.
+     */
+    public synchronized Set<String> getImageNames() {
+        ensureBuilt();
+        if (imageNames == null) {
+            Set<String> result = new HashSet<String>();
+            for (Entry entry : entries.values()) {
+                String name = toImageName(entry.file);
+                if (name != null)
+                    result.add(name);
+            }
+            imageNames = Collections.unmodifiableSet(result);
+        }
+        return imageNames;
+    }
+
+    /**
+     * Updates the entry of the file with the given relative path from the file system.
+     * Returns true if the index changed, i.e. the file was added, removed, or its
+     * modification time changed.
+     */
+    public synchronized boolean update(String relativePath) {
+        if (entries == null)
+            return false; // not built yet, it will see the current state when it is built
+        if (!isImageFile(relativePath))
+            return false;
+        String key = toKey(relativePath);
+        Entry oldEntry = entries.get(key);
+        File file = new File(baseDir, relativePath);
+        if (file.isFile()) {
+            long lastModified = file.lastModified();
+            if (oldEntry != null && oldEntry.lastModified == lastModified)
+                return false;
+            entries.put(key, new Entry(file, lastModified));
+        }
+        else {
+            if (oldEntry == null)
+                return false;
+            entries.remove(key);
+        }
+        imageNames = null;
+        return true;
+    }
+
+    /**
+     * Drops the content of the index; it will be rebuilt on next access.
+     */
+    public synchronized void rebuild() {
+        entries = null;
+        imageNames = null;
+    }
+
+    private void ensureBuilt() {
+        if (entries == null) {
+            long startTime = System.currentTimeMillis();
+            entries = new HashMap<String, Entry>();
+            collectFiles(baseDir, "", new HashSet<String>());
+            if (Debug.debug)
+                Debug.println("ImageIndex: indexed " + entries.size() + " images in " + baseDir + " in " + (System.currentTimeMillis() - startTime) + "ms");
+        }
+    }
+
+    private void collectFiles(File dir, String relativeDir, Set<String> visitedDirs) {
+        try {
+            // protect against symlink cycles
+            if (!visitedDirs.add(dir.getCanonicalPath()))
+                return;
+        }
+        catch (IOException e) {
+            return;
+        }
+        File[] files = dir.listFiles();
+        if (files == null)
+            return;
+        for (File file : files) {
+            String relativePath = relativeDir + file.getName();
+            if (file.isDirectory())
+                collectFiles(file, relativePath + "/", visitedDirs);
+            else if (isImageFile(relativePath))
+                entries.put(toKey(relativePath), new Entry(file, file.lastModified()));
+        }
+    }
+
+    private boolean isImageFile(String relativePath) {
+        // extensions are matched case insensitively, like in ImageFactory's resource change listener
+        String lowerCasePath = relativePath.toLowerCase();
+        for (String extension : fileExtensions)
+            if (lowerCasePath.endsWith("." + extension))
+                return true;
+        return false;
+    }
+
+    private String toImageName(File file) {
+        String relativePath = file.getPath().substring(baseDir.getPath().length()).replace('\\', '/');
+        // strip the leading / -s if any
+        while (relativePath.startsWith("/"))
+            relativePath = relativePath.substring(1);
+        // skip the internal directories
+        String[] segments = relativePath.split("/");
+        for (int i = 0; i < segments.length - 1; i++)
+            if (segments[i].startsWith("_internal"))
+                return null;
+
+        // strip the extension
+        String name = relativePath.substring(0, relativePath.lastIndexOf('.'));
+
+        // look for size extensions and remove them
+        if (name.endsWith("_s") || name.endsWith("_l"))
+            name = name.substring(0, name.length()-2);
+        if (name.endsWith("_vs") || name.endsWith("_vl"))
+            name = name.substring(0, name.length()-3);
+        return name;
+    }
+
+    private static String toKey(String relativePath) {
+        if (!caseSensitive)
+            return relativePath.toLowerCase();
+        // lookups use lower case extensions, so "FOO.PNG" must be found as "FOO.png"
+        int dotIndex = relativePath.lastIndexOf('.');
+        return dotIndex > relativePath.lastIndexOf('/') ? relativePath.substring(0, dotIndex) + relativePath.substring(dotIndex).toLowerCase() : relativePath;
+    }
+}
@@ -170,7 +170,7 @@ public class NedImageDescriptor extends ImageDescriptor {
      */
     public boolean canCreate() {
         if (location != null) {
-            return location.getResourceAsStream(name) != null;
+            return location.getResource(name) != null; // note: getResourceAsStream() would leave the stream open
         }
         else {
             // check if the file exists
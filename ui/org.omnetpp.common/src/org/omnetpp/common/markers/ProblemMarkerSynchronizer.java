@@ -13,6 +13,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.BiPredicate;
 
 import org.eclipse.core.resources.IMarker;
 import org.eclipse.core.resources.IResource;
@@ -144,6 +145,31 @@ public class ProblemMarkerSynchronizer {
         markerTable.get(file).add(markerData);
     }
 
+    /**
+     * Adds the registered files and markers of another synchronizer to this one.
+     * Useful for merging results collected by several threads.
+     */
+    public void addAll(ProblemMarkerSynchronizer other) {
+        for (Map.Entry<IResource, List<MarkerData>> entry : other.markerTable.entrySet()) {
+            register(entry.getKey());
+            markerTable.get(entry.getKey()).addAll(entry.getValue());
+        }
+    }
+
+    /**
+     * Like addAll(), but only adds those markers of the other synchronizer that
+     * are accepted by the filter (which is called with the resource and the marker
+     * attributes). Useful for revalidating only parts of a file.
+     */
+    public void addAll(ProblemMarkerSynchronizer other, BiPredicate<IResource, Map<String, Object>> filter) {
+        for (Map.Entry<IResource, List<MarkerData>> entry : other.markerTable.entrySet()) {
+            register(entry.getKey());
+            for (MarkerData markerData : entry.getValue())
+                if (filter.test(entry.getKey(), markerData.attrs))
+                    markerTable.get(entry.getKey()).add(markerData);
+        }
+    }
+
     public String getBaseMarkerType() {
         return markerBaseType;
     }
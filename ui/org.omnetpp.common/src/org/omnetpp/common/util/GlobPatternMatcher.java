@@ -0,0 +1,361 @@
+/*--------------------------------------------------------------*
+  Copyright (C) 2006-2015 OpenSim Ltd.
+
+  This file is distributed WITHOUT ANY WARRANTY. See the file
+  'License' for details on this and other legal matters.
+*--------------------------------------------------------------*/
+
+package org.omnetpp.common.util;
+
+import java.util.ArrayList;
+
+/**
+ * Pure Java implementation of the glob-like patterns of the native PatternMatcher
+ * (src/common/patternmatcher.cc), with the same syntax and semantics:
+ * <ul>
+ * <li>? : any character except dot if dottedpath=true, any character otherwise
+ * <li>* : zero or more characters except dot if dottedpath=true, any character sequence otherwise
+ * <li>** : any character sequence, including dots
+ * <li>{a-z}, {^a-z} : set and negated set of characters
+ * <li>{38..150} : numeric range, matches a complete run of digits
+ * <li>[38..150] : numeric range in square brackets, e.g. an index in a module path
+ * <li>\ : escapes the next character
+ * </ul>
+ * The pattern is parsed once in the constructor. Patterns that consist of a literal string
+ * with optional leading and trailing "**" (which is the common case with fullstring=false)
+ * are matched with plain string operations instead of the general backtracking algorithm.
+ *
+ * Regular expressions are not used, because numeric ranges cannot be expressed exactly with them.
+ */
+public class GlobPatternMatcher
+{
+    private static final int LITERALSTRING = 0;
+    private static final int ANYCHAR = 1;
+    private static final int NONDOTCHAR = 2;
+    private static final int ANYSEQ = 3;
+    private static final int NONDOTSEQ = 4;
+    private static final int SET = 5;
+    private static final int NEGSET = 6;
+    private static final int NUMRANGE = 7;
+    private static final int END = 8;
+
+    private static final class Elem {
+        int type;
+        String literalString; // LITERALSTRING
+        String setOfChars; // SET, NEGSET: pairs of characters denoting the inclusive ranges
+        long numStart = -1, numEnd = -1; // NUMRANGE: -1 means unbounded
+
+        Elem(int type) {
+            this.type = type;
+        }
+    }
+
+    // shortcuts for patterns that can be matched with string operations
+    private static final int GENERAL = 0;
+    private static final int MATCHES_ALL = 1;
+    private static final int EQUALS = 2;
+    private static final int STARTS_WITH = 3;
+    private static final int ENDS_WITH = 4;
+    private static final int CONTAINS = 5;
+
+    private final String patternString;
+    private final boolean caseSensitive;
+    private final Elem[] pattern; // always ends in END
+    private final int shortcut;
+    private final String shortcutLiteral; // lowercase if not case sensitive
+
+    public GlobPatternMatcher(String pattern, boolean dottedpath, boolean fullstring, boolean casesensitive) {
+        this.patternString = pattern;
+        this.caseSensitive = casesensitive;
+        this.pattern = parsePattern(pattern, dottedpath, fullstring);
+        int n = this.pattern.length - 1; // without END
+        Elem first = n > 0 ? this.pattern[0] : null;
+        Elem last = n > 0 ? this.pattern[n - 1] : null;
+        if (n == 1 && first.type == ANYSEQ)
+            shortcut = MATCHES_ALL;
+        else if (n == 1 && first.type == LITERALSTRING)
+            shortcut = EQUALS;
+        else if (n == 2 && first.type == LITERALSTRING && last.type == ANYSEQ)
+            shortcut = STARTS_WITH;
+        else if (n == 2 && first.type == ANYSEQ && last.type == LITERALSTRING)
+            shortcut = ENDS_WITH;
+        else if (n == 3 && first.type == ANYSEQ && this.pattern[1].type == LITERALSTRING && last.type == ANYSEQ)
+            shortcut = CONTAINS;
+        else
+            shortcut = GENERAL;
+        String literal = shortcut == EQUALS || shortcut == STARTS_WITH ? first.literalString : shortcut == ENDS_WITH ? last.literalString : shortcut == CONTAINS ? this.pattern[1].literalString : null;
+        shortcutLiteral = literal != null && !casesensitive ? literal.toLowerCase() : literal;
+    }
+
+    public String getPattern() {
+        return patternString;
+    }
+
+    public boolean matches(String text) {
+        switch (shortcut) {
+            case MATCHES_ALL:
+                return true;
+            case EQUALS:
+                return caseSensitive ? text.equals(shortcutLiteral) : text.equalsIgnoreCase(shortcutLiteral);
+            case STARTS_WITH:
+                return text.regionMatches(!caseSensitive, 0, shortcutLiteral, 0, shortcutLiteral.length());
+            case ENDS_WITH:
+                return text.regionMatches(!caseSensitive, text.length() - shortcutLiteral.length(), shortcutLiteral, 0, shortcutLiteral.length());
+            case CONTAINS:
+                return caseSensitive ? text.contains(shortcutLiteral) : text.toLowerCase().contains(shortcutLiteral);
+            default:
+                return doMatch(text, 0, 0);
+        }
+    }
+
+    private boolean doMatch(String s, int i, int k) {
+        int length = s.length();
+        while (true) {
+            Elem e = pattern[k];
+            switch (e.type) {
+                case LITERALSTRING: {
+                    int len = e.literalString.length();
+                    if (!s.regionMatches(!caseSensitive, i, e.literalString, 0, len))
+                        return false;
+                    i += len;
+                    break;
+                }
+                case ANYCHAR:
+                    if (i == length)
+                        return false;
+                    i++;
+                    break;
+                case NONDOTCHAR:
+                    if (i == length || s.charAt(i) == '.')
+                        return false;
+                    i++;
+                    break;
+                case SET:
+                    if (i == length || !isInSet(s.charAt(i), e.setOfChars))
+                        return false;
+                    i++;
+                    break;
+                case NEGSET:
+                    if (i == length || isInSet(s.charAt(i), e.setOfChars))
+                        return false;
+                    i++;
+                    break;
+                case NUMRANGE: {
+                    if (i == length || !isDigit(s.charAt(i)))
+                        return false;
+                    int start = i;
+                    while (i < length && isDigit(s.charAt(i)))
+                        i++;
+                    long num = parseLong(s, start, i);
+                    if ((e.numStart >= 0 && num < e.numStart) || (e.numEnd >= 0 && num > e.numEnd))
+                        return false;
+                    break;
+                }
+                case ANYSEQ:
+                    // if the pattern ends in ANYSEQ, the rest of the input can be anything;
+                    // if it ends in ANYSEQ LITERALSTRING, it's enough if the input ends in the literal
+                    if (k == pattern.length - 2)
+                        return true;
+                    if (k == pattern.length - 3 && pattern[k + 1].type == LITERALSTRING) {
+                        String literal = pattern[k + 1].literalString;
+                        return length - i >= literal.length() && s.regionMatches(!caseSensitive, length - literal.length(), literal, 0, literal.length());
+                    }
+                    while (true) {
+                        if (doMatch(s, i, k + 1))
+                            return true;
+                        if (i == length)
+                            return false;
+                        i++;
+                    }
+                case NONDOTSEQ:
+                    while (true) {
+                        if (doMatch(s, i, k + 1))
+                            return true;
+                        if (i == length || s.charAt(i) == '.')
+                            return false;
+                        i++;
+                    }
+                case END:
+                    return i == length;
+                default:
+                    throw new IllegalStateException();
+            }
+            k++;
+        }
+    }
+
+    private boolean isInSet(char c, String set) {
+        if (!caseSensitive)
+            c = Character.toUpperCase(c); // set is already uppercase here
+        for (int i = 0; i < set.length(); i += 2)
+            if (c >= set.charAt(i) && c <= set.charAt(i + 1))
+                return true;
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        return patternString;
+    }
+
+    // parsing follows PatternMatcher::setPattern() closely, including its corner cases
+
+    private Elem[] parsePattern(String patt, boolean dottedpath, boolean fullstring) {
+        ArrayList<Elem> elems = new ArrayList<Elem>();
+        int[] pos = new int[] { 0 };
+        int length = patt.length();
+        while (pos[0] < length) {
+            char c = patt.charAt(pos[0]);
+            Elem e;
+            long[] range = new long[2];
+            switch (c) {
+                case '?':
+                    e = new Elem(dottedpath ? NONDOTCHAR : ANYCHAR);
+                    pos[0]++;
+                    break;
+                case '[':
+                    if (elems.isEmpty() || elems.get(elems.size() - 1).type != LITERALSTRING || !parseNumRange(patt, pos, ']', range))
+                        e = parseLiteralString(patt, pos);
+                    else
+                        e = makeNumRange(range);
+                    break;
+                case '{':
+                    if (parseNumRange(patt, pos, '}', range)) {
+                        e = makeNumRange(range);
+                        pos[0]++;
+                    }
+                    else
+                        e = parseSet(patt, pos);
+                    break;
+                case '*':
+                    if (pos[0] + 1 < length && patt.charAt(pos[0] + 1) == '*') {
+                        e = new Elem(ANYSEQ);
+                        pos[0] += 2;
+                    }
+                    else {
+                        e = new Elem(dottedpath ? NONDOTSEQ : ANYSEQ);
+                        pos[0]++;
+                    }
+                    break;
+                default:
+                    e = parseLiteralString(patt, pos);
+                    break;
+            }
+            elems.add(e);
+        }
+        if (!fullstring) {
+            // for substring match, add "**" at both ends of the pattern (unless already there)
+            if (elems.isEmpty() || elems.get(elems.size() - 1).type != ANYSEQ)
+                elems.add(new Elem(ANYSEQ));
+            if (elems.get(0).type != ANYSEQ)
+                elems.add(0, new Elem(ANYSEQ));
+        }
+        elems.add(new Elem(END));
+        return elems.toArray(new Elem[elems.size()]);
+    }
+
+    private Elem parseSet(String s, int[] pos) {
+        int length = s.length();
+        int i = pos[0] + 1; // skip "{"
+        Elem e = new Elem(SET);
+        if (i < length && s.charAt(i) == '^') {
+            e.type = NEGSET;
+            i++;
+        }
+        // to make "}" part of the set, it must be first within the braces
+        StringBuilder set = new StringBuilder();
+        int begin = i;
+        while (i < length && (s.charAt(i) != '}' || i == begin)) {
+            char from, to;
+            if (i + 2 < length && s.charAt(i + 1) == '-' && s.charAt(i + 2) != '}') {
+                from = s.charAt(i);
+                to = s.charAt(i + 2);
+                i += 3;
+            }
+            else {
+                from = to = s.charAt(i);
+                i++;
+            }
+            if (!caseSensitive) {
+                from = Character.toUpperCase(from);
+                to = Character.toUpperCase(to);
+            }
+            set.append(from).append(to);
+        }
+        if (i == length)
+            throw new IllegalArgumentException("Unmatched '}' in expression");
+        pos[0] = i + 1; // skip "}"
+        e.setOfChars = set.toString();
+        return e;
+    }
+
+    private Elem parseLiteralString(String s, int[] pos) {
+        int length = s.length();
+        int i = pos[0];
+        StringBuilder literal = new StringBuilder();
+        long[] dummy = new long[2];
+        while (i < length) {
+            char c = s.charAt(i);
+            if (c == '?' || c == '{' || c == '*')
+                break;
+            if (c == '\\' && i + 1 < length)
+                c = s.charAt(++i);
+            literal.append(c);
+            if (c == '[' && parseNumRange(s, new int[] { i }, ']', dummy))
+                break;
+            i++;
+        }
+        pos[0] = i;
+        Elem e = new Elem(LITERALSTRING);
+        e.literalString = literal.toString();
+        return e;
+    }
+
+    /**
+     * Tries to parse "[n..m]" or "{n..m}" where pos points to the opening bracket. On success,
+     * pos is moved to the closing bracket and the bounds (-1 if missing) are stored in range.
+     */
+    private static boolean parseNumRange(String str, int[] pos, char closingChar, long[] range) {
+        int length = str.length();
+        int i = pos[0] + 1; // skip "[" or "{"
+        range[0] = range[1] = -1;
+        int start = i;
+        while (i < length && isDigit(str.charAt(i)))
+            i++;
+        if (i > start)
+            range[0] = parseLong(str, start, i);
+        if (i + 1 >= length || str.charAt(i) != '.' || str.charAt(i + 1) != '.')
+            return false;
+        i += 2;
+        start = i;
+        while (i < length && isDigit(str.charAt(i)))
+            i++;
+        if (i > start)
+            range[1] = parseLong(str, start, i);
+        if (i >= length || str.charAt(i) != closingChar)
+            return false;
+        pos[0] = i;
+        return true;
+    }
+
+    private static Elem makeNumRange(long[] range) {
+        Elem e = new Elem(NUMRANGE);
+        e.numStart = range[0];
+        e.numEnd = range[1];
+        return e;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static long parseLong(String s, int begin, int end) {
+        long value = 0;
+        for (int i = begin; i < end; i++) {
+            if (value > (Long.MAX_VALUE - 9) / 10)
+                return Long.MAX_VALUE;
+            value = value * 10 + (s.charAt(i) - '0');
+        }
+        return value;
+    }
+}
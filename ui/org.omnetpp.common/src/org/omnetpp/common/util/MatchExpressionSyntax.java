@@ -365,7 +365,7 @@ public class MatchExpressionSyntax {
         }
 
         public Lexer(Reader input, int startPos) {
-            this.input = new PushbackReader(input, 1);
+            this.input = new PushbackReader(input, 2); // "=~" after a literal is pushed back in two steps
             this.pos = startPos;
         }
 
@@ -455,9 +455,8 @@ public class MatchExpressionSyntax {
                 input.unread(ch);
                 pos--;
             } catch (IOException e) {
-                // Should never happen, because an ungetChar() call
-                // always preceded by a getChar() call. (No two adjacent
-                // ungetChar() calls.)
+                // Should never happen, because there are at most two adjacent
+                // ungetChar() calls, each preceded by a getChar() call.
                 throw new RuntimeException(e);
             }
         }
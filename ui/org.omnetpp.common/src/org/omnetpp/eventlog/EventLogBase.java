@@ -181,6 +181,14 @@ public abstract class EventLogBase
         return lastNeighbourEvent;
     }
 
+    /**
+     * Returns the events from the start event to the end event (inclusive) along with the message
+     * dependencies having at least one end among them, in a form that can be processed in bulk.
+     */
+    public EventRange getEventRange(IEvent startEvent, IEvent endEvent) {
+        return new EventRange((IEventLog)this, startEvent, endEvent);
+    }
+
     /**
      * Returns true if the event with the given event number is included in the log.
      */
@@ -1,8 +1,7 @@
 package org.omnetpp.eventlog;
 
 import org.eclipse.core.runtime.Assert;
-import org.omnetpp.common.engine.JavaMatchableObject;
-import org.omnetpp.common.engine.MatchExpression;
+import org.omnetpp.common.util.MatchExpressionCompiler;
 import org.omnetpp.eventlog.engine.FileReader;
 import org.omnetpp.eventlog.entry.BeginSendEntry;
 import org.omnetpp.eventlog.entry.EventEntry;
@@ -14,8 +13,9 @@ public class EventLogTableFacade extends EventLogFacade
     protected int lastNumMatchingEventLogEntries; // -1 means unused
     protected EventLogTableFilterMode filterMode; // can be set with the public API
     protected String customFilter; // can be set with the public API
-    protected MatchExpression filterMatchExpression = new MatchExpression(); // cached expression
-    protected JavaMatchableObject javaMatchableObject = new JavaMatchableObject();
+    protected MatchExpressionCompiler.IMatcher filterMatcher; // compiled custom filter
+    protected MatchingEntryCountTable matchingEntryCountTable; // exact counts filled by countMatchingEntries(), null means unused
+    protected IEventLog matchingEntryCountTableEventLog; // the eventlog the above table belongs to
 
     protected static final class RefObject<T> {
         public T argValue;
@@ -37,10 +37,21 @@ public class EventLogTableFacade extends EventLogFacade
         if (change != FileReader.FileChange.UNCHANGED) {
             switch (change) {
                 case FileReader.FileChange.OVERWRITTEN:
-                case FileReader.FileChange.APPENDED:
                     super.synchronize(change);
                     clearInternalState();
                     break;
+                case FileReader.FileChange.APPENDED: {
+                    super.synchronize(change);
+                    // the last event may get more entries, the ones before it are not affected
+                    MatchingEntryCountTable table = matchingEntryCountTableEventLog == eventLog ? matchingEntryCountTable : null;
+                    clearInternalState();
+                    if (table != null && table.getSize() != 0) {
+                        table.removeLast();
+                        matchingEntryCountTable = table;
+                        matchingEntryCountTableEventLog = eventLog;
+                    }
+                    break;
+                }
                 default:
                     throw new RuntimeException("Unknown file change");
             }
@@ -66,10 +77,8 @@ public class EventLogTableFacade extends EventLogFacade
                 return eventLogEntry instanceof EventEntry || eventLogEntry instanceof EventLogMessageEntry;
             case EVENT_ENTRIES:
                 return eventLogEntry instanceof EventEntry;
-            case CUSTOM_ENTRIES: {
-                javaMatchableObject.setJavaObject(eventLogEntry);
-                return filterMatchExpression.matches(javaMatchableObject);
-            }
+            case CUSTOM_ENTRIES:
+                return filterMatcher.matches(eventLogEntry);
             default:
                 throw new RuntimeException("Unknown eventlog table filter");
         }
@@ -112,7 +121,7 @@ public class EventLogTableFacade extends EventLogFacade
 
     public final void setCustomFilter(String pattern) {
         customFilter = pattern;
-        filterMatchExpression.setPattern("E or (" + customFilter + ")", false, true, false);
+        filterMatcher = MatchExpressionCompiler.compile("E or (" + customFilter + ")", false, true, false);
         clearInternalState();
     }
 
@@ -213,6 +222,14 @@ public class EventLogTableFacade extends EventLogFacade
     }
 
     public final double getApproximatePercentageForEntry(EventLogEntry eventLogEntry) {
+        MatchingEntryCountTable table = getCompleteMatchingEntryCountTable();
+        if (table != null) {
+            int index = table.getIndex(eventLogEntry.getEventNumber());
+            if (index != -1) {
+                long lineIndex = table.getCountBefore(index) + getEntryIndexInEvent(eventLogEntry);
+                return table.getTotalCount() <= 1 ? 0 : (double)lineIndex / (table.getTotalCount() - 1);
+            }
+        }
         IEvent beforeEvent = eventLogEntry.getEvent();
         IEvent afterEvent = beforeEvent.getNextEvent();
         double beforePercentage = eventLog.getApproximatePercentageForEventNumber(beforeEvent.getEventNumber());
@@ -223,7 +240,17 @@ public class EventLogTableFacade extends EventLogFacade
 
     public final EventLogEntry getApproximateEventLogEntryAt(double percentage) {
         Assert.isTrue(0.0 <= percentage && percentage <= 1.0);
-        if (percentage == 1) {
+        MatchingEntryCountTable table = getCompleteMatchingEntryCountTable();
+        if (table != null) {
+            if (table.getTotalCount() == 0)
+                return null;
+            long lineIndex = Math.round(percentage * (table.getTotalCount() - 1));
+            int index = table.findIndexForLine(lineIndex);
+            IEvent event = eventLog.getEventForEventNumber(table.getEventNumber(index));
+            Assert.isTrue(event != null);
+            return getEntryInEvent(event, (int)(lineIndex - table.getCountBefore(index)));
+        }
+        else if (percentage == 1) {
             IEvent event = eventLog.getLastEvent();
             if (event == null)
                 return null;
@@ -253,6 +280,9 @@ public class EventLogTableFacade extends EventLogFacade
     }
 
     public final long getApproximateNumberOfEntries() {
+        MatchingEntryCountTable table = getCompleteMatchingEntryCountTable();
+        if (table != null)
+            return table.getTotalCount();
         if (approximateNumberOfEntries == -1) {
             IEvent firstEvent = eventLog.getFirstEvent();
             IEvent lastEvent = eventLog.getLastEvent();
@@ -281,6 +311,46 @@ public class EventLogTableFacade extends EventLogFacade
         return approximateNumberOfEntries;
     }
 
+    /**
+     * Continues counting the matching entries of the events (from where the previous call stopped)
+     * for at most the given time. Returns true if all events are counted; from then on the number
+     * of entries and the mapping between entries and percentages are exact. Counting restarts when
+     * the filter or the eventlog changes.
+     */
+    public final boolean countMatchingEntries(long timeLimitMillis) {
+        if (matchingEntryCountTable == null || matchingEntryCountTableEventLog != eventLog) {
+            matchingEntryCountTable = new MatchingEntryCountTable();
+            matchingEntryCountTableEventLog = eventLog;
+        }
+        MatchingEntryCountTable table = matchingEntryCountTable;
+        if (!table.isComplete()) {
+            long begin = System.currentTimeMillis();
+            IEvent event;
+            if (table.getSize() == 0)
+                event = eventLog.getFirstEvent();
+            else {
+                IEvent lastEvent = eventLog.getEventForEventNumber(table.getLastEventNumber());
+                Assert.isTrue(lastEvent != null);
+                event = lastEvent.getNextEvent();
+            }
+            while (event != null && System.currentTimeMillis() - begin < timeLimitMillis) {
+                table.add(event.getEventNumber(), getNumMatchingEventLogEntries(event));
+                event = event.getNextEvent();
+            }
+            if (event == null)
+                table.setComplete(true);
+        }
+        return table.isComplete();
+    }
+
+    /**
+     * Returns the table of exact matching entry counts if counting has finished, null otherwise.
+     */
+    protected final MatchingEntryCountTable getCompleteMatchingEntryCountTable() {
+        MatchingEntryCountTable table = matchingEntryCountTable;
+        return table != null && table.isComplete() && matchingEntryCountTableEventLog == eventLog ? table : null;
+    }
+
     protected final EventLogEntry getPreviousEntry(EventLogEntry eventLogEntry, RefObject<Integer> index) {
         IEvent event = eventLog.getEventForEventNumber(eventLogEntry.getEvent().getEventNumber());
         index.argValue--;
@@ -335,5 +405,7 @@ public class EventLogTableFacade extends EventLogFacade
         approximateNumberOfEntries = -1;
         lastMatchedEventNumber = -1;
         lastNumMatchingEventLogEntries = -1;
+        matchingEntryCountTable = null;
+        matchingEntryCountTableEventLog = null;
     }
 }
@@ -0,0 +1,216 @@
+package org.omnetpp.eventlog;
+
+import java.util.Arrays;
+
+import org.eclipse.core.runtime.Assert;
+
+/**
+ * A contiguous range of events of an eventlog in struct-of-arrays form, so that renderers and
+ * other bulk algorithms can process a whole screen of events in tight loops instead of walking
+ * through the events and querying them one by one. The arrays are indexed by the position of
+ * the event in the range, and they must not be modified.
+ *
+ * Message dependencies with at least one end in the range are stored once each, with the range
+ * indices of their ends. An end outside of the range has -1 as index; its event number and
+ * module id (-1 if the event is not in the eventlog) are still stored.
+ */
+public class EventRange
+{
+    public static final int MESSAGE_SEND_DEPENDENCY = 0;
+    public static final int MESSAGE_REUSE_DEPENDENCY = 1;
+    public static final int FILTERED_MESSAGE_DEPENDENCY = 2;
+
+    protected IEventLog eventLog;
+
+    // events
+    protected int numEvents;
+    protected IEvent[] events;
+    protected long[] eventNumbers;
+    protected double[] simulationTimes;
+    protected int[] moduleIds;
+    protected long[] beginOffsets;
+    protected long[] endOffsets;
+
+    // message dependencies
+    protected int numMessageDependencies;
+    protected IMessageDependency[] messageDependencies = new IMessageDependency[16];
+    protected int[] messageDependencyKinds = new int[16]; // one of the *_DEPENDENCY constants
+    protected int[] causeIndices = new int[16];
+    protected int[] consequenceIndices = new int[16];
+    protected long[] causeEventNumbers = new long[16];
+    protected long[] consequenceEventNumbers = new long[16];
+    protected int[] causeModuleIds = new int[16];
+    protected int[] consequenceModuleIds = new int[16];
+
+    /**
+     * Collects the events from the start event to the end event (inclusive), both must be in the given eventlog.
+     */
+    public EventRange(IEventLog eventLog, IEvent startEvent, IEvent endEvent) {
+        Assert.isTrue(startEvent != null && endEvent != null);
+        Assert.isTrue(startEvent.getEventNumber() <= endEvent.getEventNumber());
+        this.eventLog = eventLog;
+        collectEvents(startEvent, endEvent);
+        collectMessageDependencies();
+    }
+
+    public IEventLog getEventLog() {
+        return eventLog;
+    }
+
+    public int getNumEvents() {
+        return numEvents;
+    }
+
+    public IEvent[] getEvents() {
+        return events;
+    }
+
+    public long[] getEventNumbers() {
+        return eventNumbers;
+    }
+
+    public double[] getSimulationTimes() {
+        return simulationTimes;
+    }
+
+    public int[] getModuleIds() {
+        return moduleIds;
+    }
+
+    public long[] getBeginOffsets() {
+        return beginOffsets;
+    }
+
+    public long[] getEndOffsets() {
+        return endOffsets;
+    }
+
+    /**
+     * Returns the range index of the given event number, or -1 if it is not in the range.
+     */
+    public int getIndex(long eventNumber) {
+        int index = Arrays.binarySearch(eventNumbers, 0, numEvents, eventNumber);
+        return index >= 0 ? index : -1;
+    }
+
+    public int getNumMessageDependencies() {
+        return numMessageDependencies;
+    }
+
+    public IMessageDependency[] getMessageDependencies() {
+        return messageDependencies;
+    }
+
+    public int[] getMessageDependencyKinds() {
+        return messageDependencyKinds;
+    }
+
+    public int[] getCauseIndices() {
+        return causeIndices;
+    }
+
+    public int[] getConsequenceIndices() {
+        return consequenceIndices;
+    }
+
+    public long[] getCauseEventNumbers() {
+        return causeEventNumbers;
+    }
+
+    public long[] getConsequenceEventNumbers() {
+        return consequenceEventNumbers;
+    }
+
+    public int[] getCauseModuleIds() {
+        return causeModuleIds;
+    }
+
+    public int[] getConsequenceModuleIds() {
+        return consequenceModuleIds;
+    }
+
+    protected void collectEvents(IEvent startEvent, IEvent endEvent) {
+        int capacity = 16;
+        events = new IEvent[capacity];
+        // LONG RUNNING OPERATION
+        // this might take a while if start and end events are far away from each other
+        for (IEvent event = startEvent; ; event = event.getNextEvent()) {
+            eventLog.progress();
+            Assert.isTrue(event != null);
+            if (numEvents == capacity) {
+                capacity *= 2;
+                events = Arrays.copyOf(events, capacity);
+            }
+            events[numEvents++] = event;
+            if (event.getEventNumber() == endEvent.getEventNumber())
+                break;
+        }
+        eventNumbers = new long[numEvents];
+        simulationTimes = new double[numEvents];
+        moduleIds = new int[numEvents];
+        beginOffsets = new long[numEvents];
+        endOffsets = new long[numEvents];
+        for (int i = 0; i < numEvents; i++) {
+            IEvent event = events[i];
+            eventNumbers[i] = event.getEventNumber();
+            simulationTimes[i] = event.getSimulationTime().doubleValue();
+            moduleIds[i] = event.getModuleId();
+            beginOffsets[i] = event.getBeginOffset();
+            endOffsets[i] = event.getEndOffset();
+        }
+    }
+
+    protected void collectMessageDependencies() {
+        long startEventNumber = eventNumbers[0];
+        long endEventNumber = eventNumbers[numEvents - 1];
+        for (int i = 0; i < numEvents; i++) {
+            eventLog.progress();
+            IEvent event = events[i];
+            // dependencies ending in the range are found among the causes
+            for (IMessageDependency messageDependency : event.getCauses()) {
+                long causeEventNumber = messageDependency.getCauseEventNumber();
+                int causeIndex = startEventNumber <= causeEventNumber && causeEventNumber <= endEventNumber ? getIndex(causeEventNumber) : -1;
+                IEvent causeEvent = causeIndex != -1 ? events[causeIndex] : messageDependency.getCauseEvent();
+                addMessageDependency(messageDependency, causeIndex, causeEventNumber, causeEvent != null ? causeEvent.getModuleId() : -1, i, eventNumbers[i], moduleIds[i]);
+            }
+            // dependencies starting in the range and ending outside of it are found among the consequences
+            for (IMessageDependency messageDependency : event.getConsequences()) {
+                long consequenceEventNumber = messageDependency.getConsequenceEventNumber();
+                if (consequenceEventNumber < startEventNumber || endEventNumber < consequenceEventNumber) {
+                    IEvent consequenceEvent = messageDependency.getConsequenceEvent();
+                    addMessageDependency(messageDependency, i, eventNumbers[i], moduleIds[i], -1, consequenceEventNumber, consequenceEvent != null ? consequenceEvent.getModuleId() : -1);
+                }
+            }
+        }
+    }
+
+    protected void addMessageDependency(IMessageDependency messageDependency, int causeIndex, long causeEventNumber, int causeModuleId, int consequenceIndex, long consequenceEventNumber, int consequenceModuleId) {
+        if (numMessageDependencies == messageDependencies.length) {
+            int capacity = numMessageDependencies * 2;
+            messageDependencies = Arrays.copyOf(messageDependencies, capacity);
+            messageDependencyKinds = Arrays.copyOf(messageDependencyKinds, capacity);
+            causeIndices = Arrays.copyOf(causeIndices, capacity);
+            consequenceIndices = Arrays.copyOf(consequenceIndices, capacity);
+            causeEventNumbers = Arrays.copyOf(causeEventNumbers, capacity);
+            consequenceEventNumbers = Arrays.copyOf(consequenceEventNumbers, capacity);
+            causeModuleIds = Arrays.copyOf(causeModuleIds, capacity);
+            consequenceModuleIds = Arrays.copyOf(consequenceModuleIds, capacity);
+        }
+        int i = numMessageDependencies++;
+        messageDependencies[i] = messageDependency;
+        if (messageDependency instanceof MessageSendDependency)
+            messageDependencyKinds[i] = MESSAGE_SEND_DEPENDENCY;
+        else if (messageDependency instanceof MessageReuseDependency)
+            messageDependencyKinds[i] = MESSAGE_REUSE_DEPENDENCY;
+        else if (messageDependency instanceof FilteredMessageDependency)
+            messageDependencyKinds[i] = FILTERED_MESSAGE_DEPENDENCY;
+        else
+            throw new RuntimeException("Unknown message dependency");
+        causeIndices[i] = causeIndex;
+        consequenceIndices[i] = consequenceIndex;
+        causeEventNumbers[i] = causeEventNumber;
+        consequenceEventNumbers[i] = consequenceEventNumber;
+        causeModuleIds[i] = causeModuleId;
+        consequenceModuleIds[i] = consequenceModuleId;
+    }
+}
@@ -9,10 +9,9 @@ import java.util.TreeSet;
 
 import org.eclipse.core.runtime.Assert;
 import org.eclipse.core.runtime.IProgressMonitor;
-import org.omnetpp.common.engine.JavaMatchableObject;
-import org.omnetpp.common.engine.MatchExpression;
 import org.omnetpp.common.engine.PatternMatcher;
 import org.omnetpp.common.util.BigDecimal;
+import org.omnetpp.common.util.MatchExpressionCompiler;
 import org.omnetpp.eventlog.engine.FileReader;
 import org.omnetpp.eventlog.entry.BeginSendEntry;
 import org.omnetpp.eventlog.entry.ModuleDescriptionEntry;
@@ -38,7 +37,7 @@ public class FilteredEventLog extends EventLogBase implements IEventLog
 
     // module filter
     protected boolean enableModuleFilter = false;
-    protected MatchExpression moduleExpression = new MatchExpression();
+    protected MatchExpressionCompiler.IMatcher moduleExpression;
     protected ArrayList<PatternMatcher> moduleNames = new ArrayList<PatternMatcher>();
     protected ArrayList<PatternMatcher> moduleClassNames = new ArrayList<PatternMatcher>();
     protected ArrayList<PatternMatcher> moduleNedTypeNames = new ArrayList<PatternMatcher>();
@@ -46,7 +45,7 @@ public class FilteredEventLog extends EventLogBase implements IEventLog
 
     // message filter
     protected boolean enableMessageFilter = false;
-    protected MatchExpression messageExpression = new MatchExpression();
+    protected MatchExpressionCompiler.IMatcher messageExpression;
     protected ArrayList<PatternMatcher> messageNames = new ArrayList<PatternMatcher>();
     protected ArrayList<PatternMatcher> messageClassNames = new ArrayList<PatternMatcher>();
     protected ArrayList<Long> messageIds = new ArrayList<Long>();
@@ -81,8 +80,6 @@ public class FilteredEventLog extends EventLogBase implements IEventLog
     protected FilteredEvent firstMatchingEvent;
     protected FilteredEvent lastMatchingEvent;
 
-    protected JavaMatchableObject javaMatchableObject = new JavaMatchableObject();
-
     public FilteredEventLog(IEventLog eventLog) {
         this.eventLog = eventLog;
         setModuleExpression("");
@@ -129,7 +126,7 @@ public class FilteredEventLog extends EventLogBase implements IEventLog
 
     public final void setModuleExpression(String moduleExpression) {
         if (moduleExpression != null)
-            this.moduleExpression.setPattern(moduleExpression, false, true, false);
+            this.moduleExpression = MatchExpressionCompiler.compile(moduleExpression, false, true, false);
     }
 
     public final void setModuleNames(ArrayList<String> moduleNames) {
@@ -154,7 +151,7 @@ public class FilteredEventLog extends EventLogBase implements IEventLog
 
     public final void setMessageExpression(String messageExpression) {
         if (messageExpression != null)
-            this.messageExpression.setPattern(messageExpression, false, true, false);
+            this.messageExpression = MatchExpressionCompiler.compile(messageExpression, false, true, false);
     }
 
     public final void setMessageNames(List<String> messageNames) {
@@ -775,10 +772,9 @@ public class FilteredEventLog extends EventLogBase implements IEventLog
         return matchesExpression(messageExpression, beginSendEntry) || matchesPatterns(messageNames, beginSendEntry.messageName) || matchesPatterns(messageClassNames, beginSendEntry.messageClassName) || matchesList(messageIds, beginSendEntry.messageId) || matchesList(messageTreeIds, beginSendEntry.messageTreeId) || matchesList(messageEncapsulationIds, beginSendEntry.messageEncapsulationId) || matchesList(messageEncapsulationTreeIds, beginSendEntry.messageEncapsulationTreeId);
     }
 
-    protected final boolean matchesExpression(MatchExpression matchExpression, EventLogEntry eventLogEntry)
+    protected final boolean matchesExpression(MatchExpressionCompiler.IMatcher matchExpression, EventLogEntry eventLogEntry)
     {
-        javaMatchableObject.setJavaObject(eventLogEntry);
-        return matchExpression.matches(javaMatchableObject);
+        return matchExpression.matches(eventLogEntry);
     }
 
     protected final boolean matchesPatterns(ArrayList<PatternMatcher> patterns, String str) {
@@ -142,6 +142,12 @@ public interface IEventLog
      */
     public long getApproximateNumberOfEvents();
 
+    /**
+     * Returns the events from the start event to the end event (inclusive) along with the message
+     * dependencies having at least one end among them, in a form that can be processed in bulk.
+     */
+    public EventRange getEventRange(IEvent startEvent, IEvent endEvent);
+
     /**
      * Returns an event approximately at the given percentage in terms of eventlog size.
      */
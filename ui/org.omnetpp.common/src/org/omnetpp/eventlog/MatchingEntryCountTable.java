@@ -0,0 +1,156 @@
+package org.omnetpp.eventlog;
+
+import java.util.Arrays;
+
+import org.eclipse.core.runtime.Assert;
+
+/**
+ * The number of eventlog entries matching the filter of the eventlog table for each event
+ * of an eventlog, in the order of the events. It's filled from the first event forward by
+ * EventLogTableFacade, and once complete, it provides the exact number of table lines and an
+ * exact mapping between events and table line indices.
+ *
+ * Counts are stored in a char array (an int array is only used if some event has more than
+ * 65535 matching entries), and event numbers are only stored if they are not contiguous (e.g.
+ * for a filtered eventlog). Prefix sums are kept for every BLOCK_SIZE-th event, so mapping a
+ * line index to an event takes a binary search and a short linear walk.
+ */
+public class MatchingEntryCountTable
+{
+    public static final int BLOCK_SIZE = 256; // number of events between subsequent prefix sums
+
+    protected int size = 0;
+    protected char[] counts = new char[1024];
+    protected int[] largeCounts = null; // replaces counts when a count doesn't fit into a char
+    protected long firstEventNumber = -1;
+    protected long[] eventNumbers = null; // only if the event numbers are not contiguous
+    protected long[] blockPrefixSums = new long[16]; // number of matching entries before the first event of each block
+    protected long totalCount = 0;
+    protected boolean complete = false; // true means the last event has been reached
+
+    public int getSize() {
+        return size;
+    }
+
+    public boolean isComplete() {
+        return complete;
+    }
+
+    public void setComplete(boolean complete) {
+        this.complete = complete;
+    }
+
+    public long getTotalCount() {
+        return totalCount;
+    }
+
+    public long getEventNumber(int index) {
+        return eventNumbers != null ? eventNumbers[index] : firstEventNumber + index;
+    }
+
+    public long getLastEventNumber() {
+        return size == 0 ? -1 : getEventNumber(size - 1);
+    }
+
+    public int getCount(int index) {
+        return largeCounts != null ? largeCounts[index] : counts[index];
+    }
+
+    /**
+     * Returns the index of the given event number, or -1 if it is not in the table.
+     */
+    public int getIndex(long eventNumber) {
+        if (eventNumbers == null) {
+            long index = eventNumber - firstEventNumber;
+            return size != 0 && 0 <= index && index < size ? (int)index : -1;
+        }
+        else {
+            int index = Arrays.binarySearch(eventNumbers, 0, size, eventNumber);
+            return index >= 0 ? index : -1;
+        }
+    }
+
+    /**
+     * Returns the number of matching entries in the events before the given index.
+     */
+    public long getCountBefore(int index) {
+        Assert.isTrue(0 <= index && index <= size);
+        if (index == size)
+            return totalCount;
+        int block = index / BLOCK_SIZE;
+        long sum = blockPrefixSums[block];
+        for (int i = block * BLOCK_SIZE; i < index; i++)
+            sum += getCount(i);
+        return sum;
+    }
+
+    /**
+     * Returns the index of the event containing the line with the given index
+     * (counting only matching entries), or -1 if it is out of range.
+     */
+    public int findIndexForLine(long lineIndex) {
+        if (lineIndex < 0 || lineIndex >= totalCount)
+            return -1;
+        int numBlocks = (size + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        int index = Arrays.binarySearch(blockPrefixSums, 0, numBlocks, lineIndex);
+        // the last block starting before or at the line (there may be several with the same prefix sum)
+        int block = index >= 0 ? index : -index - 2;
+        while (index >= 0 && block + 1 < numBlocks && blockPrefixSums[block + 1] == lineIndex)
+            block++;
+        long sum = blockPrefixSums[block];
+        for (int i = block * BLOCK_SIZE; i < size; i++) {
+            sum += getCount(i);
+            if (sum > lineIndex)
+                return i;
+        }
+        throw new RuntimeException("Inconsistent matching entry count table");
+    }
+
+    public void add(long eventNumber, int count) {
+        Assert.isTrue(!complete && count >= 0);
+        if (size == 0)
+            firstEventNumber = eventNumber;
+        else if (eventNumbers == null && eventNumber != firstEventNumber + size) {
+            eventNumbers = new long[counts.length];
+            for (int i = 0; i < size; i++)
+                eventNumbers[i] = firstEventNumber + i;
+        }
+        if (size == counts.length) {
+            int capacity = size * 2;
+            counts = Arrays.copyOf(counts, capacity);
+            if (largeCounts != null)
+                largeCounts = Arrays.copyOf(largeCounts, capacity);
+            if (eventNumbers != null)
+                eventNumbers = Arrays.copyOf(eventNumbers, capacity);
+        }
+        if (largeCounts == null && count > Character.MAX_VALUE) {
+            largeCounts = new int[counts.length];
+            for (int i = 0; i < size; i++)
+                largeCounts[i] = counts[i];
+        }
+        if (size % BLOCK_SIZE == 0) {
+            int block = size / BLOCK_SIZE;
+            if (block == blockPrefixSums.length)
+                blockPrefixSums = Arrays.copyOf(blockPrefixSums, block * 2);
+            blockPrefixSums[block] = totalCount;
+        }
+        if (largeCounts != null)
+            largeCounts[size] = count;
+        else
+            counts[size] = (char)count;
+        if (eventNumbers != null)
+            eventNumbers[size] = eventNumber;
+        totalCount += count;
+        size++;
+    }
+
+    /**
+     * Removes the last event, e.g. because more entries were appended to it.
+     */
+    public void removeLast() {
+        Assert.isTrue(size > 0);
+        size--;
+        totalCount -= getCount(size);
+        complete = false;
+    }
+}
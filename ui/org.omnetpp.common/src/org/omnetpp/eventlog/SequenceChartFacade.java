@@ -2,7 +2,7 @@ package org.omnetpp.eventlog;
 
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashSet;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.Random;
 import java.util.TreeMap;
@@ -26,6 +26,13 @@ public class SequenceChartFacade extends EventLogFacade
     protected TimelineMode timelineMode = TimelineMode.NONLINEAR;
     protected double nonLinearFocus = -1; // a useful constant for the nonlinear transformation between simulation time and timeline coordinate
     protected double nonLinearMinimumTimelineCoordinateDelta = 0.1; // minimum timeline coordinate difference between two events
+    protected ArrayList<TimelineCoordinateTable> timelineCoordinateTables = new ArrayList<TimelineCoordinateTable>(); // precomputed tables for the recently used timeline coordinate settings, most recently used first
+    protected TimelineCoordinateTable timelineCoordinateSystemOriginTable = null; // the table for which the following is calculated
+    protected int timelineCoordinateSystemOriginTableVersion = -1; // the timeline coordinate system version for which the following is calculated
+    protected double timelineCoordinateSystemOriginTableCoordinate = Double.NaN; // the timeline coordinate of the origin relative to the first event
+
+    protected static final int MAX_TIMELINE_COORDINATE_TABLES = 4;
+    protected static final int TIMELINE_COORDINATE_TABLE_DISTANCE = 4 * TimelineCoordinateTable.SAMPLE_INTERVAL; // number of events, farther from the known range than this the table is used
 
     protected static final class RefObject<T>
     {
@@ -69,6 +76,8 @@ public class SequenceChartFacade extends EventLogFacade
                     break;
                 case FileReader.FileChange.APPENDED:
                     super.synchronize(change);
+                    for (TimelineCoordinateTable table : timelineCoordinateTables)
+                        table.setComplete(false);
                     event = timelineCoordinateSystemOriginEventNumber != -1 ? eventLog.getEventForEventNumber(timelineCoordinateSystemOriginEventNumber, MatchKind.EXACT, true) : null;
                     if (event != null)
                         relocateTimelineCoordinateSystem(event);
@@ -200,6 +209,21 @@ public class SequenceChartFacade extends EventLogFacade
                     break;
                 case STEP:
                 case NONLINEAR: {
+                    long eventNumber = event.getEventNumber();
+                    TimelineCoordinateTable table = getTimelineCoordinateTable();
+                    if (isTimelineCoordinateTableCloser(table, eventNumber, lowerTimelineCoordinateCalculationLimit)) {
+                        // far from the known range: continue from the nearest sample of the precomputed table instead
+                        double upperTableTimelineCoordinateLimit = upperTimelineCoordinateCalculationLimit + getTimelineCoordinateSystemOriginTableCoordinate(table);
+                        if (!extendTimelineCoordinateTable(table, eventNumber, Double.NEGATIVE_INFINITY, upperTableTimelineCoordinateLimit))
+                            return Double.NaN;
+                        IEvent sampleEvent = relocateTimelineCoordinateRange(table, table.findSampleForEventNumber(eventNumber));
+                        if (sampleEvent.getEventNumber() == eventNumber) {
+                            timelineCoordinateBegin = event.getCachedTimelineCoordinateBegin();
+                            if (timelineCoordinateBegin < lowerTimelineCoordinateCalculationLimit || upperTimelineCoordinateCalculationLimit < timelineCoordinateBegin)
+                                return Double.NaN;
+                            break;
+                        }
+                    }
                     IEvent previousEvent = null;
                     // do we go forward from end or backward from start of known range
                     boolean forward = event.getEventNumber() > timelineCoordinateRangeEndEventNumber;
@@ -326,6 +350,12 @@ public class SequenceChartFacade extends EventLogFacade
         IEvent timelineCoordinateRangeEndEvent = eventLog.getEventForEventNumber(timelineCoordinateRangeEndEventNumber);
         IEvent currentEvent;
         Assert.isTrue(timelineCoordinateRangeStartEvent != null && timelineCoordinateRangeEndEvent != null);
+        TimelineCoordinateTable table = getTimelineCoordinateTable();
+        int index = findTimelineCoordinateTableSample(table, timelineCoordinate, timelineCoordinateRangeStartEvent, timelineCoordinateRangeEndEvent);
+        if (index != -1) {
+            // far from the known range: continue from the nearest sample of the precomputed table instead
+            timelineCoordinateRangeStartEvent = timelineCoordinateRangeEndEvent = relocateTimelineCoordinateRange(table, index);
+        }
         if (timelineCoordinate <= getTimelineCoordinateBegin(timelineCoordinateRangeStartEvent)) {
             forward.argValue = false;
             currentEvent = timelineCoordinateRangeStartEvent;
@@ -347,6 +377,177 @@ public class SequenceChartFacade extends EventLogFacade
         return currentEvent;
     }
 
+    /**
+     * Returns the precomputed table for the current timeline coordinate settings. Tables for the
+     * recently used settings are kept, so that switching back and forth doesn't recalculate them.
+     */
+    protected TimelineCoordinateTable getTimelineCoordinateTable() {
+        double nonLinearFocus = getNonLinearFocus();
+        for (int i = 0; i < timelineCoordinateTables.size(); i++) {
+            TimelineCoordinateTable table = timelineCoordinateTables.get(i);
+            if (table.matches(timelineMode, nonLinearFocus, nonLinearMinimumTimelineCoordinateDelta, separateEventLogEntries)) {
+                timelineCoordinateTables.remove(i);
+                timelineCoordinateTables.add(0, table);
+                return table;
+            }
+        }
+        TimelineCoordinateTable table = new TimelineCoordinateTable(timelineMode, nonLinearFocus, nonLinearMinimumTimelineCoordinateDelta, separateEventLogEntries);
+        timelineCoordinateTables.add(0, table);
+        if (timelineCoordinateTables.size() > MAX_TIMELINE_COORDINATE_TABLES)
+            timelineCoordinateTables.remove(timelineCoordinateTables.size() - 1);
+        return table;
+    }
+
+    /**
+     * Decides whether the given event is to be reached from a sample of the table rather than by walking
+     * from the known range. Both are measured in events: the event must be farther than
+     * TIMELINE_COORDINATE_TABLE_DISTANCE events from the known range, and the table must either already
+     * cover it (and the coordinate system origin), or extending the table from its last sample must take
+     * fewer events than the walk. The table can only check the lower limit at the end, so it is not
+     * extended backwards from the known range if a lower limit is given.
+     */
+    protected boolean isTimelineCoordinateTableCloser(TimelineCoordinateTable table, long eventNumber, double lowerTimelineCoordinateCalculationLimit) {
+        boolean forward = eventNumber > timelineCoordinateRangeEndEventNumber;
+        long distance = forward ? eventNumber - timelineCoordinateRangeEndEventNumber : timelineCoordinateRangeStartEventNumber - eventNumber;
+        if (distance <= TIMELINE_COORDINATE_TABLE_DISTANCE)
+            return false;
+        long requiredEventNumber = isTimelineCoordinateSystemOriginTableCoordinateValid(table) ? eventNumber : Math.max(eventNumber, timelineCoordinateSystemOriginEventNumber);
+        long lastSampleEventNumber = table.getSize() == 0 ? eventLog.getFirstEvent().getEventNumber() : table.getLastEventNumber();
+        if (table.isComplete() || requiredEventNumber < lastSampleEventNumber)
+            return true;
+        else if (!forward && lowerTimelineCoordinateCalculationLimit != -Double.MAX_VALUE)
+            return false;
+        else
+            return requiredEventNumber - lastSampleEventNumber < distance;
+    }
+
+    /**
+     * Returns the index of the table sample from which the event at the given timeline coordinate is to be
+     * searched, or -1 if it is to be searched from the known range. The sample must be farther than
+     * TIMELINE_COORDINATE_TABLE_DISTANCE events from the known range. The table is only extended if its
+     * last sample is already beyond the known range, otherwise walking from the known range is shorter.
+     */
+    protected int findTimelineCoordinateTableSample(TimelineCoordinateTable table, double timelineCoordinate, IEvent timelineCoordinateRangeStartEvent, IEvent timelineCoordinateRangeEndEvent) {
+        boolean forward = getTimelineCoordinateBegin(timelineCoordinateRangeEndEvent) < timelineCoordinate;
+        if (!forward && getTimelineCoordinateBegin(timelineCoordinateRangeStartEvent) < timelineCoordinate)
+            return -1;
+        if (!isTimelineCoordinateSystemOriginTableCoordinateValid(table) && table.getLastEventNumber() < timelineCoordinateSystemOriginEventNumber)
+            return -1;
+        double tableTimelineCoordinate = timelineCoordinate + getTimelineCoordinateSystemOriginTableCoordinate(table);
+        if (!table.isComplete() && table.getLastTimelineCoordinate() <= tableTimelineCoordinate) {
+            if (!forward || table.getLastEventNumber() <= timelineCoordinateRangeEndEventNumber)
+                return -1;
+            extendTimelineCoordinateTable(table, -1, tableTimelineCoordinate);
+        }
+        int index = Math.max(0, table.findSampleBeforeTimelineCoordinate(tableTimelineCoordinate));
+        long sampleEventNumber = table.getEventNumber(index);
+        if (forward ? sampleEventNumber > timelineCoordinateRangeEndEventNumber + TIMELINE_COORDINATE_TABLE_DISTANCE : sampleEventNumber < timelineCoordinateRangeStartEventNumber - TIMELINE_COORDINATE_TABLE_DISTANCE)
+            return index;
+        else
+            return -1;
+    }
+
+    /**
+     * Extends the table until it has a sample after both the given event number and the given timeline
+     * coordinate (relative to the first event), or until the end of the eventlog is reached.
+     */
+    protected void extendTimelineCoordinateTable(TimelineCoordinateTable table, long eventNumber, double timelineCoordinate) {
+        extendTimelineCoordinateTable(table, eventNumber, timelineCoordinate, Double.POSITIVE_INFINITY);
+    }
+
+    /**
+     * Same as above, but stops and returns false as soon as a sample not after the given event number
+     * is beyond the given upper limit (relative to the first event), because then so is the event.
+     */
+    protected boolean extendTimelineCoordinateTable(TimelineCoordinateTable table, long eventNumber, double timelineCoordinate, double upperTableTimelineCoordinateLimit) {
+        if (table.getSize() == 0) {
+            IEvent firstEvent = eventLog.getFirstEvent();
+            if (firstEvent == null) {
+                table.setComplete(true);
+                return true;
+            }
+            table.addSample(firstEvent.getEventNumber(), 0);
+        }
+        // LONG RUNNING OPERATION
+        // does a linear search from the last sample, but only once for each part of the eventlog
+        while (!table.isComplete() && (table.getLastEventNumber() <= eventNumber || table.getLastTimelineCoordinate() <= timelineCoordinate)) {
+            if (table.getLastEventNumber() <= eventNumber && table.getLastTimelineCoordinate() > upperTableTimelineCoordinateLimit)
+                return false;
+            IEvent currentEvent = eventLog.getEventForEventNumber(table.getLastEventNumber());
+            double currentTimelineCoordinate = table.getLastTimelineCoordinate();
+            for (int i = 0; i < TimelineCoordinateTable.SAMPLE_INTERVAL; i++) {
+                eventLog.progress();
+                IEvent nextEvent = currentEvent.getNextEvent();
+                if (nextEvent == null) {
+                    table.setComplete(true);
+                    break;
+                }
+                currentTimelineCoordinate += getTimelineCoordinateDelta(currentEvent, nextEvent);
+                currentEvent = nextEvent;
+            }
+            if (!table.isComplete())
+                table.addSample(currentEvent.getEventNumber(), currentTimelineCoordinate);
+        }
+        return true;
+    }
+
+    /**
+     * Returns the timeline coordinate of the given event relative to the first event of the eventlog.
+     */
+    protected double getTableTimelineCoordinate(TimelineCoordinateTable table, IEvent event) {
+        extendTimelineCoordinateTable(table, event.getEventNumber(), Double.NEGATIVE_INFINITY);
+        int index = table.findSampleForEventNumber(event.getEventNumber());
+        Assert.isTrue(index != -1);
+        IEvent currentEvent = eventLog.getEventForEventNumber(table.getEventNumber(index));
+        double timelineCoordinate = table.getTimelineCoordinate(index);
+        // at most SAMPLE_INTERVAL events from the sample
+        while (currentEvent.getEventNumber() != event.getEventNumber()) {
+            eventLog.progress();
+            IEvent nextEvent = currentEvent.getNextEvent();
+            Assert.isTrue(nextEvent != null);
+            timelineCoordinate += getTimelineCoordinateDelta(currentEvent, nextEvent);
+            currentEvent = nextEvent;
+        }
+        return timelineCoordinate;
+    }
+
+    protected boolean isTimelineCoordinateSystemOriginTableCoordinateValid(TimelineCoordinateTable table) {
+        return timelineCoordinateSystemOriginTable == table && timelineCoordinateSystemOriginTableVersion == timelineCoordinateSystemVersion;
+    }
+
+    protected double getTimelineCoordinateSystemOriginTableCoordinate(TimelineCoordinateTable table) {
+        if (!isTimelineCoordinateSystemOriginTableCoordinateValid(table)) {
+            timelineCoordinateSystemOriginTableCoordinate = getTableTimelineCoordinate(table, getTimelineCoordinateSystemOriginEvent());
+            timelineCoordinateSystemOriginTable = table;
+            timelineCoordinateSystemOriginTableVersion = timelineCoordinateSystemVersion;
+        }
+        return timelineCoordinateSystemOriginTableCoordinate;
+    }
+
+    /**
+     * Moves the continuous range of events with known timeline coordinates to the given sample of the table.
+     * The events of the old range keep their cached timeline coordinates, because the coordinate system
+     * doesn't change.
+     */
+    protected IEvent relocateTimelineCoordinateRange(TimelineCoordinateTable table, int index) {
+        IEvent event = eventLog.getEventForEventNumber(table.getEventNumber(index));
+        if (timelineCoordinateSystemVersion > event.getCachedTimelineCoordinateSystemVersion()) {
+            double timelineCoordinateBegin = table.getTimelineCoordinate(index) - getTimelineCoordinateSystemOriginTableCoordinate(table);
+            event.setCachedTimelineCoordinateBegin(timelineCoordinateBegin);
+            event.setCachedTimelineCoordinateEnd(timelineCoordinateBegin + getTimelineCoordinateDelta(event));
+            event.setCachedTimelineCoordinateSystemVersion(timelineCoordinateSystemVersion);
+        }
+        timelineCoordinateRangeStartEventNumber = timelineCoordinateRangeEndEventNumber = event.getEventNumber();
+        return event;
+    }
+
+    /**
+     * Returns the timeline coordinate difference between the beginnings of two subsequent events.
+     */
+    protected double getTimelineCoordinateDelta(IEvent event, IEvent nextEvent) {
+        return getTimelineCoordinateDelta(nextEvent.getSimulationTime().subtract(event.getSimulationTime()).doubleValue()) + getTimelineCoordinateDelta(event);
+    }
+
     public final IEvent getLastEventNotAfterTimelineCoordinate(double timelineCoordinate) {
         if (eventLog.isEmpty())
             return null;
@@ -605,24 +806,10 @@ public class SequenceChartFacade extends EventLogFacade
     public ArrayList<IMessageDependency> getIntersectingMessageDependencies(IEvent startEvent, IEvent endEvent) {
         Assert.isTrue(startEvent != null);
         Assert.isTrue(endEvent != null);
-        HashSet<IMessageDependency> messageDependencies = new HashSet<IMessageDependency>();
-        long startEventNumber = startEvent.getEventNumber();
         // LONG RUNNING OPERATION
         // this might take a while if start and end events are far away from each other
-        // if not completed then some dependencies will not be included
-        for (IEvent event = startEvent; ; event = event.getNextEvent()) {
-            eventLog.progress();
-            ArrayList<IMessageDependency> causes = event.getCauses();
-            for (var messageDependency : causes)
-                if (messageDependency.getCauseEventNumber() < startEventNumber)
-                    messageDependencies.add(messageDependency);
-            ArrayList<IMessageDependency> consequences = event.getConsequences();
-            for (var consequence : consequences)
-                messageDependencies.add(consequence);
-            if (event == endEvent)
-                break;
-        }
-        return new ArrayList<IMessageDependency>(messageDependencies);
+        EventRange eventRange = eventLog.getEventRange(startEvent, endEvent);
+        return new ArrayList<IMessageDependency>(Arrays.asList(eventRange.getMessageDependencies()).subList(0, eventRange.getNumMessageDependencies()));
     }
 
     public final java.util.ArrayList<Integer> getMessageDependencyCountAdjacencyMatrix(java.util.TreeMap<Integer, Integer> moduleIdToAxisIndexMap, java.util.TreeMap<Long, IEvent> eventNumberToEventMap, int messageSendWeight) {
@@ -638,6 +825,38 @@ public class SequenceChartFacade extends EventLogFacade
         int numberOfAxes = axisIndexSet.size();
         Integer[] adjacencyMatrix = new Integer[numberOfAxes * numberOfAxes];
         Arrays.fill(adjacencyMatrix, 0);
+        HashMap<Long, Integer> adjacencyMap = getMessageDependencyCountAdjacencyMap(moduleIdToAxisIndexMap, eventNumberToEventMap, messageSendWeight, messageReuseWeight);
+        for (var entry : adjacencyMap.entrySet()) {
+            long key = entry.getKey();
+            int index = (int)(key >>> 32) * numberOfAxes + (int)key;
+            adjacencyMatrix[index] = entry.getValue();
+        }
+        return new ArrayList<Integer>(Arrays.asList(adjacencyMatrix));
+    }
+
+    public ArrayList<Integer> getMessageDependencyCountAdjacencyMatrix(Map<Integer, Integer> moduleIdToAxisIndexMap, IEvent startEvent, IEvent endEvent, int messageSendWeight, int messageReuseWeight) {
+        return getMessageDependencyCountAdjacencyMatrix(moduleIdToAxisIndexMap, getEventNumberToEventMap(startEvent, endEvent), messageSendWeight, messageReuseWeight);
+    }
+
+    public final java.util.ArrayList<Integer> getApproximateMessageDependencyCountAdjacencyMatrix(java.util.TreeMap<Integer, Integer> moduleIdToAxisIndexMap, int numberOfSamples, int messageSendWeight) {
+        return getApproximateMessageDependencyCountAdjacencyMatrix(moduleIdToAxisIndexMap, numberOfSamples, messageSendWeight, 1);
+    }
+
+    public final java.util.ArrayList<Integer> getApproximateMessageDependencyCountAdjacencyMatrix(java.util.TreeMap<Integer, Integer> moduleIdToAxisIndexMap, int numberOfSamples) {
+        return getApproximateMessageDependencyCountAdjacencyMatrix(moduleIdToAxisIndexMap, numberOfSamples, 1, 1);
+    }
+
+    public final ArrayList<Integer> getApproximateMessageDependencyCountAdjacencyMatrix(Map<Integer, Integer> moduleIdToAxisIndexMap, int numberOfSamples, int messageSendWeight, int messageReuseWeight) {
+        return new ArrayList<Integer>(getMessageDependencyCountAdjacencyMatrix(moduleIdToAxisIndexMap, getApproximateEventNumberToEventMap(numberOfSamples), messageSendWeight, messageReuseWeight));
+    }
+
+    /**
+     * Sparse variant of getMessageDependencyCountAdjacencyMatrix(): returns the non-zero elements only,
+     * keyed by (causeAxisIndex << 32 | consequenceAxisIndex). Its size is proportional to the number of
+     * distinct axis pairs with message dependencies, not to the square of the number of axes.
+     */
+    public HashMap<Long, Integer> getMessageDependencyCountAdjacencyMap(Map<Integer, Integer> moduleIdToAxisIndexMap, TreeMap<Long, IEvent> eventNumberToEventMap, int messageSendWeight, int messageReuseWeight) {
+        HashMap<Long, Integer> adjacencyMap = new HashMap<Long, Integer>();
         for (var it : eventNumberToEventMap.values()) {
             IEvent event = it;
             ArrayList<IMessageDependency> causes = event.getCauses();
@@ -654,17 +873,47 @@ public class SequenceChartFacade extends EventLogFacade
                     int consequenceModuleId = consequenceEvent.getModuleId();
                     var causeModuleIdIt = moduleIdToAxisIndexMap.get(causeModuleId);
                     var consequenceModuleIdIt = moduleIdToAxisIndexMap.get(consequenceModuleId);
-                    if (causeModuleIdIt != null && consequenceModuleIdIt != null) {
-                        int index = causeModuleIdIt * numberOfAxes + consequenceModuleIdIt;
-                        adjacencyMatrix[index] = adjacencyMatrix[index] + weight;
-                    }
+                    if (causeModuleIdIt != null && consequenceModuleIdIt != null)
+                        adjacencyMap.merge(((long)causeModuleIdIt << 32) | consequenceModuleIdIt, weight, Integer::sum);
                 }
             }
         }
-        return new ArrayList<Integer>(Arrays.asList(adjacencyMatrix));
+        return adjacencyMap;
+    }
+
+    public HashMap<Long, Integer> getMessageDependencyCountAdjacencyMap(Map<Integer, Integer> moduleIdToAxisIndexMap, IEvent startEvent, IEvent endEvent, int messageSendWeight, int messageReuseWeight) {
+        HashMap<Long, Integer> adjacencyMap = new HashMap<Long, Integer>();
+        if (startEvent == null || endEvent == null)
+            return adjacencyMap;
+        EventRange eventRange = eventLog.getEventRange(startEvent, endEvent);
+        int[] messageDependencyKinds = eventRange.getMessageDependencyKinds();
+        int[] consequenceIndices = eventRange.getConsequenceIndices();
+        int[] causeModuleIds = eventRange.getCauseModuleIds();
+        int[] consequenceModuleIds = eventRange.getConsequenceModuleIds();
+        for (int i = 0; i < eventRange.getNumMessageDependencies(); i++) {
+            // count the causes of the events in the range only
+            if (consequenceIndices[i] == -1)
+                continue;
+            int weight = 0;
+            if (messageDependencyKinds[i] == EventRange.MESSAGE_SEND_DEPENDENCY)
+                weight = messageSendWeight;
+            else if (messageDependencyKinds[i] == EventRange.MESSAGE_REUSE_DEPENDENCY)
+                weight = messageReuseWeight;
+            if (weight != 0) {
+                var causeModuleIdIt = moduleIdToAxisIndexMap.get(causeModuleIds[i]);
+                var consequenceModuleIdIt = moduleIdToAxisIndexMap.get(consequenceModuleIds[i]);
+                if (causeModuleIdIt != null && consequenceModuleIdIt != null)
+                    adjacencyMap.merge(((long)causeModuleIdIt << 32) | consequenceModuleIdIt, weight, Integer::sum);
+            }
+        }
+        return adjacencyMap;
     }
 
-    public ArrayList<Integer> getMessageDependencyCountAdjacencyMatrix(Map<Integer, Integer> moduleIdToAxisIndexMap, IEvent startEvent, IEvent endEvent, int messageSendWeight, int messageReuseWeight) {
+    public HashMap<Long, Integer> getApproximateMessageDependencyCountAdjacencyMap(Map<Integer, Integer> moduleIdToAxisIndexMap, int numberOfSamples, int messageSendWeight, int messageReuseWeight) {
+        return getMessageDependencyCountAdjacencyMap(moduleIdToAxisIndexMap, getApproximateEventNumberToEventMap(numberOfSamples), messageSendWeight, messageReuseWeight);
+    }
+
+    protected TreeMap<Long, IEvent> getEventNumberToEventMap(IEvent startEvent, IEvent endEvent) {
         TreeMap<Long, IEvent> eventNumberToEventMap = new TreeMap<Long, IEvent>();
         for (IEvent event = startEvent; ; event = event.getNextEvent()) {
             eventLog.progress();
@@ -673,18 +922,10 @@ public class SequenceChartFacade extends EventLogFacade
             if (event == endEvent)
                 break;
         }
-        return getMessageDependencyCountAdjacencyMatrix(moduleIdToAxisIndexMap, eventNumberToEventMap, messageSendWeight, messageReuseWeight);
+        return eventNumberToEventMap;
     }
 
-    public final java.util.ArrayList<Integer> getApproximateMessageDependencyCountAdjacencyMatrix(java.util.TreeMap<Integer, Integer> moduleIdToAxisIndexMap, int numberOfSamples, int messageSendWeight) {
-        return getApproximateMessageDependencyCountAdjacencyMatrix(moduleIdToAxisIndexMap, numberOfSamples, messageSendWeight, 1);
-    }
-
-    public final java.util.ArrayList<Integer> getApproximateMessageDependencyCountAdjacencyMatrix(java.util.TreeMap<Integer, Integer> moduleIdToAxisIndexMap, int numberOfSamples) {
-        return getApproximateMessageDependencyCountAdjacencyMatrix(moduleIdToAxisIndexMap, numberOfSamples, 1, 1);
-    }
-
-    public final ArrayList<Integer> getApproximateMessageDependencyCountAdjacencyMatrix(Map<Integer, Integer> moduleIdToAxisIndexMap, int numberOfSamples, int messageSendWeight, int messageReuseWeight) {
+    protected TreeMap<Long, IEvent> getApproximateEventNumberToEventMap(int numberOfSamples) {
         Random random = new Random();
         TreeMap<Long, IEvent> eventNumberToEventMap = new TreeMap<Long, IEvent>();
         for (int i = 0; i < numberOfSamples; i++) {
@@ -706,7 +947,7 @@ public class SequenceChartFacade extends EventLogFacade
                     eventNumberToEventMap.put(event.getEventNumber(), event);
             }
         }
-        return new ArrayList<Integer>(getMessageDependencyCountAdjacencyMatrix(moduleIdToAxisIndexMap, eventNumberToEventMap, messageSendWeight, messageReuseWeight));
+        return eventNumberToEventMap;
     }
 
     // TODO: extract both begin and end timeline coordinates of events
@@ -748,6 +989,8 @@ public class SequenceChartFacade extends EventLogFacade
     protected final void clearInternalState() {
         nonLinearFocus = -1;
         nonLinearMinimumTimelineCoordinateDelta = 0.1;
+        timelineCoordinateTables.clear();
+        timelineCoordinateSystemOriginTable = null;
         undefineTimelineCoordinateSystem();
     }
 }
@@ -0,0 +1,110 @@
+package org.omnetpp.eventlog;
+
+import java.util.Arrays;
+
+/**
+ * Sampled prefix sums of the step or non-linear timeline coordinates of an eventlog for one
+ * combination of the timeline coordinate settings. Every SAMPLE_INTERVAL-th event is recorded
+ * with its timeline coordinate relative to the first event of the eventlog, so that the timeline
+ * coordinate of any event (relative to any other event) can be calculated with a binary search
+ * and a short linear walk from the nearest sample. The table is filled lazily from the beginning
+ * of the eventlog by SequenceChartFacade, it only grows as far as it is needed.
+ *
+ * The samples don't depend on the timeline coordinate system origin, so the table survives
+ * relocations of the coordinate system, and appending to the eventlog file (the last event
+ * may get additional entries, but that doesn't affect the coordinates of itself or the events
+ * before it).
+ */
+public class TimelineCoordinateTable
+{
+    public static final int SAMPLE_INTERVAL = 1024; // number of events between subsequent samples
+
+    protected TimelineMode timelineMode;
+    protected double nonLinearFocus;
+    protected double nonLinearMinimumTimelineCoordinateDelta;
+    protected boolean separateEventLogEntries;
+
+    protected int size = 0;
+    protected long[] eventNumbers = new long[16];
+    protected double[] timelineCoordinates = new double[16]; // relative to the first event of the eventlog
+    protected boolean complete = false; // true means the last event has been reached, there will be no more samples
+
+    public TimelineCoordinateTable(TimelineMode timelineMode, double nonLinearFocus, double nonLinearMinimumTimelineCoordinateDelta, boolean separateEventLogEntries) {
+        this.timelineMode = timelineMode;
+        this.nonLinearFocus = nonLinearFocus;
+        this.nonLinearMinimumTimelineCoordinateDelta = nonLinearMinimumTimelineCoordinateDelta;
+        this.separateEventLogEntries = separateEventLogEntries;
+    }
+
+    public boolean matches(TimelineMode timelineMode, double nonLinearFocus, double nonLinearMinimumTimelineCoordinateDelta, boolean separateEventLogEntries) {
+        return this.timelineMode == timelineMode && this.nonLinearFocus == nonLinearFocus &&
+               this.nonLinearMinimumTimelineCoordinateDelta == nonLinearMinimumTimelineCoordinateDelta && this.separateEventLogEntries == separateEventLogEntries;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public boolean isComplete() {
+        return complete;
+    }
+
+    public void setComplete(boolean complete) {
+        this.complete = complete;
+    }
+
+    public long getEventNumber(int index) {
+        return eventNumbers[index];
+    }
+
+    public double getTimelineCoordinate(int index) {
+        return timelineCoordinates[index];
+    }
+
+    public long getLastEventNumber() {
+        return size == 0 ? -1 : eventNumbers[size - 1];
+    }
+
+    public double getLastTimelineCoordinate() {
+        return size == 0 ? Double.NaN : timelineCoordinates[size - 1];
+    }
+
+    public void addSample(long eventNumber, double timelineCoordinate) {
+        if (size == eventNumbers.length) {
+            eventNumbers = Arrays.copyOf(eventNumbers, size * 2);
+            timelineCoordinates = Arrays.copyOf(timelineCoordinates, size * 2);
+        }
+        eventNumbers[size] = eventNumber;
+        timelineCoordinates[size] = timelineCoordinate;
+        size++;
+    }
+
+    /**
+     * Returns the index of the last sample not after the given event number, or -1 if there's no such sample.
+     */
+    public int findSampleForEventNumber(long eventNumber) {
+        int index = Arrays.binarySearch(eventNumbers, 0, size, eventNumber);
+        return index >= 0 ? index : -index - 2;
+    }
+
+    /**
+     * Returns the index of the last sample strictly before the given timeline coordinate (relative to
+     * the first event), or -1 if there's no such sample. Walking forward from this sample reaches the
+     * first event not before the given timeline coordinate, even if several events have the same one.
+     */
+    public int findSampleBeforeTimelineCoordinate(double timelineCoordinate) {
+        int low = 0;
+        int high = size - 1;
+        int result = -1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            if (timelineCoordinates[middle] < timelineCoordinate) {
+                result = middle;
+                low = middle + 1;
+            }
+            else
+                high = middle - 1;
+        }
+        return result;
+    }
+}
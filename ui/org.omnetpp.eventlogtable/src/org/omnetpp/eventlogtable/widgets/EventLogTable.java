@@ -70,6 +70,10 @@ public class EventLogTable
     private IEventLog eventLog; // the C++ wrapper for the data to be displayed
     private EventLogTableFacade eventLogTableFacade;
     private EventLogTableContributor eventLogTableContributor;
+    private MatchingEntryCountJob matchingEntryCountJob = new MatchingEntryCountJob(this);
+
+    // above this size the scrollbar stays approximate, because counting would load all events into memory
+    private static final long MAX_NUMBER_OF_EVENTS_TO_COUNT = 1000000;
 
     private static class EventLogEntryReferenceEnumerator implements IEnumerator<EventLogEntryReference> {
         private EventLogTableContentProvider contentProvider;
@@ -163,6 +167,7 @@ public class EventLogTable
 
         addDisposeListener(new DisposeListener() {
             public void widgetDisposed(DisposeEvent e) {
+                matchingEntryCountJob.cancel();
                 if (eventLogInput != null) {
                     storeState(eventLogInput.getFile());
                     eventLogInput.removeEventLogChangedListener(EventLogTable.this);
@@ -342,6 +347,7 @@ public class EventLogTable
                 eventLogInput.addEventLogChangedListener(this);
                 if (!restoreState(eventLogInput.getFile()))
                     scrollToBegin();
+                scheduleMatchingEntryCount();
             }
         }
     }
@@ -401,6 +407,7 @@ public class EventLogTable
     public void setLineFilterMode(EventLogTableFilterMode i) {
         eventLogTableFacade.setFilterMode(i);
         stayNear();
+        scheduleMatchingEntryCount();
     }
 
     public String getCustomFilter() {
@@ -409,6 +416,7 @@ public class EventLogTable
 
     public void setCustomFilter(String pattern) {
         eventLogTableFacade.setCustomFilter(pattern);
+        scheduleMatchingEntryCount();
     }
 
     public TypeMode getTypeMode() {
@@ -493,6 +501,7 @@ public class EventLogTable
         updateVerticalBarPosition();
         redraw();
         isOutOfSync = false;
+        scheduleMatchingEntryCount();
     }
 
     @Override
@@ -520,6 +529,7 @@ public class EventLogTable
             scrollToBegin();
         eventLogTableContributor.update();
         redraw();
+        scheduleMatchingEntryCount();
     }
 
     @Override
@@ -527,6 +537,7 @@ public class EventLogTable
         eventLog = eventLogInput.getEventLog();
         eventLogTableContributor.update();
         redraw();
+        scheduleMatchingEntryCount();
     }
 
     @Override
@@ -552,6 +563,46 @@ public class EventLogTable
         canvas.redraw();
     }
 
+    /*************************************************************************************
+     * COUNTING MATCHING ENTRIES
+     */
+
+    private void scheduleMatchingEntryCount() {
+        matchingEntryCountJob.cancel();
+        matchingEntryCountJob.schedule(100);
+    }
+
+    /**
+     * Counts the matching entries of further events for at most the given time, and makes
+     * the scrollbar exact when all events are counted. Returns true if there's nothing more
+     * to do. Called from the UI thread by MatchingEntryCountJob.
+     */
+    boolean countMatchingEntries(long timeLimitMillis) {
+        if (isDisposed() || eventLogInput == null)
+            return true;
+        // don't interfere with an operation that is pumping the event loop
+        if (eventLogInput.getEventLogProgressManager().isInRunWithProgressMonitor())
+            return false;
+        try {
+            if (eventLog.getApproximateNumberOfEvents() > MAX_NUMBER_OF_EVENTS_TO_COUNT)
+                return true;
+            if (eventLogTableFacade.countMatchingEntries(timeLimitMillis)) {
+                if (debug)
+                    Debug.println("EventLogTable counted " + eventLogTableFacade.getApproximateNumberOfEntries() + " matching entries");
+                configureVerticalScrollBar();
+                updateVerticalBarPosition();
+                redraw();
+                return true;
+            }
+            else
+                return false;
+        }
+        catch (RuntimeException e) {
+            handleRuntimeException(e);
+            return true;
+        }
+    }
+
     /*************************************************************************************
      * PERSISTING STATE
      */
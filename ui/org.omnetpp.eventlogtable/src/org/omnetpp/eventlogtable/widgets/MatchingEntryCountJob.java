@@ -0,0 +1,55 @@
+/*--------------------------------------------------------------*
+  Copyright (C) 2006-2015 OpenSim Ltd.
+
+  This file is distributed WITHOUT ANY WARRANTY. See the file
+  'License' for details on this and other legal matters.
+*--------------------------------------------------------------*/
+
+package org.omnetpp.eventlogtable.widgets;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.swt.widgets.Display;
+
+/**
+ * Counts the matching entries of all events for the event log table in the background,
+ * so that the table's scrollbar becomes exact. The eventlog is not thread safe, so the
+ * counting itself is done in short time slices in the UI thread, and the job only drives
+ * the slices and yields between them.
+ */
+public class MatchingEntryCountJob extends Job {
+    // the UI thread spends at most ~10% of its time counting
+    private static final long TIME_SLICE_MILLIS = 5;
+    private static final long PAUSE_MILLIS = 50;
+
+    private EventLogTable eventLogTable;
+    private Display display;
+    private boolean done;
+
+    public MatchingEntryCountJob(EventLogTable eventLogTable) {
+        super("Counting event log table entries");
+        this.eventLogTable = eventLogTable;
+        this.display = eventLogTable.getDisplay();
+        setSystem(true);
+        setPriority(Job.DECORATE);
+    }
+
+    @Override
+    protected IStatus run(IProgressMonitor monitor) {
+        done = false;
+        while (!done && !monitor.isCanceled() && !display.isDisposed()) {
+            display.syncExec(() -> done = eventLogTable.countMatchingEntries(TIME_SLICE_MILLIS));
+            if (!done) {
+                try {
+                    Thread.sleep(PAUSE_MILLIS);
+                }
+                catch (InterruptedException e) {
+                    return Status.CANCEL_STATUS;
+                }
+            }
+        }
+        return monitor.isCanceled() ? Status.CANCEL_STATUS : Status.OK_STATUS;
+    }
+}
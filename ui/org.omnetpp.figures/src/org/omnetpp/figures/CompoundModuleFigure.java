@@ -30,6 +30,7 @@ import org.omnetpp.common.image.ImageFactory;
 import org.omnetpp.common.ui.ISelectable;
 import org.omnetpp.figures.anchors.IAnchorBounds;
 import org.omnetpp.figures.layout.CompoundModuleLayout;
+import org.omnetpp.figures.layout.ILayoutCache;
 import org.omnetpp.figures.misc.ILayerSupport;
 import org.omnetpp.figures.misc.ISelectionHandleBounds;
 import org.omnetpp.figures.routers.CompoundModuleConnectionRouter;
@@ -208,6 +209,13 @@ public class CompoundModuleFigure extends LayeredPane implements IAnchorBounds,
         connectionLayer.setConnectionRouter(new CompoundModuleConnectionRouter());
     }
 
+    @Override
+    public void removeNotify() {
+        // no point in refining the layout of a figure that is not displayed
+        layouter.cancelBackgroundLayout();
+        super.removeNotify();
+    }
+
     @Override
     protected void finalize() throws Throwable {
         super.finalize();
@@ -304,6 +312,25 @@ public class CompoundModuleFigure extends LayeredPane implements IAnchorBounds,
         this.unit = unit;
     }
 
+    /**
+     * Sets the persistent cache of the layouted submodule locations (may be null).
+     */
+    public void setLayoutCache(ILayoutCache layoutCache) {
+        layouter.setLayoutCache(layoutCache);
+    }
+
+    public ILayoutCache getLayoutCache() {
+        return layouter.getLayoutCache();
+    }
+
+    /**
+     * Lays out large compound modules synchronously, for off-screen rendering.
+     * @see CompoundModuleLayout#setSynchronous(boolean)
+     */
+    public void setSynchronousLayout(boolean synchronous) {
+        layouter.setSynchronous(synchronous);
+    }
+
     public void changeLayout() {
         newSeed = seed + 1;
         if (newSeed < 0)
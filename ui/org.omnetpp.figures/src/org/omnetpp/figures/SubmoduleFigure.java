@@ -86,6 +86,8 @@ public class SubmoduleFigure extends Figure implements IAnchorBounds, ISelection
     protected RangeFigure rangeFigure = null;
     private int lastCumulativeHashCode;
     private boolean isSelected;
+    // whether image and decoratorImage are referenced by this figure (see ImageFactory.acquireImage())
+    private boolean holdsImages;
 
     public SubmoduleFigure() {
     }
@@ -144,10 +146,14 @@ public class SubmoduleFigure extends Figure implements IAnchorBounds, ISelection
                 displayString.getAsString(IDisplayString.Prop.TEXT_POS),
                 ColorFactory.asColor(displayString.getAsString(IDisplayString.Prop.TEXT_COLOR), ColorFactory.RED));
 
-        // image support
+        // image support; the previous images are released only after the new ones
+        // have been acquired, so unchanged images are not disposed in between
+        Image oldImage = this.image;
+        Image oldDecoratorImage = this.decoratorImage;
+        boolean heldImages = holdsImages;
         String imageSize = displayString.getAsString(IDisplayString.Prop.IMAGE_SIZE);
         imageSizePercentage = (int)(100.0f * iconScale);
-        Image image = ImageFactory.of(project).getImage(
+        Image image = ImageFactory.of(project).acquireImage(
                 displayString.getAsString(IDisplayString.Prop.IMAGE),
                 imageSize,
                 ColorFactory.asRGB(displayString.getAsString(IDisplayString.Prop.IMAGE_COLOR)),
@@ -168,11 +174,16 @@ public class SubmoduleFigure extends Figure implements IAnchorBounds, ISelection
 
         // set the decoration image properties
         setDecorationImage(
-                ImageFactory.of(project).getImage(
+                ImageFactory.of(project).acquireImage(
                         displayString.getAsString(IDisplayString.Prop.IMAGE2),
                         null,
                         ColorFactory.asRGB(displayString.getAsString(IDisplayString.Prop.IMAGE2_COLOR)),
                         displayString.getAsInt(IDisplayString.Prop.IMAGE2_COLOR_PERCENTAGE,0)));
+        holdsImages = true;
+        if (heldImages) {
+            ImageFactory.releaseImage(oldImage);
+            ImageFactory.releaseImage(oldDecoratorImage);
+        }
 
         // set the layouter input
         String layout = displayString.getAsString(IDisplayString.Prop.LAYOUT);
@@ -490,6 +501,44 @@ public class SubmoduleFigure extends Figure implements IAnchorBounds, ISelection
         return new Rectangle(shapeBounds.x-4, shapeBounds.y-4, imageBounds.width, imageBounds.height);
     }
 
+    @Override
+    public void addNotify() {
+        super.addNotify();
+        if (!holdsImages) {
+            // take back the images released in removeNotify()
+            ImageFactory.retainImage(image);
+            ImageFactory.retainImage(decoratorImage);
+            holdsImages = true;
+            // if they have been disposed meanwhile, they must be reloaded on the next setDisplayString()
+            if ((image != null && image.isDisposed()) || (decoratorImage != null && decoratorImage.isDisposed())) {
+                if (image != null && image.isDisposed())
+                    image = null;
+                if (decoratorImage != null && decoratorImage.isDisposed())
+                    decoratorImage = null;
+                lastCumulativeHashCode = 0;
+            }
+        }
+    }
+
+    @Override
+    public void removeNotify() {
+        releaseImages();
+        super.removeNotify();
+    }
+
+    /**
+     * Releases the images referenced by this figure. Called from removeNotify(); owners must
+     * also call it when they discard a figure that is never removed from its parent, e.g. one
+     * created for off-screen rendering or living in a disposed canvas.
+     */
+    public void releaseImages() {
+        if (holdsImages) {
+            ImageFactory.releaseImage(image);
+            ImageFactory.releaseImage(decoratorImage);
+            holdsImages = false;
+        }
+    }
+
     /**
      * Sets the external image decoration ("i2" tag)
      */
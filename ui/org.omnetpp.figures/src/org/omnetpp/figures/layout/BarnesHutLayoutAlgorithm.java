@@ -0,0 +1,969 @@
+/*--------------------------------------------------------------*
+  Copyright (C) 2006-2015 OpenSim Ltd.
+
+  This file is distributed WITHOUT ANY WARRANTY. See the file
+  'License' for details on this and other legal matters.
+*--------------------------------------------------------------*/
+
+package org.omnetpp.figures.layout;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.core.runtime.Assert;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.draw2d.geometry.PrecisionPoint;
+import org.omnetpp.common.Debug;
+import org.omnetpp.common.displaymodel.PointF;
+
+/**
+ * Spring embedder for large graphs. The forces are the same as in BasicSpringEmbedderLayoutAlgorithm
+ * (edges pull or push their nodes towards the preferred edge length, connected nodes repulse each
+ * other up to 2000 units, unconnected ones only up to 100), but each iteration costs O(n log n)
+ * instead of O(n^2):
+ *  - repulsion between connected nodes is approximated with a Barnes-Hut quadtree built for each
+ *    connected component: far away cells act as a single body at their center of mass;
+ *  - repulsion between unconnected nodes is computed exactly, using a grid of 100x100 cells;
+ *  - the graph is coarsened by repeatedly merging neighbouring movable nodes (mostly pairs), the
+ *    coarsest graph is laid out first, and each finer graph starts from the layout of the
+ *    coarser one, so that only a few iterations are needed on the large graphs.
+ * Node data is stored in float arrays (one per attribute) to keep the inner loops cache friendly.
+ *
+ * The layouter can be initialized and executed separately: initialize() lays out the coarsest
+ * graph, which is enough to produce approximate positions for all nodes quickly, and
+ * execute(IProgressMonitor, IProgressListener) refines it, reporting intermediate results.
+ *
+ * Simplifications (same as in BasicSpringEmbedderLayoutAlgorithm):
+ *  - ignores node size (apart from the preferred edge length)
+ *  - ignores connections to the parent module
+ */
+public class BarnesHutLayoutAlgorithm extends AbstractGraphLayoutAlgorithm {
+    /**
+     * Receives the intermediate results of execute().
+     */
+    public interface IProgressListener {
+        /**
+         * Called periodically from the thread that runs execute(), and once more when it finishes.
+         * getNodePosition() returns the current positions during the call.
+         */
+        void layoutProgressed(BarnesHutLayoutAlgorithm algorithm, boolean finished);
+    }
+
+    private static final byte MOVABLE = 0;
+    private static final byte FIXED = 1;
+    private static final byte ANCHORED = 2;
+
+    private static final float THETA = 0.7f; // cells smaller than THETA * distance are treated as a single body
+    private static final float SAME_COLOR_CUTOFF = 2000; // connected nodes don't repulse each other beyond this
+    private static final float DIFFERENT_COLOR_CUTOFF = 100; // unconnected nodes don't repulse each other beyond this
+    private static final float SPEED_LIMIT = 50;
+    private static final int COARSEST_LEVEL_SIZE = 100;
+    private static final int MAX_TREE_DEPTH = 20;
+    private static final long INITIALIZE_TIME_LIMIT_MILLIS = 500; // max time initialize() spends on the coarsest level
+
+    private int maxIterations = 500;
+    private long timeoutMillis = 15000;
+    private long progressIntervalMillis = 200;
+    private float repulsiveForce = 50;
+    private float attractionForce = 0.3f;
+
+    // input
+    private static class InputNode {
+        byte kind;
+        int anchor = -1;
+        float x, y, offx, offy, sx, sy; // sx, sy: half width/height
+    }
+
+    private static class InputEdge {
+        int from, to;
+        float len;
+    }
+
+    private List<InputNode> inputNodes = new ArrayList<InputNode>();
+    private Map<Integer,Integer> nodeIdToIndex = new HashMap<Integer,Integer>();
+    private List<InputEdge> inputEdges = new ArrayList<InputEdge>();
+    private List<String> anchorNames = new ArrayList<String>();
+    private Map<String,Integer> anchorNameToIndex = new HashMap<String,Integer>();
+
+    /**
+     * A graph in the coarsening hierarchy; level 0 is the input graph. Fixed and anchored nodes
+     * are present at all levels, neighbouring movable nodes are merged when going to coarser levels.
+     */
+    private static class Level {
+        int n;
+        byte[] kind;
+        int[] anchor;       // anchor index of anchored nodes, -1 otherwise
+        float[] offx, offy; // offset of anchored nodes to their anchor
+        float[] mass;       // number of input nodes represented
+        float[] x, y;
+        float[] dx, dy;     // movement at each step
+        int[] color;        // connected nodes share the same color
+        int numEdges;
+        int[] edgeFrom, edgeTo;
+        float[] edgeLen;
+        int[] coarseIndex;  // the node of the next coarser level that represents this node
+
+        Level(int n, int numEdges) {
+            this.n = n;
+            kind = new byte[n];
+            anchor = new int[n];
+            offx = new float[n];
+            offy = new float[n];
+            mass = new float[n];
+            x = new float[n];
+            y = new float[n];
+            dx = new float[n];
+            dy = new float[n];
+            color = new int[n];
+            this.numEdges = numEdges;
+            edgeFrom = new int[numEdges];
+            edgeTo = new int[numEdges];
+            edgeLen = new float[numEdges];
+        }
+    }
+
+    private List<Level> levels;
+    private int currentLevel = -1; // the level whose positions are the current result
+    private int levelIterations; // iterations done on the current level
+    private int maxdcounter; // number of iterations in a row on the current level in which nodes hardly moved
+    private int numColors;
+    private boolean haveAnchoredNode;
+    private boolean allNodesAreFixed = true;
+    private float minx, miny, maxx, maxy;
+
+    // anchors
+    private float[] anchorX, anchorY, anchorDx, anchorDy;
+    private int[] anchorRefcount;
+
+    // result for the input nodes (after scaling), filled by updateResult()
+    private float[] resultX, resultY;
+
+    // quadtree cells, one tree per color (allocated from the same arrays)
+    private int numCells;
+    private float[] cellX, cellY, cellSize; // lower left corner and side length
+    private float[] cellMass, cellMassX, cellMassY; // total mass and center of mass
+    private int[] cellChild = new int[0]; // first of the 4 children, -1 for leaves
+    private int[] cellBody; // first body of a leaf, -1 if empty
+    private int[] nextBody; // next body in the same leaf
+    private int[] colorRoot; // root cell of each color, -1 if the color has a single node
+    private int[] colorStart, colorNodes; // nodes grouped by color
+    private int[] stack = new int[64];
+
+    // grid for repulsion between different colors
+    private int gridMask;
+    private int[] gridStart, gridNodes, gridCellX, gridCellY;
+
+    // force accumulated for the current node
+    private float fx, fy;
+
+    public BarnesHutLayoutAlgorithm() {
+    }
+
+    /**
+     * Set repulsive force
+     */
+    public void setRepulsiveForce(double f) {
+        repulsiveForce = (float)f;
+    }
+
+    /**
+     * Set attraction force
+     */
+    public void setAttractionForce(double f) {
+        attractionForce = (float)f;
+    }
+
+    /**
+     * Set max number of iterations on the coarsest level (finer levels get half of it)
+     */
+    public void setMaxIterations(int n) {
+        maxIterations = n;
+    }
+
+    /**
+     * Set the time limit of execute() in milliseconds
+     */
+    public void setTimeout(long millis) {
+        timeoutMillis = millis;
+    }
+
+    /**
+     * Set how often intermediate results are reported to the progress listener
+     */
+    public void setProgressInterval(long millis) {
+        progressIntervalMillis = millis;
+    }
+
+    public void setSize(double width, double height, double border) {
+        setScaleToArea(width, height, border);
+    }
+
+    public void addMovableNode(int nodeId, double width, double height) {
+        allNodesAreFixed = false;
+        addNode(nodeId, MOVABLE, width, height);
+    }
+
+    public void addFixedNode(int nodeId, double x, double y, double width, double height) {
+        InputNode n = addNode(nodeId, FIXED, width, height);
+        n.x = (float)x;
+        n.y = (float)y;
+    }
+
+    public void addAnchoredNode(int nodeId, String anchorName, double offx, double offy, double width, double height) {
+        haveAnchoredNode = true;
+        allNodesAreFixed = false;
+        InputNode n = addNode(nodeId, ANCHORED, width, height);
+        Integer anchor = anchorNameToIndex.get(anchorName);
+        if (anchor == null) {
+            anchor = anchorNames.size();
+            anchorNames.add(anchorName);
+            anchorNameToIndex.put(anchorName, anchor);
+        }
+        n.anchor = anchor;
+        n.offx = (float)offx;
+        n.offy = (float)offy;
+    }
+
+    private InputNode addNode(int nodeId, byte kind, double width, double height) {
+        Assert.isTrue(!nodeIdToIndex.containsKey(nodeId) && levels == null);
+        InputNode n = new InputNode();
+        n.kind = kind;
+        n.sx = (float)width / 2;
+        n.sy = (float)height / 2;
+        nodeIdToIndex.put(nodeId, inputNodes.size());
+        inputNodes.add(n);
+        return n;
+    }
+
+    public void setAnchorPosition(String anchor, double x, double y) {
+        // anchor positions are computed by the layouter
+    }
+
+    public void addEdge(int srcNodeId, int destNodeId, double len) {
+        Integer from = nodeIdToIndex.get(srcNodeId);
+        Integer to = nodeIdToIndex.get(destNodeId);
+        Assert.isTrue(from != null && to != null && levels == null);
+        InputEdge e = new InputEdge();
+        e.from = from;
+        e.to = to;
+        e.len = len > 0 ? (float)len : (float)defaultEdgeLen;
+        // heuristics to take submodule size into account
+        InputNode fromNode = inputNodes.get(from), toNode = inputNodes.get(to);
+        e.len += 2 * (Math.min(fromNode.sx, fromNode.sy) + Math.min(toNode.sx, toNode.sy));
+        inputEdges.add(e);
+    }
+
+    public void addEdgeToBorder(int nodeId, double len) {
+        // XXX this layouter algorithm ignores connections to border
+    }
+
+    /**
+     * Builds the coarsening hierarchy and starts laying out the coarsest level (for at most
+     * INITIALIZE_TIME_LIMIT_MILLIS). Afterwards getNodePosition() returns approximate positions;
+     * nodes merged on the coarsest level share the same position. Called from execute() if needed.
+     */
+    public void initialize() {
+        Assert.isTrue(levels == null);
+        long startMillis = System.currentTimeMillis();
+        levels = new ArrayList<Level>();
+        levels.add(createInputLevel());
+        if (inputNodes.isEmpty() || allNodesAreFixed) {
+            currentLevel = 0;
+            updateResult();
+            return;
+        }
+        while (true) {
+            Level level = levels.get(levels.size() - 1);
+            if (level.n <= COARSEST_LEVEL_SIZE)
+                break;
+            Level coarser = coarsen(level);
+            if (coarser == null)
+                break;
+            levels.add(coarser);
+        }
+
+        // consume a some values (manually given seeds are usually small!)
+        privRand01();
+        privRand01();
+        privRand01();
+
+        // set area
+        if (sizingMode == SIZINGMODE_CONFINE) {
+            minx = (float)border;
+            miny = (float)border;
+            maxx = (float)(width - border);
+            maxy = (float)(height - border);
+        }
+        else {
+            minx = miny = -100000000;
+            maxx = maxy = 100000000;
+        }
+
+        // random start positions on the coarsest level
+        int numAnchors = anchorNames.size();
+        anchorX = new float[numAnchors];
+        anchorY = new float[numAnchors];
+        anchorDx = new float[numAnchors];
+        anchorDy = new float[numAnchors];
+        anchorRefcount = new int[numAnchors];
+        for (InputNode n : inputNodes)
+            if (n.anchor != -1)
+                anchorRefcount[n.anchor]++;
+        for (int a = 0; a < numAnchors; a++) {
+            anchorX[a] = (float)(100 * privRand01());
+            anchorY[a] = (float)(100 * privRand01());
+        }
+        currentLevel = levels.size() - 1;
+        Level coarsest = levels.get(currentLevel);
+        // unlike the basic layouter, use an area that grows with the graph if no size is given
+        float side = (float)(Math.sqrt(inputNodes.size()) * defaultEdgeLen);
+        float areaWidth = width > 0 ? (float)width : side;
+        float areaHeight = height > 0 ? (float)height : side;
+        for (int i = 0; i < coarsest.n; i++) {
+            if (coarsest.kind[i] == MOVABLE) {
+                coarsest.x[i] = (float)(areaWidth * privRand01());
+                coarsest.y[i] = (float)(areaHeight * privRand01());
+            }
+        }
+        updateAnchoredNodes(coarsest);
+        relaxLevel(coarsest, startMillis + INITIALIZE_TIME_LIMIT_MILLIS, null, null);
+        updateResult();
+        if (debug)
+            Debug.println("BarnesHutLayoutAlgorithm: " + inputNodes.size() + " nodes, " + levels.size() + " levels, coarsest level laid out in " + (System.currentTimeMillis() - startMillis) + "ms");
+    }
+
+    public void execute() {
+        execute(new NullProgressMonitor(), null);
+    }
+
+    /**
+     * Runs the layouter, periodically notifying the listener (which may be null) about the
+     * intermediate positions. Returns early if the monitor gets canceled.
+     */
+    public void execute(IProgressMonitor monitor, IProgressListener listener) {
+        long startMillis = System.currentTimeMillis();
+        if (levels == null)
+            initialize();
+        if (inputNodes.isEmpty() || allNodesAreFixed)
+            return;
+        // continue on the level where initialize() (or a previous call) stopped, then go on with the finer levels
+        while (relaxLevel(levels.get(currentLevel), startMillis + timeoutMillis, monitor, listener) && currentLevel > 0) {
+            Level coarse = levels.get(currentLevel);
+            Level fine = levels.get(currentLevel - 1);
+            prolong(coarse, fine);
+            currentLevel--;
+            levelIterations = maxdcounter = 0;
+            // the coarse levels are not needed anymore
+            levels.set(currentLevel + 1, null);
+        }
+        updateResult();
+        if (listener != null && !monitor.isCanceled())
+            listener.layoutProgressed(this, true);
+        if (debug)
+            Debug.println("BarnesHutLayoutAlgorithm: layout done in " + (System.currentTimeMillis() - startMillis) + "ms");
+    }
+
+    public PointF getNodePosition(int nodeId) {
+        Integer index = nodeIdToIndex.get(nodeId);
+        if (index == null || resultX == null)
+            return null;
+        return new PointF(resultX[index], resultY[index]);
+    }
+
+    public PrecisionPoint getAnchorPosition(String anchor) {
+        Integer index = anchorNameToIndex.get(anchor);
+        if (index == null || anchorX == null)
+            return null;
+        return new PrecisionPoint(anchorX[index], anchorY[index]);
+    }
+
+    private Level createInputLevel() {
+        Level level = new Level(inputNodes.size(), inputEdges.size());
+        for (int i = 0; i < level.n; i++) {
+            InputNode n = inputNodes.get(i);
+            level.kind[i] = n.kind;
+            level.anchor[i] = n.anchor;
+            level.offx[i] = n.offx;
+            level.offy[i] = n.offy;
+            level.mass[i] = 1;
+            level.x[i] = n.x;
+            level.y[i] = n.y;
+        }
+        for (int e = 0; e < level.numEdges; e++) {
+            InputEdge edge = inputEdges.get(e);
+            level.edgeFrom[e] = edge.from;
+            level.edgeTo[e] = edge.to;
+            level.edgeLen[e] = edge.len;
+        }
+        doColoring(level);
+        return level;
+    }
+
+    /**
+     * Mark connected nodes with same color (union-find over the edges)
+     */
+    private void doColoring(Level level) {
+        int[] parent = new int[level.n];
+        for (int i = 0; i < level.n; i++)
+            parent[i] = i;
+        for (int e = 0; e < level.numEdges; e++) {
+            int a = find(parent, level.edgeFrom[e]);
+            int b = find(parent, level.edgeTo[e]);
+            if (a != b)
+                parent[a] = b;
+        }
+        int[] rootColor = new int[level.n];
+        Arrays.fill(rootColor, -1);
+        numColors = 0;
+        for (int i = 0; i < level.n; i++) {
+            int root = find(parent, i);
+            if (rootColor[root] == -1)
+                rootColor[root] = numColors++;
+            level.color[i] = rootColor[root];
+        }
+    }
+
+    private static int find(int[] parent, int i) {
+        while (parent[i] != i) {
+            parent[i] = parent[parent[i]];
+            i = parent[i];
+        }
+        return i;
+    }
+
+    /**
+     * Returns the next coarser level by merging neighbouring movable nodes,
+     * or null if that would not make the graph significantly smaller.
+     */
+    private Level coarsen(Level fine) {
+        // adjacency lists in compressed form
+        int[] adjacencyStart = new int[fine.n + 1];
+        for (int e = 0; e < fine.numEdges; e++) {
+            adjacencyStart[fine.edgeFrom[e] + 1]++;
+            adjacencyStart[fine.edgeTo[e] + 1]++;
+        }
+        for (int i = 0; i < fine.n; i++)
+            adjacencyStart[i + 1] += adjacencyStart[i];
+        int[] adjacency = new int[2 * fine.numEdges];
+        int[] fill = Arrays.copyOf(adjacencyStart, fine.n);
+        for (int e = 0; e < fine.numEdges; e++) {
+            adjacency[fill[fine.edgeFrom[e]]++] = fine.edgeTo[e];
+            adjacency[fill[fine.edgeTo[e]]++] = fine.edgeFrom[e];
+        }
+
+        // match each movable node with its lightest unmatched movable neighbour
+        int[] coarseIndex = new int[fine.n];
+        Arrays.fill(coarseIndex, -1);
+        float[] coarseMass = new float[fine.n];
+        int coarseN = 0;
+        for (int i = 0; i < fine.n; i++) {
+            if (coarseIndex[i] != -1 || fine.kind[i] != MOVABLE)
+                continue;
+            int partner = -1;
+            for (int k = adjacencyStart[i]; k < adjacencyStart[i + 1]; k++) {
+                int j = adjacency[k];
+                if (j != i && fine.kind[j] == MOVABLE && coarseIndex[j] == -1 && (partner == -1 || fine.mass[j] < fine.mass[partner]))
+                    partner = j;
+            }
+            if (partner != -1) {
+                coarseIndex[i] = coarseIndex[partner] = coarseN;
+                coarseMass[coarseN++] = fine.mass[i] + fine.mass[partner];
+            }
+        }
+        // nodes whose neighbours are all matched (e.g. the leaves of a star) join the lightest neighbouring pair
+        for (int i = 0; i < fine.n; i++) {
+            if (coarseIndex[i] != -1 || fine.kind[i] != MOVABLE)
+                continue;
+            int target = -1;
+            for (int k = adjacencyStart[i]; k < adjacencyStart[i + 1]; k++) {
+                int j = adjacency[k];
+                if (fine.kind[j] == MOVABLE && coarseIndex[j] != -1 && (target == -1 || coarseMass[coarseIndex[j]] < coarseMass[target]))
+                    target = coarseIndex[j];
+            }
+            if (target != -1) {
+                coarseIndex[i] = target;
+                coarseMass[target] += fine.mass[i];
+            }
+        }
+        // isolated movable nodes, fixed and anchored nodes are kept
+        for (int i = 0; i < fine.n; i++)
+            if (coarseIndex[i] == -1)
+                coarseIndex[i] = coarseN++;
+        if (coarseN > fine.n * 0.8)
+            return null;
+
+        // merge edges, dropping the ones inside merged pairs and keeping the longest of parallel ones
+        Map<Long,Integer> edgeIndex = new HashMap<Long,Integer>();
+        int[] edgeFrom = new int[fine.numEdges], edgeTo = new int[fine.numEdges];
+        float[] edgeLen = new float[fine.numEdges];
+        int numEdges = 0;
+        for (int e = 0; e < fine.numEdges; e++) {
+            int from = coarseIndex[fine.edgeFrom[e]], to = coarseIndex[fine.edgeTo[e]];
+            if (from == to)
+                continue;
+            long key = (long)Math.min(from, to) * coarseN + Math.max(from, to);
+            Integer index = edgeIndex.get(key);
+            if (index == null) {
+                edgeIndex.put(key, numEdges);
+                edgeFrom[numEdges] = from;
+                edgeTo[numEdges] = to;
+                edgeLen[numEdges] = fine.edgeLen[e];
+                numEdges++;
+            }
+            else
+                edgeLen[index] = Math.max(edgeLen[index], fine.edgeLen[e]);
+        }
+
+        Level coarse = new Level(coarseN, numEdges);
+        System.arraycopy(edgeFrom, 0, coarse.edgeFrom, 0, numEdges);
+        System.arraycopy(edgeTo, 0, coarse.edgeTo, 0, numEdges);
+        System.arraycopy(edgeLen, 0, coarse.edgeLen, 0, numEdges);
+        for (int i = 0; i < fine.n; i++) {
+            int c = coarseIndex[i];
+            if (coarse.mass[c] == 0) {
+                coarse.kind[c] = fine.kind[i];
+                coarse.anchor[c] = fine.anchor[i];
+                coarse.offx[c] = fine.offx[i];
+                coarse.offy[c] = fine.offy[i];
+                coarse.x[c] = fine.x[i];
+                coarse.y[c] = fine.y[i];
+                coarse.color[c] = fine.color[i];
+            }
+            coarse.mass[c] += fine.mass[i];
+        }
+        fine.coarseIndex = coarseIndex;
+        return coarse;
+    }
+
+    /**
+     * Places the movable nodes of the finer level near the node that represents them on the coarser level.
+     */
+    private void prolong(Level coarse, Level fine) {
+        float jitter = (float)defaultEdgeLen / 2;
+        for (int i = 0; i < fine.n; i++) {
+            if (fine.kind[i] == MOVABLE) {
+                int c = fine.coarseIndex[i];
+                fine.x[i] = coarse.x[c] + (float)(jitter * (privRand01() - 0.5));
+                fine.y[i] = coarse.y[c] + (float)(jitter * (privRand01() - 0.5));
+            }
+            fine.dx[i] = fine.dy[i] = 0;
+        }
+        updateAnchoredNodes(fine);
+    }
+
+    private void updateAnchoredNodes(Level level) {
+        for (int i = 0; i < level.n; i++) {
+            if (level.kind[i] == ANCHORED) {
+                level.x[i] = anchorX[level.anchor[i]] + level.offx[i];
+                level.y[i] = anchorY[level.anchor[i]] + level.offy[i];
+            }
+        }
+    }
+
+    /**
+     * Iterates on the current level until the nodes stop moving (max moved distance is <0.05 at
+     * least 20 times in a row) or the iteration count is reached, and returns true; returns false
+     * if the deadline is reached or the monitor is canceled before that. The coarsest level gets
+     * maxIterations iterations, the finer ones start from a good layout and get half of it.
+     */
+    private boolean relaxLevel(Level level, long deadlineMillis, IProgressMonitor monitor, IProgressListener listener) {
+        int iterations = currentLevel == levels.size() - 1 ? maxIterations : Math.max(1, maxIterations / 2);
+        long lastProgressMillis = System.currentTimeMillis();
+        while (levelIterations < iterations && maxdcounter < 20) {
+            long now = System.currentTimeMillis();
+            if (now >= deadlineMillis || (monitor != null && monitor.isCanceled()))
+                return false;
+            if (listener != null && now - lastProgressMillis >= progressIntervalMillis) {
+                updateResult();
+                listener.layoutProgressed(this, false);
+                lastProgressMillis = now;
+            }
+            if (relax(level) < 0.05)
+                maxdcounter++;
+            else
+                maxdcounter = 0;
+            levelIterations++;
+        }
+        return true;
+    }
+
+    /**
+     * One iteration of the spring embedder, returns the max moved distance.
+     */
+    private float relax(Level level) {
+        int n = level.n;
+        byte[] kind = level.kind;
+        float[] x = level.x, y = level.y, dx = level.dx, dy = level.dy;
+
+        // edge attraction: calculate if edges are longer or shorter than requested (tension),
+        // and modify their (dx,dy) movement vector accordingly
+        for (int e = 0; e < level.numEdges; e++) {
+            int from = level.edgeFrom[e], to = level.edgeTo[e];
+            if (kind[from] == FIXED && kind[to] == FIXED)
+                continue;
+            float vx = x[to] - x[from];
+            float vy = y[to] - y[from];
+            float len = (float)Math.sqrt(vx * vx + vy * vy);
+            len = len == 0 ? 1.0f : len;
+            float f = attractionForce * (level.edgeLen[e] - len) / len;
+            dx[to] += f * vx;
+            dy[to] += f * vy;
+            dx[from] -= f * vx;
+            dy[from] -= f * vy;
+        }
+
+        // nodes repulse each other, update (dx,dy) with this effect
+        buildTrees(level);
+        boolean haveDifferentColors = numColors > 1;
+        if (haveDifferentColors)
+            buildGrid(level);
+        for (int i = 0; i < n; i++) {
+            if (kind[i] == FIXED)
+                continue;
+            fx = fy = 0;
+            addSameColorRepulsion(level, i);
+            if (haveDifferentColors)
+                addDifferentColorRepulsion(level, i);
+            dx[i] += repulsiveForce * fx;
+            dy[i] += repulsiveForce * fy;
+        }
+
+        // limit dx,dy into (-50,50); move nodes by (dx,dy);
+        // constrain nodes into rectangle (minx, miny, maxx, maxy)
+        float maxd = 0;
+        for (int i = 0; i < n; i++) {
+            if (kind[i] == MOVABLE) {
+                x[i] = Math.max(minx, Math.min(maxx, x[i] + Math.max(-SPEED_LIMIT, Math.min(SPEED_LIMIT, dx[i]))));
+                y[i] = Math.max(miny, Math.min(maxy, y[i] + Math.max(-SPEED_LIMIT, Math.min(SPEED_LIMIT, dy[i]))));
+            }
+            // this is used for stopping condition
+            maxd = Math.max(maxd, Math.max(Math.abs(dx[i]), Math.abs(dy[i])));
+            // "friction" -- nodes stop eventually if not driven by a force
+            dx[i] /= 2;
+            dy[i] /= 2;
+        }
+
+        // anchored nodes move together with their anchor
+        if (haveAnchoredNode) {
+            Arrays.fill(anchorDx, 0);
+            Arrays.fill(anchorDy, 0);
+            for (int i = 0; i < n; i++) {
+                if (kind[i] == ANCHORED) {
+                    anchorDx[level.anchor[i]] += dx[i];
+                    anchorDy[level.anchor[i]] += dy[i];
+                }
+            }
+            for (int a = 0; a < anchorX.length; a++) {
+                anchorX[a] = Math.max(minx, Math.min(maxx, anchorX[a] + Math.max(-SPEED_LIMIT, Math.min(SPEED_LIMIT, anchorDx[a]))));
+                anchorY[a] = Math.max(miny, Math.min(maxy, anchorY[a] + Math.max(-SPEED_LIMIT, Math.min(SPEED_LIMIT, anchorDy[a]))));
+                maxd = Math.max(maxd, Math.max(Math.abs(anchorDx[a]), Math.abs(anchorDy[a])));
+                anchorDx[a] /= 2;
+                anchorDy[a] /= 2;
+            }
+            // refresh positions of anchored nodes (and distribute anchor's dx,dy among its nodes)
+            for (int i = 0; i < n; i++) {
+                if (kind[i] == ANCHORED) {
+                    int a = level.anchor[i];
+                    x[i] = anchorX[a] + level.offx[i];
+                    y[i] = anchorY[a] + level.offy[i];
+                    dx[i] = anchorDx[a] / anchorRefcount[a];
+                    dy[i] = anchorDy[a] / anchorRefcount[a];
+                }
+            }
+        }
+        return maxd;
+    }
+
+    /**
+     * Adds the (exact) repulsion of node j on node i to (fx,fy).
+     */
+    private void addRepulsion(Level level, int i, int j, float cutoffSq) {
+        float vx = level.x[i] - level.x[j];
+        float vy = level.y[i] - level.y[j];
+        float lensq = vx * vx + vy * vy;
+        if (lensq > cutoffSq) // don't repulse if very far
+            return;
+        if (lensq <= 1.0f) {
+            fx += privRand01();
+            fy += privRand01();
+        }
+        else {
+            float m = level.mass[j];
+            fx += m * vx / lensq;
+            fy += m * vy / lensq;
+        }
+    }
+
+    /**
+     * Adds the repulsion of the nodes that share the color of node i, using the color's quadtree.
+     */
+    private void addSameColorRepulsion(Level level, int i) {
+        int root = colorRoot[level.color[i]];
+        if (root == -1)
+            return;
+        float xi = level.x[i], yi = level.y[i];
+        final float cutoffSq = SAME_COLOR_CUTOFF * SAME_COLOR_CUTOFF;
+        int sp = 0;
+        stack[sp++] = root;
+        while (sp > 0) {
+            int cell = stack[--sp];
+            if (cellMass[cell] == 0)
+                continue;
+            float x0 = cellX[cell], y0 = cellY[cell], size = cellSize[cell];
+            // skip cells that are entirely beyond the cutoff
+            float nx = xi - Math.max(x0, Math.min(x0 + size, xi));
+            float ny = yi - Math.max(y0, Math.min(y0 + size, yi));
+            if (nx * nx + ny * ny > cutoffSq)
+                continue;
+            if (cellChild[cell] == -1) {
+                for (int j = cellBody[cell]; j != -1; j = nextBody[j])
+                    if (j != i)
+                        addRepulsion(level, i, j, cutoffSq);
+            }
+            else {
+                float vx = xi - cellMassX[cell];
+                float vy = yi - cellMassY[cell];
+                float lensq = vx * vx + vy * vy;
+                boolean inside = xi >= x0 && xi < x0 + size && yi >= y0 && yi < y0 + size;
+                if (!inside && size * size < THETA * THETA * lensq) {
+                    // far enough to be treated as a single body
+                    if (lensq <= cutoffSq) {
+                        fx += cellMass[cell] * vx / lensq;
+                        fy += cellMass[cell] * vy / lensq;
+                    }
+                }
+                else {
+                    if (sp + 4 > stack.length)
+                        stack = Arrays.copyOf(stack, stack.length * 2);
+                    int child = cellChild[cell];
+                    for (int k = 0; k < 4; k++)
+                        stack[sp++] = child + k;
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds the repulsion of the nearby nodes that have a different color than node i, using the grid.
+     */
+    private void addDifferentColorRepulsion(Level level, int i) {
+        final float cutoffSq = DIFFERENT_COLOR_CUTOFF * DIFFERENT_COLOR_CUTOFF;
+        int color = level.color[i];
+        int cx = gridCellX[i], cy = gridCellY[i];
+        for (int ox = -1; ox <= 1; ox++) {
+            for (int oy = -1; oy <= 1; oy++) {
+                int bucket = gridBucket(cx + ox, cy + oy);
+                for (int k = gridStart[bucket]; k < gridStart[bucket + 1]; k++) {
+                    int j = gridNodes[k];
+                    // buckets may be shared by several cells
+                    if (level.color[j] != color && gridCellX[j] == cx + ox && gridCellY[j] == cy + oy)
+                        addRepulsion(level, i, j, cutoffSq);
+                }
+            }
+        }
+    }
+
+    private int gridBucket(int cx, int cy) {
+        return ((cx * 73856093) ^ (cy * 19349663)) & gridMask;
+    }
+
+    private void buildGrid(Level level) {
+        int n = level.n;
+        int numBuckets = Integer.highestOneBit(Math.max(1, n)) * 2;
+        gridMask = numBuckets - 1;
+        if (gridStart == null || gridStart.length < numBuckets + 1)
+            gridStart = new int[numBuckets + 1];
+        else
+            Arrays.fill(gridStart, 0);
+        if (gridNodes == null || gridNodes.length < n) {
+            gridNodes = new int[n];
+            gridCellX = new int[n];
+            gridCellY = new int[n];
+        }
+        for (int i = 0; i < n; i++) {
+            gridCellX[i] = (int)Math.floor(level.x[i] / DIFFERENT_COLOR_CUTOFF);
+            gridCellY[i] = (int)Math.floor(level.y[i] / DIFFERENT_COLOR_CUTOFF);
+            gridStart[gridBucket(gridCellX[i], gridCellY[i]) + 1]++;
+        }
+        for (int b = 0; b < numBuckets; b++)
+            gridStart[b + 1] += gridStart[b];
+        int[] fill = Arrays.copyOf(gridStart, numBuckets);
+        for (int i = 0; i < n; i++)
+            gridNodes[fill[gridBucket(gridCellX[i], gridCellY[i])]++] = i;
+    }
+
+    /**
+     * Builds a quadtree for each color that has more than one node.
+     */
+    private void buildTrees(Level level) {
+        int n = level.n;
+        if (colorStart == null || colorStart.length < numColors + 1) {
+            colorStart = new int[numColors + 1];
+            colorRoot = new int[numColors];
+        }
+        else
+            Arrays.fill(colorStart, 0);
+        if (colorNodes == null || colorNodes.length < n) {
+            colorNodes = new int[n];
+            nextBody = new int[n];
+        }
+        for (int i = 0; i < n; i++)
+            colorStart[level.color[i] + 1]++;
+        for (int c = 0; c < numColors; c++)
+            colorStart[c + 1] += colorStart[c];
+        int[] fill = Arrays.copyOf(colorStart, numColors);
+        for (int i = 0; i < n; i++)
+            colorNodes[fill[level.color[i]]++] = i;
+
+        numCells = 0;
+        for (int c = 0; c < numColors; c++) {
+            int begin = colorStart[c], end = colorStart[c + 1];
+            if (end - begin < 2) {
+                colorRoot[c] = -1;
+                continue;
+            }
+            float x1 = Float.MAX_VALUE, y1 = Float.MAX_VALUE, x2 = -Float.MAX_VALUE, y2 = -Float.MAX_VALUE;
+            for (int k = begin; k < end; k++) {
+                int i = colorNodes[k];
+                x1 = Math.min(x1, level.x[i]);
+                y1 = Math.min(y1, level.y[i]);
+                x2 = Math.max(x2, level.x[i]);
+                y2 = Math.max(y2, level.y[i]);
+            }
+            int root = allocateCell(x1, y1, Math.max(x2 - x1, y2 - y1) * 1.001f + 1);
+            colorRoot[c] = root;
+            for (int k = begin; k < end; k++)
+                insertBody(root, colorNodes[k], level);
+        }
+        for (int cell = 0; cell < numCells; cell++) {
+            if (cellMass[cell] != 0) {
+                cellMassX[cell] /= cellMass[cell];
+                cellMassY[cell] /= cellMass[cell];
+            }
+        }
+    }
+
+    private void insertBody(int root, int body, Level level) {
+        float bx = level.x[body], by = level.y[body], m = level.mass[body];
+        int cell = root;
+        int depth = 0;
+        while (true) {
+            cellMass[cell] += m;
+            cellMassX[cell] += m * bx;
+            cellMassY[cell] += m * by;
+            if (cellChild[cell] != -1) {
+                cell = childContaining(cell, bx, by);
+                depth++;
+            }
+            else if (cellBody[cell] == -1 || depth >= MAX_TREE_DEPTH) {
+                // empty leaf, or too deep (coincident nodes): add to the leaf's list
+                nextBody[body] = cellBody[cell];
+                cellBody[cell] = body;
+                return;
+            }
+            else {
+                // split the leaf, and push its (single) body down into a child
+                int other = cellBody[cell];
+                cellBody[cell] = -1;
+                float half = cellSize[cell] / 2;
+                float x0 = cellX[cell], y0 = cellY[cell];
+                int child = allocateCell(x0, y0, half);
+                allocateCell(x0 + half, y0, half);
+                allocateCell(x0, y0 + half, half);
+                allocateCell(x0 + half, y0 + half, half);
+                cellChild[cell] = child;
+                float ox = level.x[other], oy = level.y[other], om = level.mass[other];
+                int otherCell = childContaining(cell, ox, oy);
+                cellMass[otherCell] = om;
+                cellMassX[otherCell] = om * ox;
+                cellMassY[otherCell] = om * oy;
+                cellBody[otherCell] = other;
+                nextBody[other] = -1;
+                cell = childContaining(cell, bx, by);
+                depth++;
+            }
+        }
+    }
+
+    private int childContaining(int cell, float px, float py) {
+        float half = cellSize[cell] / 2;
+        int index = (px >= cellX[cell] + half ? 1 : 0) + (py >= cellY[cell] + half ? 2 : 0);
+        return cellChild[cell] + index;
+    }
+
+    private int allocateCell(float x0, float y0, float size) {
+        if (numCells == cellChild.length) {
+            int capacity = Math.max(1024, numCells * 2);
+            cellX = cellX == null ? new float[capacity] : Arrays.copyOf(cellX, capacity);
+            cellY = cellY == null ? new float[capacity] : Arrays.copyOf(cellY, capacity);
+            cellSize = cellSize == null ? new float[capacity] : Arrays.copyOf(cellSize, capacity);
+            cellMass = cellMass == null ? new float[capacity] : Arrays.copyOf(cellMass, capacity);
+            cellMassX = cellMassX == null ? new float[capacity] : Arrays.copyOf(cellMassX, capacity);
+            cellMassY = cellMassY == null ? new float[capacity] : Arrays.copyOf(cellMassY, capacity);
+            cellChild = Arrays.copyOf(cellChild, capacity);
+            cellBody = cellBody == null ? new int[capacity] : Arrays.copyOf(cellBody, capacity);
+        }
+        int cell = numCells++;
+        cellX[cell] = x0;
+        cellY[cell] = y0;
+        cellSize[cell] = size;
+        cellMass[cell] = cellMassX[cell] = cellMassY[cell] = 0;
+        cellChild[cell] = -1;
+        cellBody[cell] = -1;
+        return cell;
+    }
+
+    /**
+     * Computes the positions of the input nodes from the current level, and scales back the
+     * layout if too big -- BUT scales back only non fixed nodes, fixed nodes do not change position.
+     */
+    private void updateResult() {
+        int numNodes = inputNodes.size();
+        float[] rx = new float[numNodes], ry = new float[numNodes];
+        Level level0 = levels.get(0);
+        for (int i = 0; i < numNodes; i++) {
+            int index = i;
+            for (int l = 0; l < currentLevel; l++)
+                index = levels.get(l).coarseIndex[index];
+            Level level = levels.get(currentLevel);
+            rx[i] = level.x[index];
+            ry[i] = level.y[index];
+        }
+        if (sizingMode == SIZINGMODE_SCALE && !allNodesAreFixed) {
+            // calculate bounding box
+            float x1 = Float.MAX_VALUE, y1 = Float.MAX_VALUE, x2 = -Float.MAX_VALUE, y2 = -Float.MAX_VALUE;
+            for (int i = 0; i < numNodes; i++) {
+                if (level0.kind[i] == FIXED)
+                    continue;
+                InputNode n = inputNodes.get(i);
+                x1 = Math.min(x1, rx[i] - n.sx);
+                y1 = Math.min(y1, ry[i] - n.sy);
+                x2 = Math.max(x2, rx[i] + n.sx);
+                y2 = Math.max(y2, ry[i] + n.sy);
+            }
+            float bx = (float)border, by = (float)border;
+            float xfact = 1, yfact = 1;
+            if (!haveAnchoredNode) {
+                // only scale down if needed, but never magnify; don't want to rescale with anchored nodes
+                if (x2 > x1)
+                    xfact = Math.min(1, (float)(width - 2 * border) / (x2 - x1));
+                if (y2 > y1)
+                    yfact = Math.min(1, (float)(height - 2 * border) / (y2 - y1));
+                xfact = xfact > 0 ? xfact : 1;
+                yfact = yfact > 0 ? yfact : 1;
+            }
+            for (int i = 0; i < numNodes; i++) {
+                if (level0.kind[i] == FIXED)
+                    continue;
+                rx[i] = bx + (rx[i] - x1) * xfact;
+                ry[i] = by + (ry[i] - y1) * yfact;
+            }
+        }
+        resultX = rx;
+        resultY = ry;
+    }
+}
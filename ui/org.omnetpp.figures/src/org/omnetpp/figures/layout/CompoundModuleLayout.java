@@ -7,18 +7,25 @@
 
 package org.omnetpp.figures.layout;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
 import org.eclipse.core.runtime.Assert;
 import org.eclipse.core.runtime.AssertionFailedException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
 import org.eclipse.draw2d.AbstractLayout;
 import org.eclipse.draw2d.Connection;
 import org.eclipse.draw2d.IFigure;
 import org.eclipse.draw2d.LayoutManager;
 import org.eclipse.draw2d.geometry.Dimension;
 import org.eclipse.draw2d.geometry.Rectangle;
+import org.eclipse.swt.widgets.Display;
 import org.omnetpp.common.Debug;
 import org.omnetpp.common.displaymodel.DimensionF;
 import org.omnetpp.common.displaymodel.PointF;
@@ -37,10 +44,75 @@ public class CompoundModuleLayout extends AbstractLayout {
     private static boolean debug = false;
 
     private static final DimensionF DEFAULT_SIZE = new DimensionF(300.0f, 200.0f);
+    // above this many nodes to be layouted, layouting is done in the background by BarnesHutLayoutAlgorithm
+    private static final int BACKGROUND_LAYOUT_THRESHOLD = 300;
+    private static final long BACKGROUND_LAYOUT_TIMEOUT = 120000; // ms
     protected Map<SubmoduleFigure, Integer> submoduleToId;
     protected int algSeed = 1;
+    private int layoutSeed = 1; // the seed the current layout was started with (algSeed advances during layouting)
     private CompoundModuleFigure compoundModuleFigure;
     private float scale = Float.NaN;
+    private BackgroundLayoutJob backgroundLayoutJob; // the running background layout, or null
+    private boolean synchronous = false; // if true, large compound modules are not laid out in the background
+    private ILayoutCache layoutCache; // may be null
+    private LayoutCacheEntry layoutCacheEntry; // the last loaded or stored entry
+    private boolean isLayoutCacheLoaded = false;
+
+    /**
+     * Runs a BarnesHutLayoutAlgorithm, and streams the intermediate positions to the submodule
+     * figures in the UI thread. The positions are also stored as layouted locations, so layouts
+     * triggered in the meantime (e.g. by adding a submodule) treat these nodes as already placed.
+     */
+    private class BackgroundLayoutJob extends Job {
+        private BarnesHutLayoutAlgorithm algorithm;
+        private Map<SubmoduleFigure, Integer> submoduleToId;
+        private Display display;
+        private volatile boolean updatePending;
+
+        public BackgroundLayoutJob(BarnesHutLayoutAlgorithm algorithm, Map<SubmoduleFigure, Integer> submoduleToId) {
+            super("Laying out submodules");
+            this.algorithm = algorithm;
+            this.submoduleToId = submoduleToId;
+            this.display = Display.getCurrent();
+            setSystem(true);
+        }
+
+        @Override
+        protected IStatus run(IProgressMonitor monitor) {
+            algorithm.execute(monitor, (alg, finished) -> {
+                // skip intermediate results while the previous one has not been applied yet
+                if (updatePending && !finished)
+                    return;
+                Map<SubmoduleFigure, PointF> positions = new HashMap<SubmoduleFigure, PointF>();
+                for (Map.Entry<SubmoduleFigure, Integer> entry : submoduleToId.entrySet())
+                    positions.put(entry.getKey(), alg.getNodePosition(entry.getValue()));
+                updatePending = true;
+                if (!display.isDisposed())
+                    display.asyncExec(() -> applyPositions(positions, finished));
+            });
+            return monitor.isCanceled() ? Status.CANCEL_STATUS : Status.OK_STATUS;
+        }
+
+        private void applyPositions(Map<SubmoduleFigure, PointF> positions, boolean finished) {
+            updatePending = false;
+            if (backgroundLayoutJob != this)
+                return;
+            IFigure submoduleLayer = compoundModuleFigure.getSubmoduleLayer();
+            for (Map.Entry<SubmoduleFigure, PointF> entry : positions.entrySet()) {
+                SubmoduleFigure node = entry.getKey();
+                if (node.getParent() == submoduleLayer) {
+                    getConstraint(node).setLayoutedLocation(entry.getValue());
+                    node.setCenterPosition(entry.getValue().toPixels(scale));
+                }
+            }
+            if (finished) {
+                backgroundLayoutJob = null;
+                storeLayout(submoduleLayer);
+            }
+            // the size of the compound module depends on the submodule positions
+            submoduleLayer.revalidate();
+        }
+    }
 
     /**
      * Constructor.
@@ -56,6 +128,52 @@ public class CompoundModuleLayout extends AbstractLayout {
     public void setSeed(int algSeed) {
         // NOTE: this increment is not a mistake, see modinsp.cc where random_seed gets incremented before relayouting starts
         this.algSeed = algSeed + 1;
+        this.layoutSeed = this.algSeed;
+    }
+
+    /**
+     * In synchronous mode, layout() lays out large compound modules to completion instead of
+     * starting a background layout. This is needed for off-screen rendering (e.g. image export),
+     * where the figure is painted right after layouting. A background layout in progress is
+     * finished immediately.
+     */
+    public void setSynchronous(boolean synchronous) {
+        this.synchronous = synchronous;
+        if (synchronous && backgroundLayoutJob != null) {
+            BackgroundLayoutJob job = backgroundLayoutJob;
+            cancelBackgroundLayout();
+            try {
+                job.join();
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            // the algorithm continues where the job stopped
+            job.algorithm.execute();
+            applyLayout(job.algorithm, job.submoduleToId);
+            IFigure submoduleLayer = compoundModuleFigure.getSubmoduleLayer();
+            storeLayout(submoduleLayer);
+            submoduleLayer.revalidate();
+        }
+    }
+
+    public boolean isSynchronous() {
+        return synchronous;
+    }
+
+    /**
+     * Sets the persistent cache of layouted locations (may be null). Submodules without
+     * a layouted location get their location from the cache if possible, and the result
+     * of layouting is stored in the cache.
+     */
+    public void setLayoutCache(ILayoutCache layoutCache) {
+        this.layoutCache = layoutCache;
+        layoutCacheEntry = null;
+        isLayoutCacheLoaded = false;
+    }
+
+    public ILayoutCache getLayoutCache() {
+        return layoutCache;
     }
 
     /**
@@ -70,9 +188,15 @@ public class CompoundModuleLayout extends AbstractLayout {
      * Creates the autoLayout algorithm using all currently specified constraints.
      * NOTE: the layouter operates in model coordinates, not pixels.
      */
-    @SuppressWarnings("unchecked")
     protected ILayoutAlgorithm createAutoLayouter() {
-        ILayoutAlgorithm autoLayouter = createLayouterAlgorithm();
+        return createAutoLayouter(createLayouterAlgorithm());
+    }
+
+    /**
+     * Fills in the given layouter with the nodes and edges of the compound module.
+     */
+    @SuppressWarnings("unchecked")
+    protected ILayoutAlgorithm createAutoLayouter(ILayoutAlgorithm autoLayouter) {
         autoLayouter.setSeed(algSeed);
 
         // set the layouting area
@@ -156,6 +280,15 @@ public class CompoundModuleLayout extends AbstractLayout {
         return autoLayouter;
     }
 
+    /**
+     * Creates the layouter for compound modules with more than BACKGROUND_LAYOUT_THRESHOLD nodes to layout.
+     */
+    protected BarnesHutLayoutAlgorithm createLargeLayouterAlgorithm() {
+        BarnesHutLayoutAlgorithm layouter = new BarnesHutLayoutAlgorithm();
+        layouter.setTimeout(BACKGROUND_LAYOUT_TIMEOUT);
+        return layouter;
+    }
+
     protected ILayoutAlgorithm createLayouterAlgorithm() {
         // Java implementation:
         // ILayoutAlgorithm layouter = new BasicSpringEmbedderLayoutAlgorithm();
@@ -236,27 +369,219 @@ public class CompoundModuleLayout extends AbstractLayout {
         Assert.isTrue(parent == compoundModuleFigure.getSubmoduleLayer());
 
         long startTime = System.currentTimeMillis();
-        if (parent.getChildren().size() != 0) {
+        int numberOfNodesToLayout = getNumberOfNodesToLayout(parent);
+        if (numberOfNodesToLayout != 0 && layoutCache != null && backgroundLayoutJob == null)
+            restoreCachedLocations(parent);
+        boolean isLarge = getNumberOfNodesToLayout(parent) > BACKGROUND_LAYOUT_THRESHOLD;
+        if (isLarge && !synchronous)
+            startBackgroundLayout();
+        else if (parent.getChildren().size() != 0) {
             // create and run the layouter
-            ILayoutAlgorithm alg = createAutoLayouter();
+            ILayoutAlgorithm alg = isLarge ? createAutoLayouter(createLargeLayouterAlgorithm()) : createAutoLayouter();
             alg.execute();
 
             // store back the new seed - otherwise unpinned modules created one-by-one would pop up at the exact same place
             algSeed = alg.getSeed();
 
             // get the computed location from the auto-layout algorithm, and write them back
-            for (SubmoduleFigure node : submoduleToId.keySet()) {
-                Integer id = submoduleToId.get(node);
-                PointF loc = alg.getNodePosition(id);
-                ISubmoduleConstraint constraint = getConstraint(node);
-                constraint.setLayoutedLocation(loc);
-                node.setCenterPosition(loc.toPixels(scale));
-            }
+            applyLayout(alg, submoduleToId);
+            if (numberOfNodesToLayout != 0)
+                storeLayout(parent);
         }
         if (debug)
             Debug.println("CompoundModuleLayout: " + (System.currentTimeMillis()-startTime) + "ms");
     }
 
+    /**
+     * Sets the positions computed by the layouter as the layouted locations of the submodules.
+     */
+    protected void applyLayout(ILayoutAlgorithm alg, Map<SubmoduleFigure, Integer> submoduleToId) {
+        for (SubmoduleFigure node : submoduleToId.keySet()) {
+            PointF loc = alg.getNodePosition(submoduleToId.get(node));
+            getConstraint(node).setLayoutedLocation(loc);
+            node.setCenterPosition(loc.toPixels(scale));
+        }
+    }
+
+    /**
+     * Returns the number of submodules that will be placed by the layouter (i.e. they have neither
+     * a layouted location nor a base location).
+     */
+    @SuppressWarnings("unchecked")
+    protected int getNumberOfNodesToLayout(IFigure parent) {
+        int count = 0;
+        for (SubmoduleFigure node : (List<SubmoduleFigure>)parent.getChildren()) {
+            ISubmoduleConstraint constraint = getConstraint(node);
+            if (constraint.getLayoutedLocation() == null && constraint.getBaseLocation() == null)
+                count++;
+        }
+        return count;
+    }
+
+    /**
+     * Sets the layouted location of the submodules that have none from the layout cache.
+     * If the structure of the compound module hasn't changed since the cache entry was stored,
+     * all submodules get their cached location; otherwise only the unchanged ones (same size,
+     * fixed location, vector arrangement and connections), and the layouter places the others
+     * around them.
+     */
+    @SuppressWarnings("unchecked")
+    protected void restoreCachedLocations(IFigure parent) {
+        if (!isLayoutCacheLoaded) {
+            try {
+                layoutCacheEntry = layoutCache.load();
+            }
+            catch (RuntimeException e) {
+                Debug.println("CompoundModuleLayout: cannot load layout cache: " + e);
+            }
+            isLayoutCacheLoaded = true;
+        }
+        if (layoutCacheEntry == null || layoutCacheEntry.getSeed() != layoutSeed)
+            return;
+        Map<String, Long> submoduleHashes = computeSubmoduleHashes(parent);
+        if (submoduleHashes == null)
+            return;
+        boolean isStructureUnchanged = computeStructuralHash(submoduleHashes) == layoutCacheEntry.getStructuralHash();
+        for (SubmoduleFigure node : (List<SubmoduleFigure>)parent.getChildren()) {
+            ISubmoduleConstraint constraint = getConstraint(node);
+            if (constraint.getLayoutedLocation() == null && constraint.getBaseLocation() == null &&
+                    (isStructureUnchanged || layoutCacheEntry.getSubmoduleHash(node.getName()) == submoduleHashes.get(node.getName())))
+            {
+                PointF loc = layoutCacheEntry.getLocation(node.getName());
+                if (loc != null)
+                    constraint.setLayoutedLocation(loc);
+            }
+        }
+    }
+
+    /**
+     * Stores the layouted locations in the layout cache, unless they are already there.
+     */
+    @SuppressWarnings("unchecked")
+    protected void storeLayout(IFigure parent) {
+        if (layoutCache == null || backgroundLayoutJob != null)
+            return;
+        Map<String, Long> submoduleHashes = computeSubmoduleHashes(parent);
+        if (submoduleHashes == null)
+            return;
+        LayoutCacheEntry entry = new LayoutCacheEntry(layoutSeed, computeStructuralHash(submoduleHashes));
+        for (SubmoduleFigure node : (List<SubmoduleFigure>)parent.getChildren()) {
+            ISubmoduleConstraint constraint = getConstraint(node);
+            if (constraint.getLayoutedLocation() != null && constraint.getBaseLocation() == null) {
+                entry.setLocation(node.getName(), constraint.getLayoutedLocation());
+                entry.setSubmoduleHash(node.getName(), submoduleHashes.get(node.getName()));
+            }
+        }
+        if (layoutCacheEntry != null && layoutCacheEntry.getSeed() == entry.getSeed() &&
+                layoutCacheEntry.getStructuralHash() == entry.getStructuralHash() && layoutCacheEntry.hasSameLocations(entry))
+            return;
+        try {
+            layoutCache.store(entry);
+            layoutCacheEntry = entry;
+        }
+        catch (RuntimeException e) {
+            Debug.println("CompoundModuleLayout: cannot store layout cache: " + e);
+        }
+    }
+
+    /**
+     * Returns the hash of each submodule by name. The hash covers everything about the submodule
+     * that affects the layout: its name, size, fixed location and vector arrangement, and its
+     * connections. Returns null if the submodule names are not unique, because then cached
+     * locations cannot be assigned to them.
+     */
+    @SuppressWarnings("unchecked")
+    protected Map<String, Long> computeSubmoduleHashes(IFigure parent) {
+        Map<String, List<String>> items = new HashMap<String, List<String>>();
+        for (SubmoduleFigure node : (List<SubmoduleFigure>)parent.getChildren()) {
+            if (node.getName() == null || items.containsKey(node.getName()))
+                return null;
+            ISubmoduleConstraint constraint = getConstraint(node);
+            DimensionF size = constraint.getShapeSize();
+            PointF baseLoc = constraint.getBaseLocation();
+            VectorArrangementParameters p = constraint.getVectorArrangementParameters();
+            List<String> nodeItems = new ArrayList<String>();
+            nodeItems.add("S " + node.getName() + " " + (size == null ? "-" : size.width + "x" + size.height) + " " + (baseLoc == null ? "-" : baseLoc.x + "," + baseLoc.y) + " " +
+                    constraint.getVectorIdentifier() + " " + constraint.getVectorIndex() + "/" + constraint.getVectorSize() + " " + constraint.getVectorArrangement() + " " + (p == null ? 0 : p.hashCode()));
+            items.put(node.getName(), nodeItems);
+        }
+        for (IFigure edge : (List<IFigure>)compoundModuleFigure.getConnectionLayer().getChildren()) {
+            if (edge instanceof Connection) {
+                Connection conn = (Connection)edge;
+                IFigure srcFig = conn.getSourceAnchor() == null ? null : conn.getSourceAnchor().getOwner();
+                IFigure targetFig = conn.getTargetAnchor() == null ? null : conn.getTargetAnchor().getOwner();
+                String src = srcFig instanceof SubmoduleFigure ? ((SubmoduleFigure)srcFig).getName() : "<parent>";
+                String target = targetFig instanceof SubmoduleFigure ? ((SubmoduleFigure)targetFig).getName() : "<parent>";
+                String item = "C " + src + " " + target;
+                if (items.containsKey(src))
+                    items.get(src).add(item);
+                if (items.containsKey(target) && !target.equals(src))
+                    items.get(target).add(item);
+            }
+        }
+        Map<String, Long> result = new HashMap<String, Long>();
+        for (Map.Entry<String, List<String>> entry : items.entrySet())
+            result.put(entry.getKey(), hash(entry.getValue()));
+        return result;
+    }
+
+    /**
+     * Returns a hash of everything that affects the layout, computed from the submodule hashes.
+     */
+    protected static long computeStructuralHash(Map<String, Long> submoduleHashes) {
+        List<String> items = new ArrayList<String>();
+        for (Map.Entry<String, Long> entry : submoduleHashes.entrySet())
+            items.add(entry.getKey() + " " + Long.toHexString(entry.getValue()));
+        return hash(items);
+    }
+
+    /**
+     * Returns a nonzero 64-bit FNV-1a hash of the given strings, independent of their order.
+     */
+    private static long hash(List<String> items) {
+        items = new ArrayList<String>(items);
+        Collections.sort(items);
+        long hash = 0xcbf29ce484222325L;
+        for (String item : items) {
+            for (int i = 0; i < item.length(); i++) {
+                hash ^= item.charAt(i);
+                hash *= 0x100000001b3L;
+            }
+            hash ^= '\n';
+            hash *= 0x100000001b3L;
+        }
+        return hash == 0 ? 1 : hash;
+    }
+
+    /**
+     * Places the submodules approximately (using the coarsest level of the layouter), and refines
+     * their positions in a background job. Large compound modules can be displayed immediately this
+     * way, and their layout settles progressively.
+     */
+    protected void startBackgroundLayout() {
+        cancelBackgroundLayout();
+        BarnesHutLayoutAlgorithm alg = createLargeLayouterAlgorithm();
+        createAutoLayouter(alg);
+        alg.initialize();
+        // store back the new seed - otherwise unpinned modules created one-by-one would pop up at the exact same place
+        algSeed = alg.getSeed();
+        applyLayout(alg, submoduleToId);
+        if (debug)
+            Debug.println("CompoundModuleLayout: starting background layout of " + submoduleToId.size() + " submodules");
+        backgroundLayoutJob = new BackgroundLayoutJob(alg, submoduleToId);
+        backgroundLayoutJob.schedule();
+    }
+
+    /**
+     * Stops the background layout (if any); the submodules keep their current positions.
+     */
+    public void cancelBackgroundLayout() {
+        if (backgroundLayoutJob != null) {
+            backgroundLayoutJob.cancel();
+            backgroundLayoutJob = null;
+        }
+    }
+
     /**
      * After calling this, the next layout process will call a full layout process.
      * Pinned nodes will stay, unpinned nodes will move.
@@ -265,6 +590,7 @@ public class CompoundModuleLayout extends AbstractLayout {
      */
     @SuppressWarnings("unchecked")
     public void requestFullLayout() {
+        cancelBackgroundLayout();
         // forget all cached coordinates
         IFigure nodeParent = compoundModuleFigure.getSubmoduleLayer();
         for (IFigure node : (List<IFigure>)nodeParent.getChildren()) {
@@ -0,0 +1,27 @@
+/*--------------------------------------------------------------*
+  Copyright (C) 2006-2015 OpenSim Ltd.
+
+  This file is distributed WITHOUT ANY WARRANTY. See the file
+  'License' for details on this and other legal matters.
+*--------------------------------------------------------------*/
+
+package org.omnetpp.figures.layout;
+
+/**
+ * Persistent storage for the submodule positions computed by CompoundModuleLayout
+ * for one compound module, so they don't need to be recomputed each time the compound
+ * module is displayed.
+ *
+ * @see CompoundModuleLayout#setLayoutCache(ILayoutCache)
+ */
+public interface ILayoutCache {
+    /**
+     * Returns the stored layout, or null if there is none or it cannot be read.
+     */
+    LayoutCacheEntry load();
+
+    /**
+     * Stores the layout, replacing the previous one.
+     */
+    void store(LayoutCacheEntry entry);
+}
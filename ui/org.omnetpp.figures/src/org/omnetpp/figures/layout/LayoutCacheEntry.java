@@ -0,0 +1,75 @@
+/*--------------------------------------------------------------*
+  Copyright (C) 2006-2015 OpenSim Ltd.
+
+  This file is distributed WITHOUT ANY WARRANTY. See the file
+  'License' for details on this and other legal matters.
+*--------------------------------------------------------------*/
+
+package org.omnetpp.figures.layout;
+
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.omnetpp.common.displaymodel.PointF;
+
+/**
+ * The layouted locations of the submodules of a compound module, keyed by submodule name,
+ * together with the layouter seed and the structural hash of the compound module they
+ * were computed for. The hash of each submodule (covering the submodule itself and its
+ * connections) is also stored, so that unchanged submodules can be recognized after a
+ * structural change.
+ */
+public class LayoutCacheEntry implements Serializable {
+    private static final long serialVersionUID = 2L;
+
+    private final int seed;
+    private final long structuralHash;
+    private final HashMap<String, float[]> locations = new HashMap<String, float[]>();
+    private final HashMap<String, Long> submoduleHashes = new HashMap<String, Long>();
+
+    public LayoutCacheEntry(int seed, long structuralHash) {
+        this.seed = seed;
+        this.structuralHash = structuralHash;
+    }
+
+    public int getSeed() {
+        return seed;
+    }
+
+    public long getStructuralHash() {
+        return structuralHash;
+    }
+
+    public PointF getLocation(String submoduleName) {
+        float[] location = locations.get(submoduleName);
+        return location == null ? null : new PointF(location[0], location[1]);
+    }
+
+    public void setLocation(String submoduleName, PointF location) {
+        locations.put(submoduleName, new float[] { location.x, location.y });
+    }
+
+    /**
+     * Returns the stored hash of the submodule, or 0 if it's unknown.
+     */
+    public long getSubmoduleHash(String submoduleName) {
+        Long hash = submoduleHashes.get(submoduleName);
+        return hash == null ? 0 : hash;
+    }
+
+    public void setSubmoduleHash(String submoduleName, long hash) {
+        submoduleHashes.put(submoduleName, hash);
+    }
+
+    public boolean hasSameLocations(LayoutCacheEntry other) {
+        if (locations.size() != other.locations.size())
+            return false;
+        for (Map.Entry<String, float[]> entry : locations.entrySet()) {
+            float[] otherLocation = other.locations.get(entry.getKey());
+            if (otherLocation == null || otherLocation[0] != entry.getValue()[0] || otherLocation[1] != entry.getValue()[1])
+                return false;
+        }
+        return true;
+    }
+}
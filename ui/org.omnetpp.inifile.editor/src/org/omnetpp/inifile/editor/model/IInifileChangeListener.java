@@ -7,6 +7,8 @@
 
 package org.omnetpp.inifile.editor.model;
 
+import java.util.List;
+
 /**
  * Implement this to get notified about inifile changes.
  * @author andras
@@ -16,4 +18,13 @@ public interface IInifileChangeListener {
      * @param event Callback invoked when a change occurs in the model
      */
     public void modelChanged();
+
+    /**
+     * Called instead of modelChanged() when the change was confined to the values
+     * or comments of the given entries, i.e. sections and keys remain the same.
+     * The default implementation calls modelChanged().
+     */
+    public default void entriesChanged(List<SectionKey> changedEntries) {
+        modelChanged();
+    }
 }
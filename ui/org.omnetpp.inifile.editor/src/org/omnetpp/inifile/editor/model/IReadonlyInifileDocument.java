@@ -97,6 +97,15 @@ public interface IReadonlyInifileDocument {
      */
     List<String> getMatchingKeys(String section, String regex);
 
+    /**
+     * Returns keys in the given section that match the given parameter full path,
+     * when interpreted as parameter assignment patterns (see ParamUtil.getOrCreateKeyMatcher()).
+     * Keys are returned in the order they appear. Returns null if section does not
+     * exist. Uses an index that is built on first use, so it is much faster than
+     * matching every key in turn.
+     */
+    List<String> getKeysMatchingParameter(String section, String paramFullPath);
+
     /**
      * Returns list of unique section names.
      */
@@ -121,6 +121,11 @@ final class ImmutableInifileDocument implements IReadonlyInifileDocument {
         return list;
     }
 
+    public List<String> getKeysMatchingParameter(String sectionName, String paramFullPath) {
+        Section section = sections.get(sectionName);
+        return section == null ? null : section.keyIndex.getMatchingKeys(section.entries.keySet(), paramFullPath);
+    }
+
     public String[] getSectionNames() {
         return sections.keySet().toArray(new String[0]);
     }
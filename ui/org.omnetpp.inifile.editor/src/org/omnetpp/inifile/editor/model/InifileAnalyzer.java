@@ -28,8 +28,11 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.StringTokenizer;
 import java.util.Vector;
 import java.util.regex.Matcher;
@@ -37,6 +40,8 @@ import java.util.regex.Pattern;
 
 import org.apache.commons.collections.ResettableIterator;
 import org.apache.commons.lang3.ObjectUtils;
+import org.eclipse.core.resources.IMarker;
+import org.eclipse.core.resources.IResource;
 import org.eclipse.core.runtime.Assert;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.ListenerList;
@@ -61,6 +66,7 @@ import org.omnetpp.common.util.ParseException;
 import org.omnetpp.common.util.StringUtils;
 import org.omnetpp.inifile.editor.InifileEditorPlugin;
 import org.omnetpp.inifile.editor.form.AnalysisTimeoutDialog;
+import org.omnetpp.inifile.editor.model.IReadonlyInifileDocument.LineInfo;
 import org.omnetpp.inifile.editor.model.ParamResolution.ParamResolutionType;
 import org.omnetpp.inifile.editor.model.ParamResolutionStatus.Entry;
 import org.omnetpp.ned.core.INedResources;
@@ -123,6 +129,7 @@ public final class InifileAnalyzer {
 
     // state of the analyzer
     private boolean changed = true;  // true if the document has changed since last validate()
+    private Set<SectionKey> changedEntries = new LinkedHashSet<SectionKey>(); // entries edited in place since last validate(), if !changed
     //private boolean paramResolutionDirty = true; // true if the document has changed while paramResolutionJob was running
     private boolean withinValidate = false; // debug only
     private IReadonlyInifileDocument analysisDocCopy; // copy of the ini file belongs to the last analysis
@@ -135,6 +142,7 @@ public final class InifileAnalyzer {
     private IInifileChangeListener inifileChangeListener;
     private IPropertyChangeListener preferenceChangeListener;
     private InifileProblemMarkerSynchronizer markers; // only used during analyze()
+    private InifileProblemMarkerSynchronizer lastMarkers; // markers of the last validation; base of revalidating changed entries
     private ListenerList<IPropertyChangeListener> propertyChangeListeners = new ListenerList<>();
     private ListenerList<IAnalysisListener> analysisListeners = new ListenerList<>();
 
@@ -184,10 +192,20 @@ public final class InifileAnalyzer {
     public InifileAnalyzer(IInifileDocument doc) {
         this.doc = doc;
         this.paramResolutionLock = new Object();
-        this.paramResolutionJob = new ParamResolutionJob(doc);
+        this.paramResolutionJob = new ParamResolutionJob(doc, (section) -> fireSectionAnalysisCompletedEvent(section));
 
         // hook on inifile changes
-        inifileChangeListener = () -> modelChanged();
+        inifileChangeListener = new IInifileChangeListener() {
+            @Override
+            public void modelChanged() {
+                InifileAnalyzer.this.modelChanged();
+            }
+
+            @Override
+            public void entriesChanged(List<SectionKey> entries) {
+                InifileAnalyzer.this.entriesChanged(entries);
+            }
+        };
         doc.addInifileChangeListener(inifileChangeListener);
 
         // listen on NED changes as well
@@ -214,9 +232,41 @@ public final class InifileAnalyzer {
     private void modelChanged() {
         synchronized (globalLock) {
             changed = true;
+            changedEntries.clear();
         }
     }
 
+    /**
+     * Records entries whose value was edited in place, so that only those entries
+     * need to be validated again. Falls back to full validation if the entry may
+     * affect the validation of other entries (network=, iteration variables).
+     */
+    private void entriesChanged(List<SectionKey> entries) {
+        synchronized (globalLock) {
+            if (changed)
+                return;
+            for (SectionKey entry : entries) {
+                if (affectsOtherEntries(entry.section, entry.key)) {
+                    modelChanged();
+                    return;
+                }
+                changedEntries.add(entry);
+            }
+        }
+    }
+
+    private boolean affectsOtherEntries(String section, String key) {
+        if (key.equals(CFGID_NETWORK.getName()) || !doc.containsKey(section, key) || doc.getValue(section, key).indexOf('$') != -1)
+            return true;
+        SectionData sectionData = (SectionData) doc.getSectionData(section);
+        if (sectionData == null)
+            return true;
+        for (IterationVariable var : sectionData.iterations)
+            if (key.equals(var.key))
+                return true; // the previous value defined iteration variables
+        return false;
+    }
+
     public boolean isAnalysisUpToDate() {
         synchronized (globalLock) {
             return analysisDocCopy != null && analysisNedResolverCopy != null &&
@@ -260,6 +310,13 @@ public final class InifileAnalyzer {
 
     public interface IAnalysisListener {
         void analysisCompleted(InifileAnalyzer analyzer);
+
+        /**
+         * Called from a background thread when the parameters of a section have
+         * been resolved, while the analysis of other sections is still in progress.
+         * See getPartialParamResolutions().
+         */
+        default void sectionAnalysisCompleted(InifileAnalyzer analyzer, String section) {}
     }
 
     public void addAnalysisListener(IAnalysisListener listener) {
@@ -277,6 +334,21 @@ public final class InifileAnalyzer {
         }
     }
 
+    private void fireSectionAnalysisCompletedEvent(String section) {
+        final Object[] list = analysisListeners.getListeners();
+        for (int i = 0; i < list.length; ++i) {
+            ((IAnalysisListener) list[i]).sectionAnalysisCompleted(this, section);
+        }
+    }
+
+    /**
+     * Makes the analysis process the given section first, e.g. because it is
+     * being displayed to the user.
+     */
+    public void setPrioritySection(String section) {
+        paramResolutionJob.setPrioritySection(section);
+    }
+
     /**
      * Analyzes the inifile if it changed since last analyzed. Side effects:
      * error/warning markers may be placed on the IFile, and parameter
@@ -319,8 +391,10 @@ public final class InifileAnalyzer {
      */
     private void validateIfChanged() {
         synchronized (globalLock) {
-            if (changed)
+            if (changed || lastMarkers == null)
                 validate();
+            else if (!changedEntries.isEmpty())
+                validateEntries();
         }
     }
 
@@ -344,6 +418,7 @@ public final class InifileAnalyzer {
 
                 // data structure is done
                 changed = false;
+                changedEntries.clear();
 
                 // validate options, param keys, iteration variables, etc.
                 doValidate();
@@ -352,6 +427,51 @@ public final class InifileAnalyzer {
 
                 // synchronize detected problems with the file's existing markers
                 markers.synchronize();
+                lastMarkers = markers;
+                markers = null;
+            }
+            finally {
+                withinValidate = false;
+            }
+        }
+    }
+
+    /**
+     * Validates the entries that have been edited in place since the last validation.
+     * Markers of other entries are taken over from the last validation.
+     */
+    private void validateEntries() {
+        synchronized (globalLock) {
+            Assert.isTrue(!withinValidate, "validateEntries() recursively called?");
+            withinValidate = true;
+
+            try {
+                long startTime = System.currentTimeMillis();
+                INedTypeResolver ned = NedResourcesPlugin.getNedResources();
+
+                // in-place edits don't move lines, so markers can be identified by line number
+                Map<IResource, Set<Integer>> changedLines = new HashMap<IResource, Set<Integer>>();
+                for (SectionKey entry : changedEntries) {
+                    LineInfo line = doc.getEntryLineDetails(entry.section, entry.key);
+                    changedLines.computeIfAbsent(line.getFile(), (file) -> new HashSet<Integer>()).add(line.getLineNumber());
+                }
+
+                markers = new InifileProblemMarkerSynchronizer(doc, INIFILEANALYZERPROBLEM_MARKER_ID);
+                markers.addAll(lastMarkers, (file, attrs) -> !changedLines.getOrDefault(file, Collections.emptySet()).contains(attrs.get(IMarker.LINE_NUMBER)));
+
+                for (SectionKey entry : changedEntries) {
+                    switch (KeyType.getKeyType(entry.key)) {
+                    case CONFIG: validateConfig(entry.section, entry.key, ned); break;
+                    case PARAM:  validateParamKey(entry.section, entry.key, ned); break;
+                    case PER_OBJECT_CONFIG: validatePerObjectConfig(entry.section, entry.key, ned); break;
+                    }
+                }
+                changedEntries.clear();
+
+                Debug.println("Inifile entries validated in "+(System.currentTimeMillis()-startTime)+"ms");
+
+                markers.synchronize();
+                lastMarkers = markers;
                 markers = null;
             }
             finally {
@@ -1552,6 +1672,17 @@ public final class InifileAnalyzer {
         });
     }
 
+    /**
+     * Returns the parameter resolutions for the given section if the running analysis
+     * has already resolved that section (see IAnalysisListener.sectionAnalysisCompleted()),
+     * and null otherwise. Does not block. Unlike getParamResolutions(), the result does
+     * not contain information about the ini file keys that are not used.
+     */
+    public ParamResolution[] getPartialParamResolutions(String section) {
+        ParamResolutionStatus.Entry entry = paramResolutionJob.getPartialResult(section);
+        return entry == null ? null : entry.paramResolutions.toArray(new ParamResolution[]{});
+    }
+
     /**
      * Returns unassigned parameters for the given inifile section.
      * (This is a filtered subset of the objects returned by getParamResolutions().)
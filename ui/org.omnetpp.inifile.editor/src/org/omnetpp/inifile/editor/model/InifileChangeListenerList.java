@@ -7,6 +7,8 @@
 
 package org.omnetpp.inifile.editor.model;
 
+import java.util.List;
+
 public class InifileChangeListenerList {
 
     protected IInifileChangeListener[] array = new IInifileChangeListener[0];
@@ -78,4 +80,13 @@ public class InifileChangeListenerList {
             for (IInifileChangeListener listener : getListeners())
                 listener.modelChanged();
     }
+
+    /**
+     * Fires an entries changed event to all listeners if event sending is enabled
+     */
+    public void fireEntriesChanged(List<SectionKey> changedEntries) {
+        if (enabled)
+            for (IInifileChangeListener listener : getListeners())
+                listener.entriesChanged(changedEntries);
+    }
 }
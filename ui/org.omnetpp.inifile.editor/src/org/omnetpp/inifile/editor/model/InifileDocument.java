@@ -12,10 +12,12 @@ import java.io.StringReader;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.Consumer;
 
 import org.apache.commons.lang3.ArrayUtils;
 import org.eclipse.core.resources.IFile;
@@ -89,11 +91,22 @@ public class InifileDocument implements IInifileDocument {
     static class IncludeLine extends Line implements Cloneable {
         String includedFile;
     }
+    /**
+     * The parser callbacks produced by an included file (except comments), recorded
+     * so that the file can be "reparsed" by replaying them as long as it is unchanged.
+     */
+    static class IncludedFileParse {
+        long modificationStamp;
+        List<Consumer<InifileParser.ParserCallback>> events = new ArrayList<Consumer<InifileParser.ParserCallback>>();
+        boolean used; // during the last parse
+    }
+
     static class Section implements Cloneable {
         ArrayList<SectionHeadingLine> headingLines = new ArrayList<SectionHeadingLine>();
         LinkedHashMap<String,KeyValueLine> entries = new LinkedHashMap<String, KeyValueLine>();
         String[] sectionChain;
         Set<String> sectionChainConflict; // conflicting sections in the section chain or null
+        SectionKeyIndex keyIndex = new SectionKeyIndex(); // shared with clones: keys don't change after parsing
         Object data;
 
         @Override
@@ -126,6 +139,12 @@ public class InifileDocument implements IInifileDocument {
     // included files, including indirectly referenced ones
     ArrayList<IFile> includedFiles = new ArrayList<IFile>();
 
+    // parse results of included files, so they need not be re-read on every reparse
+    private Map<IFile,IncludedFileParse> includedFileParses = new HashMap<IFile,IncludedFileParse>();
+
+    // the main-file entry being edited by the current DocumentEvent, if it may be updated in place
+    private KeyValueLine lineAboutToBeChanged;
+
     // listeners
     private IDocumentListener documentListener; // we listen on IDocument
     private IResourceChangeListener resourceChangeListener; // we listen on the workspace
@@ -157,9 +176,18 @@ public class InifileDocument implements IInifileDocument {
     protected void hookListeners() {
         // listen on text editor changes
         documentListener = new IDocumentListener() {
-            public void documentAboutToBeChanged(DocumentEvent event) {}
+            public void documentAboutToBeChanged(DocumentEvent event) {
+                synchronized (lock) {
+                    lineAboutToBeChanged = changed ? null : findLineForInPlaceUpdate(event);
+                }
+            }
             public void documentChanged(DocumentEvent event) {
-                markAsChanged();
+                synchronized (lock) {
+                    KeyValueLine line = lineAboutToBeChanged;
+                    lineAboutToBeChanged = null;
+                    if (line == null || changed || !updateLineInPlace(line))
+                        markAsChanged();
+                }
             }
         };
         document.addDocumentListener(documentListener);
@@ -203,6 +231,103 @@ public class InifileDocument implements IInifileDocument {
         ResourcesPlugin.getWorkspace().addResourceChangeListener(resourceChangeListener);
     }
 
+    /**
+     * Returns the main-file entry the event will modify, provided the edit is
+     * confined to a single-line entry and does not insert or delete line breaks;
+     * otherwise returns null. See updateLineInPlace().
+     */
+    protected KeyValueLine findLineForInPlaceUpdate(DocumentEvent event) {
+        try {
+            String text = event.getText() == null ? "" : event.getText();
+            if (text.indexOf('\n') != -1 || text.indexOf('\r') != -1)
+                return null;
+            int lineIndex = document.getLineOfOffset(event.getOffset());
+            if (document.getLineOfOffset(event.getOffset() + event.getLength()) != lineIndex)
+                return null;
+            int lineNumber = lineIndex + 1;
+            int lineEndOffset = document.getLineOffset(lineIndex) + document.getLineInformation(lineIndex).getLength();
+            if (event.getOffset() + event.getLength() > lineEndOffset)
+                return null; // touches the line delimiter
+
+            // find the entry on that line (mainFileKeyValueLines is ordered by line number)
+            int lo = 0, hi = mainFileKeyValueLines.size() - 1;
+            while (lo <= hi) {
+                int mid = (lo + hi) >>> 1;
+                KeyValueLine line = mainFileKeyValueLines.get(mid);
+                if (line.lineNumber < lineNumber)
+                    lo = mid + 1;
+                else if (line.lineNumber > lineNumber)
+                    hi = mid - 1;
+                else {
+                    String oldText = getLineText(lineIndex);
+                    boolean isPlainLine = !oldText.isEmpty() && !Character.isWhitespace(oldText.charAt(0)) && !oldText.endsWith("\\"); // not involved in line continuation
+                    return line.numLines == 1 && isPlainLine ? line : null;
+                }
+            }
+            return null;
+        }
+        catch (BadLocationException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Called after a document change that only modified the text of the given
+     * single-line entry. If the entry still has the same key (other than "extends",
+     * which affects the section chains) and the change does not affect how the
+     * surrounding lines are parsed, updates the value and comment in place
+     * (no reparse needed), and notifies listeners via
+     * IInifileChangeListener.entriesChanged(). Otherwise returns false.
+     */
+    protected boolean updateLineInPlace(KeyValueLine line) {
+        try {
+            String text = getLineText(line.lineNumber - 1);
+            if (text.isBlank() || Character.isWhitespace(text.charAt(0)) || text.endsWith("\\"))
+                return false; // would change line continuation
+
+            class SingleLineParser extends InifileParser.ParserAdapter {
+                int numCallbacks = 0;
+                String key, rawValue, rawComment;
+                @Override
+                public void keyValueLine(int lineNumber, int numLines, String rawLine, String key, String rawValue, String rawComment) {
+                    numCallbacks++;
+                    this.key = key; this.rawValue = rawValue; this.rawComment = rawComment;
+                }
+                @Override
+                public void commentLine(int lineNumber, int numLines, String rawLine, String rawComment) { numCallbacks++; }
+                @Override
+                public void sectionHeadingLine(int lineNumber, int numLines, String rawLine, String sectionName, String rawComment) { numCallbacks++; }
+                @Override
+                public void directiveLine(int lineNumber, int numLines, String rawLine, String directive, String args, String rawComment) { numCallbacks++; }
+                @Override
+                public void parseError(int lineNumber, int numLines, String message) { numCallbacks++; }
+            }
+            SingleLineParser parser = new SingleLineParser();
+            new InifileParser().parse(text, parser);
+            if (parser.numCallbacks != 1 || !line.key.equals(parser.key))
+                return false;
+            if (ConfigRegistry.EXTENDS.equals(line.key))
+                return false; // section chains, conflicts and cycles are only computed during a full parse
+
+            line.rawValue = parser.rawValue;
+            line.value = InifileParser.stripComments(parser.rawValue).trim();
+            line.rawComment = parser.rawComment;
+            docCopy = null;
+
+            String section = getSectionForLine(line.lineNumber);
+            if (listeners.isEnabled())
+                listeners.fireEntriesChanged(Collections.singletonList(new SectionKey(section, line.key)));
+            return true;
+        }
+        catch (BadLocationException | CoreException e) {
+            return false;
+        }
+    }
+
+    private String getLineText(int lineIndex) throws BadLocationException {
+        return document.get(document.getLineOffset(lineIndex), document.getLineInformation(lineIndex).getLength());
+    }
+
     public void markAsChanged() {
         synchronized (lock) {
             changed = true;
@@ -240,6 +365,9 @@ public class InifileDocument implements IInifileDocument {
             // collect errors/warnings in a ProblemMarkerSynchronizer
             final InifileProblemMarkerSynchronizer markers = new InifileProblemMarkerSynchronizer(this, INIFILEPROBLEM_MARKER_ID);
 
+            for (IncludedFileParse includedFileParse : includedFileParses.values())
+                includedFileParse.used = false;
+
             sections.clear();
             mainFileKeyValueLines.clear();
             mainFileSectionHeadingLines.clear();
@@ -343,7 +471,7 @@ public class InifileDocument implements IInifileDocument {
                             else {
                                 includedFiles.add(file);
                                 markers.register(file);
-                                new InifileParser().parse(file, new Builder(file, currentSection, includeStack));
+                                parseIncludedFile(file, new Builder(file, currentSection, includeStack));
                             }
                         } catch (CoreException e) {
                             markers.addError(currentFile, lineNumber, e.getMessage());
@@ -363,6 +491,7 @@ public class InifileDocument implements IInifileDocument {
                 markers.addError(documentFile, 1, e.getMessage());
             }
             Debug.println("Inifile parsing: "+(System.currentTimeMillis()-startTime)+"ms");
+            includedFileParses.values().removeIf(includedFileParse -> !includedFileParse.used);
 
             // mark data structure as up to date (even if there was an error, because
             // we don't want to keep re-parsing again and again)
@@ -396,6 +525,41 @@ public class InifileDocument implements IInifileDocument {
         }
     }
 
+    /**
+     * Feeds the contents of an included file into the callback. The file is only
+     * parsed if it has changed since the last time; otherwise the parser callbacks
+     * recorded at that time are replayed.
+     */
+    protected void parseIncludedFile(IFile file, InifileParser.ParserCallback callback) throws CoreException {
+        IncludedFileParse includedFileParse = includedFileParses.get(file);
+        long modificationStamp = file.getModificationStamp();
+        if (includedFileParse == null || includedFileParse.modificationStamp != modificationStamp || modificationStamp == IResource.NULL_STAMP) {
+            final IncludedFileParse newParse = new IncludedFileParse();
+            newParse.modificationStamp = modificationStamp;
+            new InifileParser().parse(file, new InifileParser.ParserCallback() {
+                public void commentLine(int lineNumber, int numLines, String rawLine, String rawComment) {
+                    // not needed by the Builder
+                }
+                public void sectionHeadingLine(int lineNumber, int numLines, String rawLine, String sectionName, String rawComment) {
+                    newParse.events.add(c -> c.sectionHeadingLine(lineNumber, numLines, rawLine, sectionName, rawComment));
+                }
+                public void keyValueLine(int lineNumber, int numLines, String rawLine, String key, String rawValue, String rawComment) {
+                    newParse.events.add(c -> c.keyValueLine(lineNumber, numLines, rawLine, key, rawValue, rawComment));
+                }
+                public void directiveLine(int lineNumber, int numLines, String rawLine, String directive, String args, String rawComment) {
+                    newParse.events.add(c -> c.directiveLine(lineNumber, numLines, rawLine, directive, args, rawComment));
+                }
+                public void parseError(int lineNumber, int numLines, String message) {
+                    newParse.events.add(c -> c.parseError(lineNumber, numLines, message));
+                }
+            });
+            includedFileParses.put(file, includedFileParse = newParse);
+        }
+        includedFileParse.used = true;
+        for (Consumer<InifileParser.ParserCallback> event : includedFileParse.events)
+            event.accept(callback);
+    }
+
     public void dump() {
         for (String sectionName : sections.keySet()) {
             Debug.println("Section "+sectionName);
@@ -691,6 +855,12 @@ public class InifileDocument implements IInifileDocument {
         return list;
     }
 
+    public List<String> getKeysMatchingParameter(String sectionName, String paramFullPath) {
+        parseIfChanged();
+        Section section = sections.get(sectionName);
+        return section == null ? null : section.keyIndex.getMatchingKeys(section.entries.keySet(), paramFullPath);
+    }
+
     public String[] getSectionNames() {
         parseIfChanged();
         return sections.keySet().toArray(new String[0]);
@@ -145,15 +145,12 @@ public class InifileUtils {
     public static List<SectionKey> lookupParameter(String paramFullPath, boolean hasNedDefault, String[] sectionChain, IReadonlyInifileDocument doc) {
         List<SectionKey> result = new ArrayList<SectionKey>();
         for (String section : sectionChain) {
-            for (String key : doc.getKeys(section)) {
-                ParamUtil.KeyMatcher keyMatcher = ParamUtil.getOrCreateKeyMatcher(key);
-                if (keyMatcher.matcher.matches(paramFullPath)) {
-                    String value = doc.getValue(section, key);
-                    if (hasNedDefault || !value.equals(DEFAULT)) {
-                        result.add(new SectionKey(section, key));
-                        if (keyMatcher.keyEqualsGeneralizedKey)
-                            return result;
-                    }
+            for (String key : doc.getKeysMatchingParameter(section, paramFullPath)) {
+                String value = doc.getValue(section, key);
+                if (hasNedDefault || !value.equals(DEFAULT)) {
+                    result.add(new SectionKey(section, key));
+                    if (ParamUtil.getOrCreateKeyMatcher(key).keyEqualsGeneralizedKey)
+                        return result;
                 }
             }
         }
@@ -1,18 +1,26 @@
 package org.omnetpp.inifile.editor.model;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.NullProgressMonitor;
 import org.eclipse.core.runtime.OperationCanceledException;
 import org.eclipse.core.runtime.Status;
-import org.eclipse.core.runtime.SubProgressMonitor;
 import org.eclipse.core.runtime.jobs.Job;
 import org.omnetpp.common.Debug;
 import org.omnetpp.inifile.editor.InifileEditorPlugin;
 import org.omnetpp.inifile.editor.model.ParamResolutionStatus.Entry;
 import org.omnetpp.ned.core.INedResources;
+import org.omnetpp.ned.core.ImmutableNedTypeResolver;
 import org.omnetpp.ned.core.NedResourcesPlugin;
 import org.omnetpp.ned.model.interfaces.INedTypeResolver;
 
@@ -20,6 +28,8 @@ import org.omnetpp.ned.model.interfaces.INedTypeResolver;
  * Job for performing the parameter resolution asynchronously.
  *
  * It works on a read-only copy of the ini file and returns the result in its status.
+ * Sections are analyzed in parallel; results of the sections completed so far are
+ * available via getPartialResult() while the job is running.
  *
  * The actual work is factored out to the ParamCollector class, so
  * they can be called directly too.
@@ -31,15 +41,61 @@ class ParamResolutionJob extends Job {
     public final static int USER_CANCELED = 0;
     public final static int DOC_CHANGED   = 1;
 
+    // shared by all ini files being analyzed
+    private static final ForkJoinPool sectionPool = new ForkJoinPool(Math.max(1, Runtime.getRuntime().availableProcessors() - 1));
+
+    /**
+     * Notified from a pool thread when the analysis of a section has completed.
+     */
+    public interface ISectionListener {
+        void sectionResolved(String section);
+    }
+
+    // sections completed during the current (or last) run
+    private static class PartialResult {
+        final IReadonlyInifileDocument docCopy;
+        final INedTypeResolver nedResolver;
+        final Map<String, Entry> entries = new ConcurrentHashMap<String, Entry>();
+
+        PartialResult(IReadonlyInifileDocument docCopy, INedTypeResolver nedResolver) {
+            this.docCopy = docCopy;
+            this.nedResolver = nedResolver;
+        }
+    }
+
     private IInifileDocument doc;
+    private ISectionListener sectionListener;
     private int retryCount;
+    private volatile String prioritySection;
+    private volatile PartialResult partialResult;
 
-    public ParamResolutionJob(IInifileDocument doc) {
+    public ParamResolutionJob(IInifileDocument doc, ISectionListener sectionListener) {
         super("Ini file analysis");
         this.doc = doc;
+        this.sectionListener = sectionListener;
         setPriority(SHORT);
     }
 
+    /**
+     * Sets the section to analyze first, e.g. the one displayed to the user.
+     * Takes effect from the next run.
+     */
+    public void setPrioritySection(String section) {
+        this.prioritySection = section;
+    }
+
+    /**
+     * Returns the result for the given section if it has already been computed
+     * by the current run, and the inputs of the run are still up to date;
+     * otherwise returns null.
+     */
+    public Entry getPartialResult(String section) {
+        PartialResult result = partialResult;
+        if (result == null || !doc.isImmutableCopyUpToDate(result.docCopy) || !NedResourcesPlugin.getNedResources().isImmutableCopyUpToDate(result.nedResolver))
+            return null;
+        return result.entries.get(section);
+    }
+
     @Override
     protected IStatus run(IProgressMonitor monitor) {
         IStatus status = tryRun(monitor);
@@ -64,35 +120,73 @@ class ParamResolutionJob extends Job {
         final IReadonlyInifileDocument docCopy = doc.getImmutableCopy();
         final INedResources nedResources = NedResourcesPlugin.getNedResources();
         final INedTypeResolver nedResolver = nedResources.getImmutableCopy();
+        final PartialResult partial = new PartialResult(docCopy, nedResolver);
+        partialResult = partial;
 
-        List<Entry> entries = new ArrayList<Entry>();
         String[] sections = docCopy.getSectionNames();
-        monitor.beginTask("Analyzing " + docCopy.getDocumentFile().getName(), sections.length * 100);
+        monitor.beginTask("Analyzing " + docCopy.getDocumentFile().getName(), sections.length + 1);
 
         long startTime = System.currentTimeMillis();
 
-        class SubMonitor extends SubProgressMonitor {
-            public SubMonitor(IProgressMonitor monitor, int ticks) {
-                super(monitor, ticks);
-            }
-
+        // shared cancellation flag of the section tasks
+        final AtomicBoolean abort = new AtomicBoolean(false);
+        final IProgressMonitor sectionMonitor = new NullProgressMonitor() {
             @Override
             public boolean isCanceled() {
-                return super.isCanceled() || !doc.isImmutableCopyUpToDate(docCopy) || !nedResources.isImmutableCopyUpToDate(nedResolver);
+                return abort.get();
             }
         };
 
         try {
-            for (String activeSection : sections) {
+            // type infos must be fully computed before they can be accessed from several threads
+            monitor.subTask("Preparing NED types.");
+            if (nedResolver instanceof ImmutableNedTypeResolver)
+                ((ImmutableNedTypeResolver)nedResolver).prepareForConcurrentReading();
+            monitor.worked(1);
+
+            // submit sections, the priority one first
+            monitor.subTask("Resolving module parameters and properties.");
+            List<String> orderedSections = new ArrayList<String>(Arrays.asList(sections));
+            String firstSection = prioritySection;
+            if (firstSection != null && orderedSections.remove(firstSection))
+                orderedSections.add(0, firstSection);
+            Map<String, ForkJoinTask<Entry>> tasks = new HashMap<String, ForkJoinTask<Entry>>();
+            for (String activeSection : orderedSections) {
+                tasks.put(activeSection, sectionPool.submit(() -> {
+                    Entry entry = ParamCollector.collectParametersAndProperties(docCopy, nedResolver, activeSection, sectionMonitor);
+                    partial.entries.put(activeSection, entry);
+                    if (sectionListener != null)
+                        sectionListener.sectionResolved(activeSection);
+                    return entry;
+                }));
+            }
+
+            // wait for completion, and watch for cancellation and changes in the inputs
+            int numSectionsDone = 0;
+            while (numSectionsDone < sections.length) {
                 if (monitor.isCanceled() || !doc.isImmutableCopyUpToDate(docCopy) || !nedResources.isImmutableCopyUpToDate(nedResolver))
                     throw new OperationCanceledException();
-
-                monitor.subTask("Resolving module parameters and properties.");
-                Entry entry =
-                    ParamCollector.collectParametersAndProperties(docCopy, nedResolver, activeSection, new SubMonitor(monitor, 100));
-                entries.add(entry);
+                int n = (int)tasks.values().stream().filter(task -> task.isDone()).count();
+                monitor.worked(n - numSectionsDone);
+                numSectionsDone = n;
+                if (numSectionsDone < sections.length) {
+                    try {
+                        Thread.sleep(10);
+                    }
+                    catch (InterruptedException e) {
+                        // check again
+                    }
+                }
             }
 
+            // collect results in section order (join() rethrows exceptions thrown in the tasks)
+            List<Entry> entries = new ArrayList<Entry>();
+            for (String activeSection : sections)
+                entries.add(tasks.get(activeSection).join());
+
+            Debug.println("ParamResolutionJob: completed in "+(System.currentTimeMillis()-startTime)+"ms");
+            return new ParamResolutionStatus(entries, docCopy, nedResolver);
+
         } catch (OperationCanceledException e) {
             if (monitor.isCanceled()) {
                 Debug.println("ParamResolutionJob: canceled after "+(System.currentTimeMillis()-startTime)+"ms");
@@ -103,10 +197,8 @@ class ParamResolutionJob extends Job {
                 return new Status(IStatus.CANCEL, InifileEditorPlugin.PLUGIN_ID, DOC_CHANGED, "", null);
             }
         } finally {
+            abort.set(true); // stop the remaining section tasks if we are leaving early, e.g. due to cancellation or an exception
             monitor.done();
         }
-
-        Debug.println("ParamResolutionJob: completed in "+(System.currentTimeMillis()-startTime)+"ms");
-        return new ParamResolutionStatus(entries, docCopy, nedResolver);
     }
 }
@@ -0,0 +1,154 @@
+/*--------------------------------------------------------------*
+  Copyright (C) 2006-2015 OpenSim Ltd.
+
+  This file is distributed WITHOUT ANY WARRANTY. See the file
+  'License' for details on this and other legal matters.
+*--------------------------------------------------------------*/
+
+package org.omnetpp.inifile.editor.model;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.omnetpp.common.engine.PatternMatcher;
+import org.omnetpp.ned.core.ParamUtil;
+
+/**
+ * Index over the keys of an inifile section, for quickly finding the keys
+ * that match a parameter full path during parameter resolution.
+ *
+ * Every key is put into two tries: one by its literal prefix (the part before
+ * the first wildcard) and one by its reversed literal suffix (the part after
+ * the last wildcard). A lookup walks both tries along the path, which yields
+ * the keys whose prefix and suffix both fit the path; only these candidates
+ * are checked with the actual pattern matcher. As typical keys end in a
+ * literal parameter name ("**.mac.bitrate"), this usually leaves very few
+ * candidates, and keys without wildcards are checked by plain string comparison.
+ *
+ * The index is built on first use from the keys passed in, and is shared by
+ * the section and its immutable copies (keys don't change after parsing).
+ * Lookups may be called from several threads concurrently.
+ *
+ * @author andras
+ */
+class SectionKeyIndex {
+    private static class TrieNode {
+        Map<Character, TrieNode> children; // null if none
+        int[] keyIndices = new int[0]; // keys whose literal prefix/suffix ends here
+
+        TrieNode getOrCreateChild(char c) {
+            if (children == null)
+                children = new HashMap<Character, TrieNode>();
+            TrieNode child = children.get(c);
+            if (child == null)
+                children.put(c, child = new TrieNode());
+            return child;
+        }
+
+        TrieNode getChild(char c) {
+            return children == null ? null : children.get(c);
+        }
+
+        void addKeyIndex(int i) {
+            int[] tmp = new int[keyIndices.length + 1];
+            System.arraycopy(keyIndices, 0, tmp, 0, keyIndices.length);
+            tmp[keyIndices.length] = i;
+            keyIndices = tmp;
+        }
+    }
+
+    private static class Index {
+        String[] keys; // in section order
+        ParamUtil.KeyMatcher[] matchers;
+        boolean[] isLiteral; // key contains no wildcard, so matching is string equality
+        TrieNode prefixTrie = new TrieNode();
+        TrieNode suffixTrie = new TrieNode();
+    }
+
+    private volatile Index index; // built on demand
+
+    /**
+     * Returns the keys that match the given parameter full path, in the order
+     * they appear in the collection. The collection must be the keys of the
+     * section the index belongs to; it is only used on the first call.
+     */
+    public List<String> getMatchingKeys(Collection<String> keys, String paramFullPath) {
+        Index index = getIndex(keys);
+
+        BitSet prefixMatches = collect(index.prefixTrie, paramFullPath, false, index.keys.length);
+        BitSet candidates = collect(index.suffixTrie, paramFullPath, true, index.keys.length);
+        candidates.and(prefixMatches);
+
+        List<String> result = new ArrayList<String>(candidates.cardinality());
+        for (int i = candidates.nextSetBit(0); i >= 0; i = candidates.nextSetBit(i+1)) {
+            boolean matches = index.isLiteral[i] ? index.keys[i].equals(paramFullPath) : index.matchers[i].matcher.matches(paramFullPath);
+            if (matches)
+                result.add(index.keys[i]);
+        }
+        return result;
+    }
+
+    private Index getIndex(Collection<String> keys) {
+        Index result = index;
+        if (result == null) {
+            synchronized (this) {
+                if (index == null)
+                    index = build(keys);
+                result = index;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Walks the trie along the path (forward or backward), and returns the
+     * indices of the keys found along the way.
+     */
+    private static BitSet collect(TrieNode root, String path, boolean backward, int numKeys) {
+        BitSet result = new BitSet(numKeys);
+        TrieNode node = root;
+        int length = path.length();
+        for (int i = 0; node != null; i++) {
+            for (int keyIndex : node.keyIndices)
+                result.set(keyIndex);
+            if (i == length)
+                break;
+            node = node.getChild(path.charAt(backward ? length-1-i : i));
+        }
+        return result;
+    }
+
+    private static Index build(Collection<String> keys) {
+        Index index = new Index();
+        int n = keys.size();
+        index.keys = keys.toArray(new String[n]);
+        index.matchers = new ParamUtil.KeyMatcher[n];
+        index.isLiteral = new boolean[n];
+        for (int i = 0; i < n; i++) {
+            ParamUtil.KeyMatcher keyMatcher = ParamUtil.getOrCreateKeyMatcher(index.keys[i]);
+            String pattern = keyMatcher.generalizedKey;
+            index.matchers[i] = keyMatcher;
+            index.isLiteral[i] = keyMatcher.keyEqualsGeneralizedKey && !PatternMatcher.containsWildcards(pattern) && pattern.indexOf('\\') == -1;
+
+            // literal prefix: up to the first char that may start a wildcard or escape
+            TrieNode node = index.prefixTrie;
+            for (int j = 0; j < pattern.length() && "?*{\\".indexOf(pattern.charAt(j)) == -1; j++)
+                node = node.getOrCreateChild(pattern.charAt(j));
+            node.addKeyIndex(i);
+
+            // literal suffix, backwards: stop at anything that may end a wildcard, set, range or escape
+            node = index.suffixTrie;
+            for (int j = pattern.length()-1; j >= 0 && "?*{}[]\\".indexOf(pattern.charAt(j)) == -1; j--) {
+                if (j > 0 && pattern.charAt(j-1) == '\\')
+                    break;
+                node = node.getOrCreateChild(pattern.charAt(j));
+            }
+            node.addKeyIndex(i);
+        }
+        return index;
+    }
+}
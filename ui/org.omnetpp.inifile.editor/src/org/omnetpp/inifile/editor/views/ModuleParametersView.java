@@ -456,7 +456,14 @@ public class ModuleParametersView extends AbstractModuleView {
                 // However, this is not without dangers: e.g. if user clicks on a parameter which has since been deleted
                 // from the NED file, it will likely result in an NPE...
                 // TODO resolve the above issue somehow...
-                setContentDescription("Waiting for ini file analysis to complete, currently displayed data may be out of date.");
+                // if the analysis has already got to our section, display its results
+                final String displayedSection = section;
+                ParamResolution[] partialPars = analyzer.getPartialParamResolutions(section);
+                final boolean showingPartial = partialPars != null;
+                if (!showingPartial) {
+                    analyzer.setPrioritySection(section);
+                    setContentDescription("Waiting for ini file analysis to complete, currently displayed data may be out of date.");
+                }
 
                 // add one-time listener to update the view once the data become available
                 analyzer.addAnalysisListener(new IAnalysisListener() {
@@ -465,8 +472,17 @@ public class ModuleParametersView extends AbstractModuleView {
                         if (!ModuleParametersView.this.isDisposed())
                             scheduleRebuildContent();
                     }
+
+                    public void sectionAnalysisCompleted(InifileAnalyzer analyzer, String section) {
+                        if (!showingPartial && section.equals(displayedSection))
+                            analysisCompleted(analyzer);
+                    }
                 });
-                return;
+
+                if (!showingPartial)
+                    return;
+                tableViewer.setInput(partialPars);
+                text = "Section ["+section+"] (analysis of other sections in progress)";
             }
         }
 
@@ -0,0 +1,189 @@
+/*--------------------------------------------------------------*
+  Copyright (C) 2006-2015 OpenSim Ltd.
+
+  This file is distributed WITHOUT ANY WARRANTY. See the file
+  'License' for details on this and other legal matters.
+*--------------------------------------------------------------*/
+
+package org.omnetpp.launch;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Properties;
+
+import javax.management.ObjectName;
+
+import org.omnetpp.common.Debug;
+
+/**
+ * Hands out the runs of a batch execution to the simulation processes dynamically:
+ * whenever a process finishes, the next process takes the next few runs from the
+ * shared queue, so processes that got short runs take over more of the remaining
+ * work. Near the end of the queue fewer runs are handed out at a time, so that the
+ * last runs are spread over all processes.
+ *
+ * The queue can optionally be ordered by the recorded durations of earlier
+ * executions of the same runs, longest first, so that long runs do not end up
+ * at the end of the sweep.
+ */
+public class BatchRunScheduler {
+    private static final String DURATIONS_FILE_NAME = "runDurations.properties";
+
+    // conservative estimate of the memory needed by a simulation process, used for automatic concurrency
+    private static final long ESTIMATED_MEMORY_PER_PROCESS = 512L * 1024 * 1024;
+    // memory left for the OS and the IDE: a quarter of the physical memory, but at least this much
+    private static final long MIN_RESERVED_MEMORY = 2L * 1024 * 1024 * 1024;
+
+    private static Properties durations; // run key -> duration of the run in milliseconds; lazily loaded
+
+    private final String keyPrefix;
+    private final LinkedList<Integer> queue;
+    private final int numProcesses;
+    private final int maxBatchSize;
+
+    /**
+     * Creates a scheduler for the given runs. The key prefix identifies the
+     * runs for the duration history (see getKeyPrefix()).
+     */
+    public BatchRunScheduler(String keyPrefix, List<Integer> runNumbers, int numProcesses, int maxBatchSize, boolean longestFirst) {
+        this.keyPrefix = keyPrefix;
+        this.queue = new LinkedList<Integer>(runNumbers);
+        this.numProcesses = Math.max(1, numProcesses);
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+        if (longestFirst) {
+            // runs without recorded duration come first (in their original order), as they may be long too
+            queue.sort(Comparator.comparingLong((Integer runNumber) -> -getExpectedDuration(runNumber, Long.MAX_VALUE)));
+            Debug.println("BatchRunScheduler: run order: " + queue);
+        }
+    }
+
+    /**
+     * Returns a key prefix that identifies the runs of the given inifile configuration
+     * launched with the given launch configuration.
+     */
+    public static String getKeyPrefix(String launchConfigName, String configName) {
+        return launchConfigName + "/" + configName + "#";
+    }
+
+    /**
+     * Returns the runs to be executed by the next simulation process, or an empty list if there are no more runs.
+     */
+    public synchronized List<Integer> nextBatch() {
+        int batchSize = Math.min(maxBatchSize, (queue.size() + numProcesses - 1) / numProcesses);
+        List<Integer> batch = new ArrayList<Integer>();
+        for (int i = 0; i < batchSize && !queue.isEmpty(); i++)
+            batch.add(queue.removeFirst());
+        return batch;
+    }
+
+    /**
+     * Returns the number of runs not handed out yet.
+     */
+    public synchronized int getNumRemainingRuns() {
+        return queue.size();
+    }
+
+    /**
+     * Records the duration of a successfully completed batch, dividing it evenly among its runs.
+     */
+    public void recordDuration(List<Integer> batch, long durationMillis) {
+        synchronized (BatchRunScheduler.class) {
+            Properties durations = getDurations();
+            for (int runNumber : batch)
+                durations.setProperty(keyPrefix + runNumber, String.valueOf(durationMillis / batch.size()));
+        }
+    }
+
+    /**
+     * Returns the recorded duration of the given run in milliseconds, or the given default if it is unknown.
+     */
+    public long getExpectedDuration(int runNumber, long defaultValue) {
+        synchronized (BatchRunScheduler.class) {
+            String value = getDurations().getProperty(keyPrefix + runNumber);
+            try {
+                return value == null ? defaultValue : Long.parseLong(value);
+            }
+            catch (NumberFormatException e) {
+                return defaultValue;
+            }
+        }
+    }
+
+    /**
+     * Saves the recorded run durations into the plug-in's state location.
+     */
+    public static synchronized void saveDurations() {
+        if (durations == null)
+            return;
+        try (OutputStream stream = new FileOutputStream(getDurationsFile())) {
+            durations.store(stream, "Durations of simulation runs in batch executions, in milliseconds");
+        }
+        catch (IOException e) {
+            LaunchPlugin.logError("Cannot save run durations", e);
+        }
+    }
+
+    private static Properties getDurations() {
+        if (durations == null) {
+            durations = new Properties();
+            File file = getDurationsFile();
+            if (file.exists()) {
+                try (InputStream stream = new FileInputStream(file)) {
+                    durations.load(stream);
+                }
+                catch (IOException e) {
+                    // start with an empty history
+                    Debug.println("Cannot read run durations: " + e);
+                }
+            }
+        }
+        return durations;
+    }
+
+    private static File getDurationsFile() {
+        return LaunchPlugin.getDefault().getStateLocation().append(DURATIONS_FILE_NAME).toFile();
+    }
+
+    /**
+     * Returns the number of simulation processes to run in parallel for the given number
+     * of runs: the number of CPU cores, limited by the physical memory that is left after
+     * reserving a part of it for the operating system, the IDE and other applications.
+     * The free memory is not used, because it excludes the page cache which the OS
+     * readily gives up, and would therefore limit the sweep to a few processes.
+     */
+    public static int getAutomaticConcurrency(int numRuns) {
+        int result = Runtime.getRuntime().availableProcessors();
+        long totalMemory = getTotalPhysicalMemory();
+        if (totalMemory > 0) {
+            long usableMemory = totalMemory - Math.max(MIN_RESERVED_MEMORY, totalMemory / 4);
+            result = (int)Math.min(result, usableMemory / ESTIMATED_MEMORY_PER_PROCESS);
+        }
+        result = Math.max(1, Math.min(result, numRuns));
+        Debug.println("BatchRunScheduler: using " + result + " processes (total memory: " + totalMemory / 1024 / 1024 + "MiB)");
+        return result;
+    }
+
+    private static long getTotalPhysicalMemory() {
+        // TotalMemorySize was called TotalPhysicalMemorySize before Java 14
+        for (String attribute : new String[] { "TotalMemorySize", "TotalPhysicalMemorySize" }) {
+            try {
+                Object value = ManagementFactory.getPlatformMBeanServer().getAttribute(new ObjectName("java.lang:type=OperatingSystem"), attribute);
+                if (value instanceof Long)
+                    return (Long)value;
+            }
+            catch (Exception e) {
+                // try the next one
+            }
+        }
+        return -1;
+    }
+}
@@ -93,10 +93,21 @@ public interface IOmnetppLaunchConstants {
     public static final String OPP_NUM_CONCURRENT_PROCESSES = OMNETPP_LAUNCH_ID + ".NUM_CONCURRENT_PROCESSES";
 
     /**
-     * How many simulations to run per process (Cmdenv instance).
+     * Whether the number of concurrent processes during batch execution should be determined
+     * from the number of CPU cores and the free memory (instead of OPP_NUM_CONCURRENT_PROCESSES)
+     */
+    public static final String OPP_AUTO_CONCURRENCY = OMNETPP_LAUNCH_ID + ".AUTO_CONCURRENCY";
+
+    /**
+     * The maximum number of simulations to run per process (Cmdenv instance).
      */
     public static final String OPP_BATCH_SIZE = OMNETPP_LAUNCH_ID + ".BATCH_SIZE";
 
+    /**
+     * Whether batch execution should start with the runs that took the longest in earlier executions
+     */
+    public static final String OPP_LONGEST_RUNS_FIRST = OMNETPP_LAUNCH_ID + ".LONGEST_RUNS_FIRST";
+
     /**
      * Which user interface to use (-u)
      */
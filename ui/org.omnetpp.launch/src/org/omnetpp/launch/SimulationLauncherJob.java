@@ -7,9 +7,12 @@
 
 package org.omnetpp.launch;
 
+import java.io.IOException;
 import java.text.DateFormat;
 import java.text.MessageFormat;
+import java.util.Collections;
 import java.util.Date;
+import java.util.Map;
 
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IPath;
@@ -27,6 +30,7 @@ import org.eclipse.debug.core.IStreamListener;
 import org.eclipse.debug.core.model.IProcess;
 import org.eclipse.debug.core.model.IStreamMonitor;
 import org.eclipse.debug.core.model.IStreamsProxy;
+import org.omnetpp.common.Debug;
 import org.omnetpp.common.util.StringUtils;
 import org.omnetpp.launch.tabs.OmnetppLaunchUtils;
 
@@ -51,6 +55,7 @@ public class SimulationLauncherJob extends Job {
     private int port;
 
     private StringBuffer errors = new StringBuffer();
+    private int reportedPercentComplete = 0;
 
     public SimulationLauncherJob(ILaunchConfiguration configuration, ILaunch launch, String runFilter, boolean reportProgress, int port) {
         super("Simulating "+configuration.getName() + (runFilter.contains(",") ? " - Runs " : " - Run ") + runFilter);
@@ -81,6 +86,7 @@ public class SimulationLauncherJob extends Job {
         final SubMonitor subMonitor = SubMonitor.convert(monitor, taskName, 100);
         subMonitor.subTask("Initializing...");
 
+        SimulationProgressChannel progressChannel = null;
         try {
             String additionalArgs = "";
             if (runFilter != "")
@@ -101,17 +107,28 @@ public class SimulationLauncherJob extends Job {
             for (int i = 1; i < cmdLineArgs.length; ++i)
                 commandLine += " " + cmdLineArgs[i];
 
+            // open a channel the simulation can report its progress on; simulations that don't know it will ignore it
+            Map<String,String> additionalEnvironment = null;
+            if (reportProgress && monitor != null) {
+                progressChannel = openProgressChannel();
+                if (progressChannel != null)
+                    additionalEnvironment = Collections.singletonMap(SimulationProgressChannel.PORT_ENVIRONMENT_VARIABLE, String.valueOf(progressChannel.getPort()));
+            }
+
             // launch the process
-            Process process = OmnetppLaunchUtils.startSimulationProcess(configuration, cmdLineArgs);
+            Process process = OmnetppLaunchUtils.startSimulationProcess(configuration, cmdLineArgs, additionalEnvironment);
             IProcess iprocess = DebugPlugin.newProcess(launch, process, renderProcessLabel(runFilter));
             OmnetppLaunchUtils.printToConsole(iprocess, "Starting...\n\n$ cd "+workingDir+"\n$ "+commandLine+"\n\n", false);
 
             // command line will be visible in the debug view's property dialog
             iprocess.setAttribute(IProcess.ATTR_CMDLINE, commandLine);
 
-            // setup a stream monitor on the process output, so we can track the progress
-            if (reportProgress && monitor != null)
-                hookProgressTracker(subMonitor, iprocess);
+            // track the progress via the progress channel, or if the simulation doesn't connect to it, via the process output
+            if (reportProgress && monitor != null) {
+                if (progressChannel != null)
+                    hookProgressChannel(subMonitor, progressChannel);
+                hookProgressTracker(subMonitor, iprocess, progressChannel);
+            }
 
             // poll the state of the monitor and terminate the process if cancel was requested
             while (!iprocess.isTerminated()) {
@@ -126,6 +143,10 @@ public class SimulationLauncherJob extends Job {
                 }
             }
 
+            // let the remaining records (e.g. errors) arrive
+            if (progressChannel != null)
+                progressChannel.close();
+
             subMonitor.done();
 
             if (iprocess.getExitValue() != 0) {
@@ -150,20 +171,73 @@ public class SimulationLauncherJob extends Job {
         catch (CoreException e) {
             return e.getStatus();
         }
+        finally {
+            if (progressChannel != null)
+                progressChannel.close();
+        }
 
         subMonitor.subTask("Finished");
         return Status.OK_STATUS;
     }
 
-    protected void hookProgressTracker(final SubMonitor subMonitor, IProcess iprocess) {
+    protected SimulationProgressChannel openProgressChannel() {
+        try {
+            return new SimulationProgressChannel();
+        }
+        catch (IOException e) {
+            Debug.println("Cannot open progress channel, falling back to parsing the console output: " + e);
+            return null;
+        }
+    }
+
+    protected void hookProgressChannel(final SubMonitor subMonitor, SimulationProgressChannel progressChannel) {
+        progressChannel.start(getName(), new SimulationProgressChannel.IListener() {
+            @Override
+            public void progress(int runPermille, int totalPermille) {
+                reportProgress(subMonitor, totalPermille / 10);
+                subMonitor.subTask("Executing (" + reportedPercentComplete + "%)");
+            }
+
+            @Override
+            public void speed(double eventsPerSec, double simsecPerSec, double eventsPerSimsec) {
+                subMonitor.subTask("Executing (" + reportedPercentComplete + "%, " + (long)eventsPerSec + " ev/sec)");
+            }
+
+            @Override
+            public void error(String message) {
+                // may have been collected from the console before the channel got connected
+                if (errors.indexOf(message) == -1)
+                    errors.append(message + "\n");
+            }
+
+            @Override
+            public void waitingForUserInput() {
+                subMonitor.subTask("Waiting for user input... (Switch to console)");
+            }
+        });
+    }
+
+    protected synchronized void reportProgress(SubMonitor subMonitor, int percentComplete) {
+        subMonitor.worked(percentComplete - reportedPercentComplete);
+        reportedPercentComplete = percentComplete;
+    }
+
+    /**
+     * Tracks the progress by parsing the process output, unless the simulation
+     * has connected to the progress channel (which may be null).
+     */
+    protected void hookProgressTracker(final SubMonitor subMonitor, IProcess iprocess, final SimulationProgressChannel progressChannel) {
         IStreamsProxy streamsProxy = iprocess.getStreamsProxy();
         if (streamsProxy == null)
             return;  // no console (likely the "Allocate console" checkbox on the Common page is cleared)
 
         streamsProxy.getOutputStreamMonitor().addListener(new IStreamListener () {
-            int prevPercentComplete = 0;
             @Override
             public void streamAppended(String text, IStreamMonitor streamMonitor) {
+                // the progress channel provides the same information without scanning the text
+                if (progressChannel != null && progressChannel.isConnected())
+                    return;
+
                 // collect error messages from stream
                 if (text.contains(ERROR_MARKER)) {
                     for (String line : text.split("\n")) {
@@ -174,15 +248,13 @@ public class SimulationLauncherJob extends Job {
 
                 // parse and report progress percentage
                 int percentComplete = OmnetppLaunchUtils.getProgressInPercent(text);
-                if (percentComplete >= 0) {
-                    subMonitor.worked(percentComplete - prevPercentComplete);
-                    prevPercentComplete = percentComplete;
-                }
+                if (percentComplete >= 0)
+                    reportProgress(subMonitor, percentComplete);
 
                 if (OmnetppLaunchUtils.isWaitingForUserInput(text))
                     subMonitor.subTask("Waiting for user input... (Switch to console)");
                 else
-                    subMonitor.subTask("Executing (" + prevPercentComplete + "%)");
+                    subMonitor.subTask("Executing (" + reportedPercentComplete + "%)");
             }
         });
     }
@@ -0,0 +1,167 @@
+/*--------------------------------------------------------------*
+  Copyright (C) 2006-2015 OpenSim Ltd.
+
+  This file is distributed WITHOUT ANY WARRANTY. See the file
+  'License' for details on this and other legal matters.
+*--------------------------------------------------------------*/
+
+package org.omnetpp.launch;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+
+import org.omnetpp.common.Debug;
+
+/**
+ * Receives progress information from a simulation process over a loopback TCP
+ * connection, as an alternative to parsing the console output. The port number
+ * is passed to the simulation in the OMNETPP_PROGRESS_PORT environment variable;
+ * simulations that do not support the channel simply never connect, and the
+ * caller should fall back to console parsing while isConnected() returns false.
+ *
+ * See src/envir/progresschannel.h for the record format.
+ */
+public class SimulationProgressChannel {
+    public static final String PORT_ENVIRONMENT_VARIABLE = "OMNETPP_PROGRESS_PORT";
+
+    private static final int RECORD_PROGRESS = 'P';
+    private static final int RECORD_SPEED = 'S';
+    private static final int RECORD_ERROR = 'E';
+    private static final int RECORD_INPUT = 'I';
+
+    private static final int ACCEPT_TIMEOUT_MILLIS = 500;
+    private static final int CLOSE_TIMEOUT_MILLIS = 1000;
+
+    /**
+     * Receives the records of the simulation. Methods are called from the reader thread.
+     */
+    public interface IListener {
+        void progress(int runPermille, int totalPermille);
+        void speed(double eventsPerSec, double simsecPerSec, double eventsPerSimsec);
+        void error(String message);
+        void waitingForUserInput();
+    }
+
+    private final ServerSocket serverSocket;
+    private Thread thread;
+    private volatile boolean connected;
+    private volatile boolean closed;
+
+    /**
+     * Opens a server socket on an ephemeral port of the loopback interface.
+     */
+    public SimulationProgressChannel() throws IOException {
+        // binding to port 0 lets the OS choose a free port, so there is no race with other launches
+        serverSocket = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+        serverSocket.setSoTimeout(ACCEPT_TIMEOUT_MILLIS);
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Returns true if the simulation has connected to the channel.
+     */
+    public boolean isConnected() {
+        return connected;
+    }
+
+    /**
+     * Starts a daemon thread that waits for the simulation to connect, and
+     * delivers the received records to the listener until the simulation
+     * closes the connection.
+     */
+    public void start(String name, IListener listener) {
+        thread = new Thread(() -> {
+            try (Socket socket = accept()) {
+                if (socket == null)
+                    return;
+                connected = true;
+                DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+                while (true)
+                    readRecord(in, listener);
+            }
+            catch (EOFException e) {
+                // simulation exited
+            }
+            catch (IOException e) {
+                Debug.println("SimulationProgressChannel: " + e);
+            }
+        }, "Progress channel: " + name);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private Socket accept() throws IOException {
+        while (!closed) {
+            try {
+                Socket socket = serverSocket.accept();
+                serverSocket.close(); // only one simulation process per channel
+                return socket;
+            }
+            catch (SocketTimeoutException e) {
+                // check whether the channel was closed meanwhile
+            }
+            catch (SocketException e) {
+                if (!closed)
+                    throw e;
+            }
+        }
+        return null;
+    }
+
+    private void readRecord(DataInputStream in, IListener listener) throws IOException {
+        int type = in.readUnsignedByte();
+        switch (type) {
+        case RECORD_PROGRESS:
+            int runPermille = in.readUnsignedShort();
+            int totalPermille = in.readUnsignedShort();
+            listener.progress(runPermille, totalPermille);
+            break;
+        case RECORD_SPEED:
+            double eventsPerSec = in.readDouble();
+            double simsecPerSec = in.readDouble();
+            double eventsPerSimsec = in.readDouble();
+            listener.speed(eventsPerSec, simsecPerSec, eventsPerSimsec);
+            break;
+        case RECORD_ERROR:
+            byte[] bytes = new byte[in.readUnsignedShort()];
+            in.readFully(bytes);
+            listener.error(new String(bytes, StandardCharsets.UTF_8));
+            break;
+        case RECORD_INPUT:
+            listener.waitingForUserInput();
+            break;
+        default:
+            throw new IOException("Unknown record type " + type + ", closing the progress channel");
+        }
+    }
+
+    /**
+     * Closes the channel. To be called after the simulation process has terminated:
+     * it waits a little for the reader thread to process the remaining records.
+     */
+    public void close() {
+        closed = true;
+        try {
+            serverSocket.close();
+            if (thread != null)
+                thread.join(CLOSE_TIMEOUT_MILLIS);
+        }
+        catch (IOException e) {
+            // ignore
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -9,23 +9,23 @@ package org.omnetpp.launch;
 
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.eclipse.core.resources.IProject;
 import org.eclipse.core.resources.ResourcesPlugin;
-import org.eclipse.core.runtime.Assert;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
-import org.eclipse.core.runtime.OperationCanceledException;
 import org.eclipse.core.runtime.Status;
 import org.eclipse.core.runtime.SubMonitor;
 import org.eclipse.core.runtime.jobs.IJobChangeEvent;
 import org.eclipse.core.runtime.jobs.IJobChangeListener;
 import org.eclipse.core.runtime.jobs.Job;
 import org.eclipse.core.runtime.jobs.JobChangeAdapter;
-import org.eclipse.core.runtime.jobs.JobGroup;
 import org.eclipse.debug.core.ILaunch;
 import org.eclipse.debug.core.ILaunchConfiguration;
 import org.eclipse.debug.core.model.LaunchConfigurationDelegate;
@@ -109,41 +109,21 @@ public class SimulationRunLaunchDelegate extends LaunchConfigurationDelegate {
                 return; // abandon job
             }
 
-            int numConcurrentProcesses = configuration.getAttribute(IOmnetppLaunchConstants.OPP_NUM_CONCURRENT_PROCESSES, 1);
+            boolean autoConcurrency = configuration.getAttribute(IOmnetppLaunchConstants.OPP_AUTO_CONCURRENCY, false);
+            int numConcurrentProcesses = autoConcurrency ? BatchRunScheduler.getAutomaticConcurrency(runNumbers.size()) :
+                configuration.getAttribute(IOmnetppLaunchConstants.OPP_NUM_CONCURRENT_PROCESSES, 1);
             int batchSize = configuration.getAttribute(IOmnetppLaunchConstants.OPP_BATCH_SIZE, 1);
+            boolean longestFirst = configuration.getAttribute(IOmnetppLaunchConstants.OPP_LONGEST_RUNS_FIRST, false);
             boolean stopOnError = configuration.getAttribute(IOmnetppLaunchConstants.OPP_STOP_BATCH_ON_ERROR, "false").equals("true"); //XXX similar ini setting won't take effect here
 
-            List<List<Integer>> batches = splitIntoBatches(runNumbers, batchSize);
-            Debug.println(batches.toString());
+            String keyPrefix = BatchRunScheduler.getKeyPrefix(configuration.getName(), configuration.getAttribute(IOmnetppLaunchConstants.OPP_CONFIG_NAME, ""));
+            BatchRunScheduler scheduler = new BatchRunScheduler(keyPrefix, runNumbers, numConcurrentProcesses, batchSize, longestFirst);
 
-            String[] batchRunFilters = batches.stream().map(batch -> StringUtils.join(batch, ",")).collect(Collectors.toList()).toArray(new String[]{});
-
-            Job launcherJob = new Job("Batch Execution of " + configuration.getName() + " ("+runNumbers.size()+" runs using " + batchRunFilters.length + " processes) ") {
+            Job launcherJob = new Job("Batch Execution of " + configuration.getName() + " ("+runNumbers.size()+" runs using " + numConcurrentProcesses + " processes) ") {
                 @Override
                 protected IStatus run(IProgressMonitor monitor) {
-                    JobGroup jobGroup = new JobGroup("Simulation batch", numConcurrentProcesses, batchRunFilters.length) {
-                        @Override
-                        protected boolean shouldCancel(IStatus lastCompletedJobResult, int numberOfFailedJobs, int numberOfCanceledJobs) {
-                            return numberOfCanceledJobs > 0 || (stopOnError && numberOfFailedJobs > 0);
-                        }
-                    };
-                    for (String batchRunFilter : batchRunFilters) {
-                        Job job1 = new SimulationLauncherJob(configuration, launch, batchRunFilter, reportProgress, portNumber);
-                        job1.setJobGroup(jobGroup);
-                        job1.setPriority(Job.BUILD);
-                        job1.setSystem(false);
-                        job1.schedule();
-                    }
-                    try {
-                        jobGroup.join(0, monitor);
-                    } catch (OperationCanceledException | InterruptedException e) {
-                        Debug.println("Cancelling group");
-                        jobGroup.cancel();
-                        return Status.CANCEL_STATUS;
-                    }
-                    return Status.OK_STATUS;
+                    return runBatches(scheduler, numConcurrentProcesses, stopOnError, configuration, launch, reportProgress, portNumber, runNumbers.size(), monitor);
                 }
-
             };
             launcherJob.setPriority(Job.BUILD);
             launcherJob.setSystem(false);
@@ -175,22 +155,99 @@ public class SimulationRunLaunchDelegate extends LaunchConfigurationDelegate {
         }
     }
 
-    protected List<List<Integer>> splitIntoBatches(List<Integer> runNumbers, int batchSize) {
-        // note: this algorithm prefers creating equal-size batches to strictly sticking to batchSize, e.g. creates 3+3 instead of 4+2
-        List<List<Integer>> result = new ArrayList<>();
-        int numBatches = (runNumbers.size() + batchSize - 1) / batchSize;
-        int cursor = 0; // for drawing from runNumbers[]
-        for (int i = 0; i < numBatches; i++) {
-            List<Integer> batch = new ArrayList<>();
-            int runsInBatch = runNumbers.size() / numBatches;
-            if (i < runNumbers.size() % numBatches)
-                runsInBatch++;
-            for (int j = 0; j < runsInBatch; j++)
-                batch.add(runNumbers.get(cursor++));
-            result.add(batch);
+    /**
+     * Executes the runs handed out by the scheduler in at most numConcurrentProcesses
+     * simulation processes at a time. A new process is started with the next runs from
+     * the scheduler whenever a process finishes, until all runs are done, or until a
+     * process is cancelled or (if stopOnError is set) fails.
+     */
+    protected IStatus runBatches(BatchRunScheduler scheduler, int numConcurrentProcesses, boolean stopOnError, ILaunchConfiguration configuration, ILaunch launch,
+            boolean reportProgress, int portNumber, int numRuns, IProgressMonitor monitor) {
+        Semaphore freeProcessSlots = new Semaphore(numConcurrentProcesses);
+        List<Job> runningJobs = Collections.synchronizedList(new ArrayList<Job>());
+        AtomicBoolean stop = new AtomicBoolean(false);
+        AtomicBoolean cancelled = new AtomicBoolean(false);
+
+        monitor.beginTask("Executing " + numRuns + " runs", numRuns);
+        try {
+            while (true) {
+                if (!acquire(freeProcessSlots, 1, monitor)) {
+                    cancelled.set(true);
+                    break;
+                }
+                List<Integer> batch = stop.get() ? Collections.emptyList() : scheduler.nextBatch();
+                if (batch.isEmpty()) {
+                    freeProcessSlots.release();
+                    break;
+                }
+
+                String batchRunFilter = StringUtils.join(batch, ",");
+                Debug.println("Starting runs " + batchRunFilter + ", " + scheduler.getNumRemainingRuns() + " runs remaining");
+                Job job = new SimulationLauncherJob(configuration, launch, batchRunFilter, reportProgress, portNumber);
+                job.addJobChangeListener(new JobChangeAdapter() {
+                    private long startTime;
+
+                    @Override
+                    public void running(IJobChangeEvent event) {
+                        startTime = System.currentTimeMillis();
+                    }
+
+                    @Override
+                    public void done(IJobChangeEvent event) {
+                        IStatus result = event.getResult();
+                        if (result.isOK())
+                            scheduler.recordDuration(batch, System.currentTimeMillis() - startTime);
+                        else if (result.getSeverity() == IStatus.CANCEL)
+                            cancelled.set(true);
+                        if (cancelled.get() || (stopOnError && result.getSeverity() == IStatus.ERROR))
+                            stop.set(true);
+                        monitor.worked(batch.size());
+                        runningJobs.remove(event.getJob());
+                        freeProcessSlots.release();
+                    }
+                });
+                job.setPriority(Job.BUILD);
+                job.setSystem(false);
+                runningJobs.add(job);
+                job.schedule();
+            }
+
+            // wait for the running processes to finish
+            if (stop.get() || cancelled.get())
+                cancelJobs(runningJobs);
+            if (!acquire(freeProcessSlots, numConcurrentProcesses, monitor)) {
+                cancelled.set(true);
+                cancelJobs(runningJobs);
+            }
+        }
+        catch (InterruptedException e) {
+            cancelled.set(true);
+            cancelJobs(runningJobs);
+        }
+        finally {
+            BatchRunScheduler.saveDurations();
+            monitor.done();
+        }
+
+        if (cancelled.get()) {
+            Debug.println("Cancelled batch execution");
+            return Status.CANCEL_STATUS;
+        }
+        return Status.OK_STATUS;
+    }
+
+    private static boolean acquire(Semaphore semaphore, int permits, IProgressMonitor monitor) throws InterruptedException {
+        while (!semaphore.tryAcquire(permits, 200, TimeUnit.MILLISECONDS))
+            if (monitor.isCanceled())
+                return false;
+        return true;
+    }
+
+    private static void cancelJobs(List<Job> jobs) {
+        synchronized (jobs) {
+            for (Job job : jobs)
+                job.cancel();
         }
-        Assert.isTrue(cursor == runNumbers.size());
-        return result;
     }
 
     @Override
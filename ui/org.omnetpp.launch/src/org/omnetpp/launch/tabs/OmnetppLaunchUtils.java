@@ -14,6 +14,7 @@ import java.io.InputStream;
 import java.net.ServerSocket;
 import java.net.SocketException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -829,7 +830,27 @@ public class OmnetppLaunchUtils {
      * Starts the simulation program.
      */
     public static Process startSimulationProcess(ILaunchConfiguration configuration, String[] cmdLine) throws CoreException {
-        String environment[] = DebugPlugin.getDefault().getLaunchManager().getEnvironment(configuration);
+        return startSimulationProcess(configuration, cmdLine, null);
+    }
+
+    /**
+     * Starts the simulation program, with the given variables added to its environment.
+     * Accepts null for additionalEnvironment.
+     */
+    public static Process startSimulationProcess(ILaunchConfiguration configuration, String[] cmdLine, Map<String,String> additionalEnvironment) throws CoreException {
+        ILaunchManager launchManager = DebugPlugin.getDefault().getLaunchManager();
+        String environment[] = launchManager.getEnvironment(configuration);
+        if (additionalEnvironment != null && !additionalEnvironment.isEmpty()) {
+            List<String> env = new ArrayList<String>();
+            if (environment != null)
+                env.addAll(Arrays.asList(environment));
+            else // null means the native environment is inherited, so we have to pass it explicitly
+                for (Map.Entry<String,String> entry : launchManager.getNativeEnvironmentCasePreserved().entrySet())
+                    env.add(entry.getKey() + "=" + entry.getValue());
+            for (Map.Entry<String,String> entry : additionalEnvironment.entrySet())
+                env.add(entry.getKey() + "=" + entry.getValue());
+            environment = env.toArray(new String[0]);
+        }
         Debug.println("startSimulationProcess(): " + StringUtils.join(cmdLine, " "));
         return DebugPlugin.exec(cmdLine, new File(getWorkingDirectoryPath(configuration).toString()), environment);
     }
@@ -101,7 +101,9 @@ public class OmnetppMainTab extends AbstractLaunchConfigurationTab {
     protected Text fImagePathText;
     protected Button fBatchingCheckbox;
     protected Spinner fParallelismSpinner;
+    protected Button fAutoParallelismCheckbox;
     protected Spinner fBatchSizeSpinner;
+    protected Button fLongestRunsFirstCheckbox;
     protected Combo fEnvirCombo;
     protected Text fSimTimeLimitText;
     protected Text fCpuTimeLimitText;
@@ -343,10 +345,24 @@ public class OmnetppMainTab extends AbstractLaunchConfigurationTab {
 
             SWTFactory.setIndent(SWTFactory.createLabel(group, "Runs per process:", 1), 20);
             fBatchSizeSpinner = new Spinner(group, SWT.BORDER);
-            fBatchSizeSpinner.setToolTipText("Number of simulation runs to be assigned to a single simulation process (Cmdenv instance)");
+            fBatchSizeSpinner.setToolTipText("Maximum number of simulation runs to be assigned to a single simulation process (Cmdenv instance)");
             fBatchSizeSpinner.setLayoutData(new GridData(SWT.BEGINNING, SWT.CENTER, false, false));
             fBatchSizeSpinner.setMinimum(1);
             setSpinnerWidthHint(fBatchSizeSpinner);
+
+            fAutoParallelismCheckbox = SWTFactory.createCheckButton(group, "Use all CPUs (as memory permits)", null, false, 2);
+            fAutoParallelismCheckbox.setToolTipText("Determine the number of parallel processes from the number of CPU cores, assuming\nthat each process needs 512MiB and a quarter of the physical memory (at least 2GiB)\nis left for the operating system and the IDE");
+            SWTFactory.setIndent(fAutoParallelismCheckbox, 20);
+            fAutoParallelismCheckbox.addSelectionListener(new SelectionAdapter() {
+                @Override
+                public void widgetSelected(SelectionEvent e) {
+                    updateDialogState();
+                }
+            });
+
+            fLongestRunsFirstCheckbox = SWTFactory.createCheckButton(group, "Longest runs first", null, false, 2);
+            fLongestRunsFirstCheckbox.setToolTipText("Start with the runs that took the longest in earlier executions, so that no long run is left for the end");
+            SWTFactory.setIndent(fLongestRunsFirstCheckbox, 20);
         }
 
         if (isDebugLaunch) {
@@ -497,6 +513,8 @@ public class OmnetppMainTab extends AbstractLaunchConfigurationTab {
                 fBatchingCheckbox.setSelection(config.getAttribute(IOmnetppLaunchConstants.OPP_USE_BATCHING, false));
                 fParallelismSpinner.setSelection(config.getAttribute(IOmnetppLaunchConstants.OPP_NUM_CONCURRENT_PROCESSES, 2));
                 fBatchSizeSpinner.setSelection(config.getAttribute(IOmnetppLaunchConstants.OPP_BATCH_SIZE, 5));
+                fAutoParallelismCheckbox.setSelection(config.getAttribute(IOmnetppLaunchConstants.OPP_AUTO_CONCURRENCY, false));
+                fLongestRunsFirstCheckbox.setSelection(config.getAttribute(IOmnetppLaunchConstants.OPP_LONGEST_RUNS_FIRST, false));
             }
 
             if (fDebugOnErrorCheckbox != null)
@@ -560,6 +578,8 @@ public class OmnetppMainTab extends AbstractLaunchConfigurationTab {
             configuration.setAttribute(IOmnetppLaunchConstants.OPP_USE_BATCHING, fBatchingCheckbox.getSelection());
             configuration.setAttribute(IOmnetppLaunchConstants.OPP_NUM_CONCURRENT_PROCESSES, fParallelismSpinner.getSelection());
             configuration.setAttribute(IOmnetppLaunchConstants.OPP_BATCH_SIZE, fBatchSizeSpinner.getSelection());
+            configuration.setAttribute(IOmnetppLaunchConstants.OPP_AUTO_CONCURRENCY, fAutoParallelismCheckbox.getSelection());
+            configuration.setAttribute(IOmnetppLaunchConstants.OPP_LONGEST_RUNS_FIRST, fLongestRunsFirstCheckbox.getSelection());
         }
 
         if (fDebugOnErrorCheckbox != null)
@@ -641,8 +661,10 @@ public class OmnetppMainTab extends AbstractLaunchConfigurationTab {
 
         if (fBatchingCheckbox != null) {
             boolean useBatching = fBatchingCheckbox.getSelection();
-            fParallelismSpinner.setEnabled(useBatching);
+            fParallelismSpinner.setEnabled(useBatching && !fAutoParallelismCheckbox.getSelection());
+            fAutoParallelismCheckbox.setEnabled(useBatching);
             fBatchSizeSpinner.setEnabled(useBatching);
+            fLongestRunsFirstCheckbox.setEnabled(useBatching);
         }
 
         // update the state of apply and other system buttons
@@ -7,6 +7,8 @@
 
 package org.omnetpp.ned.core;
 
+import java.util.Set;
+
 import org.eclipse.core.resources.IFile;
 import org.omnetpp.ned.model.interfaces.INedTypeResolver;
 import org.omnetpp.ned.model.notification.INedChangeListener;
@@ -122,4 +124,18 @@ public interface INedResources extends INedTypeResolver {
      */
     public boolean isImmutableCopyUpToDate(INedTypeResolver copy);
 
+    /**
+     * Returns the files whose validation results may be out of date because
+     * they contain types affected by changes since the last clearFilesToRevalidate()
+     * call, or null if all files need to be validated. The result may contain files
+     * that no longer exist.
+     */
+    public Set<IFile> getFilesToRevalidate();
+
+    /**
+     * To be called by the validator after the validation results of all files
+     * returned by getFilesToRevalidate() have been updated.
+     */
+    public void clearFilesToRevalidate();
+
 }
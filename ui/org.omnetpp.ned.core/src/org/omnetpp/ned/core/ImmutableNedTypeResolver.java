@@ -1,6 +1,8 @@
 package org.omnetpp.ned.core;
 
+import org.omnetpp.ned.model.INedElement;
 import org.omnetpp.ned.model.ex.NedFileElementEx;
+import org.omnetpp.ned.model.interfaces.INedTypeElement;
 import org.omnetpp.ned.model.notification.INedChangeListener;
 import org.omnetpp.ned.model.notification.NedMarkerChangeEvent;
 import org.omnetpp.ned.model.notification.NedModelEvent;
@@ -17,6 +19,8 @@ public class ImmutableNedTypeResolver extends NedTypeResolver {
         }
     };
 
+    private boolean typeInfosRefreshed = false;
+
     protected ImmutableNedTypeResolver(NedTypeResolver other) {
         super(other);
 
@@ -25,6 +29,29 @@ public class ImmutableNedTypeResolver extends NedTypeResolver {
             fileElement.addNedChangeListener(listener);
     }
 
+    /**
+     * NedTypeInfo computes its members lazily, which is not thread-safe. This method
+     * forces computing them for all types (including built-in and inner types), so
+     * that afterwards the copy can be read from several threads concurrently.
+     * Subsequent calls do nothing.
+     */
+    public synchronized void prepareForConcurrentReading() {
+        if (!typeInfosRefreshed) {
+            refreshTypeInfos(builtInDeclarationsFile);
+            for (NedFileElementEx fileElement : nedElementFiles.keySet())
+                refreshTypeInfos(fileElement);
+            typeInfosRefreshed = true;
+        }
+    }
+
+    private void refreshTypeInfos(INedElement element) {
+        for (INedElement child : element) {
+            if (child instanceof INedTypeElement)
+                ((NedTypeInfo)((INedTypeElement)child).getNedTypeInfo()).refreshAllIfNeeded();
+            refreshTypeInfos(child);
+        }
+    }
+
     protected void modelChanged(NedModelEvent event) {
         if (event instanceof NedMarkerChangeEvent)
             return; // that's OK
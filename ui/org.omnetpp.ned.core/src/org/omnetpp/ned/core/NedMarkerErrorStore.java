@@ -75,6 +75,15 @@ public class NedMarkerErrorStore extends AbstractNedErrorStore {
         affectedElements.add(context);
     }
 
+    /**
+     * Adds the problems collected by another error store to this one.
+     */
+    public void addAll(NedMarkerErrorStore other) {
+        markerSync.addAll(other.markerSync);
+        problemsAdded += other.problemsAdded;
+        affectedElements.addAll(other.affectedElements);
+    }
+
     public int getNumProblems() {
         return problemsAdded;
     }
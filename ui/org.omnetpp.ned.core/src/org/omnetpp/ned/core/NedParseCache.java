@@ -0,0 +1,200 @@
+/*--------------------------------------------------------------*
+  Copyright (C) 2006-2015 OpenSim Ltd.
+
+  This file is distributed WITHOUT ANY WARRANTY. See the file
+  'License' for details on this and other legal matters.
+*--------------------------------------------------------------*/
+
+package org.omnetpp.ned.core;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.eclipse.core.resources.IFile;
+import org.omnetpp.common.Debug;
+import org.omnetpp.ned.model.INedErrorStore;
+import org.omnetpp.ned.model.NedTreeUtil;
+import org.omnetpp.ned.model.ex.NedFileElementEx;
+import org.omnetpp.ned.model.interfaces.INedTypeResolver;
+
+/**
+ * On-disk cache of NED parse trees, so that unchanged NED files need not be
+ * reparsed on every startup. Trees are kept in the binary form produced by
+ * NedTreeUtil.writeTree(), keyed by workspace path; an entry is only used if
+ * the size, modification time and content hash of the file all match.
+ *
+ * Files with syntax errors are not cached, because their error markers would
+ * need to be cached as well. Entries not used during the session are dropped
+ * on save(). Methods may be called from several threads concurrently.
+ *
+ * @author andras
+ */
+public class NedParseCache {
+    private static final int FORMAT_VERSION = 1;
+
+    private static class Entry {
+        long size;
+        long modificationTime;
+        long contentHash;
+        byte[] tree;
+        boolean used; // used or added in this session
+    }
+
+    private File cacheFile; // may be null: no persistence
+    private Map<String, Entry> entries = new HashMap<String, Entry>();
+    private boolean loaded = false;
+    private boolean dirty = false;
+
+    public NedParseCache(File cacheFile) {
+        this.cacheFile = cacheFile;
+    }
+
+    /**
+     * Returns the parse tree of the given NED file, either from the cache or by
+     * parsing the file. Parse errors are added to the error store.
+     */
+    public NedFileElementEx parseNedFile(IFile file, INedErrorStore errorStore, INedTypeResolver resolver) {
+        String path = file.getFullPath().toString();
+        File osFile = file.getLocation().toFile();
+        long size = osFile.length();
+        long modificationTime = osFile.lastModified();
+        long contentHash = computeContentHash(osFile);
+
+        Entry entry = getEntry(path);
+        if (entry != null && entry.size == size && entry.modificationTime == modificationTime && entry.contentHash == contentHash) {
+            try {
+                NedFileElementEx tree = (NedFileElementEx)NedTreeUtil.readTree(new DataInputStream(new ByteArrayInputStream(entry.tree)), resolver);
+                synchronized (this) {
+                    entry.used = true;
+                }
+                return tree;
+            }
+            catch (IOException | RuntimeException e) {
+                NedResourcesPlugin.logError("Cannot restore cached parse tree of " + path + ", reparsing", e);
+            }
+        }
+
+        NedFileElementEx tree = NedTreeUtil.parseNedFile(osFile.getPath(), errorStore, path, resolver);
+
+        // cache it, unless it has errors or the file was modified while we were reading it
+        if (errorStore.getNumProblems() == 0 && contentHash != -1 && osFile.length() == size && osFile.lastModified() == modificationTime) {
+            try {
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                DataOutputStream out = new DataOutputStream(bytes);
+                NedTreeUtil.writeTree(tree, out);
+                out.flush();
+
+                Entry newEntry = new Entry();
+                newEntry.size = size;
+                newEntry.modificationTime = modificationTime;
+                newEntry.contentHash = contentHash;
+                newEntry.tree = bytes.toByteArray();
+                newEntry.used = true;
+                synchronized (this) {
+                    entries.put(path, newEntry);
+                    dirty = true;
+                }
+            }
+            catch (IOException e) {
+                NedResourcesPlugin.logError(e);
+            }
+        }
+        return tree;
+    }
+
+    protected synchronized Entry getEntry(String path) {
+        if (!loaded)
+            load();
+        return entries.get(path);
+    }
+
+    /**
+     * Returns the CRC of the file contents, or -1 if the file cannot be read.
+     */
+    protected static long computeContentHash(File file) {
+        try {
+            CRC32 crc = new CRC32();
+            crc.update(Files.readAllBytes(file.toPath()));
+            return crc.getValue();
+        }
+        catch (IOException e) {
+            return -1;
+        }
+    }
+
+    protected synchronized void load() {
+        loaded = true;
+        if (cacheFile == null || !cacheFile.isFile())
+            return;
+
+        long startMillis = System.currentTimeMillis();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(new FileInputStream(cacheFile))))) {
+            if (in.readInt() != FORMAT_VERSION)
+                return;
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                String path = in.readUTF();
+                Entry entry = new Entry();
+                entry.size = in.readLong();
+                entry.modificationTime = in.readLong();
+                entry.contentHash = in.readLong();
+                entry.tree = new byte[in.readInt()];
+                in.readFully(entry.tree);
+                entries.put(path, entry);
+            }
+            Debug.println("NED parse cache: loaded " + count + " entries in " + (System.currentTimeMillis() - startMillis) + "ms");
+        }
+        catch (IOException e) {
+            // corrupt or truncated file: ignore, it'll be overwritten on next save
+            NedResourcesPlugin.logError("Cannot read NED parse cache " + cacheFile, e);
+            entries.clear();
+        }
+    }
+
+    /**
+     * Writes the entries used in this session to the cache file, provided
+     * anything has changed since loading.
+     */
+    public synchronized void save() {
+        if (cacheFile == null)
+            return;
+        boolean hasUnusedEntries = entries.values().stream().anyMatch(entry -> !entry.used);
+        if (!dirty && !hasUnusedEntries)
+            return;
+
+        entries.values().removeIf(entry -> !entry.used);
+        cacheFile.getParentFile().mkdirs();
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(new FileOutputStream(cacheFile))))) {
+            out.writeInt(FORMAT_VERSION);
+            out.writeInt(entries.size());
+            for (Map.Entry<String, Entry> mapEntry : entries.entrySet()) {
+                Entry entry = mapEntry.getValue();
+                out.writeUTF(mapEntry.getKey());
+                out.writeLong(entry.size);
+                out.writeLong(entry.modificationTime);
+                out.writeLong(entry.contentHash);
+                out.writeInt(entry.tree.length);
+                out.write(entry.tree);
+            }
+            dirty = false;
+        }
+        catch (IOException e) {
+            NedResourcesPlugin.logError("Cannot write NED parse cache " + cacheFile, e);
+            cacheFile.delete();
+        }
+    }
+}
@@ -9,8 +9,11 @@ package org.omnetpp.ned.core;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.stream.IntStream;
 
 import org.eclipse.core.resources.IFile;
 import org.eclipse.core.resources.IMarker;
@@ -41,10 +44,8 @@ import org.omnetpp.ned.model.INedElement;
 import org.omnetpp.ned.model.NedElement;
 import org.omnetpp.ned.model.NedTreeDifferenceUtils;
 import org.omnetpp.ned.model.NedTreeUtil;
-import org.omnetpp.ned.model.ex.CompoundModuleElementEx;
 import org.omnetpp.ned.model.ex.NedElementFactoryEx;
 import org.omnetpp.ned.model.ex.NedFileElementEx;
-import org.omnetpp.ned.model.interfaces.INedTypeElement;
 import org.omnetpp.ned.model.interfaces.INedTypeResolver;
 import org.omnetpp.ned.model.notification.INedChangeListener;
 import org.omnetpp.ned.model.notification.NedBeginModelChangeEvent;
@@ -69,6 +70,8 @@ public class NedResources extends NedTypeResolver implements INedResources, IRes
     // singleton instance
     private static NedResources instance = null;
 
+    private static final String PARSE_CACHE_FILENAME = "nedparsecache.bin";
+
     // list of objects that listen on *all* NED changes
     private NedChangeListenerList nedModelChangeListenerList = null;
 
@@ -79,6 +82,11 @@ public class NedResources extends NedTypeResolver implements INedResources, IRes
     // DO NOT SET THIS DIRECTLY! Use invalidate().
     private boolean needsRehash = false;
 
+    // files whose validation results may be out of date, unless needsFullRevalidation is set.
+    // Maintained by invalidate() and invalidate(IFile); see getFilesToRevalidate().
+    private Set<IFile> filesToRevalidate = new HashSet<IFile>();
+    private boolean needsFullRevalidation = true;
+
     // For debugging: We increment this counter whenever a rehash occurs. Checks can be made
     // to assert that the function is not called unnecessarily
     private int debugRehashCounter = 0;
@@ -93,6 +101,9 @@ public class NedResources extends NedTypeResolver implements INedResources, IRes
     private Map<String,INedElement> expressionCache = new HashMap<String, INedElement>();
     private static final INedElement BOGUS_EXPRESSION = NedElementFactoryEx.getInstance().createElement(INedElement.NED_UNKNOWN); // special value to signal syntax error
 
+    // caches parse trees of unchanged NED files across sessions
+    private NedParseCache parseCache;
+
     // whether a job to call readMissingNedFiles() has been scheduled
     private boolean isLoadingInProgress = false;
     private WorkspaceJob readMissingNedFilesJob = null;
@@ -124,6 +135,9 @@ public class NedResources extends NedTypeResolver implements INedResources, IRes
         NedElement.setDefaultNedTypeResolver(this);
         createBuiltInNedTypes();
 
+        NedResourcesPlugin plugin = NedResourcesPlugin.getDefault();
+        parseCache = new NedParseCache(plugin == null ? null : plugin.getStateLocation().append(PARSE_CACHE_FILENAME).toFile());
+
         // build the project table on init
         rebuildProjectsTable();
 
@@ -134,6 +148,8 @@ public class NedResources extends NedTypeResolver implements INedResources, IRes
     public void dispose() {
         // remove ourselves from the listener list
         ResourcesPlugin.getWorkspace().removeResourceChangeListener(this);
+
+        parseCache.save();
     }
 
     public static NedResources getInstance() {
@@ -178,7 +194,8 @@ public class NedResources extends NedTypeResolver implements INedResources, IRes
                 markerSync.runAsWorkspaceJob();
 
                 // force rehash now, so that validation errors appear soon
-                rehash();
+                // (tree change notifications have already invalidated the affected types)
+                rehashIfNeeded();
             }
 
             long dt = System.currentTimeMillis() - startTime;
@@ -235,7 +252,7 @@ public class NedResources extends NedTypeResolver implements INedResources, IRes
         ProblemMarkerSynchronizer markerSync = new ProblemMarkerSynchronizer();
         doReadNedFile(file, markerSync);
         markerSync.runAsWorkspaceJob();
-        rehash();
+        rehashIfNeeded();
     }
 
     /**
@@ -246,15 +263,29 @@ public class NedResources extends NedTypeResolver implements INedResources, IRes
         //Note: the following is a bad idea, because of undefined startup order: the editor calling us might run sooner than readAllNedFiles()
         //Assert.isTrue(isNEDFile(file), "file is outside the NED source folders, or not a NED file at all");
 
+        NedFileElementEx tree = parseNedFile(file, markerSync);
+        storeParsedNedFile(file, tree);
+    }
+
+    /**
+     * Internal: parses the given NED file, or takes its tree from the parse cache.
+     * Does not access our tables, so it may be called from several threads concurrently.
+     */
+    protected NedFileElementEx parseNedFile(IFile file, ProblemMarkerSynchronizer markerSync) {
         if (debug)
             Debug.println("reading from disk: " + file.toString());
 
-        // parse the NED file and put it into the hash table
         NedMarkerErrorStore errorStore = new NedMarkerErrorStore(markerSync, NEDSYNTAXPROBLEM_MARKERID);
         errorStore.setFile(file);
-        NedFileElementEx tree = NedTreeUtil.parseNedFile(file.getLocation().toOSString(), errorStore, file.getFullPath().toString(), this);
+        NedFileElementEx tree = parseCache.parseNedFile(file, errorStore, this);
         Assert.isNotNull(tree);
+        return tree;
+    }
 
+    /**
+     * Internal: stores the parse tree of a NED file read from the disk.
+     */
+    protected synchronized void storeParsedNedFile(IFile file, NedFileElementEx tree) {
         // only store the file if its declared package is not excluded -- that would lead to thrashing, see bug #518
         // (this can only happen to top package.ned files that *define* their own package, for other files
         // we won't get invoked in the first place)
@@ -277,7 +308,7 @@ public class NedResources extends NedTypeResolver implements INedResources, IRes
         if (isSourceFolderPackageNedFile(file))
             rebuildProjectsTable();
 
-        invalidate();
+        invalidate(file);
     }
 
     /**
@@ -298,7 +329,7 @@ public class NedResources extends NedTypeResolver implements INedResources, IRes
             // unregister
             nedFiles.remove(file);
             nedElementFiles.remove(nedFileElement);
-            invalidate();
+            invalidate(file);
 
             // if this was a package.ned, expected package names might have changed
             if (isSourceFolderPackageNedFile(file))
@@ -318,11 +349,13 @@ public class NedResources extends NedTypeResolver implements INedResources, IRes
         Assert.isTrue(!connectCount.containsKey(file), "cannot replace the tree while an editor is open");
 
         NedFileElementEx oldTree = nedFiles.get(file);
-        // if the new tree has changed, we have to rehash everything
+        // if the new tree has changed, we have to rehash and invalidate the dependent types
         if (oldTree == null || !NedTreeUtil.isNedTreeEqual(oldTree, tree)) {
-            invalidate();
             nedFiles.put(file, tree);
+            if (oldTree != null)
+                nedElementFiles.remove(oldTree);
             nedElementFiles.put(tree, file);
+            invalidate(file);
             // add ourselves to the tree root as a listener
             tree.addNedChangeListener(nedModelChangeListener);
             // remove ourselves from the old tree which is no longer used
@@ -350,9 +383,14 @@ public class NedResources extends NedTypeResolver implements INedResources, IRes
         nedValidationStarterJob.restartTimer();
     }
 
+    /**
+     * Invalidates everything. To be used when anything might have changed,
+     * e.g. the projects table; for changes in a single file, use invalidate(IFile).
+     */
     public synchronized void invalidate() {
         lastChangeSerial++;
         needsRehash = true;
+        needsFullRevalidation = true;
         nedTypeLookupCache.clear();
         nedLikeTypeLookupCache.clear();
 
@@ -361,25 +399,27 @@ public class NedResources extends NedTypeResolver implements INedResources, IRes
             invalidateTypeInfo(file);
     }
 
-    protected void rehash() {
-        invalidate();
-        rehashIfNeeded();
+    /**
+     * Invalidates the types in the given file (which has been added, modified or
+     * removed), and those depending on them, and marks the files containing them
+     * for revalidation.
+     */
+    public synchronized void invalidate(IFile file) {
+        lastChangeSerial++;
+        needsRehash = true;
+        nedTypeLookupCache.clear();
+        nedLikeTypeLookupCache.clear();
+
+        filesToRevalidate.addAll(invalidateDependentTypes(file));
     }
 
-    protected void invalidateTypeInfo(INedElement parent) {
-        for (INedElement element : parent) {
-            if (element instanceof INedTypeElement) {
-                // invalidate
-                ((INedTypeElement)element).getNedTypeInfo().invalidateInherited();
+    public synchronized Set<IFile> getFilesToRevalidate() {
+        return needsFullRevalidation ? null : new HashSet<IFile>(filesToRevalidate);
+    }
 
-                // do inner types too
-                if (element instanceof CompoundModuleElementEx) {
-                    INedElement typesSection = ((CompoundModuleElementEx)element).getFirstTypesChild();
-                    if (typesSection != null)
-                        invalidateTypeInfo(typesSection);
-                }
-            }
-        }
+    public synchronized void clearFilesToRevalidate() {
+        filesToRevalidate.clear();
+        needsFullRevalidation = false;
     }
 
     public synchronized void fireBeginChangeEvent() {
@@ -504,18 +544,36 @@ public class NedResources extends NedTypeResolver implements INedResources, IRes
             nedModelChangeNotificationDisabled = true;
             debugRehashCounter = 0;
 
-            // read NED files that are not yet loaded
-            final ProblemMarkerSynchronizer sync = new ProblemMarkerSynchronizer();
+            // collect NED files that are not yet loaded
+            final List<IFile> files = new ArrayList<IFile>();
             IWorkspaceRoot workspaceRoot = ResourcesPlugin.getWorkspace().getRoot();
             workspaceRoot.accept(new IResourceVisitor() {
                 public boolean visit(IResource resource) {
                     if (!nedFiles.containsKey(resource) && isNedFile(resource))
-                        doReadNedFile((IFile)resource, sync);
+                        files.add((IFile)resource);
                     return true;
                 }
             });
+
+            // parse them concurrently, then store them one by one
+            final NedFileElementEx[] trees = new NedFileElementEx[files.size()];
+            final ProblemMarkerSynchronizer[] markerSyncs = new ProblemMarkerSynchronizer[files.size()];
+            IntStream.range(0, files.size()).parallel().forEach(i -> {
+                markerSyncs[i] = new ProblemMarkerSynchronizer();
+                trees[i] = parseNedFile(files.get(i), markerSyncs[i]);
+            });
+
+            final ProblemMarkerSynchronizer sync = new ProblemMarkerSynchronizer();
+            for (int i = 0; i < files.size(); i++) {
+                IFile file = files.get(i);
+                if (!nedFiles.containsKey(file) && isNedFile(file)) { // storing a package.ned may have changed the NED folder packages
+                    sync.addAll(markerSyncs[i]);
+                    storeParsedNedFile(file, trees[i]);
+                }
+            }
             sync.runAsWorkspaceJob();
             rehashIfNeeded();
+            parseCache.save();
         }
         catch (CoreException e) {
             NedResourcesPlugin.logError("Error during workspace refresh: ",e);
@@ -562,7 +620,11 @@ public class NedResources extends NedTypeResolver implements INedResources, IRes
         if (event instanceof NedModelChangeEvent) {
             INedElement source = ((NedModelChangeEvent)event).getSource();
             Assert.isTrue(source==null || refactoringInProgress || source instanceof NedFileElementEx || hasConnectedEditor(getNedFile(source.getContainingNedFileElement())), "NED trees not opened in any editor must NOT be changed");
-            invalidate();
+            IFile file = source == null ? null : nedElementFiles.get(source.getContainingNedFileElement());
+            if (file != null)
+                invalidate(file);
+            else if (!(event instanceof NedFileRemovedEvent)) // removals are handled in doForgetNedFile()
+                invalidate();
             nedValidationStarterJob.restartTimer(); //FIXME obey begin/end notifications too!
         }
 
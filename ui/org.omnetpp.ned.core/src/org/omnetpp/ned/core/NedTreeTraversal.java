@@ -25,6 +25,34 @@ import org.omnetpp.ned.model.interfaces.ISubmoduleOrConnection;
  * @author Andras
  */
 public class NedTreeTraversal {
+    /**
+     * A submodule or connection of a compound module, with its type resolved as far as
+     * possible without the visitor: the actual type for concrete types, and the
+     * interface type for "like" ones.
+     */
+    protected static class ChildSlot {
+        final ISubmoduleOrConnection element;
+        INedTypeInfo type; // null if unresolved
+        String unresolvedTypeName; // if type==null
+
+        ChildSlot(ISubmoduleOrConnection element) {
+            this.element = element;
+        }
+    }
+
+    /**
+     * The child slots of a compound module type, cached in NedTypeInfo.
+     */
+    static class ChildSlots {
+        final long serial; // resolver.getLastChangeSerial() at the time of creation
+        final ChildSlot[] slots;
+
+        ChildSlots(long serial, ChildSlot[] slots) {
+            this.serial = serial;
+            this.slots = slots;
+        }
+    }
+
     private INedTypeResolver resolver;
     private IModuleTreeVisitor visitor;
     private IProject contextProject;  // for "like" type lookups
@@ -75,26 +103,16 @@ public class NedTreeTraversal {
 
         // traverse submodules
         if (recurse && effectiveTypeInfo.getNedElement() instanceof CompoundModuleElementEx) {
-            CompoundModuleElementEx compoundModule = (CompoundModuleElementEx)effectiveTypeInfo.getNedElement();
-
-            List<SubmoduleElementEx> submodules = compoundModule.getSubmodules();
-            ArrayList<ISubmoduleOrConnection> elements = new ArrayList<ISubmoduleOrConnection>();
-            elements.addAll(submodules);
-            elements.addAll(compoundModule.getSrcConnections());
-
-            for (SubmoduleElementEx submodule : submodules)
-                elements.addAll(compoundModule.getSrcConnectionsFor(submodule.getName()));
-
-            for (ISubmoduleOrConnection childElement : elements) {
+            for (ChildSlot slot : getChildSlots(effectiveTypeInfo)) {
                 // dig out type info (NED declaration)
-                INedTypeInfo typeInfo = resolveEffectiveType(childElement, compoundModule);
+                INedTypeInfo typeInfo = resolveEffectiveType(slot);
 
                 // recursive call
                 if (typeInfo != null) {
                     if (visitedTypes.contains(typeInfo)) // cycle detection
-                        visitor.recursiveType(childElement, typeInfo);
+                        visitor.recursiveType(slot.element, typeInfo);
                     else
-                        doTraverse(childElement, typeInfo);
+                        doTraverse(slot.element, typeInfo);
                 }
             }
         }
@@ -104,6 +122,74 @@ public class NedTreeTraversal {
         visitedTypes.pop();
     }
 
+    /**
+     * Returns the submodules and connections of the given compound module type, in
+     * traversal order, with everything resolved that does not depend on the visitor.
+     * The result is cached in the type info until the next NED change, so that
+     * compound module types used many times in the hierarchy are only analyzed once.
+     */
+    protected ChildSlot[] getChildSlots(INedTypeInfo compoundModuleType) {
+        if (!(compoundModuleType instanceof NedTypeInfo))
+            return createChildSlots((CompoundModuleElementEx)compoundModuleType.getNedElement());
+        NedTypeInfo typeInfo = (NedTypeInfo)compoundModuleType;
+        long serial = resolver.getLastChangeSerial();
+        ChildSlots cached = typeInfo.traversalChildSlots;
+        if (cached == null || cached.serial != serial) {
+            synchronized (typeInfo) {
+                cached = typeInfo.traversalChildSlots;
+                if (cached == null || cached.serial != serial)
+                    typeInfo.traversalChildSlots = cached = new ChildSlots(serial, createChildSlots((CompoundModuleElementEx)typeInfo.getNedElement()));
+            }
+        }
+        return cached.slots;
+    }
+
+    protected ChildSlot[] createChildSlots(CompoundModuleElementEx compoundModule) {
+        List<SubmoduleElementEx> submodules = compoundModule.getSubmodules();
+        ArrayList<ISubmoduleOrConnection> elements = new ArrayList<ISubmoduleOrConnection>();
+        elements.addAll(submodules);
+        elements.addAll(compoundModule.getSrcConnections());
+
+        for (SubmoduleElementEx submodule : submodules)
+            elements.addAll(compoundModule.getSrcConnectionsFor(submodule.getName()));
+
+        ChildSlot[] slots = new ChildSlot[elements.size()];
+        for (int i = 0; i < slots.length; i++) {
+            ISubmoduleOrConnection element = elements.get(i);
+            ChildSlot slot = slots[i] = new ChildSlot(element);
+            if (!element.isParametricType()) {
+                slot.type = element.getNedTypeInfo();  // note: this resolves connections with getType()==null as well (to ned.IdealChannel)
+                if (slot.type == null)
+                    slot.unresolvedTypeName = element.getType();
+            }
+            else {
+                slot.type = resolver.lookupNedType(element.getLikeType(), element.getEnclosingLookupContext()); // interface type
+                if (slot.type == null)
+                    slot.unresolvedTypeName = element.getLikeType(); // undefined interface
+            }
+        }
+        return slots;
+    }
+
+    /**
+     * Resolves the type of a child element, using the pre-resolved information in the slot.
+     * For "like" elements, the actual type is determined via visitor.resolveLikeType().
+     *
+     * The return value may be null ("could not be resolved"); in that case this method
+     * already calls visitor.unresolvedType().
+     */
+    protected INedTypeInfo resolveEffectiveType(ChildSlot slot) {
+        ISubmoduleOrConnection element = slot.element;
+        if (slot.type == null) {
+            visitor.unresolvedType(element, slot.unresolvedTypeName);
+            return null;
+        }
+        else if (!element.isParametricType())
+            return slot.type;
+        else
+            return resolveLikeType(element, slot.type);
+    }
+
     /**
      * Return the actual type of a submodule or connection. If it is a concrete type,
      * it is looked up in the compound module as context (using imports, inner types, etc).
@@ -130,19 +216,29 @@ public class NedTreeTraversal {
                 result = null;
             }
             else {
-                String effectiveTypeName = visitor.resolveLikeType(element);  // value of the "like" parameter
-                if (effectiveTypeName == null) {
-                    result = interfaceType; // no actual type given, return the interface
-                }
-                else {
-                    // effectiveTypeName is likely unqualified -- look it up according to the "like" type name resolution rules
-                    result = resolver.lookupLikeType(effectiveTypeName, interfaceType, contextProject); // actual type
-                    if (result == null)
-                        visitor.unresolvedType(element, effectiveTypeName); // no such type
-                }
+                result = resolveLikeType(element, interfaceType);
             }
         }
         return result;
     }
 
+    /**
+     * Resolves a "like" element to its actual type, using visitor.resolveLikeType().
+     * Returns the interface type if the visitor cannot tell the actual type, and
+     * null if the actual type does not exist.
+     */
+    protected INedTypeInfo resolveLikeType(ISubmoduleOrConnection element, INedTypeInfo interfaceType) {
+        INedTypeInfo result;
+        String effectiveTypeName = visitor.resolveLikeType(element);  // value of the "like" parameter
+        if (effectiveTypeName == null) {
+            result = interfaceType; // no actual type given, return the interface
+        }
+        else {
+            // effectiveTypeName is likely unqualified -- look it up according to the "like" type name resolution rules
+            result = resolver.lookupLikeType(effectiveTypeName, interfaceType, contextProject); // actual type
+            if (result == null)
+                visitor.unresolvedType(element, effectiveTypeName); // no such type
+        }
+        return result;
+    }
 }
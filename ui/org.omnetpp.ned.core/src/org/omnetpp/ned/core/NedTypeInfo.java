@@ -63,6 +63,9 @@ public class NedTypeInfo implements INedTypeInfo, NedElementTags, NedElementCons
 
     protected String fullyQualifiedName; // computed on demand
 
+    // submodules and connections with their types resolved, for NedTreeTraversal; computed on demand
+    volatile NedTreeTraversal.ChildSlots traversalChildSlots;
+
     // local members
     protected boolean needsRefreshLocal;
     protected INedTypeElement extendsType;
@@ -411,6 +414,19 @@ public class NedTypeInfo implements INedTypeInfo, NedElementTags, NedElementCons
         needsRefreshInherited = false;
     }
 
+    /**
+     * Computes all lazily computed members, so that afterwards the object can
+     * be read from several threads concurrently, as long as nobody modifies it.
+     * See ImmutableNedTypeResolver.prepareForConcurrentReading().
+     */
+    void refreshAllIfNeeded() {
+        getFullyQualifiedName();
+        refreshLocalMembersIfNeeded();
+        refreshInheritedMembersIfNeeded();
+        getLocalUsedTypes();
+        getUsedTypes();
+    }
+
     public void invalidate() {
         if (debug)
             Debug.println(getName() +  ": invalidated *all* members (local+inherited)");
@@ -420,6 +436,7 @@ public class NedTypeInfo implements INedTypeInfo, NedElementTags, NedElementCons
         needsRefreshInherited = true;
         localUsedTypes = null;
         allUsedTypes = null;
+        traversalChildSlots = null;
     }
 
     public void invalidateInherited() {
@@ -429,6 +446,7 @@ public class NedTypeInfo implements INedTypeInfo, NedElementTags, NedElementCons
         fullyQualifiedName = null;
         needsRefreshInherited = true;
         allUsedTypes = null;
+        traversalChildSlots = null;
     }
 
     public String getName() {
@@ -1,7 +1,9 @@
 package org.omnetpp.ned.core;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -31,9 +33,13 @@ import org.omnetpp.ned.model.ex.NedElementUtilEx;
 import org.omnetpp.ned.model.ex.NedFileElementEx;
 import org.omnetpp.ned.model.ex.PropertyElementEx;
 import org.omnetpp.ned.model.interfaces.INedTypeElement;
+import org.omnetpp.ned.model.interfaces.ISubmoduleOrConnection;
 import org.omnetpp.ned.model.interfaces.INedTypeInfo;
 import org.omnetpp.ned.model.interfaces.INedTypeLookupContext;
 import org.omnetpp.ned.model.interfaces.INedTypeResolver;
+import org.omnetpp.ned.model.pojo.ExtendsElement;
+import org.omnetpp.ned.model.pojo.ImportElement;
+import org.omnetpp.ned.model.pojo.InterfaceNameElement;
 import org.omnetpp.ned.model.pojo.NedElementTags;
 import org.omnetpp.ned.model.pojo.NedFileElement;
 
@@ -55,6 +61,33 @@ public class NedTypeResolver implements INedTypeResolver {
     // file element to contain built-in declarations (does not correspond to any physical file)
     protected NedFileElementEx builtInDeclarationsFile;
 
+    // reverse dependency graph: maps simple type names to the elements that refer to a type
+    // with that name (via extends, like, submodule or channel type), i.e. type elements;
+    // for imports the file element. Import keys are prefixed with IMPORT_KEY_PREFIX.
+    // Names are not resolved, so the graph is conservative. See invalidateDependentTypes().
+    protected final Map<String, Set<INedElement>> dependentElements = new HashMap<String, Set<INedElement>>();
+
+    // files defining types with the given simple name; needed for duplicate detection
+    protected final Map<String, Set<IFile>> definingFiles = new HashMap<String, Set<IFile>>();
+
+    // the forward edges of the above graphs, per file
+    protected final Map<IFile, FileDependencies> fileDependencies = new HashMap<IFile, FileDependencies>();
+
+    protected static final String IMPORT_KEY_PREFIX = "import:";
+    protected static final String WILDCARD_IMPORT_KEY = IMPORT_KEY_PREFIX + "*";
+
+    protected static class FileDependencies {
+        // the package declared in the file ("" for the default package)
+        String packageName;
+
+        // simple names of the types defined in the file, including inner types
+        final Set<String> definedNames = new HashSet<String>();
+
+        // simple names of the types referenced from the file, grouped by the
+        // referring type element (or by the file element, for imports)
+        final Map<INedElement, Set<String>> references = new HashMap<INedElement, Set<String>>();
+    }
+
     protected static class ProjectData {
         // NED Source Folders for the project (contents of the .nedfolders file)
         IContainer[] nedSourceFolders;
@@ -192,6 +225,173 @@ public class NedTypeResolver implements INedTypeResolver {
 
     }
 
+    protected void invalidateTypeInfo(INedElement parent) {
+        for (INedElement element : parent) {
+            if (element instanceof INedTypeElement) {
+                // invalidate
+                ((INedTypeElement)element).getNedTypeInfo().invalidateInherited();
+
+                // do inner types too
+                if (element instanceof CompoundModuleElementEx) {
+                    INedElement typesSection = ((CompoundModuleElementEx)element).getFirstTypesChild();
+                    if (typesSection != null)
+                        invalidateTypeInfo(typesSection);
+                }
+            }
+        }
+    }
+
+    /**
+     * Updates the dependency graph after the given file has been added, modified or
+     * removed, and invalidates the inherited members of the types in the file and of
+     * the types that directly or indirectly depend on them. Returns the files that
+     * contain the affected types (these need to be revalidated).
+     */
+    protected Set<IFile> invalidateDependentTypes(IFile file) {
+        long startMillis = System.currentTimeMillis();
+
+        // replace the file's part of the graph
+        FileDependencies oldDependencies = fileDependencies.remove(file);
+        if (oldDependencies != null)
+            removeDependencies(file, oldDependencies);
+        NedFileElementEx nedFileElement = nedFiles.get(file);
+        FileDependencies newDependencies = null;
+        if (nedFileElement != null) {
+            newDependencies = collectDependencies(nedFileElement);
+            fileDependencies.put(file, newDependencies);
+            addDependencies(file, newDependencies);
+        }
+
+        Set<IFile> affectedFiles = new HashSet<IFile>();
+        Deque<String> queue = new ArrayDeque<String>();
+        if (nedFileElement != null) {
+            affectedFiles.add(file);
+            invalidateTypeInfo(nedFileElement);
+            queue.addAll(newDependencies.definedNames);
+        }
+        if (oldDependencies != null)
+            queue.addAll(oldDependencies.definedNames);
+
+        // types added, removed or renamed: imports may resolve differently, and duplicates may come and go;
+        // if the package declaration changed, all types of the file were renamed (their qualified names changed)
+        Set<String> addedOrRemovedNames = new HashSet<String>();
+        if (oldDependencies != null)
+            addedOrRemovedNames.addAll(oldDependencies.definedNames);
+        if (newDependencies != null)
+            addedOrRemovedNames.addAll(newDependencies.definedNames);
+        if (oldDependencies != null && newDependencies != null && oldDependencies.packageName.equals(newDependencies.packageName)) {
+            Set<String> commonNames = new HashSet<String>(oldDependencies.definedNames);
+            commonNames.retainAll(newDependencies.definedNames);
+            addedOrRemovedNames.removeAll(commonNames);
+        }
+        if (!addedOrRemovedNames.isEmpty()) {
+            for (String name : addedOrRemovedNames) {
+                queue.add(IMPORT_KEY_PREFIX + name);
+                if (definingFiles.containsKey(name))
+                    affectedFiles.addAll(definingFiles.get(name));
+            }
+            queue.add(WILDCARD_IMPORT_KEY);
+        }
+
+        // invalidate dependent types transitively
+        Set<INedElement> visited = new HashSet<INedElement>();
+        int numInvalidatedTypes = 0;
+        while (!queue.isEmpty()) {
+            Set<INedElement> elements = dependentElements.get(queue.poll());
+            if (elements == null)
+                continue;
+            for (INedElement element : elements) {
+                if (visited.add(element)) {
+                    affectedFiles.add(nedElementFiles.get(element.getContainingNedFileElement()));
+                    if (element instanceof INedTypeElement) {
+                        INedTypeElement typeElement = (INedTypeElement)element;
+                        typeElement.getNedTypeInfo().invalidateInherited();
+                        queue.add(typeElement.getName());
+                        numInvalidatedTypes++;
+                    }
+                }
+            }
+        }
+
+        if (debug) {
+            long dt = System.currentTimeMillis() - startMillis;
+            Debug.println("invalidateDependentTypes(): " + dt + "ms, " + file.getFullPath() + ": " + numInvalidatedTypes + " dependent types in " + affectedFiles.size() + " files");
+        }
+        return affectedFiles;
+    }
+
+    protected FileDependencies collectDependencies(NedFileElementEx nedFileElement) {
+        FileDependencies dependencies = new FileDependencies();
+        dependencies.packageName = StringUtils.nullToEmpty(nedFileElement.getPackage());
+        collectDependencies(nedFileElement, nedFileElement, dependencies);
+        return dependencies;
+    }
+
+    private void collectDependencies(INedElement parent, INedElement referrer, FileDependencies dependencies) {
+        for (INedElement element : parent) {
+            INedElement childReferrer = referrer;
+            String referencedName = null;
+            if (element instanceof INedTypeElement) {
+                dependencies.definedNames.add(((INedTypeElement)element).getName());
+                childReferrer = element;
+            }
+            else if (element instanceof ExtendsElement)
+                referencedName = ((ExtendsElement)element).getName();
+            else if (element instanceof InterfaceNameElement)
+                referencedName = ((InterfaceNameElement)element).getName();
+            else if (element instanceof ISubmoduleOrConnection) {
+                ISubmoduleOrConnection submoduleOrConnection = (ISubmoduleOrConnection)element;
+                referencedName = StringUtils.isNotEmpty(submoduleOrConnection.getLikeType()) ? submoduleOrConnection.getLikeType() : submoduleOrConnection.getType();
+            }
+            else if (element instanceof ImportElement) {
+                String importSpec = ((ImportElement)element).getImportSpec();
+                referencedName = importSpec.contains("*") ? WILDCARD_IMPORT_KEY : IMPORT_KEY_PREFIX + StringUtils.substringAfterLast("." + importSpec, ".");
+            }
+
+            if (StringUtils.isNotEmpty(referencedName)) {
+                if (!referencedName.startsWith(IMPORT_KEY_PREFIX))
+                    referencedName = StringUtils.substringAfterLast("." + referencedName, ".");
+                if (!dependencies.references.containsKey(referrer))
+                    dependencies.references.put(referrer, new HashSet<String>());
+                dependencies.references.get(referrer).add(referencedName);
+            }
+
+            collectDependencies(element, childReferrer, dependencies);
+        }
+    }
+
+    private void addDependencies(IFile file, FileDependencies dependencies) {
+        for (String name : dependencies.definedNames) {
+            if (!definingFiles.containsKey(name))
+                definingFiles.put(name, new HashSet<IFile>());
+            definingFiles.get(name).add(file);
+        }
+        for (Map.Entry<INedElement, Set<String>> entry : dependencies.references.entrySet()) {
+            for (String name : entry.getValue()) {
+                if (!dependentElements.containsKey(name))
+                    dependentElements.put(name, new HashSet<INedElement>());
+                dependentElements.get(name).add(entry.getKey());
+            }
+        }
+    }
+
+    private void removeDependencies(IFile file, FileDependencies dependencies) {
+        for (String name : dependencies.definedNames) {
+            Set<IFile> files = definingFiles.get(name);
+            files.remove(file);
+            if (files.isEmpty())
+                definingFiles.remove(name);
+        }
+        for (Map.Entry<INedElement, Set<String>> entry : dependencies.references.entrySet()) {
+            for (String name : entry.getValue()) {
+                Set<INedElement> elements = dependentElements.get(name);
+                elements.remove(entry.getKey());
+                if (elements.isEmpty())
+                    dependentElements.remove(name);
+            }
+        }
+    }
+
     /**
      * Create channel and interface types that are predefined in NED.
      */
@@ -793,6 +993,20 @@ public class NedTypeResolver implements INedTypeResolver {
         }
     }
 
+    /**
+     * Returns the files that contain duplicate types, i.e. those that
+     * addErrorsForDuplicates() will report errors for.
+     */
+    public synchronized Set<IFile> getFilesWithDuplicates() {
+        Set<IFile> result = new HashSet<IFile>();
+        for (ProjectData projectData : projects.values())
+            for (List<INedTypeElement> duplicateList : projectData.duplicates.values())
+                for (INedTypeElement element : duplicateList)
+                    if (element.getContainingNedFileElement() != builtInDeclarationsFile)
+                        result.add(getNedFile(element.getContainingNedFileElement()));
+        return result;
+    }
+
     public void dumpProjectsTable() {
         Debug.println(projects.size() + " projects:");
         for (IProject project : projects.keySet()) {
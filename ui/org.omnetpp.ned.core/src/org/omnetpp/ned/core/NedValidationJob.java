@@ -1,5 +1,13 @@
 package org.omnetpp.ned.core;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import org.eclipse.core.resources.IFile;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
@@ -18,6 +26,10 @@ import org.omnetpp.ned.model.interfaces.INedTypeResolver;
  * (NEDCONSISTENCYPROBLEM_MARKERID) are managed within this job.
  */
 public class NedValidationJob extends Job {
+    // shared by all validation runs; its threads are daemon threads
+    private static final int MIN_FILES_FOR_PARALLEL_VALIDATION = 16;
+    private static final ForkJoinPool validatorPool = new ForkJoinPool(Math.max(1, Runtime.getRuntime().availableProcessors() - 1));
+
     private boolean validateOpenNedFilesOnly = false; //TODO such preference might be useful for netbooks
     private int retryCount = 0;
 
@@ -55,39 +67,47 @@ public class NedValidationJob extends Job {
 
         INedResources nedResources = NedResourcesPlugin.getNedResources();
 
-        int numWorkUnits = 3 + nedResources.getNedFiles().size();
-        monitor.beginTask(getName(), numWorkUnits);
-
         // we'll analyze an immutable copy, so that NedResources doesn't need to be locked
-        INedTypeResolver immutableResolver = nedResources.getImmutableCopy();
+        INedTypeResolver immutableResolver;
+        Set<IFile> filesToRevalidate;
+        synchronized (nedResources) {
+            immutableResolver = nedResources.getImmutableCopy();
+            filesToRevalidate = nedResources.getFilesToRevalidate();
+        }
+
+        // only validate files affected by the changes since the last validation (null means all);
+        // files with duplicate types are always included, because addErrorsForDuplicates() reports on them
+        List<IFile> files = new ArrayList<>();
+        if (filesToRevalidate == null)
+            files.addAll(immutableResolver.getNedFiles());
+        else {
+            filesToRevalidate.addAll(((NedTypeResolver)immutableResolver).getFilesWithDuplicates());
+            for (IFile file : filesToRevalidate)
+                if (immutableResolver.containsNedFileElement(file))
+                    files.add(file);
+        }
+
+        int numWorkUnits = 3 + files.size();
+        monitor.beginTask(getName(), numWorkUnits);
         monitor.worked(1);
 
         ProblemMarkerSynchronizer markerSync = new ProblemMarkerSynchronizer(INedTypeResolver.NEDCONSISTENCYPROBLEM_MARKERID);
         NedMarkerErrorStore errorStore = new NedMarkerErrorStore(markerSync);
 
         // clear old consistency error markers from NED trees
-        clearConsistencyProblemSeverities(immutableResolver);
+        clearConsistencyProblemSeverities(immutableResolver, files);
 
         // issue error message for duplicates
         immutableResolver.addErrorsForDuplicates(errorStore);
         monitor.worked(1);
 
-        // validate all files
-        for (IFile file : immutableResolver.getNedFiles()) {
-            NedFileElementEx nedFileElement = immutableResolver.getNedFileElement(file);
-            errorStore.setFile(file);
-            new NedValidator(immutableResolver, file.getProject(), errorStore).validate(nedFileElement);
-            monitor.worked(1);
-
-            if (!nedResources.isImmutableCopyUpToDate(immutableResolver)) {
-                Debug.println("NED validation job: NED trees changed meanwhile, abandoning after " + (System.currentTimeMillis()-startTime) + "ms of work");
-                return false;
-            }
-            if (monitor.isCanceled()) {
-                Debug.println("NED validation job: cancelled after " + (System.currentTimeMillis()-startTime) + "ms of work");
-                return false;
-            }
+        if (files.size() < MIN_FILES_FOR_PARALLEL_VALIDATION) {
+            // not worth the overhead of parallel validation (typical after editing a single file)
+            errorStore.addAll(validateFiles(immutableResolver, files, new AtomicBoolean(false), new AtomicInteger(0)));
+            monitor.worked(files.size());
         }
+        else if (!validateInParallel(immutableResolver, files, errorStore, monitor, startTime))
+            return false;
 
         // lock NedResources while we copy marker severities onto NED trees in it
         synchronized (nedResources) {
@@ -101,7 +121,7 @@ public class NedValidationJob extends Job {
                 nedResources.fireBeginChangeEvent();
 
                 // clear old consistency error markers from NED trees
-                clearConsistencyProblemSeverities(nedResources);
+                clearConsistencyProblemSeverities(nedResources, files);
 
                 // put validation errors
                 for (INedElement element : errorStore.getAffectedElements()) {
@@ -109,10 +129,13 @@ public class NedValidationJob extends Job {
                     original.setConsistencyProblemMaxLocalSeverity(element.getConsistencyProblemMaxLocalSeverity());
                 }
 
+                // the copy is up to date, so all changes have been covered
+                nedResources.clearFilesToRevalidate();
+
                 // we need to do the synchronization in a background job, to avoid deadlocks
                 markerSync.runAsWorkspaceJob();
 
-                Debug.println("NED validation job completed: spent " + (midTime-startTime) + "ms in background, " + (System.currentTimeMillis()-midTime) + "ms blocking, " + markerSync.getNumberOfMarkers() + " markers on " + markerSync.getNumberOfFiles() + " files");
+                Debug.println("NED validation job completed: validated " + files.size() + " files, spent " + (midTime-startTime) + "ms in background, " + (System.currentTimeMillis()-midTime) + "ms blocking, " + markerSync.getNumberOfMarkers() + " markers on " + markerSync.getNumberOfFiles() + " files");
                 monitor.worked(1);
 
                 return true;
@@ -123,8 +146,74 @@ public class NedValidationJob extends Job {
         }
     }
 
-    private void clearConsistencyProblemSeverities(INedTypeResolver resolver) {
-        for (IFile file : resolver.getNedFiles())
+    /**
+     * Validates the given files of the immutable copy on the thread pool, and adds
+     * the problems found to the error store. Returns false if validation was abandoned
+     * because the job was cancelled or the NED trees have changed meanwhile.
+     */
+    protected boolean validateInParallel(INedTypeResolver immutableResolver, List<IFile> files, NedMarkerErrorStore errorStore, IProgressMonitor monitor, long startTime) {
+        INedResources nedResources = NedResourcesPlugin.getNedResources();
+
+        // make the type infos in the copy safe for concurrent reading
+        ((ImmutableNedTypeResolver)immutableResolver).prepareForConcurrentReading();
+
+        // validate the files in parallel, each task collecting problems into its own error store
+        AtomicBoolean abort = new AtomicBoolean(false);
+        AtomicInteger numFilesValidated = new AtomicInteger(0);
+        int numTasks = Math.min(files.size(), 4 * validatorPool.getParallelism()); // smaller chunks for better load balancing
+        List<ForkJoinTask<NedMarkerErrorStore>> tasks = new ArrayList<>();
+        for (int i = 0; i < numTasks; i++) {
+            List<IFile> chunk = files.subList(i * files.size() / numTasks, (i+1) * files.size() / numTasks);
+            tasks.add(validatorPool.submit(() -> validateFiles(immutableResolver, chunk, abort, numFilesValidated)));
+        }
+
+        int numFilesReported = 0;
+        while (!tasks.stream().allMatch(task -> task.isDone())) {
+            if (!nedResources.isImmutableCopyUpToDate(immutableResolver) || monitor.isCanceled()) {
+                abort.set(true); // running tasks will stop after the current file; their results will be discarded
+                if (monitor.isCanceled())
+                    Debug.println("NED validation job: cancelled after " + (System.currentTimeMillis()-startTime) + "ms of work");
+                else
+                    Debug.println("NED validation job: NED trees changed meanwhile, abandoning after " + (System.currentTimeMillis()-startTime) + "ms of work");
+                return false;
+            }
+            int n = numFilesValidated.get();
+            monitor.worked(n - numFilesReported);
+            numFilesReported = n;
+            try {
+                Thread.sleep(5);
+            }
+            catch (InterruptedException e) {
+                // check again
+            }
+        }
+        monitor.worked(files.size() - numFilesReported);
+
+        // merge the results (join() rethrows exceptions thrown in the tasks)
+        for (ForkJoinTask<NedMarkerErrorStore> task : tasks)
+            errorStore.addAll(task.join());
+        return true;
+    }
+
+    /**
+     * Validates the given files; runs in a pool thread. Stops when abort is set.
+     */
+    protected NedMarkerErrorStore validateFiles(INedTypeResolver immutableResolver, List<IFile> files, AtomicBoolean abort, AtomicInteger numFilesValidated) {
+        ProblemMarkerSynchronizer markerSync = new ProblemMarkerSynchronizer(INedTypeResolver.NEDCONSISTENCYPROBLEM_MARKERID);
+        NedMarkerErrorStore errorStore = new NedMarkerErrorStore(markerSync);
+        for (IFile file : files) {
+            if (abort.get())
+                break;
+            NedFileElementEx nedFileElement = immutableResolver.getNedFileElement(file);
+            errorStore.setFile(file);
+            new NedValidator(immutableResolver, file.getProject(), errorStore).validate(nedFileElement);
+            numFilesValidated.incrementAndGet();
+        }
+        return errorStore;
+    }
+
+    private void clearConsistencyProblemSeverities(INedTypeResolver resolver, List<IFile> files) {
+        for (IFile file : files)
             resolver.getNedFileElement(file).clearConsistencyProblemMarkerSeverities();
     }
 
@@ -13,6 +13,7 @@ import org.eclipse.jface.resource.ImageDescriptor;
 import org.eclipse.jface.resource.ImageRegistry;
 import org.eclipse.swt.graphics.Image;
 import org.eclipse.ui.plugin.AbstractUIPlugin;
+import org.omnetpp.ned.editor.graph.misc.NedLayoutCache;
 import org.osgi.framework.BundleContext;
 
 /**
@@ -43,6 +44,7 @@ public class NedEditorPlugin extends AbstractUIPlugin {
     public void start(BundleContext context) throws Exception {
         super.start(context);
         PLUGIN_ID = getBundle().getSymbolicName();
+        NedLayoutCache.startRemovingDeletedLayouts();
     }
 
     /*
@@ -51,6 +53,7 @@ public class NedEditorPlugin extends AbstractUIPlugin {
      */
     @Override
     public void stop(BundleContext context) throws Exception {
+        NedLayoutCache.stopRemovingDeletedLayouts();
         plugin = null;
         super.stop(context);
     }
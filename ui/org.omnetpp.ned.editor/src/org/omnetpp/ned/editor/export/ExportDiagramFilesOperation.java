@@ -27,6 +27,7 @@ import org.eclipse.core.runtime.Status;
 import org.eclipse.draw2d.IFigure;
 import org.eclipse.jface.operation.IRunnableWithProgress;
 import org.eclipse.ui.dialogs.IOverwriteQuery;
+import org.omnetpp.common.util.DisplayUtils;
 import org.omnetpp.ned.editor.NedEditorPlugin;
 
 public class ExportDiagramFilesOperation implements IRunnableWithProgress
@@ -98,15 +99,23 @@ public class ExportDiagramFilesOperation implements IRunnableWithProgress
         Map<IFigure, String> providedFiguresAndNames = figureProvider.getDiagramFigures(diagramFile);
         Set<IFigure> figures = providedFiguresAndNames.keySet();
         if (figures != null && !figures.isEmpty()) {
-            for (IFigure figure : figures) {
-                String imageFileBaseName = providedFiguresAndNames.get(figure);
-                IFile imageIFile = getImageIFile(diagramFile, imageFileBaseName);
-                File imageFile = new File(imageIFile.getRawLocation().toString());
-                if (isAllowedToWrite(imageIFile)) {
-                    diagramExporter.exportDiagram(Collections.singletonList(figure), imageFile, antialias);
-                    refreshContainer(imageIFile.getParent(), monitor);
+            try {
+                for (IFigure figure : figures) {
+                    String imageFileBaseName = providedFiguresAndNames.get(figure);
+                    IFile imageIFile = getImageIFile(diagramFile, imageFileBaseName);
+                    File imageFile = new File(imageIFile.getRawLocation().toString());
+                    if (isAllowedToWrite(imageIFile)) {
+                        diagramExporter.exportDiagram(Collections.singletonList(figure), imageFile, antialias);
+                        refreshContainer(imageIFile.getParent(), monitor);
+                    }
                 }
             }
+            finally {
+                DisplayUtils.runNowOrSyncInUIThread(() -> {
+                    for (IFigure figure : figures)
+                        NedFigureProvider.disposeDiagramFigure(figure);
+                });
+            }
         }
         else
             addStatus(IStatus.ERROR, MessageFormat.format("{0} failed to provide a figure for '{1}'.", figureProvider, diagramFile.getFullPath()), null);
@@ -24,6 +24,7 @@ import org.eclipse.swt.widgets.Display;
 import org.omnetpp.common.util.DisplayUtils;
 import org.omnetpp.common.util.StringUtils;
 import org.omnetpp.ned.core.NedResourcesPlugin;
+import org.omnetpp.ned.editor.graph.parts.CompoundModuleEditPart;
 import org.omnetpp.ned.editor.graph.parts.NedEditPart;
 import org.omnetpp.ned.editor.graph.parts.NedEditPartFactory;
 import org.omnetpp.ned.editor.graph.parts.NedFileEditPart;
@@ -73,6 +74,10 @@ public class NedFigureProvider
         NedFileEditPart nedFilePart = (NedFileEditPart)viewer.getEditPartRegistry().get(model);
         if (nedFilePart == null)
             throw new IllegalArgumentException("Invalid NED file.");
+        // the figures are painted right after layouting, so there is no time for background layouts
+        for (Object editPart : viewer.getEditPartRegistry().values())
+            if (editPart instanceof CompoundModuleEditPart)
+                ((CompoundModuleEditPart)editPart).getFigure().getSubmoduleArea().setSynchronousLayout(true);
         // root figure is not added to the viewer because of off screen rendering
         // we have to pretend the addition otherwise add notification will not be sent to children
         IFigure rootFigure = nedFilePart.getFigure();
@@ -84,6 +89,23 @@ public class NedFigureProvider
         return viewer;
     }
 
+    /**
+     * Releases the resources (e.g. images) held by the figures of a viewer created with
+     * createNedViewer(). The viewer cannot be used for rendering afterwards.
+     */
+    public static void disposeNedViewer(ScrollingGraphicalViewer viewer) {
+        disposeDiagramFigure(((GraphicalEditPart)viewer.getContents()).getFigure());
+    }
+
+    /**
+     * Releases the resources (e.g. images) held by a figure returned by getDiagramFigures(IFile).
+     * The figure cannot be used for rendering afterwards. Must be called from the UI thread.
+     */
+    public static void disposeDiagramFigure(IFigure figure) {
+        // undo the pretended addition in createNedViewer(); this notifies all children
+        figure.removeNotify();
+    }
+
     @SuppressWarnings("unchecked")
     public Map<IFigure, String> getDiagramFigures(final IFile diagramFile) {
         final Map<IFigure, String>[] results = new Map[1];
@@ -2227,6 +2227,12 @@ public class PropertiesDialog extends TrayDialog {
         // save which page is shown
         getDialogSettings().put("activePage", tabfolder.getSelectionIndex());
 
+        // the preview figures are discarded together with their canvas
+        if (previewFigure != null)
+            for (IFigure figure : previewFigure)
+                if (figure instanceof SubmoduleFigure)
+                    ((SubmoduleFigure)figure).releaseImages();
+
         return super.close();
     }
 
@@ -0,0 +1,154 @@
+/*--------------------------------------------------------------*
+  Copyright (C) 2006-2015 OpenSim Ltd.
+
+  This file is distributed WITHOUT ANY WARRANTY. See the file
+  'License' for details on this and other legal matters.
+*--------------------------------------------------------------*/
+
+package org.omnetpp.ned.editor.graph.misc;
+
+import java.io.Serializable;
+import java.util.HashMap;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IResourceChangeEvent;
+import org.eclipse.core.resources.IResourceChangeListener;
+import org.eclipse.core.resources.IResourceDelta;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.CoreException;
+import org.omnetpp.common.Debug;
+import org.omnetpp.common.util.PersistentResourcePropertyManager;
+import org.omnetpp.figures.layout.ILayoutCache;
+import org.omnetpp.figures.layout.LayoutCacheEntry;
+import org.omnetpp.ned.core.NedResourcesPlugin;
+import org.omnetpp.ned.editor.NedEditorPlugin;
+import org.omnetpp.ned.model.interfaces.INedTypeInfo;
+
+/**
+ * Stores the layout of a compound module type in the metadata area of its project
+ * (keyed by the NED file and the fully qualified type name), so reopening the NED
+ * file or generating documentation diagrams doesn't need to run the layouter again.
+ *
+ * The layouts of all types of a NED file are stored together. Layouts of types that
+ * no longer exist in the file are dropped when the file's layouts are stored next time,
+ * and the layouts of deleted (or moved) NED files are removed by the listener installed
+ * with startRemovingDeletedLayouts().
+ */
+public class NedLayoutCache implements ILayoutCache {
+    private static final String PROPERTY_KEY = "Layouts";
+
+    private static IResourceChangeListener resourceChangeListener;
+
+    /**
+     * The layouts of the compound module types of a NED file, keyed by fully qualified type name.
+     * Property files are named after a hash code, so the path of the NED file is also stored,
+     * and checked when loading.
+     */
+    private static class NedFileLayouts implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private final String nedFilePath;
+        private final HashMap<String, LayoutCacheEntry> entries = new HashMap<String, LayoutCacheEntry>();
+
+        public NedFileLayouts(String nedFilePath) {
+            this.nedFilePath = nedFilePath;
+        }
+    }
+
+    private IFile nedFile;
+    private String typeName;
+
+    public NedLayoutCache(IFile nedFile, String typeName) {
+        this.nedFile = nedFile;
+        this.typeName = typeName;
+    }
+
+    public IFile getNedFile() {
+        return nedFile;
+    }
+
+    public String getTypeName() {
+        return typeName;
+    }
+
+    @Override
+    public LayoutCacheEntry load() {
+        NedFileLayouts layouts = loadLayouts();
+        return layouts == null ? null : layouts.entries.get(typeName);
+    }
+
+    @Override
+    public void store(LayoutCacheEntry entry) {
+        NedFileLayouts layouts = loadLayouts();
+        if (layouts == null)
+            layouts = new NedFileLayouts(getNedFilePath());
+        layouts.entries.put(typeName, entry);
+        layouts.entries.keySet().removeIf(name -> !name.equals(typeName) && !isTypeInNedFile(name));
+        try {
+            getPropertyManager().setProperty(nedFile, PROPERTY_KEY, layouts);
+        }
+        catch (Exception e) {
+            Debug.println("Cannot write layout cache of " + typeName + ": " + e);
+        }
+    }
+
+    protected NedFileLayouts loadLayouts() {
+        PersistentResourcePropertyManager manager = getPropertyManager();
+        try {
+            if (manager.hasProperty(nedFile, PROPERTY_KEY)) {
+                Object value = manager.getProperty(nedFile, PROPERTY_KEY);
+                if (value instanceof NedFileLayouts && ((NedFileLayouts)value).nedFilePath.equals(getNedFilePath()))
+                    return (NedFileLayouts)value;
+            }
+        }
+        catch (Exception e) {
+            // stale or corrupt entry: the layout will be recomputed and stored again
+            Debug.println("Cannot read layout cache of " + typeName + ": " + e);
+        }
+        return null;
+    }
+
+    protected boolean isTypeInNedFile(String name) {
+        INedTypeInfo typeInfo = NedResourcesPlugin.getNedResources().getToplevelOrInnerNedType(name, nedFile.getProject());
+        return typeInfo != null && nedFile.equals(typeInfo.getNedFile());
+    }
+
+    protected String getNedFilePath() {
+        return nedFile.getFullPath().toPortableString();
+    }
+
+    protected static PersistentResourcePropertyManager getPropertyManager() {
+        return new PersistentResourcePropertyManager(NedEditorPlugin.PLUGIN_ID, NedLayoutCache.class.getClassLoader());
+    }
+
+    /**
+     * Starts removing the stored layouts of NED files when they are deleted, moved or renamed.
+     */
+    public static synchronized void startRemovingDeletedLayouts() {
+        if (resourceChangeListener == null) {
+            resourceChangeListener = (IResourceChangeEvent event) -> {
+                try {
+                    if (event.getDelta() != null)
+                        event.getDelta().accept((IResourceDelta delta) -> {
+                            IResource resource = delta.getResource();
+                            if (delta.getKind() == IResourceDelta.REMOVED && resource instanceof IFile && "ned".equals(resource.getFileExtension()))
+                                getPropertyManager().removeProperty(resource, PROPERTY_KEY);
+                            return true;
+                        });
+                }
+                catch (CoreException | RuntimeException e) {
+                    Debug.println("Cannot remove layout cache: " + e);
+                }
+            };
+            ResourcesPlugin.getWorkspace().addResourceChangeListener(resourceChangeListener, IResourceChangeEvent.POST_CHANGE);
+        }
+    }
+
+    public static synchronized void stopRemovingDeletedLayouts() {
+        if (resourceChangeListener != null) {
+            ResourcesPlugin.getWorkspace().removeResourceChangeListener(resourceChangeListener);
+            resourceChangeListener = null;
+        }
+    }
+}
@@ -12,6 +12,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import org.eclipse.core.resources.IFile;
 import org.eclipse.core.resources.IProject;
 import org.eclipse.draw2d.ConnectionAnchor;
 import org.eclipse.draw2d.IFigure;
@@ -34,8 +35,10 @@ import org.omnetpp.common.util.UIUtils;
 import org.omnetpp.figures.CompoundModuleFigure;
 import org.omnetpp.figures.anchors.CompoundModuleGateAnchor;
 import org.omnetpp.figures.anchors.GateAnchor;
+import org.omnetpp.figures.layout.ILayoutCache;
 import org.omnetpp.ned.editor.NedEditorPlugin;
 import org.omnetpp.ned.editor.graph.figures.CompoundModuleTypeFigure;
+import org.omnetpp.ned.editor.graph.misc.NedLayoutCache;
 import org.omnetpp.ned.editor.graph.parts.policies.CompoundModuleLayoutEditPolicy;
 import org.omnetpp.ned.editor.graph.properties.util.TypeNameValidator;
 import org.omnetpp.ned.model.INedElement;
@@ -43,6 +46,7 @@ import org.omnetpp.ned.model.ex.CompoundModuleElementEx;
 import org.omnetpp.ned.model.ex.ConnectionElementEx;
 import org.omnetpp.ned.model.interfaces.IInterfaceTypeElement;
 import org.omnetpp.ned.model.interfaces.INedTypeElement;
+import org.omnetpp.ned.model.interfaces.INedTypeInfo;
 import org.omnetpp.ned.model.pojo.TypesElement;
 
 /**
@@ -198,6 +202,7 @@ public class CompoundModuleEditPart extends ModuleEditPart {
         compoundModuleFigure.setNetwork(compoundModuleModel.isNetwork());
         compoundModuleFigure.setInterface(compoundModuleModel instanceof IInterfaceTypeElement);
         compoundModuleFigure.setInnerType(compoundModuleModel.getEnclosingTypeElement() != null);
+        updateLayoutCache();
 
         if (Float.isNaN(scale)) {
             // determine initial scale before refreshing submodule area
@@ -212,6 +217,22 @@ public class CompoundModuleEditPart extends ModuleEditPart {
         compoundModuleFigure.setDisplayString(compoundModuleModel.getDisplayString(), project, scale, iconScale);
     }
 
+    /**
+     * Makes the layouter use the persistent layout cache of this compound module type
+     * (before the first layout, and again if the type has been renamed or moved).
+     */
+    protected void updateLayoutCache() {
+        INedTypeInfo typeInfo = getModel().getNedTypeInfo();
+        IFile nedFile = typeInfo.getNedFile();
+        String typeName = typeInfo.getFullyQualifiedName();
+        CompoundModuleFigure submoduleArea = getFigure().getSubmoduleArea();
+        ILayoutCache layoutCache = submoduleArea.getLayoutCache();
+        if (nedFile == null)
+            submoduleArea.setLayoutCache(null);
+        else if (!(layoutCache instanceof NedLayoutCache) || !((NedLayoutCache)layoutCache).getNedFile().equals(nedFile) || !((NedLayoutCache)layoutCache).getTypeName().equals(typeName))
+            submoduleArea.setLayoutCache(new NedLayoutCache(nedFile, typeName));
+    }
+
     protected float getInitialScale(Dimension unscaledSize) {
         try {
             return getSettings().getFloat(getModel().getNedTypeInfo().getFullyQualifiedName()+PREF_SCALE);
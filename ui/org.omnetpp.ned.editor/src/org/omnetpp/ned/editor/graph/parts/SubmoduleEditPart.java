@@ -41,6 +41,13 @@ public class SubmoduleEditPart extends ModuleEditPart {
         renameValidator = new SubmoduleFullNameValidator(getModel());
     }
 
+    @Override
+    public void deactivate() {
+        // the figure is not removed from the diagram when the editor is closed
+        getFigure().releaseImages();
+        super.deactivate();
+    }
+
     /**
      * Returns a newly created Figure of this.
      */
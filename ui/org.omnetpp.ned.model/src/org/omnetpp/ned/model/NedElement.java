@@ -11,6 +11,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.eclipse.core.resources.IMarker;
 import org.eclipse.core.runtime.Assert;
@@ -63,7 +64,7 @@ public abstract class NedElement extends PlatformObject implements INedElement,
     private int numChildren = 0;
     private INedElement[] cachedChildArray;
     private INedElement original;
-    private static long lastid;
+    private static final AtomicLong lastid = new AtomicLong(); // trees may be built concurrently
 
     // store maximum severity of error markers associated with this element.
     // "syntax": NEDSYNTAXPROBLEM_MARKERID; "consistency": NEDCONSISTENCYPROBLEM_MARKERID;
@@ -200,7 +201,7 @@ public abstract class NedElement extends PlatformObject implements INedElement,
      * Constructor
      */
     public NedElement() {
-        id = ++lastid;
+        id = lastid.incrementAndGet();
     }
 
     /**
@@ -7,6 +7,15 @@
 
 package org.omnetpp.ned.model;
 
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
 import org.eclipse.core.resources.IMarker;
 import org.eclipse.core.runtime.Assert;
 import org.omnetpp.common.Debug;
@@ -114,7 +123,7 @@ public class NedTreeUtil {
      * whether a parse error occurred. All errors produced here will be syntax errors
      * (see NEDSYNTAXPROBLEM_MARKERID).
      */
-    public static synchronized NedFileElementEx parseNedFile(String filesystemFilename, INedErrorStore errors, String displayFilename, INedTypeResolver resolver) {
+    public static NedFileElementEx parseNedFile(String filesystemFilename, INedErrorStore errors, String displayFilename, INedTypeResolver resolver) {
         return doParseNedSource(null, filesystemFilename, errors, displayFilename, resolver);
     }
 
@@ -126,48 +135,55 @@ public class NedTreeUtil {
      * whether a parse error occurred. All errors produced here will be syntax errors
      * (see NEDSYNTAXPROBLEM_MARKERID).
      */
-    public static synchronized NedFileElementEx parseNedText(String source, INedErrorStore errors, String displayFilename, INedTypeResolver resolver) {
+    public static NedFileElementEx parseNedText(String source, INedErrorStore errors, String displayFilename, INedTypeResolver resolver) {
         return doParseNedSource(source, null, errors, displayFilename, resolver);
     }
 
-    private static synchronized NedFileElementEx doParseNedSource(String source, String filesystemFilename, INedErrorStore errors, String displayFilename, INedTypeResolver resolver) {
+    /**
+     * The native parser is not reentrant, so parsing and validation of the
+     * native tree are serialized (on the class lock, like parseMsgSource());
+     * only the conversion to pure Java objects may run concurrently.
+     */
+    private static NedFileElementEx doParseNedSource(String source, String filesystemFilename, INedErrorStore errors, String displayFilename, INedTypeResolver resolver) {
         Assert.isTrue(displayFilename != null);
         ASTNode swigTree = null;
         try {
-            // Debug.println("Parsing NED file started: " + filesystemFilename);
-            // parse
             ErrorStore swigErrors = new ErrorStore();
-            NedParser np = new NedParser(swigErrors);
-            swigTree = source!=null ? np.parseNedText(source, displayFilename) : np.parseNedFile(filesystemFilename, displayFilename);
-            if (swigTree == null) {
-                // return an empty NedFileElement if parsing totally failed
-                NedFileElementEx fileNode = (NedFileElementEx)NedElementFactoryEx.getInstance().createElement(resolver, NedElementTags.NED_NED_FILE, null);
-                fileNode.setFilename(displayFilename);
-                copyGlobalErrors(swigErrors, fileNode, errors); // piggyback errors which came without context node onto the tree root
-                return fileNode;
+            synchronized (NedTreeUtil.class) {
+                // Debug.println("Parsing NED file started: " + filesystemFilename);
+                // parse
+                NedParser np = new NedParser(swigErrors);
+                swigTree = source!=null ? np.parseNedText(source, displayFilename) : np.parseNedFile(filesystemFilename, displayFilename);
+                if (swigTree == null) {
+                    // return an empty NedFileElement if parsing totally failed
+                    NedFileElementEx fileNode = (NedFileElementEx)NedElementFactoryEx.getInstance().createElement(resolver, NedElementTags.NED_NED_FILE, null);
+                    fileNode.setFilename(displayFilename);
+                    copyGlobalErrors(swigErrors, fileNode, errors); // piggyback errors which came without context node onto the tree root
+                    return fileNode;
+                }
+
+                if (!swigErrors.empty()) {
+                    // There were parse errors, and the tree built may not be entirely correct.
+                    // Typical problems are "mandatory attribute missing" especially with connections,
+                    // due to parse errors before filling in the connection element was completed.
+                    // Here we try to check and repair the tree by discarding elements that cause
+                    // DTD validation error.
+                    NedTools.repairNedAST(swigTree);
+                }
+
+                // run DTD validation (once again)
+                int numMessages = swigErrors.numMessages();
+                NedDtdValidator dtdvalidator = new NedDtdValidator(swigErrors);
+                dtdvalidator.validate(swigTree);
+                dumpSwigErrors(swigErrors); //XXX remove -- debugging only
+
+                Assert.isTrue(swigErrors.numMessages() == numMessages, "NED tree fails DTD validation, even after repairs");
+
+                // additional syntax-related validation
+                NedSyntaxValidator syntaxValidator = new NedSyntaxValidator(swigErrors);
+                syntaxValidator.validate(swigTree);
             }
 
-            if (!swigErrors.empty()) {
-                // There were parse errors, and the tree built may not be entirely correct.
-                // Typical problems are "mandatory attribute missing" especially with connections,
-                // due to parse errors before filling in the connection element was completed.
-                // Here we try to check and repair the tree by discarding elements that cause
-                // DTD validation error.
-                NedTools.repairNedAST(swigTree);
-            }
-
-            // run DTD validation (once again)
-            int numMessages = swigErrors.numMessages();
-            NedDtdValidator dtdvalidator = new NedDtdValidator(swigErrors);
-            dtdvalidator.validate(swigTree);
-            dumpSwigErrors(swigErrors); //XXX remove -- debugging only
-
-            Assert.isTrue(swigErrors.numMessages() == numMessages, "NED tree fails DTD validation, even after repairs");
-
-            // additional syntax-related validation
-            NedSyntaxValidator syntaxValidator = new NedSyntaxValidator(swigErrors);
-            syntaxValidator.validate(swigTree);
-
             // convert tree to pure Java objects
             INedElement pojoTree = swig2pojo(swigTree, null, swigErrors, errors, resolver);
             Assert.isTrue(swigErrors.numMessages() == errors.getNumProblems(), "problems lost in translation");
@@ -177,8 +193,11 @@ public class NedTreeUtil {
             return (NedFileElementEx)pojoTree;
         }
         finally {
-            if (swigTree != null)
-                swigTree.delete();
+            if (swigTree != null) {
+                synchronized (NedTreeUtil.class) {
+                    swigTree.delete();
+                }
+            }
 
             // Debug.println("Parsing NED file finished: " + filesystemFilename);
         }
@@ -418,6 +437,87 @@ public class NedTreeUtil {
         return result;
     }
 
+    /**
+     * Writes the given tree in a compact binary form that can be read back
+     * with readTree(). Attributes, source locations and source regions are
+     * preserved; IDs and marker severities are not.
+     */
+    public static void writeTree(INedElement tree, DataOutputStream out) throws IOException {
+        writeTree(tree, out, new HashMap<String, Integer>());
+    }
+
+    protected static void writeTree(INedElement node, DataOutputStream out, Map<String, Integer> stringTable) throws IOException {
+        out.writeInt(node.getTagCode());
+        int numAttributes = node.getNumAttributes();
+        out.writeInt(numAttributes);
+        for (int i = 0; i < numAttributes; i++)
+            writeString(node.getAttribute(i), out, stringTable);
+        writeString(node.getSourceFileName(), out, stringTable);
+        out.writeInt(node.getSourceLineNumber());
+        NedSourceRegion region = node.getSourceRegion();
+        out.writeBoolean(region != null);
+        if (region != null) {
+            out.writeInt(region.getStartLine());
+            out.writeInt(region.getStartColumn());
+            out.writeInt(region.getEndLine());
+            out.writeInt(region.getEndColumn());
+        }
+        out.writeInt(node.getNumChildren());
+        for (INedElement child : node)
+            writeTree(child, out, stringTable);
+    }
+
+    // strings are written once, and referred to by index afterwards
+    private static void writeString(String string, DataOutputStream out, Map<String, Integer> stringTable) throws IOException {
+        Integer index = stringTable.get(string);
+        if (index != null)
+            out.writeInt(index);
+        else if (string == null)
+            out.writeInt(-2);
+        else {
+            stringTable.put(string, stringTable.size());
+            byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(-1);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * Reads a tree written by writeTree(). The resolver is the same as for parseNedFile().
+     */
+    public static INedElement readTree(DataInputStream in, INedTypeResolver resolver) throws IOException {
+        return readTree(in, resolver, null, new ArrayList<String>());
+    }
+
+    protected static INedElement readTree(DataInputStream in, INedTypeResolver resolver, INedElement parent, List<String> stringTable) throws IOException {
+        INedElement node = NedElementFactoryEx.getInstance().createElement(resolver, in.readInt(), parent);
+        int numAttributes = in.readInt();
+        for (int i = 0; i < numAttributes; i++)
+            node.setAttribute(i, readString(in, stringTable));
+        String sourceFileName = readString(in, stringTable);
+        node.setSourceLocation(sourceFileName, in.readInt());
+        if (in.readBoolean())
+            node.setSourceRegion(new NedSourceRegion(in.readInt(), in.readInt(), in.readInt(), in.readInt()));
+        int numChildren = in.readInt();
+        for (int i = 0; i < numChildren; i++)
+            readTree(in, resolver, node, stringTable);
+        return node;
+    }
+
+    private static String readString(DataInputStream in, List<String> stringTable) throws IOException {
+        int index = in.readInt();
+        if (index >= 0)
+            return stringTable.get(index);
+        else if (index == -2)
+            return null;
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        String string = new String(bytes, StandardCharsets.UTF_8);
+        stringTable.add(string);
+        return string;
+    }
+
     /**
      * Returns true if the two trees generate the same NED source code.
      * If either parameter is null, it returns false.
@@ -239,7 +239,7 @@ public class CompoundModuleElementEx extends CompoundModuleElement implements IM
     // connection related methods
 
     @SuppressWarnings("unchecked")
-    private void ensureConnectionCache() {
+    private synchronized void ensureConnectionCache() { // synchronized: ini file analysis traverses modules from several threads
         if (localSrcConnCache == null || cacheUpdateSerial != getResolver().getLastChangeSerial()) {
             localSrcConnCache = new HashMap<String, List<ConnectionElementEx>>();
             localDestConnCache = new HashMap<String, List<ConnectionElementEx>>();
@@ -7,24 +7,38 @@
 
 package org.omnetpp.neddoc;
 
+import java.io.BufferedOutputStream;
 import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Properties;
 import java.util.Set;
 import java.util.Stack;
 import java.util.TreeMap;
+import java.util.TreeSet;
 import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
@@ -158,6 +172,14 @@ import org.w3c.dom.NodeList;
 public class DocumentationGenerator {
     private static final boolean APPLY_CC = !IConstants.IS_COMMERCIAL;
 
+    // file in the neddoc folder that stores the content hashes of the generated pages (see incrementalMode)
+    private static final String MANIFEST_FILE_NAME = "neddoc-manifest.properties";
+
+    // must be increased when the generated content changes, so that incremental generation regenerates everything
+    private static final String MANIFEST_FORMAT_VERSION = "1";
+
+    private static final String MANIFEST_GLOBAL_KEY = "global";
+
     private static final Pattern pageSeparatorPattern = Pattern.compile("(?m)^//[ \t]*(@page|@titlepage)(.*?)$");
 
     // matches a @titlepage
@@ -195,6 +217,7 @@ public class DocumentationGenerator {
     protected boolean verboseMode = false;
     protected boolean generateDoxy = true;
     protected boolean generateCppSourceListings = false;
+    protected boolean incrementalMode = false;  // only regenerate the pages whose content hash changed
     protected String excludedDirsRegexPattern;
 
     // path vars
@@ -213,7 +236,20 @@ public class DocumentationGenerator {
     protected MsgResources msgResources;
     protected IProgressMonitor monitor;
 
-    protected FileOutputStream currentOutputStream;
+    protected PageBuffer currentPage;
+
+    // dot processes are run in a bounded pool in parallel with rendering the pages; source
+    // listings are highlighted in the page pool, and finished pages are written out by the writer
+    protected ExecutorService dotExecutor;
+    protected ExecutorService pageExecutor;
+    protected ExecutorService writerExecutor;
+    protected List<Future<?>> pendingTasks = new ArrayList<Future<?>>();
+
+    // page (or diagram) name -> content hash; the previous one is read from the neddoc folder in incremental mode
+    protected Properties previousManifest = new Properties();
+    protected Properties manifest = new Properties();
+    protected Map<ITypeElement, String> typeContentHashCache = new HashMap<ITypeElement, String>();
+    protected Map<ITypeElement, String> typePageHashCache = new HashMap<ITypeElement, String>();
 
     protected List<IFile> files = new ArrayList<IFile>();
     protected List<ITypeElement> typeElements = new ArrayList<ITypeElement>();
@@ -321,6 +357,10 @@ public class DocumentationGenerator {
             this.excludedDirsRegexPattern += ".*?";
     }
 
+    public void setIncrementalMode(boolean incrementalMode) {
+        this.incrementalMode = incrementalMode;
+    }
+
     public void setGenerateCppSourceListings(boolean generateCppSourceListings) {
         this.generateCppSourceListings = generateCppSourceListings;
     }
@@ -358,11 +398,13 @@ public class DocumentationGenerator {
 
             DocumentationGenerator.this.monitor = monitor;
             renderer = new HtmlRenderer(documentationRootPath.append(rootRelativeNeddocPath));
+            startExecutors();
 
-            ensureEmptyNeddoc();
+            readManifest();
             collectCaches();
             generateDoxy();
             collectDoxyMap();
+            checkManifest();
             renderer.copyStaticResources(customCssPath);
             generateNavTreeData();
             generateNavTreeIndex();
@@ -377,6 +419,8 @@ public class DocumentationGenerator {
             generateNedTagFile();
             if (generateMsgDefinitions)
                 generateMsgTagFile();
+            waitForPendingTasks();
+            writeManifest();
 
             return Status.OK_STATUS;
         }
@@ -400,6 +444,7 @@ public class DocumentationGenerator {
             return NeddocPlugin.getErrorStatus("Internal error during generating NED documentation", e);
         }
         finally {
+            stopExecutors();
             if (verboseMode)
                 System.out.println("");
             try {
@@ -453,6 +498,195 @@ public class DocumentationGenerator {
         }
     }
 
+    protected void startExecutors() {
+        int numThreads = Math.max(1, Runtime.getRuntime().availableProcessors());
+        dotExecutor = Executors.newFixedThreadPool(numThreads);
+        pageExecutor = Executors.newFixedThreadPool(numThreads);
+        writerExecutor = Executors.newSingleThreadExecutor();
+        pendingTasks.clear();
+    }
+
+    protected void stopExecutors() {
+        // after a successful run there is nothing left; after an error or cancellation drop the remaining tasks
+        for (ExecutorService executor : new ExecutorService[] {dotExecutor, pageExecutor, writerExecutor})
+            if (executor != null)
+                executor.shutdownNow();
+        dotExecutor = pageExecutor = writerExecutor = null;
+        pendingTasks.clear();
+    }
+
+    /**
+     * Waits until all dot processes are finished and all pages are written out,
+     * and rethrows the first error.
+     */
+    protected void waitForPendingTasks() throws Exception {
+        try {
+            monitor.beginTask("Waiting for diagrams and pages...", pendingTasks.size());
+
+            for (Future<?> task : pendingTasks) {
+                while (true) {
+                    if (monitor.isCanceled())
+                        throw new CancellationException();
+                    try {
+                        task.get(100, TimeUnit.MILLISECONDS);
+                        break;
+                    }
+                    catch (TimeoutException e) {
+                        // check for cancellation and wait again
+                    }
+                    catch (ExecutionException e) {
+                        throw e.getCause() instanceof Exception ? (Exception)e.getCause() : e;
+                    }
+                }
+                monitor.worked(1);
+            }
+            pendingTasks.clear();
+        }
+        finally {
+            monitor.done();
+        }
+    }
+
+    protected void readManifest() {
+        previousManifest = new Properties();
+        manifest = new Properties();
+        typeContentHashCache.clear();
+        typePageHashCache.clear();
+
+        File manifestFile = getOutputFile(MANIFEST_FILE_NAME);
+        if (incrementalMode && manifestFile.exists()) {
+            try (InputStream stream = new FileInputStream(manifestFile)) {
+                previousManifest.load(stream);
+            }
+            catch (IOException e) {
+                // regenerate everything
+                previousManifest.clear();
+            }
+        }
+    }
+
+    /**
+     * Starts with an empty neddoc folder unless an incremental update is possible, i.e. the
+     * previous documentation was generated with the same configuration, set of types and files,
+     * and C++ documentation.
+     */
+    protected void checkManifest() throws Exception {
+        String globalHash = computeGlobalHash();
+        if (!incrementalMode || !globalHash.equals(previousManifest.getProperty(MANIFEST_GLOBAL_KEY))) {
+            previousManifest.clear();
+            ensureEmptyNeddoc();
+        }
+        manifest.setProperty(MANIFEST_GLOBAL_KEY, globalHash);
+    }
+
+    protected void writeManifest() throws IOException {
+        try (FileOutputStream stream = new FileOutputStream(getOutputFile(MANIFEST_FILE_NAME))) {
+            manifest.store(stream, "Content hashes of the generated NED documentation pages");
+        }
+    }
+
+    /**
+     * Records the content hash of an output file in the manifest, and returns true if the previous
+     * run generated the same file from the same content, so it doesn't need to be generated again.
+     */
+    protected boolean isUpToDate(String fileName, String hash) {
+        manifest.setProperty(fileName, hash);
+        return hash.equals(previousManifest.getProperty(fileName)) && getOutputFile(fileName).exists();
+    }
+
+    /**
+     * Returns the hash of everything that affects all pages: the configuration, the names of
+     * the types (they determine the hyperlinks), the files, the C++ documentation, and the
+     * documentation fragments.
+     */
+    protected String computeGlobalHash() {
+        StringBuilder builder = new StringBuilder(MANIFEST_FORMAT_VERSION + "\n");
+        builder.append(generateNedTypeFigures).append(generatePerTypeUsageDiagrams).append(generatePerTypeInheritanceDiagrams)
+               .append(generateFullUsageDiagrams).append(generateFullInheritanceDiagrams).append(generateSourceListings)
+               .append(generateMsgDefinitions).append(generateFileListings).append(automaticHyperlinking).append(generateDoxy)
+               .append(SyntaxHighlightHelper.isDarkTheme).append(renderer.getTemplateName()).append(excludedDirsRegexPattern).append("\n");
+        for (String typeName : typeNamesMap.keySet())
+            builder.append(typeName).append("\n");
+        for (ITypeElement typeElement : typeElements)
+            builder.append(getOutputBaseFileName(typeElement)).append("\n");
+        for (IFile file : files)
+            builder.append(file.getFullPath()).append("\n");
+        for (Map.Entry<String, String> entry : doxyMap.entrySet())
+            builder.append(entry.getKey()).append("=").append(entry.getValue()).append("\n");
+        if (extensionFilePath != null)
+            builder.append(project.getFile(extensionFilePath).getModificationStamp());
+        return digest(builder.toString());
+    }
+
+    /**
+     * Returns the hash of the source and the comment of the given type.
+     */
+    protected String getTypeContentHash(ITypeElement typeElement) throws IOException {
+        String hash = typeContentHashCache.get(typeElement);
+        if (hash == null) {
+            IFile file = getNedOrMsgFile(typeElement);
+            hash = digest(getOutputBaseFileName(typeElement) + "\n" + (file == null ? "" : file.getFullPath()) + "\n" +
+                    typeElement.getNedSource() + "\n" + getExpandedComment(typeElement));
+            typeContentHashCache.put(typeElement, hash);
+        }
+        return hash;
+    }
+
+    /**
+     * Returns the hash of everything the page and the diagrams of the given type are generated from:
+     * the type itself, the types it extends, implements or uses (transitively, because inherited members
+     * and the parameters of submodules also appear on the page), and the types that directly use,
+     * extend or implement it.
+     */
+    protected String getTypePageHash(ITypeElement typeElement) throws IOException {
+        String hash = typePageHashCache.get(typeElement);
+        if (hash == null) {
+            Set<ITypeElement> dependencies = new LinkedHashSet<ITypeElement>();
+            collectTypeDependencies(typeElement, dependencies);
+            if (usersMap.containsKey(typeElement))
+                dependencies.addAll(usersMap.get(typeElement));
+            if (subtypesMap.containsKey(typeElement))
+                dependencies.addAll(subtypesMap.get(typeElement));
+            if (directImplementorsMap.containsKey(typeElement))
+                dependencies.addAll(directImplementorsMap.get(typeElement));
+
+            TreeSet<String> hashes = new TreeSet<String>();
+            for (ITypeElement dependency : dependencies)
+                hashes.add(getTypeContentHash(dependency));
+            hash = digest(getTypeContentHash(typeElement) + "\n" + String.join("\n", hashes));
+            typePageHashCache.put(typeElement, hash);
+        }
+        return hash;
+    }
+
+    private void collectTypeDependencies(ITypeElement typeElement, Set<ITypeElement> result) {
+        if (typeElement == null || !result.add(typeElement))
+            return;
+        collectTypeDependencies(typeElement.getSuperType(), result);
+        for (ITypeElement usedTypeElement : typeElement.getLocalUsedTypes())
+            collectTypeDependencies(usedTypeElement, result);
+        if (typeElement instanceof INedTypeElement)
+            for (INedTypeElement interfaceElement : ((INedTypeElement)typeElement).getNedTypeInfo().getLocalInterfaces())
+                collectTypeDependencies(interfaceElement, result);
+    }
+
+    protected String getFileContentHash(IFile file) throws IOException, CoreException {
+        return digest(file.getFullPath() + "\n" + FileUtils.readTextFile(file.getContents(), file.getCharset()));
+    }
+
+    protected static String digest(String text) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-1").digest(text.getBytes("UTF-8"));
+            StringBuilder builder = new StringBuilder();
+            for (byte b : hash)
+                builder.append(String.format("%02x", b));
+            return builder.toString();
+        }
+        catch (NoSuchAlgorithmException | IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
     protected void collectCaches() throws Exception {
         try {
             monitor.beginTask("Collecting data...", 6);
@@ -779,25 +1013,38 @@ public class DocumentationGenerator {
     }
 
     protected void generatePage(String pageName, String title, Runnable content) throws Exception {
-        FileOutputStream oldCurrentOutputStream = currentOutputStream;
-
-        File file = getOutputFile(renderer.appendFilenameExtension(pageName));
-        currentOutputStream = new FileOutputStream(file);
-
         String splitPage[] = readTextFromResource("page.tmpl").replace("@title@", title).split("@content@");
         if (splitPage.length != 2)
             throw new RuntimeException("page.tmpl must contain exactly one @content@ placeholder ");
 
-        out(splitPage[0]);
-        content.run();
+        generateOutputFile(renderer.appendFilenameExtension(pageName), () -> {
+            out(splitPage[0]);
+            content.run();
+
+            if (APPLY_CC)
+                out(renderer.copyrightNotice());
+
+            out(splitPage[1]);
+        });
+    }
 
-        if (APPLY_CC)
-            out(renderer.copyrightNotice());
+    /**
+     * Collects the output of {@code content} in a separate buffer, and writes it out
+     * to the given file in the background, when the parts rendered in the background
+     * (e.g. source listings) are complete.
+     */
+    protected void generateOutputFile(String fileName, Runnable content) throws Exception {
+        PageBuffer oldCurrentPage = currentPage;
+        File file = getOutputFile(fileName);
+        PageBuffer page = currentPage = new PageBuffer();
 
-        out(splitPage[1]);
+        content.run();
 
-        currentOutputStream.close();
-        currentOutputStream = oldCurrentOutputStream;
+        pendingTasks.add(writerExecutor.submit(() -> {
+            page.writeTo(file);
+            return null;
+        }));
+        currentPage = oldCurrentPage;
     }
 
     protected String processHTMLContent(String clazz, String comment) {
@@ -896,21 +1143,15 @@ public class DocumentationGenerator {
     }
 
     protected void generateNavigationTree(String fileName, Runnable content) throws Exception {
-        FileOutputStream oldCurrentOutputStream = currentOutputStream;
-
-        File file = getOutputFile(fileName);
-        currentOutputStream = new FileOutputStream(file);
-
         String splitNavigation[] = readTextFromResource("navtree.tmpl").split("@content@");
         if (splitNavigation.length != 2)
             throw new RuntimeException("navtree.tmpl must contain exactly one @content@ placeholder ");
 
-        out(splitNavigation[0]);
-        content.run();
-        out(splitNavigation[1]);
-
-        currentOutputStream.close();
-        currentOutputStream = oldCurrentOutputStream;
+        generateOutputFile(fileName, () -> {
+            out(splitNavigation[0]);
+            content.run();
+            out(splitNavigation[1]);
+        });
     }
 
     protected void generateProjectIndexReference(IProject project) throws Exception {
@@ -1027,19 +1268,13 @@ public class DocumentationGenerator {
     }
 
     protected void generateNavTreeIndex() throws Exception {
-        FileOutputStream oldCurrentOutputStream = currentOutputStream;
-
-        File file = getOutputFile("navtreeindex0.js");
-        currentOutputStream = new FileOutputStream(file);
-
-        out("var NAVTREEINDEX0 = {\n");
-        for (Map.Entry<String,ArrayList<Integer>> entry : navigationItemIndex.entrySet()) {
-            out("'"+entry.getKey()+"':"+entry.getValue()+",\n");
-        }
-        out("};");
-
-        currentOutputStream.close();
-        currentOutputStream = oldCurrentOutputStream;
+        generateOutputFile("navtreeindex0.js", () -> {
+            out("var NAVTREEINDEX0 = {\n");
+            for (Map.Entry<String,ArrayList<Integer>> entry : navigationItemIndex.entrySet()) {
+                out("'"+entry.getKey()+"':"+entry.getValue()+",\n");
+            }
+            out("};");
+        });
     }
 
     protected void generateNavigationMenuItem(int level, String title, String url, Runnable content) throws Exception {
@@ -1297,45 +1532,35 @@ public class DocumentationGenerator {
     }
 
     protected void generateNedTagFile() throws Exception {
-
-        FileOutputStream oldCurrentOutputStream = currentOutputStream;
-        currentOutputStream = new FileOutputStream(getOutputFile("nedtags.xml"));
-
-        out("<?xml version='1.0' encoding='UTF-8' standalone='yes' ?>\n");
-        out("<tagfile>\n");
-        for (ITypeElement typeElement : typeElements)
-            if (typeElement instanceof INedTypeElement){
-                INedTypeElement e = (INedTypeElement)typeElement;
-                out("  <compound kind=\"class\">\n");
-                String pkgname = getPackageName(e);
-                out("    <name>"+ (("default".equals(pkgname)) ? "" : pkgname+".") +e.getName()+"</name>\n");
-                out("    <filename>"+renderer.appendFilenameExtension(getOutputBaseFileName(e))+"</filename>\n");
-                out("  </compound>\n");
-            }
-        out("</tagfile>\n");
-
-        currentOutputStream.close();
-        currentOutputStream = oldCurrentOutputStream;
+        generateOutputFile("nedtags.xml", () -> {
+            out("<?xml version='1.0' encoding='UTF-8' standalone='yes' ?>\n");
+            out("<tagfile>\n");
+            for (ITypeElement typeElement : typeElements)
+                if (typeElement instanceof INedTypeElement){
+                    INedTypeElement e = (INedTypeElement)typeElement;
+                    out("  <compound kind=\"class\">\n");
+                    String pkgname = getPackageName(e);
+                    out("    <name>"+ (("default".equals(pkgname)) ? "" : pkgname+".") +e.getName()+"</name>\n");
+                    out("    <filename>"+renderer.appendFilenameExtension(getOutputBaseFileName(e))+"</filename>\n");
+                    out("  </compound>\n");
+                }
+            out("</tagfile>\n");
+        });
     }
 
     protected void generateMsgTagFile() throws Exception {
-
-        FileOutputStream oldCurrentOutputStream = currentOutputStream;
-        currentOutputStream = new FileOutputStream(getOutputFile("msgtags.xml"));
-
-        out("<?xml version='1.0' encoding='UTF-8' standalone='yes' ?>\n");
-        out("<tagfile>\n");
-        for (ITypeElement typeElement : typeElements)
-            if (typeElement instanceof IMsgTypeElement){
-                out("  <compound kind=\"class\">\n");
-                out("    <name>"+ typeElement.getName()+"</name>\n");
-                out("    <filename>"+renderer.appendFilenameExtension(getOutputBaseFileName(typeElement))+"</filename>\n");
-                out("  </compound>\n");
-            }
-        out("</tagfile>\n");
-
-        currentOutputStream.close();
-        currentOutputStream = oldCurrentOutputStream;
+        generateOutputFile("msgtags.xml", () -> {
+            out("<?xml version='1.0' encoding='UTF-8' standalone='yes' ?>\n");
+            out("<tagfile>\n");
+            for (ITypeElement typeElement : typeElements)
+                if (typeElement instanceof IMsgTypeElement){
+                    out("  <compound kind=\"class\">\n");
+                    out("    <name>"+ typeElement.getName()+"</name>\n");
+                    out("    <filename>"+renderer.appendFilenameExtension(getOutputBaseFileName(typeElement))+"</filename>\n");
+                    out("  </compound>\n");
+                }
+            out("</tagfile>\n");
+        });
     }
 
     protected void generatePackagesPage() throws Exception {
@@ -1389,6 +1614,11 @@ public class DocumentationGenerator {
             monitor.beginTask("Generating file pages...", files.size());
 
             for (final IFile file : files) {
+                if (isUpToDate(renderer.appendFilenameExtension(getOutputBaseNameForFile(file)), getFileContentHash(file))) {
+                    monitor.worked(1);
+                    continue;
+                }
+
                 generatePage(getOutputBaseNameForFile(file), file.getName(), () -> {
                         monitor.subTask(file.getFullPath().toString());
                         String fileType = nedResolver.isNedFile(file) ? "NED" : msgResources.isMsgFile(file) ? "Msg" : "";
@@ -1431,7 +1661,11 @@ public class DocumentationGenerator {
             for (ITypeElement typeElement : typeElements) {
                 if (verboseMode)
                     System.out.append('.').flush();
-                generateTypePage(typeElement);
+                // the diagrams of the type are generated with the page
+                if (isUpToDate(renderer.appendFilenameExtension(getOutputBaseFileName(typeElement)), getTypePageHash(typeElement)))
+                    monitor.worked(1);
+                else
+                    generateTypePage(typeElement);
             }
         }
         finally {
@@ -1926,9 +2160,20 @@ public class DocumentationGenerator {
         }
     }
 
-    protected void generateNedTypeFigures() throws InterruptedException, CoreException {
+    protected void generateNedTypeFigures() throws InterruptedException, CoreException, IOException {
         if (generateNedTypeFigures) {
-            ArrayList<IFile> nedFiles = new ArrayList<IFile>(nedResolver.getNedFiles(project));
+            // only export the files that contain a type whose figure may have changed
+            ArrayList<IFile> nedFiles = new ArrayList<IFile>();
+            for (IFile file : nedResolver.getNedFiles(project)) {
+                boolean upToDate = true;
+                for (INedTypeElement typeElement : nedResolver.getNedFileElement(file).getTopLevelTypeNodes())
+                    if (!isUpToDate(getOutputFileName(typeElement, "type", ".svg"), getTypePageHash(typeElement)))
+                        upToDate = false;
+                if (!upToDate)
+                    nedFiles.add(file);
+            }
+            if (nedFiles.isEmpty())
+                return;
 
             final ExportDiagramFilesOperation exportOperation =
                 new ExportDiagramFilesOperation(nedFiles,
@@ -1990,9 +2235,9 @@ public class DocumentationGenerator {
         if (generateNedTypeFigures && !nedResolver.isBuiltInDeclaration(typeElement.getNedTypeInfo())) {
             out(renderer.typeImageTag(getOutputFileName(typeElement, "type", ".svg")));
             DisplayUtils.runNowOrSyncInUIThread(() -> {
+                    NedFileElementEx modelRoot = typeElement.getContainingNedFileElement();
+                    ScrollingGraphicalViewer viewer = NedFigureProvider.createNedViewer(modelRoot);
                     try {
-                        NedFileElementEx modelRoot = typeElement.getContainingNedFileElement();
-                        ScrollingGraphicalViewer viewer = NedFigureProvider.createNedViewer(modelRoot);
                         NedEditPart editPart = (NedEditPart)viewer.getEditPartRegistry().get(typeElement);
 
                         out(renderer.typeImageMap());
@@ -2021,6 +2266,9 @@ public class DocumentationGenerator {
                     catch (IOException e) {
                         throw new RuntimeException(e);
                     }
+                    finally {
+                        NedFigureProvider.disposeNedViewer(viewer);
+                    }
                 }
             );
         }
@@ -2313,7 +2561,13 @@ public class DocumentationGenerator {
     protected void generateSourceContent(String source, boolean nedSource) throws IOException {
         out(renderer.subsectionHeading("Source code", "subtitle"));
         out(renderer.beginSource(SyntaxHighlightHelper.isDarkTheme));
+        // highlighting only depends on the source text, so it is done in the background
+        out(pageExecutor.submit(() -> renderSourceContent(source, nedSource)));
+        out(renderer.endSource());
+    }
 
+    protected String renderSourceContent(String source, boolean nedSource) {
+        StringBuilder result = new StringBuilder();
         org.eclipse.jface.text.Document document = new org.eclipse.jface.text.Document(source);
         ITokenScanner partitioner = nedSource ? new NedSyntaxHighlightPartitionScanner() : new MsgSyntaxHighlightPartitionScanner();
         partitioner.setRange(document, 0, document.getLength());
@@ -2334,13 +2588,13 @@ public class DocumentationGenerator {
 
             if (token.isEOF()) {
                 if (buffer.length() != 0)
-                    generateSourcePartition(scanner, buffer.toString());
+                    generateSourcePartition(result, scanner, buffer.toString());
 
                 break;
             }
 
             if (bufferTokenData != data && buffer.length() != 0) {
-                generateSourcePartition(scanner, buffer.toString());
+                generateSourcePartition(result, scanner, buffer.toString());
                 buffer = new StringBuffer();
                 bufferTokenData = null;
             }
@@ -2368,10 +2622,10 @@ public class DocumentationGenerator {
             }
         }
 
-        out(renderer.endSource());
+        return result.toString();
     }
 
-    protected void generateSourcePartition(ITokenScanner scanner, String source) throws IOException {
+    protected void generateSourcePartition(StringBuilder result, ITokenScanner scanner, String source) {
         org.eclipse.jface.text.Document partition = new org.eclipse.jface.text.Document(source);
         scanner.setRange(partition, 0, source.length());
         StringBuffer buffer = new StringBuffer();
@@ -2382,7 +2636,7 @@ public class DocumentationGenerator {
 
             if (token.isEOF()) {
                 if (buffer.length() != 0)
-                    out(renderer.styled(StringEscapeUtils.escapeHtml4(buffer.toString()), null, (TextAttribute)bufferTokenData));
+                    result.append(renderer.styled(StringEscapeUtils.escapeHtml4(buffer.toString()), null, (TextAttribute)bufferTokenData));
 
                 break;
             }
@@ -2390,7 +2644,7 @@ public class DocumentationGenerator {
             Object data = token.getData();
 
             if (bufferTokenData != data && buffer.length() != 0) {
-                out(renderer.styled(StringEscapeUtils.escapeHtml4(buffer.toString()), null, (TextAttribute)bufferTokenData));
+                result.append(renderer.styled(StringEscapeUtils.escapeHtml4(buffer.toString()), null, (TextAttribute)bufferTokenData));
                 buffer = new StringBuffer();
                 bufferTokenData = null;
             }
@@ -2406,8 +2660,13 @@ public class DocumentationGenerator {
         if (dotExecutablePath == null || !new File(dotExecutablePath).exists())
             throw new IllegalStateException("The GraphViz Dot executable path is invalid, set it using Window/Preferences...\nThe currently set path is: " + dotExecutablePath);
 
-        // dot has a width/height limit of 32768 pixels, see bug #149.
-        ProcessUtils.exec(dotExecutablePath, new String[] {"-T" + format, "-o", outputFile.toString()}, ".", dot.toString(), 10, monitor);
+        // the page only refers to the output file, so dot is run in the background
+        String input = dot.toString();
+        pendingTasks.add(dotExecutor.submit(() -> {
+            // dot has a width/height limit of 32768 pixels, see bug #149.
+            ProcessUtils.exec(dotExecutablePath, new String[] {"-T" + format, "-o", outputFile.toString()}, ".", input, 10, monitor);
+            return null;
+        }));
     }
 
     protected String getParamTypeAsString(ParamElementEx param) {
@@ -2518,14 +2777,18 @@ public class DocumentationGenerator {
         if (monitor.isCanceled())
             throw new CancellationException();
 
-        currentOutputStream.write(string.getBytes("UTF-8"));
+        currentPage.append(string);
     }
 
     protected void out(byte[] data) throws IOException {
+        out(new String(data, "UTF-8"));
+    }
+
+    protected void out(Future<String> content) throws IOException {
         if (monitor.isCanceled())
             throw new CancellationException();
 
-        currentOutputStream.write(data);
+        currentPage.append(content);
     }
 
     protected void outMapReference(INedTypeElement model, NedEditPart editPart, String tooltip) throws IOException {
@@ -2639,6 +2902,46 @@ public class DocumentationGenerator {
         public void run() throws Exception;
     }
 
+    /**
+     * The content of an output file. Parts of it may still be computed in the
+     * background; they are waited for when the file is written out.
+     */
+    protected static class PageBuffer {
+        private List<Object> parts = new ArrayList<Object>(); // String or Future<String>
+        private StringBuilder lastPart = new StringBuilder();
+
+        public void append(String string) {
+            lastPart.append(string);
+        }
+
+        public void append(Future<String> content) {
+            parts.add(lastPart.toString());
+            parts.add(content);
+            lastPart = new StringBuilder();
+        }
+
+        @SuppressWarnings("unchecked")
+        public void writeTo(File file) throws Exception {
+            parts.add(lastPart.toString());
+            lastPart = new StringBuilder();
+
+            try (Writer writer = new OutputStreamWriter(new BufferedOutputStream(new FileOutputStream(file)), "UTF-8")) {
+                for (Object part : parts) {
+                    if (part instanceof String)
+                        writer.write((String)part);
+                    else {
+                        try {
+                            writer.write(((Future<String>)part).get());
+                        }
+                        catch (ExecutionException e) {
+                            throw e.getCause() instanceof Exception ? (Exception)e.getCause() : e;
+                        }
+                    }
+                }
+            }
+        }
+    }
+
     protected class DotGraph {
         StringBuffer buffer = new StringBuffer();
         Set<ITypeElement> nodes = new LinkedHashSet<ITypeElement>();
@@ -80,6 +80,8 @@ public class GeneratorConfigurationDialog
     private Button generateDoxy;
     private Button doxySourceBrowser;
 
+    private Button incrementalMode;
+
     private Text excludedDirs;
     private Text extensionFilePath;
     private Text outputDirectoryPath;
@@ -283,6 +285,9 @@ public class GeneratorConfigurationDialog
         label = new Label(group, SWT.NONE);
         label.setLayoutData(new GridData(SWT.FILL, SWT.CENTER, true, false, 2, 1));
         label.setText("   Note: other Doxygen options can be configured in the Doxygen configuration file");
+
+        incrementalMode = createCheckbox(group, "Incremental generation (only regenerate changed pages)", configuration.incrementalMode);
+        incrementalMode.setLayoutData(new GridData(SWT.FILL, SWT.CENTER, true, false, 2, 1));
     }
 
     private Button createCheckbox(Composite parent, String label, boolean initialSelection) {
@@ -374,6 +379,8 @@ public class GeneratorConfigurationDialog
         configuration.generateDoxy = generateDoxy.getSelection();
         configuration.cppSourceListings = doxySourceBrowser.getSelection();
 
+        configuration.incrementalMode = incrementalMode.getSelection();
+
         Object[] selectedElements = selectedProjects.getCheckedElements();
         configuration.projects = new IProject[selectedElements.length];
         System.arraycopy(selectedElements, 0, configuration.projects, 0, selectedElements.length);
@@ -414,6 +421,7 @@ public class GeneratorConfigurationDialog
             generator.setGenerateDoxy(configuration.generateDoxy);
             generator.setGenerateCppSourceListings(configuration.cppSourceListings);
             generator.setExcludedDirs(configuration.excludedDirs);
+            generator.setIncrementalMode(configuration.incrementalMode);
 
             if (StringUtils.isNotBlank(configuration.extensionFilePath))
                 generator.setExtensionFilePath(new Path(configuration.extensionFilePath));
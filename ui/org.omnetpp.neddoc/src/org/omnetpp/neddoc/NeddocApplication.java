@@ -158,6 +158,11 @@ public class NeddocApplication implements IApplication {
                 "Include C++ file listings in the Doxygen documentation");
         printOption("--no-cpp-source-files",
                 "Do not include C++ file listings in the Doxygen documentation (default)");
+        printOption("--incremental",
+                "Only regenerate the pages and diagrams whose content changed since the previous run "
+                + "into the same output directory");
+        printOption("--no-incremental",
+                "Regenerate the whole documentation (default)");
         printOption("--verbose",
                 "Print out progress report");
         printOption("-x <excluded_directories>",
@@ -194,6 +199,7 @@ public class NeddocApplication implements IApplication {
         generator.setAutomaticHyperlinking(getBoolOption(switchOptions, "automatic-hyperlinks", true));
         generator.setGenerateDoxy(getBoolOption(switchOptions, "doxygen", false));
         generator.setGenerateCppSourceListings(getBoolOption(switchOptions, "cpp-source-files", false));
+        generator.setIncrementalMode(getBoolOption(switchOptions, "incremental", false));
         generator.setVerboseMode(getBoolOption(switchOptions, "verbose", false));
     }
     
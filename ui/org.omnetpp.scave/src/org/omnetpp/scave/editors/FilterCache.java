@@ -1,25 +1,64 @@
 package org.omnetpp.scave.editors;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
+import org.omnetpp.common.Debug;
+import org.omnetpp.scave.ScavePlugin;
+import org.omnetpp.scave.engine.FileRunList;
 import org.omnetpp.scave.engine.IDList;
+import org.omnetpp.scave.engine.IDListBuffer;
+import org.omnetpp.scave.engine.ResultFile;
+import org.omnetpp.scave.engine.ResultFileList;
 import org.omnetpp.scave.engine.ResultFileManager;
 import org.omnetpp.scave.model2.ScaveModelUtil;
 
 /**
  * Result filtering cache for methods of ResultProvider.
+ * Thread-safe, as it is also filled from background jobs (see ChartPrefetchJob).
+ *
+ * Filter results are stored broken down by result file. When result files
+ * are loaded or unloaded (i.e. the serial of the ResultFileManager changes),
+ * entries are not discarded but patched: the part belonging to unloaded or
+ * changed files is dropped, and the filter is evaluated on the items of the
+ * newly loaded files only, when the entry is next requested.
+ *
+ * The cache can be saved to and restored from a file. IDs are not stable
+ * across sessions, so they are stored relative to their result file, and
+ * only restored for files that are unchanged (same path, size and mtime).
  *
  * @author andras
  */
 public class FilterCache {
+    private static final boolean debug = false;
+
+    private static final int FILE_FORMAT_VERSION = 1;
+    private static final int MAX_PERSISTED_IDS = 10_000_000; // don't write huge files
+
+    // ID bits holding the position of the FileRun in ResultFileManager (see resultfilemanager.h)
+    private static final int FILERUNID_SHIFT = 32;
+    private static final long FILERUNID_MASK = 0xFFFFFL << FILERUNID_SHIFT;
+
     private ResultFileManager manager;
     private int currentSerial;
+    private File persistenceFile; // may be null
 
     private static class Key {
         private int resultTypes;
         private String filterExpression; // may include isfield and type filters, based on UI state
-        private boolean includeFields;   // is false if resultTypes doesn't include SCALAR 
+        private boolean includeFields;   // is false if resultTypes doesn't include SCALAR
 
         /** includeFields is ignored if resultTypes doesn't include SCALAR. */
         public Key(int resultTypes, String filterExpression, boolean includeFields) {
@@ -49,40 +88,340 @@ public class FilterCache {
         }
     }
 
-    private Map<Key,IDList> filterCache = new HashMap<>();
+    /**
+     * Identifies the content of a loaded result file.
+     */
+    private static class FileKey {
+        final String path;
+        final long size;
+        final long lastModified;
+
+        FileKey(String path, long size, long lastModified) {
+            this.path = path;
+            this.size = size;
+            this.lastModified = lastModified;
+        }
+
+        FileKey(ResultFile file) {
+            this(file.getFilePath(), file.getFileSize(), file.getModificationTime());
+        }
+
+        @Override
+        public int hashCode() {
+            return path.hashCode() + 31 * Long.hashCode(size) + 63 * Long.hashCode(lastModified);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj)
+                return true;
+            if (obj == null || getClass() != obj.getClass())
+                return false;
+            FileKey other = (FileKey) obj;
+            return path.equals(other.path) && size == other.size && lastModified == other.lastModified;
+        }
+    }
+
+    /**
+     * The filter result for one Key: matching IDs per result file.
+     */
+    private static class Entry {
+        Map<FileKey,IDList> perFile = new LinkedHashMap<>();
+        IDList combined; // union of perFile; null if needs to be recomputed
+    }
+
+    /**
+     * Filter results restored from file, but not yet turned into Entries,
+     * because the result files may not have been loaded at that time.
+     * Values are IDs with the FileRun ID bits replaced by the index of the
+     * FileRun within the result file.
+     */
+    private Map<Key,Map<FileKey,long[]>> persistedEntries = new HashMap<>();
+
+    private Map<Key,Entry> filterCache = new HashMap<>();
+
+    private Map<FileKey,ResultFile> loadedFiles = new HashMap<>(); // as of currentSerial
 
     public FilterCache(ResultFileManager manager) {
         this.manager = manager;
         this.currentSerial = manager.getSerial();
+        this.loadedFiles = collectLoadedFiles();
+    }
+
+    private Map<FileKey,ResultFile> collectLoadedFiles() {
+        Map<FileKey,ResultFile> result = new LinkedHashMap<>();
+        ResultFileList files = manager.getFiles();
+        for (int i = 0; i < files.size(); i++) {
+            ResultFile file = files.get(i);
+            result.put(new FileKey(file), file);
+        }
+        return result;
     }
 
-    private void checkSerial() {
+    private synchronized void checkSerial() {
         if (currentSerial != manager.getSerial()) {
-            filterCache.clear();
+            loadedFiles = collectLoadedFiles();
             currentSerial = manager.getSerial();
+
+            // drop per-file results of files that are no longer loaded (or were reloaded)
+            for (Entry entry : filterCache.values()) {
+                boolean changed = entry.perFile.entrySet().removeIf(e -> !loadedFiles.containsKey(e.getKey()) || manager.hasStaleID(e.getValue()));
+                if (changed)
+                    entry.combined = null;
+            }
+        }
+    }
+
+    /**
+     * Brings the entry up to date with the set of loaded files, by evaluating
+     * the filter on the items of files it does not cover yet.
+     */
+    private void patchEntry(Key key, Entry entry) {
+        for (Map.Entry<FileKey,ResultFile> e : loadedFiles.entrySet()) {
+            if (!entry.perFile.containsKey(e.getKey())) {
+                IDList items = getItemsInFile(e.getValue(), key.resultTypes, key.includeFields);
+                IDList matching = items.isEmpty() ? items : manager.filterIDList(items, key.filterExpression);
+                if (debug)
+                    Debug.println("FilterCache: " + key + " patched with " + matching.size() + " items of " + e.getKey().path);
+                entry.perFile.put(e.getKey(), matching);
+                entry.combined = null;
+            }
         }
+        if (entry.combined == null) {
+            IDListBuffer buffer = new IDListBuffer();
+            for (IDList ids : entry.perFile.values())
+                buffer.append(ids);
+            entry.combined = buffer.toIDList();
+        }
+    }
+
+    private IDList getItemsInFile(ResultFile file, int resultTypes, boolean includeFields) {
+        return manager.getItems(manager.getFileRunsInFile(file), resultTypes, includeFields);
     }
 
-    public IDList getFilterResult(int resultTypes, String filterExpression, boolean includeFields) {
+    public synchronized IDList getFilterResult(int resultTypes, String filterExpression, boolean includeFields) {
         checkSerial();
-        return filterCache.get(new Key(resultTypes, filterExpression, includeFields));
+        Key key = new Key(resultTypes, filterExpression, includeFields);
+        Entry entry = filterCache.get(key);
+        if (entry == null) {
+            entry = restorePersistedEntry(key);
+            if (entry == null)
+                return null;
+            filterCache.put(key, entry);
+        }
+        patchEntry(key, entry);
+        return entry.combined;
     }
 
     public IDList getFilterResult(int resultTypes, String filterExpression) {
         return getFilterResult(resultTypes, filterExpression, false);
     }
 
-    public void putFilterResult(int resultTypes, String filterExpression, boolean includeFields, IDList result) {
+    public synchronized void putFilterResult(int resultTypes, String filterExpression, boolean includeFields, IDList result) {
         checkSerial();
-        filterCache.put(new Key(resultTypes, filterExpression, includeFields), result);
+        Key key = new Key(resultTypes, filterExpression, includeFields);
+        Entry entry = new Entry();
+        if (loadedFiles.size() == 1)
+            entry.perFile.put(loadedFiles.keySet().iterator().next(), result);
+        else {
+            // break down by file
+            for (Map.Entry<FileKey,ResultFile> e : loadedFiles.entrySet()) {
+                IDList items = getItemsInFile(e.getValue(), key.resultTypes, key.includeFields);
+                entry.perFile.put(e.getKey(), result.intersect(items));
+            }
+        }
+        entry.combined = result; // keep original order
+        filterCache.put(key, entry);
+        persistedEntries.remove(key);
     }
 
     public void putFilterResult(int resultTypes, String filterExpression, IDList result) {
         putFilterResult(resultTypes, filterExpression, false, result);
     }
 
-    public void clear() {
+    public synchronized void clear() {
         filterCache.clear();
+        persistedEntries.clear();
+    }
+
+    /**
+     * Sets the file used by load() and save().
+     */
+    public synchronized void setPersistenceFile(File file) {
+        this.persistenceFile = file;
+    }
+
+    /**
+     * Returns the FileRun ID of each FileRun in the file (-1 for empty ones), in order.
+     */
+    private int[] getFileRunIds(ResultFile file) {
+        FileRunList fileRuns = manager.getFileRunsInFile(file);
+        int[] result = new int[(int)fileRuns.size()];
+        for (int i = 0; i < result.length; i++) {
+            IDList ids = manager.getItemsInFileRun(fileRuns.get(i), false);
+            result[i] = ids.isEmpty() ? -1 : (int)((ids.get(0) & FILERUNID_MASK) >>> FILERUNID_SHIFT);
+        }
+        return result;
+    }
+
+    private Entry restorePersistedEntry(Key key) {
+        Map<FileKey,long[]> persisted = persistedEntries.remove(key);
+        if (persisted == null)
+            return null;
+        Entry entry = new Entry();
+        for (Map.Entry<FileKey,long[]> e : persisted.entrySet()) {
+            ResultFile file = loadedFiles.get(e.getKey());
+            if (file == null)
+                continue; // not loaded, or changed since
+            int[] fileRunIds = getFileRunIds(file);
+            IDListBuffer buffer = new IDListBuffer();
+            boolean ok = true;
+            for (long localId : e.getValue()) {
+                int index = (int)((localId & FILERUNID_MASK) >>> FILERUNID_SHIFT);
+                if (index >= fileRunIds.length || fileRunIds[index] == -1) {
+                    ok = false;
+                    break;
+                }
+                buffer.add((localId & ~FILERUNID_MASK) | ((long)fileRunIds[index] << FILERUNID_SHIFT));
+            }
+            if (ok)
+                entry.perFile.put(e.getKey(), buffer.toIDList());
+        }
+        if (debug)
+            Debug.println("FilterCache: " + key + " restored for " + entry.perFile.size() + " files");
+        return entry;
+    }
+
+    /**
+     * Reads the cache content saved by an earlier save() call. Entries are
+     * restored lazily, on the first lookup.
+     */
+    public synchronized void load() {
+        if (persistenceFile == null || !persistenceFile.isFile())
+            return;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(new FileInputStream(persistenceFile))))) {
+            if (in.readInt() != FILE_FORMAT_VERSION)
+                return;
+            int numEntries = in.readInt();
+            for (int i = 0; i < numEntries; i++) {
+                Key key = new Key(in.readInt(), in.readUTF(), in.readBoolean());
+                int numFiles = in.readInt();
+                Map<FileKey,long[]> perFile = new LinkedHashMap<>();
+                for (int j = 0; j < numFiles; j++) {
+                    FileKey fileKey = new FileKey(in.readUTF(), in.readLong(), in.readLong());
+                    long[] localIds = new long[in.readInt()];
+                    long prev = 0;
+                    for (int k = 0; k < localIds.length; k++)
+                        localIds[k] = prev = prev + readVarLong(in);
+                    perFile.put(fileKey, localIds);
+                }
+                persistedEntries.put(key, perFile);
+            }
+        }
+        catch (IOException | RuntimeException e) {
+            ScavePlugin.logError("Could not read filter cache " + persistenceFile, e);
+            persistedEntries.clear();
+        }
+    }
+
+    /**
+     * Saves the cache content into the persistence file, for use in a later session.
+     */
+    public synchronized void save() {
+        if (persistenceFile == null)
+            return;
+        checkSerial();
+        persistenceFile.getParentFile().mkdirs();
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(new FileOutputStream(persistenceFile))))) {
+            Map<FileKey,int[]> fileRunIdsCache = new HashMap<>();
+            Map<Key,Map<FileKey,long[]>> entries = new LinkedHashMap<>(persistedEntries);
+            long numIds = 0;
+            for (Map.Entry<Key,Entry> e : filterCache.entrySet()) {
+                Map<FileKey,long[]> perFile = new LinkedHashMap<>();
+                for (Map.Entry<FileKey,IDList> f : e.getValue().perFile.entrySet()) {
+                    int[] fileRunIds = fileRunIdsCache.computeIfAbsent(f.getKey(), fileKey -> getFileRunIds(loadedFiles.get(fileKey)));
+                    long[] localIds = toLocalIds(f.getValue(), fileRunIds);
+                    if (localIds != null) {
+                        perFile.put(f.getKey(), localIds);
+                        numIds += localIds.length;
+                    }
+                }
+                entries.put(e.getKey(), perFile);
+                if (numIds > MAX_PERSISTED_IDS)
+                    break;
+            }
+
+            out.writeInt(FILE_FORMAT_VERSION);
+            out.writeInt(entries.size());
+            for (Map.Entry<Key,Map<FileKey,long[]>> e : entries.entrySet()) {
+                Key key = e.getKey();
+                out.writeInt(key.resultTypes);
+                out.writeUTF(key.filterExpression);
+                out.writeBoolean(key.includeFields);
+                out.writeInt(e.getValue().size());
+                for (Map.Entry<FileKey,long[]> f : e.getValue().entrySet()) {
+                    out.writeUTF(f.getKey().path);
+                    out.writeLong(f.getKey().size);
+                    out.writeLong(f.getKey().lastModified);
+                    long[] localIds = f.getValue();
+                    out.writeInt(localIds.length);
+                    long prev = 0;
+                    for (long localId : localIds) {
+                        writeVarLong(out, localId - prev); // sorted, so deltas are nonnegative and small
+                        prev = localId;
+                    }
+                }
+            }
+        }
+        catch (IOException | RuntimeException e) {
+            ScavePlugin.logError("Could not write filter cache " + persistenceFile, e);
+            persistenceFile.delete();
+        }
+    }
+
+    /**
+     * Converts IDs to be relative to their result file, and sorts them.
+     * Returns null if an ID does not belong to the file.
+     */
+    private static long[] toLocalIds(IDList ids, int[] fileRunIds) {
+        int size = ids.size();
+        long[] result = new long[size];
+        for (int i = 0; i < size; i++) {
+            long id = ids.get(i);
+            int fileRunId = (int)((id & FILERUNID_MASK) >>> FILERUNID_SHIFT);
+            int index = indexOf(fileRunIds, fileRunId);
+            if (index == -1)
+                return null;
+            result[i] = (id & ~FILERUNID_MASK) | ((long)index << FILERUNID_SHIFT);
+        }
+        Arrays.sort(result);
+        return result;
+    }
+
+    private static int indexOf(int[] array, int value) {
+        for (int i = 0; i < array.length; i++)
+            if (array[i] == value)
+                return i;
+        return -1;
+    }
+
+    private static void writeVarLong(DataOutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int)((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int)value);
+    }
+
+    private static long readVarLong(DataInputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (long)(b & 0x7F) << shift;
+            if ((b & 0x80) == 0)
+                return value;
+        }
+        throw new IOException("Malformed varint");
     }
 
 }
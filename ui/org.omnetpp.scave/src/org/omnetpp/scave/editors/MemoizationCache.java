@@ -11,7 +11,8 @@ import org.omnetpp.scave.engine.ByteVector;
 import org.omnetpp.scave.engine.ResultFileManager;
 
 /**
- * Memoization cache for methods of ResultProvider.
+ * Memoization cache for methods of ResultProvider. Thread-safe, as chart
+ * scripts run in several Python processes (and background jobs) at once.
  *
  * @author andras
  */
@@ -67,7 +68,7 @@ public class MemoizationCache {
         this.memoryLimit = memoryLimit;
     }
 
-    private void checkSerial() {
+    private synchronized void checkSerial() {
         if (currentSerial != rfm.getSerial()) {
             cache.clear();
             memoryUsed = 0;
@@ -75,12 +76,12 @@ public class MemoizationCache {
         }
     }
 
-    public boolean contains(Key key) {
+    public synchronized boolean contains(Key key) {
         checkSerial();
         return cache.containsKey(key);
     }
 
-    public List<ByteVector> get(Key key) {
+    public synchronized List<ByteVector> get(Key key) {
         checkSerial();
         return cache.get(key);
     }
@@ -89,7 +90,7 @@ public class MemoizationCache {
         return replySize <= memoryLimit;
     }
 
-    public void put(Key key, ByteVector reply) {
+    public synchronized void put(Key key, ByteVector reply) {
         // note: using this API, memory consumption can temporarily exceed memoryLimit
         checkSerial();
         Assert.isTrue(reply.size() <= memoryLimit);
@@ -99,7 +100,7 @@ public class MemoizationCache {
             discardFirst();
     }
 
-    public void put(Key key, List<ByteVector> reply) {
+    public synchronized void put(Key key, List<ByteVector> reply) {
         // note: using this API, memory consumption can temporarily exceed memoryLimit
         checkSerial();
         long totalSize = 0;
@@ -118,7 +119,7 @@ public class MemoizationCache {
         cache.remove(entry.getKey());
     }
 
-    public void clear() {
+    public synchronized void clear() {
         cache.clear();
         memoryUsed = 0;
     }
@@ -7,6 +7,7 @@
 
 package org.omnetpp.scave.editors;
 
+import java.io.File;
 import java.io.IOException;
 import java.lang.reflect.Field;
 import java.util.ArrayList;
@@ -32,6 +33,7 @@ import org.eclipse.core.runtime.IPath;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.NullProgressMonitor;
 import org.eclipse.core.runtime.Path;
+import org.eclipse.core.runtime.jobs.Job;
 import org.eclipse.jface.action.IMenuListener;
 import org.eclipse.jface.action.IMenuManager;
 import org.eclipse.jface.action.IStatusLineManager;
@@ -103,6 +105,7 @@ import org.omnetpp.common.ui.LocalTransfer;
 import org.omnetpp.common.ui.MultiPageEditorPartExt;
 import org.omnetpp.common.ui.ViewerDragAdapter;
 import org.omnetpp.common.util.DetailedPartInitException;
+import org.omnetpp.common.util.DisplayUtils;
 import org.omnetpp.common.util.ReflectionUtils;
 import org.omnetpp.common.util.StringUtils;
 import org.omnetpp.common.util.UIUtils;
@@ -120,6 +123,7 @@ import org.omnetpp.scave.editors.ui.FormEditorPage;
 import org.omnetpp.scave.editors.ui.InputsPage;
 import org.omnetpp.scave.engine.ResultFileManager;
 import org.omnetpp.scave.engineext.ResultFileManagerEx;
+import org.omnetpp.scave.jobs.ChartPrefetchJob;
 import org.omnetpp.scave.model.Analysis;
 import org.omnetpp.scave.model.AnalysisItem;
 import org.omnetpp.scave.model.Chart;
@@ -135,6 +139,7 @@ import org.omnetpp.scave.model.commands.CommandStack;
 import org.omnetpp.scave.model.commands.SetChartContentsCommand;
 import org.omnetpp.scave.model2.ResultItemRef;
 import org.omnetpp.scave.model2.ScaveModelUtil;
+import org.omnetpp.scave.preferences.ScavePreferenceConstants;
 import org.omnetpp.scave.pychart.PythonProcessPool;
 import org.omnetpp.scave.python.ChartViewerBase;
 import org.omnetpp.scave.python.NativeChartViewer;
@@ -265,6 +270,11 @@ public class ScaveEditor extends MultiPageEditorPartExt
      */
     private FilterCache filterCache;
 
+    /**
+     * Warms up filterCache and memoizationCache in the background.
+     */
+    private ChartPrefetchJob prefetchJob;
+
     /**
      * The constructor.
      */
@@ -323,6 +333,17 @@ public class ScaveEditor extends MultiPageEditorPartExt
     @Override
     public void dispose() {
 
+        if (prefetchJob != null) {
+            prefetchJob.cancel();
+            try {
+                prefetchJob.join(); // it may be using the manager which we delete below
+            }
+            catch (InterruptedException e) {
+                ScavePlugin.logError(e);
+            }
+            prefetchJob = null;
+        }
+
         processPool.dispose();
 
         if (tracker != null)
@@ -339,6 +360,9 @@ public class ScaveEditor extends MultiPageEditorPartExt
 
         getSite().setSelectionProvider(null);
 
+        if (filterCache != null && manager != null)
+            filterCache.save(); // must be done while the manager still exists
+
         if (manager != null) {
             manager.delete(); // ensure that memory is freed even if the ScaveEditor object or parts of it are leaked
             manager = null;
@@ -487,10 +511,40 @@ public class ScaveEditor extends MultiPageEditorPartExt
         tracker = new ResultFilesTracker(manager, analysis.getInputs(), inputFile.getParent());
         memoizationCache = new MemoizationCache(manager);
         filterCache = new FilterCache(manager);
+        filterCache.setPersistenceFile(getFilterCacheFile(inputFile));
+        filterCache.load();
+        prefetchJob = new ChartPrefetchJob(manager, filterCache, memoizationCache, inputFile.getParent().getLocation().toFile());
         analysis.addListener(this);
         analysis.addListener(tracker);
     }
 
+    /**
+     * Returns the file that stores the filter cache of the given analysis
+     * between sessions. It is in the plugin state area, not in the workspace.
+     */
+    protected static File getFilterCacheFile(IFile anfFile) {
+        String name = String.format("%08x", anfFile.getFullPath().toString().hashCode()) + ".filtercache";
+        return ScavePlugin.getDefault().getStateLocation().append("filtercache").append(name).toFile();
+    }
+
+    /**
+     * (Re)starts prefetching the data of the charts of the analysis in the
+     * background, the selected charts first.
+     */
+    protected void schedulePrefetch() {
+        if (prefetchJob == null || analysis == null)
+            return;
+        IPreferenceStore preferences = ScavePlugin.getDefault().getPreferenceStore();
+        if (!preferences.getBoolean(ScavePreferenceConstants.PREFETCH_CHART_DATA))
+            return;
+        List<Chart> selectedCharts = editorSelection instanceof IStructuredSelection ?
+                ScaveModelUtil.getChartsFromSelection((IStructuredSelection)editorSelection) : new ArrayList<>();
+        prefetchJob.cancel();
+        prefetchJob.setCharts(selectedCharts, ScaveModelUtil.collectCharts(analysis.getRootFolder()));
+        prefetchJob.setPreRunScripts(preferences.getBoolean(ScavePreferenceConstants.PRERUN_CHART_SCRIPTS));
+        prefetchJob.schedule(500);
+    }
+
     protected void doCreatePages() {
         // add fixed pages: Inputs, Browse Data, Charts
         FillLayout layout = new FillLayout();
@@ -950,6 +1004,8 @@ public class ScaveEditor extends MultiPageEditorPartExt
                 }
                 updateStatusLineManager(getEditorSite().getActionBars().getStatusLineManager(), selection);
                 actions.updateActions();
+                if (prefetchJob != null && prefetchJob.getState() != Job.NONE)
+                    schedulePrefetch(); // reprioritize
                 Debug.println("selection changed: " + selection);
                 fireSelectionChangedEvent(selection);
             } finally {
@@ -1213,6 +1269,9 @@ public class ScaveEditor extends MultiPageEditorPartExt
 
         firePropertyChange(ISaveablePart2.PROP_DIRTY);
 
+        if (ScaveModelUtil.isChartChange(event))
+            schedulePrefetch();
+
         //TODO temp chart name changes currently do not propagate to the tabitem text, as we do not receive model change notification about their change!
 
         // close pages whose content was deleted, except temporary charts
@@ -1486,6 +1545,8 @@ public class ScaveEditor extends MultiPageEditorPartExt
         if (analysis != null) {
             doCreatePages();
             showPythonExecutionWarningDialogIfNeeded();
+            tracker.addChangeListener(event -> DisplayUtils.runNowOrAsyncInUIThread(() -> schedulePrefetch()));
+            schedulePrefetch();
         }
         else {
             addFixedPage(new FormEditorPage(getContainer(), SWT.NONE, this) {
@@ -9,15 +9,31 @@ package org.omnetpp.scave.editors.ui;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 
 import org.apache.commons.lang3.StringUtils;
 import org.eclipse.jface.preference.IPreferenceStore;
-import org.omnetpp.common.engine.JavaMatchableObject;
+import org.eclipse.swt.graphics.GC;
+import org.omnetpp.common.engine.MeasureTextFunctor;
 import org.omnetpp.common.engine.QuantityFormatter;
 import org.omnetpp.common.engineext.IMatchableObject;
+import org.omnetpp.common.util.Triplet;
 import org.omnetpp.scave.ScavePlugin;
 
+/**
+ * Stores the quantity formatting rules, and resolves the formatter for the objects
+ * (e.g. data table cells) to be formatted.
+ *
+ * Resolution is memoized: the rules are analyzed once to find the attributes their
+ * match expressions refer to, and the values of those attributes (along with the
+ * available width and precision) form the key of a formatter cache. So formatting a
+ * cell normally costs a single hash lookup, and cells that end up with the same
+ * rule and layout share the same formatter instance. Cached formatters must not be
+ * modified. The cache is invalidated when the rules change. Must be used from the
+ * UI thread.
+ */
 public class QuantityFormatterRegistry
 {
     private static final String PREFIX = "QuantityFormattingRule.";
@@ -27,13 +43,53 @@ public class QuantityFormatterRegistry
     private static final String MATCH_EXPRESSION = "matchExpression";
     private static final String TEST_INPUT = "testInput";
 
-    private static final QuantityFormatter FALLBACK_FORMATTER = new QuantityFormatter(QuantityFormattingRule.makeDefaultOptions());
+    private static final int MAX_CACHE_SIZE = 100000;
 
     private static QuantityFormatterRegistry instance;
 
-    private JavaMatchableObject javaMatchableObject = new JavaMatchableObject();
     private ArrayList<QuantityFormattingRule> rules = new ArrayList<QuantityFormattingRule>();
 
+    // formatter cache, see invalidateCache()
+    private String[] referencedAttributes = null; // union over all rules, null element stands for getAsString(); null means not yet calculated
+    private HashMap<CacheKey, QuantityFormatter> formatterCache = new HashMap<CacheKey, QuantityFormatter>();
+    private HashMap<Triplet<Integer, Integer, Integer>, QuantityFormatter> ruleFormatters = new HashMap<Triplet<Integer, Integer, Integer>, QuantityFormatter>(); // (rule index, pixels, precision) -> formatter
+    private QuantityFormatter.Options fallbackOptions = QuantityFormattingRule.makeDefaultOptions();
+    private GC measureGC; // the GC the text of the current cell will be drawn with
+    private MeasureTextFunctor measureTextFunctor = new MeasureTextFunctor() {
+        @Override
+        public int call(String text) {
+            return measureGC.textExtent(text).x;
+        }
+    };
+
+    private static final class CacheKey {
+        private final String[] attributeValues;
+        private final int numAvailablePixels;
+        private final int preferredPrecision;
+        private final int hashCode;
+
+        public CacheKey(String[] attributeValues, int numAvailablePixels, int preferredPrecision) {
+            this.attributeValues = attributeValues;
+            this.numAvailablePixels = numAvailablePixels;
+            this.preferredPrecision = preferredPrecision;
+            this.hashCode = 31 * (31 * Arrays.hashCode(attributeValues) + numAvailablePixels) + preferredPrecision;
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof CacheKey))
+                return false;
+            CacheKey key = (CacheKey)other;
+            return hashCode == key.hashCode && numAvailablePixels == key.numAvailablePixels && preferredPrecision == key.preferredPrecision &&
+                   Arrays.equals(attributeValues, key.attributeValues);
+        }
+    }
+
     public static QuantityFormatterRegistry getInstance() {
         if (instance == null)
             instance = new QuantityFormatterRegistry();
@@ -55,12 +111,67 @@ public class QuantityFormatterRegistry
         return Arrays.asList(new QuantityFormattingRule[] { QuantityFormattingRule.makeDefaultRule() });
     }
 
-    public QuantityFormatter getQuantityFormatter(IMatchableObject matchableObject) {
-        javaMatchableObject.setJavaObject(matchableObject);
+    /**
+     * Returns the formatter of the first rule matching the given object, configured for the given
+     * number of pixels (Integer.MAX_VALUE for unlimited) and precision. Text is measured with the
+     * given GC, so the returned formatter should only be used until the next call. It is shared,
+     * and it must not be modified.
+     */
+    public QuantityFormatter getQuantityFormatter(IMatchableObject matchableObject, GC gc, int numAvailablePixels, int preferredPrecision) {
+        measureGC = gc;
+        if (referencedAttributes == null)
+            referencedAttributes = collectReferencedAttributes();
+        String[] attributeValues = new String[referencedAttributes.length];
+        for (int i = 0; i < referencedAttributes.length; i++) {
+            String attribute = referencedAttributes[i];
+            attributeValues[i] = attribute == null ? matchableObject.getAsString() : matchableObject.getAsString(attribute);
+        }
+        CacheKey key = new CacheKey(attributeValues, numAvailablePixels, preferredPrecision);
+        QuantityFormatter formatter = formatterCache.get(key);
+        if (formatter == null) {
+            formatter = getRuleFormatter(findMatchingRule(matchableObject), numAvailablePixels, preferredPrecision);
+            if (formatterCache.size() >= MAX_CACHE_SIZE)
+                formatterCache.clear();
+            formatterCache.put(key, formatter);
+        }
+        return formatter;
+    }
+
+    /**
+     * Discards the cached formatters. Must be called when the rules are modified in place.
+     */
+    public void invalidateCache() {
+        referencedAttributes = null;
+        formatterCache.clear();
+        ruleFormatters.clear();
+    }
+
+    protected int findMatchingRule(IMatchableObject matchableObject) {
+        for (int i = 0; i < rules.size(); i++)
+            if (rules.get(i).matches(matchableObject))
+                return i;
+        return -1;
+    }
+
+    protected QuantityFormatter getRuleFormatter(int ruleIndex, int numAvailablePixels, int preferredPrecision) {
+        Triplet<Integer, Integer, Integer> key = Triplet.triplet(ruleIndex, numAvailablePixels, preferredPrecision);
+        QuantityFormatter formatter = ruleFormatters.get(key);
+        if (formatter == null) {
+            QuantityFormatter.Options options = new QuantityFormatter.Options(ruleIndex == -1 ? fallbackOptions : rules.get(ruleIndex).getOptions());
+            options.setNumAvailablePixels(numAvailablePixels);
+            options.setMeasureTextFromJava(measureTextFunctor);
+            options.setMaxSignificantDigits(Math.max(options.getMinSignificantDigits(), Math.min(options.getNumAccurateDigits(), preferredPrecision)));
+            formatter = new QuantityFormatter(options);
+            ruleFormatters.put(key, formatter);
+        }
+        return formatter;
+    }
+
+    protected String[] collectReferencedAttributes() {
+        LinkedHashSet<String> attributes = new LinkedHashSet<String>();
         for (QuantityFormattingRule rule : rules)
-            if (rule.matches(javaMatchableObject))
-                return new QuantityFormatter(rule.getOptions());
-        return FALLBACK_FORMATTER;
+            attributes.addAll(rule.getReferencedAttributes());
+        return attributes.toArray(new String[attributes.size()]);
     }
 
     public List<QuantityFormattingRule> getRules() {
@@ -70,6 +181,7 @@ public class QuantityFormatterRegistry
     public void setRules(List<QuantityFormattingRule> newRules) {
         rules.clear();
         rules.addAll(newRules);
+        invalidateCache();
     }
 
     public void save(IPreferenceStore store) {
@@ -98,6 +210,7 @@ public class QuantityFormatterRegistry
             QuantityFormatter.Options options = QuantityFormatterUtils.loadFromPreferenceStore(store, prefix, QuantityFormattingRule.makeDefaultOptions());
             rules.add(new QuantityFormattingRule(name, enabled, matchExpression, options, testInput));
         }
+        invalidateCache();
     }
 
 }
@@ -1,11 +1,14 @@
 package org.omnetpp.scave.editors.ui;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import org.eclipse.core.runtime.Assert;
-import org.omnetpp.common.engine.MatchExpression;
-import org.omnetpp.common.engine.MatchExpression.Matchable;
 import org.omnetpp.common.engine.QuantityFormatter;
 import org.omnetpp.common.engine.QuantityFormatter.Options;
 import org.omnetpp.common.engine.UnitConversion;
+import org.omnetpp.common.engineext.IMatchableObject;
+import org.omnetpp.common.util.MatchExpressionCompiler;
 import org.omnetpp.common.util.StringUtils;
 
 /**
@@ -19,7 +22,8 @@ public class QuantityFormattingRule {
     private boolean enabled = true;
     private String expression = "";
     private boolean isExpressionBogus = false;
-    private MatchExpression matcher = null;
+    private MatchExpressionCompiler.IMatcher matcher = null;
+    private List<String> referencedAttributes = new ArrayList<String>(); // see MatchExpressionCompiler.getReferencedAttributes()
     private Options options = null;
     private String testInput = "";
 
@@ -80,15 +84,24 @@ public class QuantityFormattingRule {
         Assert.isNotNull(expression);
         this.expression = expression;
         try {
-            this.matcher = expression.isBlank() || expression.equals("*") ? null : new MatchExpression(expression, false, false, false);
+            this.matcher = expression.isBlank() || expression.equals("*") ? null : MatchExpressionCompiler.compile(expression, false, false, false);
+            this.referencedAttributes = matcher == null ? new ArrayList<String>() : MatchExpressionCompiler.getReferencedAttributes(expression);
             this.isExpressionBogus = false;
         }
         catch (Exception e) {
             this.matcher = null;
+            this.referencedAttributes = new ArrayList<String>();
             this.isExpressionBogus = true;
         }
     }
 
+    /**
+     * The attributes of the matched objects the expression depends on; null stands for the default attribute.
+     */
+    public List<String> getReferencedAttributes() {
+        return referencedAttributes;
+    }
+
     public boolean isCatchAll() {
         return matcher == null;
     }
@@ -97,7 +110,7 @@ public class QuantityFormattingRule {
         return isExpressionBogus;
     }
 
-    public boolean matches(Matchable object) {
+    public boolean matches(IMatchableObject object) {
         return isEnabled() && (matcher == null || matcher.matches(object));
     }
 
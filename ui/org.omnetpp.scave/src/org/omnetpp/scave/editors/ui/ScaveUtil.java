@@ -21,7 +21,6 @@ import org.eclipse.jface.viewers.StyledString;
 import org.eclipse.jface.viewers.StyledString.Styler;
 import org.eclipse.swt.graphics.GC;
 import org.omnetpp.common.Debug;
-import org.omnetpp.common.engine.MeasureTextFunctor;
 import org.omnetpp.common.engine.QuantityFormatter;
 import org.omnetpp.common.engine.QuantityFormatter.Options;
 import org.omnetpp.common.engine.QuantityFormatter.Output;
@@ -69,17 +68,7 @@ public class ScaveUtil {
     }
 
     public static StyledString formatQuantity(double d, String unit, IMatchableObject matchableObject, int preferredPrecision, GC gc, int width, Styler unitStyler, Styler separatorStyler, Styler greyedoutStyler) {
-        QuantityFormatter quantityFormatter = QuantityFormatterRegistry.getInstance().getQuantityFormatter(matchableObject);
-        QuantityFormatter.Options options = quantityFormatter.getOptions();
-        options.setNumAvailablePixels(gc != null ? width : Integer.MAX_VALUE);
-        options.setMeasureTextFromJava(new MeasureTextFunctor() {
-            @Override
-            public int call(String text) {
-                return gc.textExtent(text).x;
-            }
-        });
-        int maxDigits = Math.max(options.getMinSignificantDigits(), Math.min(options.getNumAccurateDigits(), preferredPrecision));
-        options.setMaxSignificantDigits(maxDigits);
+        QuantityFormatter quantityFormatter = QuantityFormatterRegistry.getInstance().getQuantityFormatter(matchableObject, gc, gc != null ? width : Integer.MAX_VALUE, preferredPrecision);
         QuantityFormatter.Output output = quantityFormatter.formatQuantity(d, unit);
         int numChars = output.getText().length();
         if (!output.getFitsIntoAvailableSpace()) {
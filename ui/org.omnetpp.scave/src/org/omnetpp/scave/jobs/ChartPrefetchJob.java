@@ -0,0 +1,202 @@
+/*--------------------------------------------------------------*
+  Copyright (C) 2006-2020 OpenSim Ltd.
+
+  This file is distributed WITHOUT ANY WARRANTY. See the file
+  'License' for details on this and other legal matters.
+*--------------------------------------------------------------*/
+
+package org.omnetpp.scave.jobs;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+import org.omnetpp.common.Debug;
+import org.omnetpp.common.util.StringUtils;
+import org.omnetpp.scave.ScavePlugin;
+import org.omnetpp.scave.editors.ChartProvider;
+import org.omnetpp.scave.editors.FilterCache;
+import org.omnetpp.scave.editors.MemoizationCache;
+import org.omnetpp.scave.editors.ResultsProvider;
+import org.omnetpp.scave.engine.IDList;
+import org.omnetpp.scave.engine.InterruptedFlag;
+import org.omnetpp.scave.engine.ResultFileManager;
+import org.omnetpp.scave.model.Chart;
+import org.omnetpp.scave.pychart.PythonCallerThread.ExceptionHandler;
+import org.omnetpp.scave.pychart.PythonProcess;
+import org.omnetpp.scave.pychart.PythonProcessPool;
+
+/**
+ * Warms up the FilterCache and the MemoizationCache of a ScaveEditor in the
+ * background, so that opening or switching to a chart page does not have to
+ * wait for result filtering (and optionally, for result pickling).
+ *
+ * Charts are processed in priority order: the charts passed in first (i.e.
+ * the selected ones) come first. The filter of each chart is evaluated once
+ * over all result items, and the per-type lists the ResultsProvider looks up
+ * are derived from it. If pre-running is enabled, chart scripts are also
+ * executed on a private Python process without producing any output, which
+ * fills the MemoizationCache with the pickles the script asks for.
+ *
+ * The job is meant to be rescheduled (cancel() + schedule()) whenever the
+ * set of loaded result files or the chart selection changes.
+ *
+ * @author andras
+ */
+public class ChartPrefetchJob extends Job {
+    private static final boolean debug = false;
+
+    private static final int ALL_TYPES = ResultFileManager.PARAMETER | ResultFileManager.SCALAR | ResultFileManager.VECTOR | ResultFileManager.STATISTICS | ResultFileManager.HISTOGRAM;
+
+    private ResultFileManager manager;
+    private FilterCache filterCache;
+    private MemoizationCache memoizationCache;
+    private File chartsDir;
+    private List<Chart> charts = new ArrayList<>(); // clones, in priority order
+    private boolean preRunScripts;
+    private InterruptedFlag interrupted = new InterruptedFlag();
+
+    public ChartPrefetchJob(ResultFileManager manager, FilterCache filterCache, MemoizationCache memoizationCache, File chartsDir) {
+        super("Prefetching chart data");
+        this.manager = manager;
+        this.filterCache = filterCache;
+        this.memoizationCache = memoizationCache;
+        this.chartsDir = chartsDir;
+        setSystem(true);
+        setPriority(Job.DECORATE);
+    }
+
+    /**
+     * Sets the charts to process. Charts in the first list are processed
+     * first, in the given order, followed by the remaining ones. Must be
+     * called from the UI thread, as it clones the charts (the job runs in
+     * another thread, and we don't want locking).
+     */
+    public synchronized void setCharts(List<Chart> priorityCharts, List<Chart> allCharts) {
+        Set<Chart> ordered = new LinkedHashSet<>(priorityCharts);
+        ordered.addAll(allCharts);
+        charts.clear();
+        for (Chart chart : ordered)
+            charts.add((Chart)chart.dup());
+    }
+
+    public void setPreRunScripts(boolean preRunScripts) {
+        this.preRunScripts = preRunScripts;
+    }
+
+    @Override
+    protected void canceling() {
+        interrupted.setFlag(true);
+    }
+
+    @Override
+    protected IStatus run(IProgressMonitor monitor) {
+        interrupted.setFlag(false);
+        List<Chart> chartsToProcess;
+        synchronized (this) {
+            chartsToProcess = new ArrayList<>(charts);
+        }
+
+        try {
+            monitor.beginTask(getName(), chartsToProcess.size() * (preRunScripts ? 2 : 1));
+
+            // first pass: filter results (cheap, benefits every chart)
+            for (Chart chart : chartsToProcess) {
+                if (monitor.isCanceled())
+                    return Status.CANCEL_STATUS;
+                String filter = chart.getPropertyValue("filter");
+                if (!StringUtils.isBlank(filter))
+                    ResultFileManager.runWithReadLock(manager, () -> prefetchFilterResults(filter));
+                monitor.worked(1);
+            }
+
+            // second pass: run chart scripts to get the result pickles memoized
+            if (preRunScripts) {
+                PythonProcessPool processPool = new PythonProcessPool(1);
+                processPool.setShouldSetOmnetppMplBackend(false);
+                try {
+                    for (Chart chart : chartsToProcess) {
+                        if (monitor.isCanceled())
+                            return Status.CANCEL_STATUS;
+                        ResultFileManager.runWithReadLock(manager, () -> preRunChartScript(chart, processPool, monitor));
+                        monitor.worked(1);
+                    }
+                }
+                finally {
+                    processPool.dispose();
+                }
+            }
+            return Status.OK_STATUS;
+        }
+        catch (RuntimeException e) {
+            if (monitor.isCanceled())
+                return Status.CANCEL_STATUS;
+            return ScavePlugin.getErrorStatus(0, "Failed to prefetch chart data", e);
+        }
+        finally {
+            monitor.done();
+        }
+    }
+
+    protected void prefetchFilterResults(String filter) {
+        if (filterCache.getFilterResult(ALL_TYPES, filter) != null)
+            return;
+
+        IDList all = Debug.timed("Prefetching filter results for " + filter, 100, () ->
+            manager.filterIDList(manager.getAllItems(false), filter, -1, interrupted));
+        if (interrupted.getFlag())
+            return; // incomplete result
+
+        // same keys as used by ResultsProvider
+        filterCache.putFilterResult(ALL_TYPES, filter, all);
+        filterCache.putFilterResult(ResultFileManager.PARAMETER, filter, all.filterByTypes(ResultFileManager.PARAMETER));
+        filterCache.putFilterResult(ResultFileManager.SCALAR, filter, all.filterByTypes(ResultFileManager.SCALAR));
+        filterCache.putFilterResult(ResultFileManager.VECTOR, filter, all.filterByTypes(ResultFileManager.VECTOR));
+        filterCache.putFilterResult(ResultFileManager.STATISTICS | ResultFileManager.HISTOGRAM, filter, all.filterByTypes(ResultFileManager.STATISTICS | ResultFileManager.HISTOGRAM));
+        filterCache.putFilterResult(ResultFileManager.HISTOGRAM, filter, all.filterByTypes(ResultFileManager.HISTOGRAM));
+    }
+
+    protected void preRunChartScript(Chart chart, PythonProcessPool processPool, IProgressMonitor monitor) {
+        if (debug)
+            Debug.println("ChartPrefetchJob: pre-running script of chart '" + chart.getName() + "'");
+
+        PythonProcess proc = processPool.getProcess();
+        proc.getEntryPoint().setResultsProvider(new ResultsProvider(manager, proc, memoizationCache, filterCache));
+        proc.getEntryPoint().setChartProvider(new ChartProvider(chart, new HashMap<>())); // no export properties: output is discarded
+
+        final CountDownLatch executionDone = new CountDownLatch(1);
+        Runnable runAfterDone = () -> executionDone.countDown();
+        ExceptionHandler runAfterError = (p, e) -> {
+            // errors will be reported when the chart is actually opened
+            if (debug)
+                Debug.println("ChartPrefetchJob: script of chart '" + chart.getName() + "' failed: " + e.getMessage());
+            executionDone.countDown();
+        };
+
+        proc.pythonCallerThread.asyncExec(() -> {
+            proc.getEntryPoint().execute("import os; os.chdir(r\"\"\"" + chartsDir.getAbsolutePath() + "\"\"\"); del os;");
+            proc.getEntryPoint().execute("import site; site.addsitedir(r\"\"\"" + chartsDir.getAbsolutePath() + "\"\"\"); del site;");
+            proc.getEntryPoint().execute(chart.getUpToDateScript());
+        }, runAfterDone, runAfterError);
+
+        try {
+            // wake up periodically to check for cancellation
+            while (!executionDone.await(100, TimeUnit.MILLISECONDS) && !monitor.isCanceled())
+                ;
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        proc.kill();
+    }
+}
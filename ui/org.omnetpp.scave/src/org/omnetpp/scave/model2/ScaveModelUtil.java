@@ -246,6 +246,11 @@ public class ScaveModelUtil {
         return subject instanceof Inputs || subject instanceof InputFile;
     }
 
+    public static boolean isChartChange(ModelChangeEvent event) {
+        ModelObject subject = event.getSubject();
+        return subject instanceof Chart || subject instanceof Property || subject instanceof Folder || subject instanceof Analysis;
+    }
+
     public static ResultItem[] getResultItems(IDList idlist, ResultFileManager manager) {
         int size = idlist.size();
         ResultItem[] items = new ResultItem[size];
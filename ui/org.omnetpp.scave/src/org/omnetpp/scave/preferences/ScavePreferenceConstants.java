@@ -9,4 +9,8 @@ public class ScavePreferenceConstants {
 
     public final static String PER_LINE_DRAW_TIME_LIMIT_MILLIS = "perLineDrawTimeLimitMillis";
 
+    public final static String PREFETCH_CHART_DATA = "prefetchChartData";
+
+    public final static String PRERUN_CHART_SCRIPTS = "prerunChartScripts";
+
 }
@@ -22,5 +22,7 @@ public class ScavePreferenceInitializer extends AbstractPreferenceInitializer {
         IPreferenceStore store = ScavePlugin.getDefault().getPreferenceStore();
         store.setDefault(ScavePreferenceConstants.TOTAL_DRAW_TIME_LIMIT_MILLIS, 10000);
         store.setDefault(ScavePreferenceConstants.PER_LINE_DRAW_TIME_LIMIT_MILLIS, 2000);
+        store.setDefault(ScavePreferenceConstants.PREFETCH_CHART_DATA, true);
+        store.setDefault(ScavePreferenceConstants.PRERUN_CHART_SCRIPTS, false);
     }
 }
@@ -1,5 +1,6 @@
 package org.omnetpp.scave.preferences;
 
+import org.eclipse.jface.preference.BooleanFieldEditor;
 import org.eclipse.jface.preference.FieldEditorPreferencePage;
 import org.eclipse.jface.preference.IntegerFieldEditor;
 import org.eclipse.ui.IWorkbench;
@@ -31,6 +32,9 @@ public class ScavePreferencePage extends FieldEditorPreferencePage implements IW
         IntegerFieldEditor perLineLimitEditor = new IntegerFieldEditor(ScavePreferenceConstants.PER_LINE_DRAW_TIME_LIMIT_MILLIS, "Per-line drawing time limit (ms):", getFieldEditorParent());
         perLineLimitEditor.setValidRange(1, 99999);
         addField(perLineLimitEditor);
+
+        addField(new BooleanFieldEditor(ScavePreferenceConstants.PREFETCH_CHART_DATA, "Prefetch chart data in the background", getFieldEditorParent()));
+        addField(new BooleanFieldEditor(ScavePreferenceConstants.PRERUN_CHART_SCRIPTS, "Also pre-run chart scripts to cache their results (uses an extra Python process)", getFieldEditorParent()));
     }
 
     /* (non-Javadoc)
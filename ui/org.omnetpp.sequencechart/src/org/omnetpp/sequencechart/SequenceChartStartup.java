@@ -7,6 +7,7 @@
 
 package org.omnetpp.sequencechart;
 
+import java.io.File;
 import java.util.ArrayList;
 
 import org.eclipse.core.resources.IFile;
@@ -27,8 +28,10 @@ import org.eclipse.ui.PlatformUI;
 import org.eclipse.ui.ide.IDE;
 import org.omnetpp.common.util.PersistentResourcePropertyManager;
 import org.omnetpp.ned.core.NedResources;
+import org.omnetpp.sequencechart.editors.SequenceChartBenchmarkJob;
 import org.omnetpp.sequencechart.editors.SequenceChartEditor;
 import org.omnetpp.sequencechart.editors.SequenceChartSelfTestJob;
+import org.omnetpp.sequencechart.editors.SyntheticEventLogGenerator;
 import org.omnetpp.sequencechart.widgets.SequenceChart;
 
 // TODO: test with xvfb in-memory X11 display
@@ -112,6 +115,62 @@ public class SequenceChartStartup implements IStartup {
             };
             testEventLogFolderJob.schedule();
         }
+        String benchmarkFolderPath = System.getenv().get("OPP_SEQUENCE_CHART_BENCHMARK_FOLDER");
+        if (benchmarkFolderPath != null) {
+            Job benchmarkJob = new Job("SequenceChart Benchmark") {
+                @Override
+                protected IStatus run(IProgressMonitor monitor) {
+                    try {
+                        return runBenchmarks(benchmarkFolderPath, monitor);
+                    }
+                    catch (Exception e) {
+                        throw new RuntimeException(e);
+                    }
+                }
+            };
+            benchmarkJob.schedule();
+        }
+    }
+
+    /**
+     * Runs the benchmark on generated eventlogs of the sizes given in OPP_SEQUENCE_CHART_BENCHMARK_SIZES
+     * (number of events, comma-separated). Eventlogs are only generated if missing; baselines and reports
+     * are written next to them. Set OPP_SEQUENCE_CHART_BENCHMARK_UPDATE_BASELINE to overwrite the baselines.
+     */
+    private IStatus runBenchmarks(String benchmarkFolderPath, IProgressMonitor monitor) throws Exception {
+        String sizes = System.getenv().getOrDefault("OPP_SEQUENCE_CHART_BENCHMARK_SIZES", "1000000");
+        boolean updateBaseline = System.getenv().get("OPP_SEQUENCE_CHART_BENCHMARK_UPDATE_BASELINE") != null;
+        ILog log = SequenceChartPlugin.getDefault().getLog();
+        IWorkbench workbench = PlatformUI.getWorkbench();
+        IFolder benchmarkFolder = ResourcesPlugin.getWorkspace().getRoot().getFolder(new Path(benchmarkFolderPath));
+        File benchmarkDirectory = benchmarkFolder.getLocation().toFile();
+        benchmarkDirectory.mkdirs();
+        int numOk = 0;
+        int numFail = 0;
+        for (String size : sizes.split(",")) {
+            long numEvents = Long.parseLong(size.trim());
+            String baseName = "synthetic-" + numEvents;
+            File eventLogFile = new File(benchmarkDirectory, baseName + ".elog");
+            if (!eventLogFile.isFile()) {
+                log.info("SequenceChart benchmark: generating " + eventLogFile);
+                new SyntheticEventLogGenerator().setNumEvents(numEvents).generate(eventLogFile, monitor);
+            }
+            benchmarkFolder.refreshLocal(IResource.DEPTH_ONE, monitor);
+            SequenceChartBenchmarkJob job = new SequenceChartBenchmarkJob(benchmarkFolder.getFile(eventLogFile.getName()),
+                    new File(benchmarkDirectory, baseName + ".report.properties"), new File(benchmarkDirectory, baseName + ".baseline.properties"));
+            job.setUpdateBaseline(updateBaseline);
+            job.schedule();
+            job.join();
+            IStatus status = job.getResult();
+            if (status.isOK())
+                numOk++;
+            else
+                numFail++;
+            log.info("SequenceChart benchmark finished, result = " + status.toString() + ", file = " + eventLogFile);
+        }
+        log.info("SequenceChart benchmark: " + numOk + " PASS, " + numFail + " FAIL");
+        workbench.getDisplay().asyncExec(() -> workbench.close());
+        return numFail == 0 ? Status.OK_STATUS : new Status(Status.ERROR, SequenceChartPlugin.PLUGIN_ID, numFail + " benchmarks failed");
     }
 
     private ArrayList<IFile> collectEventLogFiles(IResource resource) {
@@ -0,0 +1,398 @@
+package org.omnetpp.sequencechart.editors;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.Method;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.IntConsumer;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.runtime.ILog;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.draw2d.SWTGraphics;
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.graphics.GC;
+import org.eclipse.swt.graphics.Image;
+import org.eclipse.swt.layout.FillLayout;
+import org.eclipse.swt.widgets.Display;
+import org.eclipse.swt.widgets.Shell;
+import org.omnetpp.common.eventlog.EventLogFilterParameters;
+import org.omnetpp.common.eventlog.EventLogInput;
+import org.omnetpp.eventlog.EventLog;
+import org.omnetpp.eventlog.IEvent;
+import org.omnetpp.eventlog.IEventLog;
+import org.omnetpp.eventlog.IMessageDependency;
+import org.omnetpp.eventlog.engine.FileReader;
+import org.omnetpp.sequencechart.SequenceChartPlugin;
+import org.omnetpp.sequencechart.widgets.SequenceChart;
+
+/**
+ * Reproducible performance benchmark for the sequence chart and the underlying
+ * eventlog, meant to be run on generated eventlogs (see SyntheticEventLogGenerator).
+ *
+ * The chart is created in a shell that is never opened, and it is painted into
+ * an off-screen image after each step, so the results do not depend on the
+ * window system. Every scenario (goto event, scrolling, zooming, filtering,
+ * cause/consequence tracing) runs a fixed number of steps with a fixed random
+ * seed, and the following are recorded for it: step latency percentiles,
+ * bytes read by the FileReader, number of events parsed, heap growth, and the
+ * allocation rate of the UI thread.
+ *
+ * Results are written into a report file. If a baseline file exists, results
+ * are compared against it, and the job returns an error status listing the
+ * regressions; otherwise (or if requested) the results become the new baseline.
+ * Only latencies and I/O counters are checked, as heap figures are too noisy.
+ */
+public class SequenceChartBenchmarkJob extends Job {
+    private static final int VIEWPORT_WIDTH = 1600;
+    private static final int VIEWPORT_HEIGHT = 1000;
+
+    private IFile eventLogFile;
+    private File reportFile;
+    private File baselineFile;
+    private boolean updateBaseline;
+    private int numSteps = 20;
+    private double latencyTolerance = 0.5; // relative increase of p90 latency accepted
+    private long latencyToleranceMillis = 10; // absolute increase of p90 latency always accepted
+    private double ioTolerance = 0.1; // relative increase of bytes read / events parsed accepted
+
+    // valid while running
+    private Display display;
+    private Shell shell;
+    private SequenceChart sequenceChart;
+    private EventLogInput eventLogInput;
+    private Image image;
+    private Random random;
+
+    private static class Scenario {
+        String name;
+        boolean paint;
+        IntConsumer step; // called with the step index
+
+        Scenario(String name, boolean paint, IntConsumer step) {
+            this.name = name;
+            this.paint = paint;
+            this.step = step;
+        }
+    }
+
+    public SequenceChartBenchmarkJob(IFile eventLogFile, File reportFile, File baselineFile) {
+        super("Sequence Chart Benchmark");
+        this.eventLogFile = eventLogFile;
+        this.reportFile = reportFile;
+        this.baselineFile = baselineFile;
+    }
+
+    public void setUpdateBaseline(boolean updateBaseline) {
+        this.updateBaseline = updateBaseline;
+    }
+
+    public void setNumSteps(int numSteps) {
+        this.numSteps = numSteps;
+    }
+
+    public void setTolerances(double latencyTolerance, long latencyToleranceMillis, double ioTolerance) {
+        this.latencyTolerance = latencyTolerance;
+        this.latencyToleranceMillis = latencyToleranceMillis;
+        this.ioTolerance = ioTolerance;
+    }
+
+    @Override
+    protected IStatus run(IProgressMonitor monitor) {
+        ILog log = SequenceChartPlugin.getDefault().getLog();
+        display = Display.getDefault();
+        random = new Random(1);
+        try {
+            display.syncExec(() -> setUp());
+            List<Scenario> scenarios = createScenarios();
+            monitor.beginTask(getName(), scenarios.size());
+            Properties results = new Properties();
+            for (Scenario scenario : scenarios) {
+                if (monitor.isCanceled())
+                    return Status.CANCEL_STATUS;
+                monitor.subTask(scenario.name);
+                runScenario(scenario, results);
+                log.info("SequenceChart benchmark: " + eventLogFile.getName() + ": " + scenario.name + ": p50=" + results.getProperty(scenario.name + ".p50Millis") +
+                        "ms p90=" + results.getProperty(scenario.name + ".p90Millis") + "ms p99=" + results.getProperty(scenario.name + ".p99Millis") +
+                        "ms bytesRead=" + results.getProperty(scenario.name + ".bytesRead") + " eventsParsed=" + results.getProperty(scenario.name + ".eventsParsed"));
+                monitor.worked(1);
+            }
+            return evaluate(results);
+        }
+        catch (RuntimeException | IOException e) {
+            return new Status(IStatus.ERROR, SequenceChartPlugin.PLUGIN_ID, "Benchmark failed on " + eventLogFile.getName(), e);
+        }
+        finally {
+            display.syncExec(() -> tearDown());
+            monitor.done();
+        }
+    }
+
+    protected void setUp() {
+        shell = new Shell(display);
+        shell.setLayout(new FillLayout());
+        shell.setSize(VIEWPORT_WIDTH, VIEWPORT_HEIGHT);
+        sequenceChart = new SequenceChart(shell, SWT.DOUBLE_BUFFERED);
+        shell.layout(true, true); // note: the shell is never opened
+        String fileName = eventLogFile.getLocation().toOSString();
+        IEventLog eventLog = new EventLog(new FileReader(fileName, 64 * 1024, /* EventLog will delete it */false));
+        eventLogInput = new EventLogInput(eventLogFile, eventLog);
+        sequenceChart.setInput(eventLogInput);
+        image = new Image(display, VIEWPORT_WIDTH, VIEWPORT_HEIGHT);
+    }
+
+    protected void tearDown() {
+        if (sequenceChart != null)
+            sequenceChart.setInput(null);
+        if (eventLogInput != null)
+            eventLogInput.dispose();
+        if (image != null)
+            image.dispose();
+        if (shell != null)
+            shell.dispose();
+        sequenceChart = null;
+        eventLogInput = null;
+        image = null;
+        shell = null;
+    }
+
+    protected List<Scenario> createScenarios() {
+        List<Scenario> scenarios = new ArrayList<Scenario>();
+        scenarios.add(new Scenario("gotoEvent", true, (i) -> {
+            IEvent event = getEventLog().getEventForEventNumber(getRandomEventNumber());
+            if (event != null)
+                sequenceChart.gotoElement(event);
+        }));
+        scenarios.add(new Scenario("gotoBeginEnd", true, (i) -> {
+            if (i % 2 == 0)
+                sequenceChart.gotoBegin();
+            else
+                sequenceChart.gotoEnd();
+        }));
+        scenarios.add(new Scenario("scroll", true, (i) -> {
+            if (i == 0)
+                sequenceChart.gotoBegin();
+            else
+                sequenceChart.scroll(100);
+        }));
+        scenarios.add(new Scenario("zoom", true, (i) -> {
+            if (i < numSteps / 2)
+                sequenceChart.zoomIn();
+            else
+                sequenceChart.zoomOut();
+        }));
+        scenarios.add(new Scenario("filter", true, (i) -> {
+            if (i % 2 == 0) {
+                long range = Math.max(1, getEventLog().getLastEventNumber() / 100);
+                long lower = Math.max(0, getRandomEventNumber() - range / 2);
+                EventLogFilterParameters filterParameters = eventLogInput.getFilterParameters();
+                filterParameters.enableRangeFilter = true;
+                filterParameters.enableEventNumberRangeFilter = true;
+                filterParameters.lowerEventNumberLimit = lower;
+                filterParameters.upperEventNumberLimit = lower + range;
+                eventLogInput.filter();
+            }
+            else
+                eventLogInput.removeFilter();
+        }));
+        scenarios.add(new Scenario("traceCausesAndConsequences", false, (i) -> {
+            IEvent event = getEventLog().getEventForEventNumber(getRandomEventNumber());
+            if (event != null)
+                traceDependencies(event, 5, 1000);
+        }));
+        return scenarios;
+    }
+
+    protected IEventLog getEventLog() {
+        return eventLogInput.getEventLog();
+    }
+
+    protected long getRandomEventNumber() {
+        long first = getEventLog().getFirstEventNumber();
+        long last = getEventLog().getLastEventNumber();
+        return first + (long)(random.nextDouble() * (last - first + 1));
+    }
+
+    /**
+     * Walks causes and consequences breadth-first, up to the given depth and number of events.
+     */
+    protected void traceDependencies(IEvent startEvent, int maxDepth, int maxEvents) {
+        Set<Long> visited = new HashSet<Long>();
+        ArrayDeque<IEvent> queue = new ArrayDeque<IEvent>();
+        ArrayDeque<Integer> depths = new ArrayDeque<Integer>();
+        queue.add(startEvent);
+        depths.add(0);
+        visited.add(startEvent.getEventNumber());
+        while (!queue.isEmpty() && visited.size() < maxEvents) {
+            IEvent event = queue.poll();
+            int depth = depths.poll();
+            if (depth == maxDepth)
+                continue;
+            List<IEvent> neighbours = new ArrayList<IEvent>();
+            for (IMessageDependency cause : event.getCauses())
+                neighbours.add(cause.getCauseEvent());
+            for (IMessageDependency consequence : event.getConsequences())
+                neighbours.add(consequence.getConsequenceEvent());
+            for (IEvent neighbour : neighbours) {
+                if (neighbour != null && visited.add(neighbour.getEventNumber())) {
+                    queue.add(neighbour);
+                    depths.add(depth + 1);
+                }
+            }
+        }
+    }
+
+    protected void runScenario(Scenario scenario, Properties results) {
+        Runtime runtime = Runtime.getRuntime();
+        long[] latencies = new long[numSteps];
+        long[] counters = new long[4]; // bytes read, events parsed, allocated bytes before/after
+
+        display.syncExec(() -> {
+            sequenceChart.gotoBegin();
+            paint();
+            counters[0] = getEventLog().getFileReader().getNumReadBytes();
+            counters[1] = getEventLog().getNumParsedEvents();
+        });
+        System.gc();
+        long usedHeapBefore = runtime.totalMemory() - runtime.freeMemory();
+        display.syncExec(() -> counters[2] = getAllocatedBytesOfCurrentThread());
+
+        long startTime = System.nanoTime();
+        for (int i = 0; i < numSteps; i++) {
+            final int step = i;
+            long stepStartTime = System.nanoTime();
+            display.syncExec(() -> {
+                scenario.step.accept(step);
+                if (scenario.paint)
+                    paint();
+                RuntimeException internalError = sequenceChart.getInternalError();
+                if (internalError != null)
+                    throw internalError;
+            });
+            latencies[i] = System.nanoTime() - stepStartTime;
+        }
+        long elapsedTime = System.nanoTime() - startTime;
+
+        display.syncExec(() -> {
+            counters[3] = getAllocatedBytesOfCurrentThread();
+            // note: filtering replaces the eventlog object, but the file reader is shared
+            counters[0] = getEventLog().getFileReader().getNumReadBytes() - counters[0];
+            counters[1] = getEventLog().getNumParsedEvents() - counters[1];
+        });
+        System.gc();
+        long usedHeapAfter = runtime.totalMemory() - runtime.freeMemory();
+
+        Arrays.sort(latencies);
+        String prefix = scenario.name + ".";
+        results.setProperty(prefix + "p50Millis", String.valueOf(getPercentile(latencies, 0.5) / 1000000));
+        results.setProperty(prefix + "p90Millis", String.valueOf(getPercentile(latencies, 0.9) / 1000000));
+        results.setProperty(prefix + "p99Millis", String.valueOf(getPercentile(latencies, 0.99) / 1000000));
+        results.setProperty(prefix + "bytesRead", String.valueOf(counters[0]));
+        results.setProperty(prefix + "eventsParsed", String.valueOf(counters[1]));
+        results.setProperty(prefix + "heapDeltaBytes", String.valueOf(usedHeapAfter - usedHeapBefore));
+        if (counters[2] != -1 && counters[3] != -1)
+            results.setProperty(prefix + "allocationRateBytesPerSec", String.valueOf((long)((counters[3] - counters[2]) / (elapsedTime / 1E9))));
+    }
+
+    protected void paint() {
+        GC gc = new GC(image);
+        SWTGraphics graphics = new SWTGraphics(gc);
+        try {
+            sequenceChart.paintArea(graphics);
+        }
+        finally {
+            graphics.dispose();
+            gc.dispose();
+        }
+    }
+
+    private static long getPercentile(long[] sortedValues, double percentile) {
+        int index = (int)Math.ceil(percentile * sortedValues.length) - 1;
+        return sortedValues[Math.max(0, Math.min(sortedValues.length - 1, index))];
+    }
+
+    /**
+     * Uses com.sun.management.ThreadMXBean if available (via reflection, because
+     * the package is not visible to bundles); returns -1 otherwise.
+     */
+    private static long getAllocatedBytesOfCurrentThread() {
+        try {
+            ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+            Class<?> extendedInterface = ClassLoader.getPlatformClassLoader().loadClass("com.sun.management.ThreadMXBean");
+            if (!extendedInterface.isInstance(threadMXBean))
+                return -1;
+            Method method = extendedInterface.getMethod("getThreadAllocatedBytes", long.class);
+            return (Long)method.invoke(threadMXBean, Thread.currentThread().getId());
+        }
+        catch (ReflectiveOperationException | RuntimeException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Writes the report, and compares results to the baseline (or stores them as baseline).
+     */
+    protected IStatus evaluate(Properties results) throws IOException {
+        List<String> regressions = new ArrayList<String>();
+        if (baselineFile != null && baselineFile.isFile() && !updateBaseline) {
+            Properties baseline = load(baselineFile);
+            for (String key : results.stringPropertyNames()) {
+                String baselineValue = baseline.getProperty(key);
+                if (baselineValue == null)
+                    continue;
+                long expected = Long.parseLong(baselineValue);
+                long actual = Long.parseLong(results.getProperty(key));
+                boolean isRegression;
+                if (key.endsWith(".p90Millis"))
+                    isRegression = actual > expected * (1 + latencyTolerance) && actual - expected > latencyToleranceMillis;
+                else if (key.endsWith(".bytesRead") || key.endsWith(".eventsParsed"))
+                    isRegression = actual > expected * (1 + ioTolerance) && actual - expected > 0;
+                else
+                    isRegression = false; // informational only
+                if (isRegression)
+                    regressions.add(key + ": " + actual + " (baseline: " + expected + ")");
+            }
+        }
+        else if (baselineFile != null)
+            store(results, baselineFile, "Sequence chart benchmark baseline for " + eventLogFile.getName());
+
+        results.setProperty("result", regressions.isEmpty() ? "PASS" : "FAIL");
+        if (reportFile != null)
+            store(results, reportFile, "Sequence chart benchmark results for " + eventLogFile.getName());
+
+        if (regressions.isEmpty())
+            return new Status(IStatus.OK, SequenceChartPlugin.PLUGIN_ID, "OK");
+        else
+            return new Status(IStatus.ERROR, SequenceChartPlugin.PLUGIN_ID, "Performance regressions on " + eventLogFile.getName() + ": " + String.join("; ", regressions));
+    }
+
+    private static Properties load(File file) throws IOException {
+        Properties properties = new Properties();
+        try (InputStream in = new FileInputStream(file)) {
+            properties.load(in);
+        }
+        return properties;
+    }
+
+    private static void store(Properties properties, File file, String comment) throws IOException {
+        try (OutputStream out = new FileOutputStream(file)) {
+            properties.store(out, comment);
+        }
+    }
+}
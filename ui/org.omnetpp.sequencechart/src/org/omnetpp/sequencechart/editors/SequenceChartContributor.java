@@ -7,26 +7,11 @@
 
 package org.omnetpp.sequencechart.editors;
 
-import java.awt.RenderingHints;
-import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
 import java.lang.reflect.Field;
 import java.math.MathContext;
 import java.util.ArrayList;
 import java.util.List;
 
-import javax.xml.transform.OutputKeys;
-import javax.xml.transform.Source;
-import javax.xml.transform.Transformer;
-import javax.xml.transform.TransformerConfigurationException;
-import javax.xml.transform.TransformerException;
-import javax.xml.transform.TransformerFactory;
-import javax.xml.transform.TransformerFactoryConfigurationError;
-import javax.xml.transform.dom.DOMSource;
-import javax.xml.transform.stream.StreamResult;
-
-import org.apache.batik.svggen.SVGGraphics2D;
 import org.apache.commons.lang3.ArrayUtils;
 import org.apache.commons.lang3.text.WordUtils;
 import org.eclipse.core.commands.AbstractHandler;
@@ -42,8 +27,6 @@ import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IPath;
 import org.eclipse.core.runtime.Path;
 import org.eclipse.core.runtime.jobs.Job;
-import org.eclipse.draw2d.geometry.Rectangle;
-import org.eclipse.gmf.runtime.draw2d.ui.render.awt.internal.svg.export.GraphicsSVG;
 import org.eclipse.jface.action.Action;
 import org.eclipse.jface.action.ActionContributionItem;
 import org.eclipse.jface.action.IContributionItem;
@@ -2194,7 +2177,7 @@ public class SequenceChartContributor extends EditorActionBarContributor impleme
     }
 
     private SequenceChartAction createExportToSVGAction() {
-        return new SequenceChartAction("Export to SVG...", Action.AS_PUSH_BUTTON, SequenceChartPlugin.getImageDescriptor(IMAGE_EXPORT_SVG)) {
+        return new SequenceChartAction("Export to SVG or PNG...", Action.AS_PUSH_BUTTON, SequenceChartPlugin.getImageDescriptor(IMAGE_EXPORT_SVG)) {
             @Override
             protected void doRun() {
                 long[] exportRegion = askExportRegion();
@@ -2203,31 +2186,8 @@ public class SequenceChartContributor extends EditorActionBarContributor impleme
                     String fileName = askFileName();
 
                     if (fileName != null) {
-                        long exportBeginX = exportRegion[0];
-                        long exportEndX = exportRegion[1];
-                        GraphicsSVG graphics = createGraphics(exportBeginX, exportEndX);
-
-                        long top = sequenceChart.getViewportTop();
                         long left = sequenceChart.getViewportLeft();
-                        boolean showAxisHeaders = sequenceChart.getShowArrowHeads();
-
-                        try {
-                            sequenceChart.scrollHorizontalTo(exportBeginX + sequenceChart.getViewportLeft());
-                            sequenceChart.scrollVerticalTo(0);
-                            // NOTE: SVG graphics doesn't support text rotation
-                            sequenceChart.setShowAxisHeaders(false);
-                            sequenceChart.paintArea(graphics);
-                            writeXML(graphics, fileName);
-                        }
-                        catch (Exception e) {
-                            throw new RuntimeException(e);
-                        }
-                        finally {
-                            graphics.dispose();
-                            sequenceChart.scrollHorizontalTo(left);
-                            sequenceChart.scrollVerticalTo(top);
-                            sequenceChart.setShowAxisHeaders(showAxisHeaders);
-                        }
+                        new SequenceChartExportJob(sequenceChart, exportRegion[0] + left, exportRegion[1] + left, fileName).schedule();
                     }
                 }
             }
@@ -2237,6 +2197,8 @@ public class SequenceChartContributor extends EditorActionBarContributor impleme
                 IPath location = sequenceChart.getInput().getFile().getLocation().makeAbsolute();
                 fileDialog.setFileName(location.removeFileExtension().addFileExtension("svg").lastSegment());
                 fileDialog.setFilterPath(location.removeLastSegments(1).toOSString());
+                fileDialog.setFilterExtensions(new String[] {"*.svg", "*.png"});
+                fileDialog.setFilterNames(new String[] {"SVG file (*.svg)", "PNG files, one per strip (*.png)"});
                 fileDialog.setOverwrite(true);
                 return fileDialog.open();
             }
@@ -2286,30 +2248,6 @@ public class SequenceChartContributor extends EditorActionBarContributor impleme
                     return null;
             }
 
-            private GraphicsSVG createGraphics(long exportBeginX, long exportEndX) {
-                int width = (int)(exportEndX - exportBeginX);
-                int height = (int)sequenceChart.getVirtualHeight() + sequenceChart.getGutterHeight(null) * 2 + 2;
-
-                GraphicsSVG graphics = GraphicsSVG.getInstance(new Rectangle(0, -1, width, height));
-                SVGGraphics2D g = graphics.getSVGGraphics2D();
-                graphics.setClip(new Rectangle(0, 0, width, height));
-                // g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
-                graphics.translate(0, 1);
-                graphics.setAntialias(SWT.ON);
-
-                return graphics;
-            }
-
-            private void writeXML(GraphicsSVG graphics, String fileName)
-                throws TransformerConfigurationException, TransformerFactoryConfigurationError, TransformerException, FileNotFoundException
-            {
-                Source source = new DOMSource(graphics.getRoot());
-                StreamResult streamResult = new StreamResult(new FileOutputStream(new File(fileName)));
-                Transformer transformer = TransformerFactory.newInstance().newTransformer();
-                transformer.setOutputProperty(OutputKeys.INDENT, "yes");
-                transformer.transform(source, streamResult);
-            }
-
             @Override
             public void update() {
                 setEnabled(sequenceChart.getInput() != null);
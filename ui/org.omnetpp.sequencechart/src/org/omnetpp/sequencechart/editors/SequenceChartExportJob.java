@@ -0,0 +1,235 @@
+package org.omnetpp.sequencechart.editors;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.transform.OutputKeys;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.draw2d.Graphics;
+import org.eclipse.draw2d.SWTGraphics;
+import org.eclipse.draw2d.geometry.Rectangle;
+import org.eclipse.gmf.runtime.draw2d.ui.render.awt.internal.svg.export.GraphicsSVG;
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.graphics.GC;
+import org.eclipse.swt.graphics.Image;
+import org.eclipse.swt.graphics.ImageData;
+import org.eclipse.swt.graphics.ImageLoader;
+import org.eclipse.swt.widgets.Display;
+import org.omnetpp.sequencechart.SequenceChartPlugin;
+import org.omnetpp.sequencechart.widgets.SequenceChart;
+import org.w3c.dom.Attr;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+
+/**
+ * Exports a horizontal range of the sequence chart into an SVG file or into a series of
+ * PNG files in the background.
+ *
+ * The range is rendered in vertical strips as wide as the viewport, and each strip is
+ * written to disk before the next one is painted, so memory use doesn't depend on the
+ * width of the exported range. SVG export appends the elements of each strip to a single
+ * file, PNG export writes one image file per strip (name-0001.png, name-0002.png, etc.).
+ * Painting happens in the UI thread, one strip at a time, so the IDE stays responsive.
+ * Partially written files are deleted when the job is cancelled or fails.
+ */
+public class SequenceChartExportJob extends Job {
+    public enum Format { SVG, PNG }
+
+    private SequenceChart sequenceChart;
+    private long exportBeginX; // in virtual coordinates
+    private long exportEndX; // in virtual coordinates
+    private String fileName;
+    private Format format;
+
+    // valid while running
+    private Display display;
+    private int stripWidth;
+    private int height;
+    private List<File> writtenFiles = new ArrayList<File>();
+
+    public SequenceChartExportJob(SequenceChart sequenceChart, long exportBeginX, long exportEndX, String fileName) {
+        super("Exporting sequence chart to " + new File(fileName).getName());
+        this.sequenceChart = sequenceChart;
+        this.exportBeginX = exportBeginX;
+        this.exportEndX = exportEndX;
+        this.fileName = fileName;
+        this.format = fileName.toLowerCase().endsWith(".png") ? Format.PNG : Format.SVG;
+        setUser(true);
+    }
+
+    @Override
+    protected IStatus run(IProgressMonitor monitor) {
+        display = sequenceChart.getDisplay();
+        boolean completed = false;
+        try {
+            display.syncExec(() -> {
+                // paintArea() only paints the viewport, so strips cannot be wider than that
+                stripWidth = Math.max(1, sequenceChart.getViewportWidth());
+                height = (int)sequenceChart.getVirtualHeight() + sequenceChart.getGutterHeight(null) * 2 + 2;
+            });
+            long width = exportEndX - exportBeginX;
+            int numberOfStrips = (int)((width + stripWidth - 1) / stripWidth);
+            monitor.beginTask(getName(), numberOfStrips);
+            if (format == Format.SVG)
+                exportSVG(width, numberOfStrips, monitor);
+            else
+                exportPNG(numberOfStrips, monitor);
+            completed = !monitor.isCanceled();
+            return completed ? Status.OK_STATUS : Status.CANCEL_STATUS;
+        }
+        catch (Exception e) {
+            return SequenceChartPlugin.getErrorStatus(0, "Cannot export sequence chart to " + fileName, e);
+        }
+        finally {
+            if (!completed)
+                for (File file : writtenFiles)
+                    file.delete();
+            monitor.done();
+        }
+    }
+
+    protected void exportSVG(long width, int numberOfStrips, IProgressMonitor monitor) throws Exception {
+        File file = new File(fileName);
+        writtenFiles.add(file);
+        Transformer transformer = TransformerFactory.newInstance().newTransformer();
+        transformer.setOutputProperty(OutputKeys.OMIT_XML_DECLARATION, "yes");
+        transformer.setOutputProperty(OutputKeys.INDENT, "yes");
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8))) {
+            writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+            writer.write("<svg xmlns=\"http://www.w3.org/2000/svg\" xmlns:xlink=\"http://www.w3.org/1999/xlink\" width=\"" + width + "\" height=\"" + height + "\" viewBox=\"0 -1 " + width + " " + height + "\">\n");
+            for (int i = 0; i < numberOfStrips && !monitor.isCanceled(); i++) {
+                monitor.subTask("Strip " + (i + 1) + " of " + numberOfStrips);
+                long stripBeginX = exportBeginX + (long)i * stripWidth;
+                int currentStripWidth = (int)Math.min(stripWidth, exportEndX - stripBeginX);
+                GraphicsSVG[] graphics = new GraphicsSVG[1];
+                display.syncExec(() -> {
+                    graphics[0] = GraphicsSVG.getInstance(new Rectangle(0, -1, currentStripWidth, height));
+                    graphics[0].setClip(new Rectangle(0, 0, currentStripWidth, height));
+                    graphics[0].translate(0, 1);
+                    graphics[0].setAntialias(SWT.ON);
+                    paintStrip(graphics[0], stripBeginX);
+                });
+                try {
+                    writeSVGStrip(writer, transformer, graphics[0].getRoot(), "s" + i + "-", stripBeginX - exportBeginX);
+                }
+                finally {
+                    GraphicsSVG g = graphics[0];
+                    display.syncExec(() -> g.dispose());
+                }
+                monitor.worked(1);
+            }
+            writer.write("</svg>\n");
+        }
+    }
+
+    /**
+     * Writes the children of the root element of a strip into a group translated to the strip's position.
+     * Element ids are made unique across strips by prefixing them and the references to them.
+     */
+    protected void writeSVGStrip(Writer writer, Transformer transformer, Element root, String idPrefix, long offsetX) throws Exception {
+        renameIds(root, idPrefix);
+        writer.write("<g transform=\"translate(" + offsetX + ",0)\"");
+        NamedNodeMap attributes = root.getAttributes();
+        for (int i = 0; i < attributes.getLength(); i++) {
+            Attr attribute = (Attr)attributes.item(i);
+            String name = attribute.getName();
+            // the presentation attributes of the root apply to the strip's content
+            if (!name.startsWith("xmlns") && !name.equals("width") && !name.equals("height") && !name.equals("viewBox") && !name.equals("version") &&
+                !name.startsWith("content") && !name.equals("preserveAspectRatio") && !name.equals("zoomAndPan"))
+                writer.write(" " + name + "=\"" + escapeAttribute(attribute.getValue()) + "\"");
+        }
+        writer.write(">\n");
+        for (Node child = root.getFirstChild(); child != null; child = child.getNextSibling())
+            if (child.getNodeType() == Node.ELEMENT_NODE)
+                transformer.transform(new DOMSource(child), new StreamResult(writer));
+        writer.write("</g>\n");
+    }
+
+    protected void exportPNG(int numberOfStrips, IProgressMonitor monitor) throws Exception {
+        String baseName = fileName.substring(0, fileName.length() - ".png".length());
+        for (int i = 0; i < numberOfStrips && !monitor.isCanceled(); i++) {
+            monitor.subTask("Strip " + (i + 1) + " of " + numberOfStrips);
+            long stripBeginX = exportBeginX + (long)i * stripWidth;
+            int width = (int)Math.min(stripWidth, exportEndX - stripBeginX);
+            ImageData[] imageData = new ImageData[1];
+            display.syncExec(() -> {
+                Image image = new Image(display, width, height);
+                GC gc = new GC(image);
+                SWTGraphics graphics = new SWTGraphics(gc);
+                try {
+                    graphics.setAntialias(SWT.ON);
+                    paintStrip(graphics, stripBeginX);
+                    imageData[0] = image.getImageData();
+                }
+                finally {
+                    graphics.dispose();
+                    gc.dispose();
+                    image.dispose();
+                }
+            });
+            File file = new File(String.format("%s-%04d.png", baseName, i + 1));
+            writtenFiles.add(file);
+            ImageLoader imageLoader = new ImageLoader();
+            imageLoader.data = new ImageData[] { imageData[0] };
+            imageLoader.save(file.getPath(), SWT.IMAGE_PNG);
+            monitor.worked(1);
+        }
+    }
+
+    /**
+     * Paints the part of the chart starting at the given virtual x coordinate, and restores the
+     * state of the chart afterwards. Must be called from the UI thread.
+     */
+    protected void paintStrip(Graphics graphics, long stripBeginX) {
+        if (sequenceChart.isDisposed())
+            throw new RuntimeException("The sequence chart has been closed");
+        long top = sequenceChart.getViewportTop();
+        boolean showAxisHeaders = sequenceChart.getShowAxisHeaders();
+        try {
+            sequenceChart.scrollVerticalTo(0);
+            // NOTE: SVG graphics doesn't support text rotation
+            sequenceChart.setShowAxisHeaders(false);
+            sequenceChart.paintArea(graphics, stripBeginX);
+        }
+        finally {
+            sequenceChart.scrollVerticalTo(top);
+            sequenceChart.setShowAxisHeaders(showAxisHeaders);
+        }
+    }
+
+    private static void renameIds(Element element, String idPrefix) {
+        NamedNodeMap attributes = element.getAttributes();
+        for (int i = 0; i < attributes.getLength(); i++) {
+            Attr attribute = (Attr)attributes.item(i);
+            String value = attribute.getValue();
+            if (attribute.getName().equals("id"))
+                attribute.setValue(idPrefix + value);
+            else if (attribute.getName().equals("xlink:href") && value.startsWith("#"))
+                attribute.setValue("#" + idPrefix + value.substring(1));
+            else if (value.contains("url(#"))
+                attribute.setValue(value.replace("url(#", "url(#" + idPrefix));
+        }
+        for (Node child = element.getFirstChild(); child != null; child = child.getNextSibling())
+            if (child.getNodeType() == Node.ELEMENT_NODE)
+                renameIds((Element)child, idPrefix);
+    }
+
+    private static String escapeAttribute(String value) {
+        return value.replace("&", "&amp;").replace("<", "&lt;").replace("\"", "&quot;");
+    }
+}
@@ -0,0 +1,127 @@
+package org.omnetpp.sequencechart.editors;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+
+/**
+ * Generates eventlog files of arbitrary size for performance testing. The
+ * simulated network is a ring of simple modules, with a number of messages
+ * ("tokens") circulating concurrently with random link delays, so the log has
+ * interleaved message dependencies of varying length like real logs do.
+ * Output only depends on the parameters (fixed random seed), so generated
+ * files are reproducible.
+ */
+public class SyntheticEventLogGenerator {
+    private long numEvents = 1000000;
+    private int numModules = 50;
+    private int numTokens = 20;
+    private long seed = 1;
+
+    private static class Token implements Comparable<Token> {
+        long messageId;
+        long arrivalTime; // in ns
+        long sendingEventNumber;
+        int arrivalModuleId;
+
+        @Override
+        public int compareTo(Token other) {
+            return arrivalTime != other.arrivalTime ? Long.compare(arrivalTime, other.arrivalTime) : Long.compare(messageId, other.messageId);
+        }
+    }
+
+    public SyntheticEventLogGenerator setNumEvents(long numEvents) {
+        this.numEvents = numEvents;
+        return this;
+    }
+
+    public SyntheticEventLogGenerator setNumModules(int numModules) {
+        this.numModules = numModules;
+        return this;
+    }
+
+    public SyntheticEventLogGenerator setNumTokens(int numTokens) {
+        this.numTokens = numTokens;
+        return this;
+    }
+
+    public SyntheticEventLogGenerator setSeed(long seed) {
+        this.seed = seed;
+        return this;
+    }
+
+    /**
+     * Writes the eventlog into the given file; the monitor is only used for cancellation.
+     */
+    public void generate(File file, IProgressMonitor monitor) throws IOException {
+        Random random = new Random(seed);
+        try (Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.US_ASCII), 1 << 20)) {
+            out.write("SB ov 1536 ev 3 rid Synthetic-" + numEvents + "-" + numModules + "-" + numTokens + "-" + seed + "\n\n");
+
+            // network setup in event 0: module i's "out" gate (id 1) is connected to module i+1's "in" gate (id 0)
+            out.write("E # 0 t 0 m 1 ce -1 msg -1\n");
+            out.write("MC id 1 c cModule t SyntheticNetwork n SyntheticNetwork cm 1\n");
+            for (int i = 0; i < numModules; i++) {
+                int moduleId = i + 2;
+                out.write("MC id " + moduleId + " c Node t Node pid 1 n node[" + i + "]\n");
+                out.write("GC m " + moduleId + " g 0 n in o 0\n");
+                out.write("GC m " + moduleId + " g 1 n out o 1\n");
+            }
+            for (int i = 0; i < numModules; i++)
+                out.write("CC sm " + (i + 2) + " sg 1 dm " + (getNextModuleId(i + 2)) + " dg 0\n");
+
+            PriorityQueue<Token> futureEvents = new PriorityQueue<Token>();
+            for (int i = 0; i < numTokens; i++) {
+                Token token = new Token();
+                token.messageId = i;
+                int senderModuleId = 2 + random.nextInt(numModules);
+                out.write("CM id " + i + " tid " + i + " eid " + i + " etid " + i + " c cMessage n token-" + i + " pe -1 l 1000\n");
+                send(out, token, senderModuleId, 0, 0, random);
+                futureEvents.add(token);
+            }
+            out.write("\n");
+
+            // events: each one forwards the token it received to the next module
+            for (long eventNumber = 1; eventNumber < numEvents && !futureEvents.isEmpty(); eventNumber++) {
+                if ((eventNumber & 0xffff) == 0 && monitor != null && monitor.isCanceled())
+                    throw new OperationCanceledException();
+                Token token = futureEvents.poll();
+                int moduleId = token.arrivalModuleId;
+                out.write("E # " + eventNumber + " t " + formatTime(token.arrivalTime) + " m " + moduleId + " ce " + token.sendingEventNumber + " msg " + token.messageId + "\n");
+                send(out, token, moduleId, eventNumber, token.arrivalTime, random);
+                futureEvents.add(token);
+                out.write("\n");
+            }
+            out.write("SE e 0 c 0 m \"Synthetic eventlog generated\"\n\n");
+        }
+    }
+
+    private void send(Writer out, Token token, int senderModuleId, long eventNumber, long now, Random random) throws IOException {
+        long propagationDelay = 1000 + random.nextInt(10000000); // 1us..10ms
+        String ids = "id " + token.messageId + " tid " + token.messageId + " eid " + token.messageId + " etid " + token.messageId + " c cMessage n token-" + token.messageId;
+        out.write("BS " + ids + " pe " + eventNumber + " l 1000\n");
+        out.write("SH sm " + senderModuleId + " sg 1 pd " + formatTime(propagationDelay) + "\n");
+        out.write("ES " + ids + " pe -1 l 1000 at " + formatTime(now + propagationDelay) + "\n");
+        token.arrivalTime = now + propagationDelay;
+        token.sendingEventNumber = eventNumber;
+        token.arrivalModuleId = getNextModuleId(senderModuleId);
+    }
+
+    private int getNextModuleId(int moduleId) {
+        return (moduleId - 2 + 1) % numModules + 2;
+    }
+
+    private static String formatTime(long nanoseconds) {
+        return BigDecimal.valueOf(nanoseconds, 9).stripTrailingZeros().toPlainString();
+    }
+}
@@ -1,12 +1,22 @@
 package org.omnetpp.sequencechart.widgets;
 
 import java.util.ArrayList;
-import java.util.HashSet;
-import java.util.Set;
 
 import org.eclipse.draw2d.geometry.Rectangle;
 
+/**
+ * A bucketed region quadtree for rectangles. Every rectangle is stored exactly
+ * once, in the smallest node whose region fully contains it; a node is split
+ * into four when its bucket overflows. Rectangles that straddle the boundary
+ * of the children stay in the parent. The root grows by doubling towards
+ * rectangles inserted outside of it, so there is no need to know the extent
+ * of the data in advance. Rectangles touching at their edges are considered
+ * intersecting, so that zero-width or zero-height rectangles can be stored.
+ */
 public class QuadTree {
+    private static final int BUCKET_SIZE = 16;
+    private static final int MIN_NODE_SIZE = 64;
+
     public interface IVisitor {
         public void visit(Rectangle region, Object object);
     }
@@ -20,39 +30,6 @@ public class QuadTree {
             object = v;
         }
 
-        @Override
-        public int hashCode() {
-            final int prime = 31;
-            int result = 1;
-            result = prime * result
-                    + ((object == null) ? 0 : object.hashCode());
-            result = prime * result
-                    + ((region == null) ? 0 : region.hashCode());
-            return result;
-        }
-
-        @Override
-        public boolean equals(Object obj) {
-            if (this == obj)
-                return true;
-            if (obj == null)
-                return false;
-            if (getClass() != obj.getClass())
-                return false;
-            Leaf other = (Leaf) obj;
-            if (object == null) {
-                if (other.object != null)
-                    return false;
-            } else if (!object.equals(other.object))
-                return false;
-            if (region == null) {
-                if (other.region != null)
-                    return false;
-            } else if (!region.equals(other.region))
-                return false;
-            return true;
-        }
-
         @Override
         public String toString() {
             return region.toString() + ": " + object;
@@ -60,137 +37,120 @@ public class QuadTree {
     }
 
     private static class Node {
-        private interface IVisitor {
-            public void visit(Leaf leaf);
-        }
-
-        private int size = 0;
         private Rectangle region;
-        private Node northWest;
-        private Node northEast;
-        private Node southWest;
-        private Node southEast;
+        private Node[] children; // NW, NE, SW, SE; null if not subdivided
         private ArrayList<Leaf> leaves = new ArrayList<Leaf>();
 
         public Node(Rectangle r) {
             region = r;
         }
 
-        public int getSize() {
-            return size;
-        }
-
-        public void insert(Rectangle r, Object v) {
-            size++;
-            if (leaves != null) {
-                leaves.add(new Leaf(r, v));
-                if (leaves.size() > 16) {
-                    boolean smallRegion = true;
-                    for (Leaf leaf : leaves)
-                        smallRegion &= leaf.region.contains(region);
-                    if (!smallRegion)
-                        subdivide();
-                }
-            }
-            else {
-                if (northWest.region.intersects(r))
-                    northWest.insert(r, v);
-                if (northEast.region.intersects(r))
-                    northEast.insert(r, v);
-                if (southWest.region.intersects(r))
-                    southWest.insert(r, v);
-                if (southEast.region.intersects(r))
-                    southEast.insert(r, v);
+        public void insert(Leaf leaf) {
+            Node node = this;
+            while (true) {
+                Node child = node.getChildContaining(leaf.region);
+                if (child == null)
+                    break;
+                node = child;
             }
+            node.leaves.add(leaf);
+            if (node.children == null && node.leaves.size() > BUCKET_SIZE && node.region.width >= 2 * MIN_NODE_SIZE && node.region.height >= 2 * MIN_NODE_SIZE)
+                node.subdivide();
         }
 
         public void query(Rectangle r, IVisitor v) {
-            if (region.intersects(r)) {
-                if (leaves != null) {
-                    for (Leaf leaf : leaves)
-                        if (leaf.region.intersects(r))
-                            v.visit(leaf);
-                }
-                else {
-                    northWest.query(r, v);
-                    northEast.query(r, v);
-                    southWest.query(r, v);
-                    southEast.query(r, v);
-                }
-            }
+            for (Leaf leaf : leaves)
+                if (intersects(leaf.region, r))
+                    v.visit(leaf.region, leaf.object);
+            if (children != null)
+                for (Node child : children)
+                    if (intersects(child.region, r))
+                        child.query(r, v);
+        }
+
+        private Node getChildContaining(Rectangle r) {
+            if (children != null)
+                for (Node child : children)
+                    if (child.region.contains(r))
+                        return child;
+            return null;
         }
 
         private void subdivide() {
             int halfWidth = region.width / 2;
             int halfHeight = region.height / 2;
-            northWest = new Node(new Rectangle(region.x, region.y, halfWidth, halfHeight));
-            northEast = new Node(new Rectangle(region.x + halfWidth, region.y, halfWidth, halfHeight));
-            southWest = new Node(new Rectangle(region.x, region.y + halfHeight, halfWidth, halfHeight));
-            southEast = new Node(new Rectangle(region.x + halfWidth, region.y + halfHeight, halfWidth, halfHeight));
-            for (Leaf leaf : leaves) {
-                if (northWest.region.intersects(leaf.region))
-                    northWest.leaves.add(leaf);
-                if (northEast.region.intersects(leaf.region))
-                    northEast.leaves.add(leaf);
-                if (southWest.region.intersects(leaf.region))
-                    southWest.leaves.add(leaf);
-                if (southEast.region.intersects(leaf.region))
-                    southEast.leaves.add(leaf);
+            children = new Node[] {
+                new Node(new Rectangle(region.x, region.y, halfWidth, halfHeight)),
+                new Node(new Rectangle(region.x + halfWidth, region.y, region.width - halfWidth, halfHeight)),
+                new Node(new Rectangle(region.x, region.y + halfHeight, halfWidth, region.height - halfHeight)),
+                new Node(new Rectangle(region.x + halfWidth, region.y + halfHeight, region.width - halfWidth, region.height - halfHeight))
+            };
+            ArrayList<Leaf> oldLeaves = leaves;
+            leaves = new ArrayList<Leaf>();
+            for (Leaf leaf : oldLeaves) {
+                Node child = getChildContaining(leaf.region);
+                if (child != null)
+                    child.insert(leaf);
+                else
+                    leaves.add(leaf);
             }
-            leaves = null;
         }
 
         @Override
         public String toString() {
-            if (leaves != null) {
-                StringBuffer buffer = new StringBuffer("{");
-                for (Leaf leaf : leaves) {
-                    buffer.append(", ");
-                    buffer.append(leaf.toString());
-                }
-                buffer.append("}");
-                return buffer.toString();
+            StringBuffer buffer = new StringBuffer("{");
+            for (Leaf leaf : leaves) {
+                buffer.append(", ");
+                buffer.append(leaf.toString());
             }
-            else
-                return "NW: " + northWest.toString() + ", NE: " + northEast.toString() + ", SW: " + southWest.toString() + ", SE: " + southEast.toString();
+            buffer.append("}");
+            if (children != null)
+                buffer.append(" NW: " + children[0].toString() + ", NE: " + children[1].toString() + ", SW: " + children[2].toString() + ", SE: " + children[3].toString());
+            return buffer.toString();
         }
     }
 
     private Node root;
+    private int size = 0;
 
     public int getSize() {
-        return root != null ? root.getSize() : 0;
+        return size;
     }
 
     public void insert(Rectangle r, Object o) {
-        if (root == null) {
-            root = new Node(r);
-            root.insert(r, o);
-        }
-        else if (root.region.contains(r))
-            root.insert(r, o);
-        else {
-            Node node = new Node(root.region.getUnion(r));
-            query(root.region, (Rectangle region, Object object) -> node.insert(region, object));
-            node.insert(r, o);
-            root = node;
-        }
+        if (root == null)
+            root = new Node(new Rectangle(r.x, r.y, Math.max(r.width, MIN_NODE_SIZE), Math.max(r.height, MIN_NODE_SIZE)));
+        while (!root.region.contains(r))
+            grow(r);
+        root.insert(new Leaf(new Rectangle(r), o));
+        size++;
     }
 
     public void query(Rectangle r, IVisitor v) {
-        if (root != null) {
-            Set<Leaf> seen = new HashSet<Leaf>();
-            root.query(r, (Leaf leaf) -> {
-                if (!seen.contains(leaf)) {
-                    seen.add(leaf);
-                    v.visit(leaf.region, leaf.object);
-                }
-            });
-        }
+        if (root != null && intersects(root.region, r))
+            root.query(r, v);
     }
 
     public void clear() {
         root = null;
+        size = 0;
+    }
+
+    /**
+     * Doubles the root region towards the given rectangle; the old root becomes one of the quadrants.
+     */
+    private void grow(Rectangle r) {
+        Rectangle region = root.region;
+        boolean left = r.x < region.x;
+        boolean up = r.y < region.y;
+        Node newRoot = new Node(new Rectangle(left ? region.x - region.width : region.x, up ? region.y - region.height : region.y, region.width * 2, region.height * 2));
+        newRoot.subdivide();
+        newRoot.children[(up ? 2 : 0) + (left ? 1 : 0)] = root;
+        root = newRoot;
+    }
+
+    private static boolean intersects(Rectangle r1, Rectangle r2) {
+        return r1.x <= r2.x + r2.width && r2.x <= r1.x + r1.width && r1.y <= r2.y + r2.height && r2.y <= r1.y + r1.height;
     }
 
     @Override
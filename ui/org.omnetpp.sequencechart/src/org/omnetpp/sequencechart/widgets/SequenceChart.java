@@ -130,6 +130,7 @@ import org.omnetpp.sequencechart.SequenceChartPlugin;
 import org.omnetpp.sequencechart.editors.SequenceChartContributor;
 import org.omnetpp.sequencechart.widgets.axisorder.AxisOrderByModuleId;
 import org.omnetpp.sequencechart.widgets.axisorder.AxisOrderByModuleName;
+import org.omnetpp.sequencechart.widgets.axisorder.AxisAdjacencyGraph;
 import org.omnetpp.sequencechart.widgets.axisorder.FlatAxisOrderByMinimizingCost;
 import org.omnetpp.sequencechart.widgets.axisorder.ManualAxisOrder;
 import org.omnetpp.sequencechart.widgets.axisrenderer.AxisLineRenderer;
@@ -160,6 +161,7 @@ public class SequenceChart
     private static final int ANTIALIAS_TURN_ON_AT_MSEC = 100;
     private static final int ANTIALIAS_TURN_OFF_AT_MSEC = 300;
     private static final int MOUSE_TOLERANCE = 3;
+    private static final int MAX_PLACED_LABELS = 100000; // beyond this, message dependency labels are not de-overlapped
 
     private boolean debug = false;
 
@@ -221,6 +223,9 @@ public class SequenceChart
     private QuadTree labelQuadTree = new QuadTree();
     private Map<IMessageDependency, Point> labelPositions = new HashMap<IMessageDependency, Point>();
 
+    private VisibleObjectIndex visibleObjectIndex = new VisibleObjectIndex(); // objects drawn on the cached layer, for hit-testing
+    private boolean isIndexingVisibleObjects = false; // true while drawing the cached layer into the tile cache
+
     private ArrayList<ModuleTreeItem> openAxisModules = new ArrayList<ModuleTreeItem>(); // the modules (in no particular order) which may have an axis (they must be part of the module tree!) on the chart
 
     private boolean invalidVisibleAxisModules = true; // requests recalculation of visibleAxisModules
@@ -240,6 +245,7 @@ public class SequenceChart
     private ManualAxisOrder manualAxisOrder = new ManualAxisOrder(); // remembers manual ordering
 
     private boolean invalidAxisModulePositions = true; // requests recalculation
+    private Job axisOrderingJob; // improves axisModulePositions in the background in MINIMIZE_CROSSINGS mode
     private int[] axisModulePositions; // specifies y order of the axis modules (in the same order as axisModules); this is a permutation of the 0 .. axisModule.size() - 1 numbers
 
     private boolean invalidReverseAxisModulePositions = true; // requests recalculation
@@ -394,6 +400,7 @@ public class SequenceChart
     private void setupListeners() {
         addDisposeListener(new DisposeListener() {
             public void widgetDisposed(DisposeEvent e) {
+                cancelAxisOrderingJob();
                 if (eventLogInput != null) {
                     storeState(eventLogInput.getFile());
                     eventLogInput.removeEventLogChangedListener(SequenceChart.this);
@@ -2685,6 +2692,7 @@ public class SequenceChart
      * Sorts axis modules depending on timeline ordering mode.
      */
     private int[] calculateAxisModulePositions() {
+        cancelAxisOrderingJob();
         Object[] result = new Object[1];
         eventLogInput.runWithProgressMonitor(new Runnable() {
             public void run() {
@@ -2704,8 +2712,11 @@ public class SequenceChart
                         IEvent[] eventRange = getFirstLastEventForViewportRange(Rectangle.SINGLETON.x - extraClipping, Rectangle.SINGLETON.right() + extraClipping);
                         IEvent startEvent = eventRange[0];
                         IEvent endEvent = eventRange[1];
-                        axisModulesArray = manualAxisOrder.getCurrentAxisModuleOrder(axisModulesArray).toArray(new ModuleTreeItem[0]);
-                        result[0] = new FlatAxisOrderByMinimizingCost(eventLogInput, startEvent, endEvent).calculateOrdering(axisModulesArray, getModuleIdToAxisModuleIndexMap());
+                        // start from the current order, and let the background job publish better ones
+                        int[] initialPositions = FlatAxisOrderByMinimizingCost.getAxisModulePositions(axisModulesArray, manualAxisOrder.getCurrentAxisModuleOrder(axisModulesArray));
+                        FlatAxisOrderByMinimizingCost axisOrder = new FlatAxisOrderByMinimizingCost(eventLogInput, startEvent, endEvent);
+                        startAxisOrderingJob(axisOrder.calculateAdjacencyGraph(axisModulesArray.length, getModuleIdToAxisModuleIndexMap()), initialPositions);
+                        result[0] = initialPositions;
                         break;
                     default:
                         throw new RuntimeException("Unknown axis ordering mode");
@@ -2715,6 +2726,34 @@ public class SequenceChart
         return (int[])result[0];
     }
 
+    /**
+     * Orders axes in the background, and applies improving orderings as they are found.
+     */
+    private void startAxisOrderingJob(AxisAdjacencyGraph graph, int[] initialPositions) {
+        Job[] job = new Job[1];
+        job[0] = FlatAxisOrderByMinimizingCost.createOrderingJob(graph, initialPositions, (int[] positions, double cost) -> {
+            Display.getDefault().asyncExec(() -> {
+                // ignore results of a job that has been superseded, e.g. because the visible axes have changed
+                if (!isDisposed() && axisOrderingJob == job[0] && !invalidAxisModulePositions && axisModulePositions != null && axisModulePositions.length == positions.length) {
+                    if (debug)
+                        Debug.println("Applying improved axis ordering, cost: " + cost);
+                    axisModulePositions = positions;
+                    invalidateAxes();
+                    invalidateReverseAxisModulePositions();
+                }
+            });
+        });
+        axisOrderingJob = job[0];
+        axisOrderingJob.schedule();
+    }
+
+    private void cancelAxisOrderingJob() {
+        if (axisOrderingJob != null) {
+            axisOrderingJob.cancel();
+            axisOrderingJob = null;
+        }
+    }
+
     public int[] getReverseAxisModulePositions() {
         validateReverseAxisModulePositions();
         return reverseAxisModulePositions;
@@ -3140,8 +3179,25 @@ public class SequenceChart
 
     @Override
     protected void paintCachableLayer(Graphics graphics) {
-        if (eventLogInput != null)
-            drawSequenceChart(graphics);
+        if (eventLogInput != null) {
+            if (getCaching()) {
+                // fill the hit-testing index while painting tiles, and record the area only if painting succeeded
+                LargeRect area = canvasToVirtualRect(GraphicsUtils.getClip(graphics));
+                int generation = visibleObjectIndex.getGeneration();
+                isIndexingVisibleObjects = true;
+                try {
+                    drawSequenceChart(graphics);
+                    // the index may have been cleared halfway through the tile when it became full
+                    if (visibleObjectIndex.getGeneration() == generation)
+                        visibleObjectIndex.addCoveredArea(area);
+                }
+                finally {
+                    isIndexingVisibleObjects = false;
+                }
+            }
+            else
+                drawSequenceChart(graphics);
+        }
     }
 
     @Override
@@ -3202,6 +3258,24 @@ public class SequenceChart
         drawTickPrefix(graphics);
     }
 
+    /**
+     * Same as paintArea(), but paints the part of the chart starting at the given virtual x coordinate,
+     * as if the chart was scrolled there. The chart is not scrolled: drawing is relative to the fix point,
+     * which is shifted only while painting, so the user's view and following the eventlog's end are kept.
+     */
+    public void paintArea(Graphics graphics, long viewportLeft) {
+        long oldFixPointViewportCoordinate = fixPointViewportCoordinate;
+        try {
+            fixPointViewportCoordinate -= viewportLeft - getViewportLeft();
+            invalidateVisibleAxisModules();
+            paintArea(graphics);
+        }
+        finally {
+            fixPointViewportCoordinate = oldFixPointViewportCoordinate;
+            invalidateVisibleAxisModules();
+        }
+    }
+
     /**
      * Clears internal error markers, all caches and forces a redraw.
      */
@@ -3281,6 +3355,13 @@ public class SequenceChart
         redraw();
     }
 
+    @Override
+    public void clearCanvasCache() {
+        super.clearCanvasCache();
+        // the index describes what is drawn on the cached tiles
+        visibleObjectIndex.clear();
+    }
+
     @Override
     protected Graphics createGraphics(GC gc) {
         Graphics graphics = super.createGraphics(gc);
@@ -3821,13 +3902,26 @@ public class SequenceChart
             // NOTE: navigating through next event takes care about leaving events out which are not in the filter's result
             for (IEvent event = startEvent;; event = event.getNextEvent()) {
                 if (isInitializationEvent(event)) {
-                    if (showInitializationEvent)
+                    if (showInitializationEvent) {
                         drawEvent(graphics, event);
+                        if (isIndexingVisibleObjects) {
+                            int xBegin = (int)getEventXViewportCoordinateBegin(event);
+                            int xEnd = (int)getEventXViewportCoordinateEnd(event);
+                            for (IMessageDependency consequence : event.getConsequences()) {
+                                int y = getInitializationEventYViewportCoordinate(consequence, -1);
+                                if (y != -1)
+                                    indexVisibleObject(event, xBegin, y, xEnd, y);
+                            }
+                        }
+                    }
                 }
                 else if (getEventAxisModuleIndex(event) != -1) {
                     int xBegin = (int)getEventXViewportCoordinateBegin(event);
                     int xEnd = (int)getEventXViewportCoordinateEnd(event);
                     int y = getEventYViewportCoordinate(event);
+                    // NOTE: index the event even if it's not drawn below, because the one drawn there hides it
+                    if (isIndexingVisibleObjects)
+                        indexVisibleObject(event, xBegin, y, xEnd, y);
                     Integer lastXBegin = axisYtoLastXBegin.get(y);
                     Integer lastXEnd = axisYtoLastXEnd.get(y);
 
@@ -4600,6 +4694,9 @@ public class SequenceChart
                 y2 = y1 - halfEllipseHeight;
 
                 if (graphics != null) {
+                    if (isIndexingVisibleObjects)
+                        indexVisibleObject(messageDependency, x1, y1, x2, y2);
+
                     if (vlineBuffer.vlineContainsNewPixel(x1, y2, y1))
                         graphics.drawLine(x1, y1, x2, y2);
 
@@ -4679,6 +4776,9 @@ public class SequenceChart
                         return halfEllipseContainsPoint(-1, x1, x2, y1, halfEllipseHeight, fitX, fitY, MOUSE_TOLERANCE);
                 }
 
+                if (isIndexingVisibleObjects)
+                    indexVisibleObject(messageDependency, x1, ym, x2, y1);
+
                 if (showArrowHeads) {
                     // intersection of the ellipse and a circle with the arrow length centered at the end point
                     // origin is in the center of the ellipse
@@ -4784,6 +4884,9 @@ public class SequenceChart
             if (graphics == null)
                 return lineContainsPoint(x1, y1, x2, y2, fitX, fitY, MOUSE_TOLERANCE);
 
+            if (isIndexingVisibleObjects)
+                indexVisibleObject(messageDependency, x1, y1, x2, y2);
+
             if (graphics != null && isFilteredMessageDependency)
                 drawFilteredMessageDependencySign(graphics, x1, y1, x2, y2);
 
@@ -4798,7 +4901,7 @@ public class SequenceChart
                     int rowCount = Math.min(15, Math.max(1, Math.abs(y2 - y1) / fontHeight));
                     int mx = (x1 + x2) / 2;
                     int my = (y1 + y2) / 2;
-                    if (labelQuadTree.getSize() < 1000) {
+                    if (labelQuadTree.getSize() < MAX_PLACED_LABELS) {
                         if (styleProvider.getMessageDependencyLabelFont(messageDependency) != null)
                             graphics.setFont(styleProvider.getMessageDependencyLabelFont(messageDependency));
                         else
@@ -5088,31 +5191,32 @@ public class SequenceChart
                         int x = viewportX;
                         int y = viewportY - getGutterHeight(null);
 
+                        // use the hit-testing index if the tiles around the position have been drawn with the current state
+                        int tolerance = MOUSE_TOLERANCE + 3;
+                        long virtualX = canvasToVirtualX(x);
+                        long virtualY = canvasToVirtualY(viewportY);
+                        ArrayList<Object> candidates = null;
+                        if (getCaching() && visibleObjectIndex.isCovered(virtualX, virtualY, tolerance))
+                            candidates = visibleObjectIndex.getObjectsNear(virtualX, virtualY, tolerance);
+
                         if (showEventMarks) {
-                            IEvent[] eventRange = getFirstLastEventForViewportRange(0, getViewportWidth());
-                            IEvent startEvent = eventRange[0];
-                            IEvent endEvent = eventRange[1];
+                            if (candidates != null) {
+                                for (Object candidate : candidates)
+                                    if (candidate instanceof IEvent)
+                                        collectEventAtPosition((IEvent)candidate, x, y, result);
+                            }
+                            else {
+                                IEvent[] eventRange = getFirstLastEventForViewportRange(0, getViewportWidth());
+                                IEvent startEvent = eventRange[0];
+                                IEvent endEvent = eventRange[1];
 
-                            if (startEvent != null && endEvent != null) {
-                                for (IEvent event = startEvent;; event = event.getNextEvent()) {
-                                    int xBegin = (int)getEventXViewportCoordinateBegin(event);
-                                    int xEnd = (int)getEventXViewportCoordinateEnd(event);
-                                    if (isInitializationEvent(event)) {
-                                        if (showInitializationEvent) {
-                                            for (IMessageDependency consequence : event.getConsequences()) {
-                                                int yInitializationEvent = getInitializationEventYViewportCoordinate(consequence, -1);
-                                                if (yInitializationEvent != -1 && eventSymbolContainsPoint(x, y, xBegin, xEnd, yInitializationEvent, MOUSE_TOLERANCE + 3))
-                                                    result.add(event);
-                                            }
-                                        }
-                                    }
-                                    else if (getEventAxisModuleIndex(event) != -1) {
-                                        if (eventSymbolContainsPoint(x, y, xBegin, xEnd, getEventYViewportCoordinate(event), MOUSE_TOLERANCE + 3))
-                                            result.add(event);
-                                    }
+                                if (startEvent != null && endEvent != null) {
+                                    for (IEvent event = startEvent;; event = event.getNextEvent()) {
+                                        collectEventAtPosition(event, x, y, result);
 
-                                    if (event == endEvent)
-                                        break;
+                                        if (event == endEvent)
+                                            break;
+                                    }
                                 }
                             }
                         }
@@ -5123,7 +5227,15 @@ public class SequenceChart
                             IEvent endEvent = eventRange[1];
 
                             if (startEvent != null && endEvent != null) {
-                                ArrayList<IMessageDependency> messageDependencies = sequenceChartFacade.getIntersectingMessageDependencies(startEvent, endEvent);
+                                ArrayList<IMessageDependency> messageDependencies;
+                                if (candidates != null) {
+                                    messageDependencies = new ArrayList<IMessageDependency>();
+                                    for (Object candidate : candidates)
+                                        if (candidate instanceof IMessageDependency)
+                                            messageDependencies.add((IMessageDependency)candidate);
+                                }
+                                else
+                                    messageDependencies = sequenceChartFacade.getIntersectingMessageDependencies(startEvent, endEvent);
 
                                 for (int i = 0; i < messageDependencies.size(); i++) {
                                     IMessageDependency messageDependency = messageDependencies.get(i);
@@ -5181,6 +5293,32 @@ public class SequenceChart
         return result;
     }
 
+    private void collectEventAtPosition(IEvent event, int x, int y, ArrayList<Object> objects) {
+        int xBegin = (int)getEventXViewportCoordinateBegin(event);
+        int xEnd = (int)getEventXViewportCoordinateEnd(event);
+        if (isInitializationEvent(event)) {
+            if (showInitializationEvent) {
+                for (IMessageDependency consequence : event.getConsequences()) {
+                    int yInitializationEvent = getInitializationEventYViewportCoordinate(consequence, -1);
+                    if (yInitializationEvent != -1 && eventSymbolContainsPoint(x, y, xBegin, xEnd, yInitializationEvent, MOUSE_TOLERANCE + 3))
+                        objects.add(event);
+                }
+            }
+        }
+        else if (getEventAxisModuleIndex(event) != -1) {
+            if (eventSymbolContainsPoint(x, y, xBegin, xEnd, getEventYViewportCoordinate(event), MOUSE_TOLERANCE + 3))
+                objects.add(event);
+        }
+    }
+
+    /**
+     * Adds an object drawn with the given bounding box (in viewport coordinates) to the hit-testing index.
+     */
+    private void indexVisibleObject(Object object, int x1, int y1, int x2, int y2) {
+        int gutterHeight = getGutterHeight(null);
+        visibleObjectIndex.add(object, canvasToVirtualX(x1), canvasToVirtualY(y1 + gutterHeight), canvasToVirtualX(x2), canvasToVirtualY(y2 + gutterHeight));
+    }
+
     private void collectAxisHeaders(int x, int y, ArrayList<Object> objects) {
         if (getRootAxisHeader() != null)
             collectAxisHeaders(getRootAxisHeader(), x, y, objects);
@@ -0,0 +1,118 @@
+package org.omnetpp.sequencechart.widgets;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+
+import org.eclipse.draw2d.geometry.Rectangle;
+import org.omnetpp.common.canvas.LargeRect;
+
+/**
+ * Spatial index of the objects (events, message dependencies) drawn on the
+ * cached layer of the sequence chart, used for hit-testing on hover, tooltips
+ * and selection instead of walking through all events and message dependencies
+ * of the viewport.
+ *
+ * Objects are stored with their bounding boxes in virtual coordinates (which
+ * stay valid while scrolling, just like the cached tiles), relative to an
+ * origin fixed at the first insertion. The index also records the areas for
+ * which it has been filled; a query may only be answered from the index if
+ * the area around the point is covered, otherwise callers must fall back to
+ * walking through the objects. The index must be cleared together with the
+ * canvas cache. The same object may be added several times (e.g. when a tile
+ * is repainted), queries remove the duplicates.
+ */
+class VisibleObjectIndex {
+    private static final long MAX_COORDINATE_OFFSET = 1 << 28; // keep away from int overflow in QuadTree
+    private static final int MAX_SIZE = 200000;
+
+    private QuadTree objects = new QuadTree();
+    private QuadTree coveredAreas = new QuadTree();
+    private boolean hasOrigin = false;
+    private long originX;
+    private long originY;
+    private int generation = 0; // incremented by each clear
+
+    public void clear() {
+        objects.clear();
+        coveredAreas.clear();
+        hasOrigin = false;
+        generation++;
+    }
+
+    /**
+     * Returns a counter that changes whenever the index is cleared, either explicitly or
+     * because it became full. An area may only be recorded as covered if the index has not
+     * been cleared since the first object of the area was added.
+     */
+    public int getGeneration() {
+        return generation;
+    }
+
+    public int getSize() {
+        return objects.getSize();
+    }
+
+    /**
+     * Records that all objects drawn in the given area have been added.
+     */
+    public void addCoveredArea(LargeRect area) {
+        Rectangle r = toIndexRectangle(area.x, area.y, area.x + area.width, area.y + area.height);
+        if (r != null)
+            coveredAreas.insert(r, area);
+    }
+
+    /**
+     * Adds an object with the given bounding box (in virtual coordinates, corners in any order).
+     */
+    public void add(Object object, long x1, long y1, long x2, long y2) {
+        if (objects.getSize() >= MAX_SIZE)
+            clear(); // start over, the areas painted from now on will be covered again
+        Rectangle r = toIndexRectangle(Math.min(x1, x2), Math.min(y1, y2), Math.max(x1, x2), Math.max(y1, y2));
+        if (r != null)
+            objects.insert(r, object);
+    }
+
+    /**
+     * Returns whether the square of the given half size around the point is covered.
+     */
+    public boolean isCovered(long x, long y, int tolerance) {
+        return isCovered(x - tolerance, y - tolerance) && isCovered(x + tolerance, y - tolerance) &&
+               isCovered(x - tolerance, y + tolerance) && isCovered(x + tolerance, y + tolerance);
+    }
+
+    /**
+     * Returns the objects whose bounding box is within the given distance of the point,
+     * without duplicates, in the order they were added.
+     */
+    public ArrayList<Object> getObjectsNear(long x, long y, int tolerance) {
+        LinkedHashSet<Object> result = new LinkedHashSet<Object>();
+        Rectangle r = toIndexRectangle(x - tolerance, y - tolerance, x + tolerance, y + tolerance);
+        if (r != null)
+            objects.query(r, (Rectangle region, Object object) -> result.add(object));
+        return new ArrayList<Object>(result);
+    }
+
+    private boolean isCovered(long x, long y) {
+        Rectangle r = toIndexRectangle(x, y, x, y);
+        if (r == null)
+            return false;
+        boolean[] covered = new boolean[1];
+        coveredAreas.query(r, (Rectangle region, Object object) -> covered[0] = true);
+        return covered[0];
+    }
+
+    private Rectangle toIndexRectangle(long left, long top, long right, long bottom) {
+        if (!hasOrigin) {
+            hasOrigin = true;
+            originX = left;
+            originY = top;
+        }
+        left -= originX;
+        top -= originY;
+        right -= originX;
+        bottom -= originY;
+        if (Math.abs(left) > MAX_COORDINATE_OFFSET || Math.abs(top) > MAX_COORDINATE_OFFSET || Math.abs(right) > MAX_COORDINATE_OFFSET || Math.abs(bottom) > MAX_COORDINATE_OFFSET)
+            return null;
+        return new Rectangle((int)left, (int)top, (int)(right - left), (int)(bottom - top));
+    }
+}
@@ -0,0 +1,103 @@
+/*--------------------------------------------------------------*
+  Copyright (C) 2006-2015 OpenSim Ltd.
+
+  This file is distributed WITHOUT ANY WARRANTY. See the file
+  'License' for details on this and other legal matters.
+*--------------------------------------------------------------*/
+
+package org.omnetpp.sequencechart.widgets.axisorder;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Sparse, undirected, weighted graph of axes, where the weight of an edge is
+ * the number of message dependencies between the two axes (in either direction).
+ * Stored in compressed sparse row form: the neighbors of node i are at indices
+ * offsets[i] .. offsets[i+1]-1 of the neighbors and weights arrays. Self loops
+ * are dropped, as they don't influence the ordering.
+ */
+public class AxisAdjacencyGraph {
+    final int numberOfNodes;
+    final int[] offsets;
+    final int[] neighbors;
+    final double[] weights;
+
+    AxisAdjacencyGraph(int numberOfNodes, int[] offsets, int[] neighbors, double[] weights) {
+        this.numberOfNodes = numberOfNodes;
+        this.offsets = offsets;
+        this.neighbors = neighbors;
+        this.weights = weights;
+    }
+
+    /**
+     * Creates the graph from the sparse adjacency map returned by SequenceChartFacade
+     * (keys are (fromIndex << 32 | toIndex), values are counts).
+     */
+    public static AxisAdjacencyGraph create(int numberOfNodes, Map<Long, Integer> adjacencyMap) {
+        // collect both directions of every edge, then merge duplicates per node
+        int count = 0;
+        long[] keys = new long[adjacencyMap.size() * 2];
+        double[] values = new double[adjacencyMap.size() * 2];
+        for (Map.Entry<Long, Integer> entry : adjacencyMap.entrySet()) {
+            int from = (int)(entry.getKey() >>> 32);
+            int to = (int)(long)entry.getKey();
+            if (from != to && from < numberOfNodes && to < numberOfNodes && entry.getValue() != 0) {
+                keys[count] = ((long)from << 32) | to;
+                values[count++] = entry.getValue();
+                keys[count] = ((long)to << 32) | from;
+                values[count++] = entry.getValue();
+            }
+        }
+        Integer[] order = new Integer[count];
+        for (int i = 0; i < count; i++)
+            order[i] = i;
+        final long[] finalKeys = keys;
+        Arrays.sort(order, (i, j) -> Long.compare(finalKeys[i], finalKeys[j]));
+
+        int[] offsets = new int[numberOfNodes + 1];
+        int[] neighbors = new int[count];
+        double[] weights = new double[count];
+        int numberOfEntries = 0;
+        for (int k = 0; k < count; k++) {
+            long key = keys[order[k]];
+            if (numberOfEntries > 0 && k > 0 && key == keys[order[k - 1]])
+                weights[numberOfEntries - 1] += values[order[k]];
+            else {
+                neighbors[numberOfEntries] = (int)key;
+                weights[numberOfEntries] = values[order[k]];
+                offsets[(int)(key >>> 32) + 1]++;
+                numberOfEntries++;
+            }
+        }
+        for (int i = 0; i < numberOfNodes; i++)
+            offsets[i + 1] += offsets[i];
+        return new AxisAdjacencyGraph(numberOfNodes, offsets, Arrays.copyOf(neighbors, numberOfEntries), Arrays.copyOf(weights, numberOfEntries));
+    }
+
+    public int getNumberOfNodes() {
+        return numberOfNodes;
+    }
+
+    public int getNumberOfEdges() {
+        return neighbors.length / 2;
+    }
+
+    /**
+     * Returns the sum of weight * distance^2 over all edges, where the distance is
+     * the difference of the positions of the two axes.
+     */
+    public double getCost(int[] positions) {
+        double cost = 0;
+        for (int i = 0; i < numberOfNodes; i++) {
+            for (int k = offsets[i]; k < offsets[i + 1]; k++) {
+                int j = neighbors[k];
+                if (i < j) {
+                    double d = positions[i] - positions[j];
+                    cost += weights[k] * d * d;
+                }
+            }
+        }
+        return cost;
+    }
+}
@@ -0,0 +1,367 @@
+/*--------------------------------------------------------------*
+  Copyright (C) 2006-2015 OpenSim Ltd.
+
+  This file is distributed WITHOUT ANY WARRANTY. See the file
+  'License' for details on this and other legal matters.
+*--------------------------------------------------------------*/
+
+package org.omnetpp.sequencechart.widgets.axisorder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+
+/**
+ * Orders the nodes of an AxisAdjacencyGraph on a line so that the total
+ * weight * distance^2 of edges (the axes that arrows span) is small. This is a
+ * heuristic that scales to thousands of axes, as it works on the sparse graph:
+ *
+ * 1. Coarsening: the graph is repeatedly shrunk by merging heavily connected
+ *    pairs of nodes (heavy edge matching), until it is small or stops shrinking.
+ * 2. The coarsest graph is ordered starting from the initial ordering.
+ * 3. Going back level by level, the ordering is projected to the finer graph
+ *    and refined there. Refinement alternates barycentric sweeps (move every
+ *    node to the weighted average position of its neighbors, then re-rank)
+ *    with adjacent swaps that strictly decrease the cost.
+ *
+ * Nodes of coarse graphs have a size (the number of axes they stand for), so
+ * positions are computed as if every axis had its own slot. Orderings of the
+ * original graph are published to the listener each time a better one is
+ * found, so the caller may display intermediate results. Cancelling through
+ * the progress monitor returns the best ordering found so far.
+ */
+public class MultilevelAxisOrdering {
+    private static final int COARSEST_SIZE = 32;
+    private static final double MINIMUM_COARSENING_RATIO = 0.9;
+    private static final int BARYCENTRIC_SWEEPS = 20;
+    private static final int SWAP_SWEEPS = 50;
+
+    public interface IOrderingListener {
+        /**
+         * Called with a better ordering of the original graph: positions[i] is the position of node i.
+         */
+        public void orderingImproved(int[] positions, double cost);
+    }
+
+    private static class Level {
+        AxisAdjacencyGraph graph;
+        double[] sizes; // number of original nodes each node stands for
+        double[] initialCoordinates; // average initial position of the original nodes, for tie breaking
+        int[] coarseNodes; // maps nodes to nodes of the next (coarser) level; null for the coarsest
+    }
+
+    private Random random = new Random(0); // fixed seed for reproducible orderings
+    private IProgressMonitor monitor;
+    private IOrderingListener listener;
+    private ArrayList<Level> levels = new ArrayList<Level>();
+    private int[] bestPositions;
+    private double bestCost;
+
+    /**
+     * Returns the positions of the nodes; initialPositions is a permutation used as the starting point
+     * and for breaking ties. Monitor and listener may be null.
+     */
+    public int[] calculateOrdering(AxisAdjacencyGraph graph, int[] initialPositions, IProgressMonitor monitor, IOrderingListener listener) {
+        this.monitor = monitor;
+        this.listener = listener;
+        bestPositions = initialPositions.clone();
+        bestCost = graph.getCost(bestPositions);
+        if (graph.numberOfNodes < 3 || graph.getNumberOfEdges() == 0)
+            return bestPositions;
+
+        // build levels
+        Level level = new Level();
+        level.graph = graph;
+        level.sizes = new double[graph.numberOfNodes];
+        Arrays.fill(level.sizes, 1);
+        level.initialCoordinates = new double[graph.numberOfNodes];
+        for (int i = 0; i < graph.numberOfNodes; i++)
+            level.initialCoordinates[i] = initialPositions[i];
+        levels.add(level);
+        while (level.graph.numberOfNodes > COARSEST_SIZE && !isCanceled()) {
+            Level coarseLevel = coarsen(level);
+            if (coarseLevel.graph.numberOfNodes > MINIMUM_COARSENING_RATIO * level.graph.numberOfNodes) {
+                level.coarseNodes = null;
+                break;
+            }
+            levels.add(coarseLevel);
+            level = coarseLevel;
+        }
+
+        // start from the initial ordering on the coarsest level, then refine level by level
+        double[] coordinates = getRankCoordinates(level, level.initialCoordinates, level.initialCoordinates);
+        for (int l = levels.size() - 1; l >= 0 && !isCanceled(); l--) {
+            level = levels.get(l);
+            if (l != levels.size() - 1)
+                coordinates = getRankCoordinates(level, projectCoordinates(level, coordinates), level.initialCoordinates);
+            coordinates = refine(level, coordinates);
+            publish(l, coordinates);
+        }
+        return bestPositions;
+    }
+
+    private boolean isCanceled() {
+        return monitor != null && monitor.isCanceled();
+    }
+
+    /**
+     * Heavy edge matching: visits nodes in random order and merges each unmatched
+     * node with its unmatched neighbor connected by the heaviest edge.
+     */
+    private Level coarsen(Level level) {
+        AxisAdjacencyGraph graph = level.graph;
+        int n = graph.numberOfNodes;
+        int[] match = new int[n];
+        Arrays.fill(match, -1);
+        int[] order = getRandomPermutation(n);
+        for (int u : order) {
+            if (match[u] != -1)
+                continue;
+            int best = -1;
+            double bestWeight = 0;
+            for (int k = graph.offsets[u]; k < graph.offsets[u + 1]; k++) {
+                int v = graph.neighbors[k];
+                // prefer merging small nodes to keep the coarse graph balanced
+                double weight = graph.weights[k] / (level.sizes[u] + level.sizes[v]);
+                if (match[v] == -1 && weight > bestWeight) {
+                    best = v;
+                    bestWeight = weight;
+                }
+            }
+            if (best != -1) {
+                match[u] = best;
+                match[best] = u;
+            }
+            else
+                match[u] = u;
+        }
+
+        // number coarse nodes
+        int[] coarseNodes = new int[n];
+        Arrays.fill(coarseNodes, -1);
+        int m = 0;
+        for (int u = 0; u < n; u++) {
+            if (coarseNodes[u] == -1) {
+                coarseNodes[u] = m;
+                coarseNodes[match[u]] = m;
+                m++;
+            }
+        }
+        level.coarseNodes = coarseNodes;
+
+        Level coarseLevel = new Level();
+        coarseLevel.sizes = new double[m];
+        coarseLevel.initialCoordinates = new double[m];
+        for (int u = 0; u < n; u++) {
+            coarseLevel.sizes[coarseNodes[u]] += level.sizes[u];
+            coarseLevel.initialCoordinates[coarseNodes[u]] += level.initialCoordinates[u] * level.sizes[u];
+        }
+        for (int c = 0; c < m; c++)
+            coarseLevel.initialCoordinates[c] /= coarseLevel.sizes[c];
+
+        // collect edges of coarse nodes, merging parallel edges with an accumulator array
+        int[] members = new int[n];
+        int[] memberOffsets = new int[m + 1];
+        for (int u = 0; u < n; u++)
+            memberOffsets[coarseNodes[u] + 1]++;
+        for (int c = 0; c < m; c++)
+            memberOffsets[c + 1] += memberOffsets[c];
+        int[] fill = Arrays.copyOf(memberOffsets, m);
+        for (int u = 0; u < n; u++)
+            members[fill[coarseNodes[u]]++] = u;
+        int[] offsets = new int[m + 1];
+        int[] neighbors = new int[graph.neighbors.length];
+        double[] weights = new double[graph.neighbors.length];
+        double[] accumulator = new double[m];
+        int[] touched = new int[m];
+        int numberOfEntries = 0;
+        for (int c = 0; c < m; c++) {
+            int numberOfTouched = 0;
+            for (int i = memberOffsets[c]; i < memberOffsets[c + 1]; i++) {
+                int u = members[i];
+                for (int k = graph.offsets[u]; k < graph.offsets[u + 1]; k++) {
+                    int d = coarseNodes[graph.neighbors[k]];
+                    if (d == c)
+                        continue;
+                    if (accumulator[d] == 0)
+                        touched[numberOfTouched++] = d;
+                    accumulator[d] += graph.weights[k];
+                }
+            }
+            for (int t = 0; t < numberOfTouched; t++) {
+                int d = touched[t];
+                neighbors[numberOfEntries] = d;
+                weights[numberOfEntries++] = accumulator[d];
+                accumulator[d] = 0;
+            }
+            offsets[c + 1] = numberOfEntries;
+        }
+        coarseLevel.graph = new AxisAdjacencyGraph(m, offsets, Arrays.copyOf(neighbors, numberOfEntries), Arrays.copyOf(weights, numberOfEntries));
+        return coarseLevel;
+    }
+
+    /**
+     * Fine nodes start from the coordinate of their coarse node.
+     */
+    private double[] projectCoordinates(Level level, double[] coarseCoordinates) {
+        double[] coordinates = new double[level.graph.numberOfNodes];
+        for (int u = 0; u < coordinates.length; u++)
+            coordinates[u] = coarseCoordinates[level.coarseNodes[u]];
+        return coordinates;
+    }
+
+    /**
+     * Sorts nodes by the given values (ties broken by the secondary values), and returns the
+     * resulting slot coordinates: the center of the range of slots each node occupies.
+     */
+    private double[] getRankCoordinates(Level level, double[] values, double[] secondaryValues) {
+        int n = level.graph.numberOfNodes;
+        Integer[] order = new Integer[n];
+        for (int i = 0; i < n; i++)
+            order[i] = i;
+        Arrays.sort(order, (i, j) -> values[i] != values[j] ? Double.compare(values[i], values[j]) : Double.compare(secondaryValues[i], secondaryValues[j]));
+        double[] coordinates = new double[n];
+        double position = 0;
+        for (int i = 0; i < n; i++) {
+            int u = order[i];
+            coordinates[u] = position + level.sizes[u] / 2;
+            position += level.sizes[u];
+        }
+        return coordinates;
+    }
+
+    private double[] refine(Level level, double[] coordinates) {
+        AxisAdjacencyGraph graph = level.graph;
+        double[] bestCoordinates = coordinates;
+        double bestLevelCost = getCost(graph, coordinates);
+        for (int sweep = 0; sweep < BARYCENTRIC_SWEEPS && !isCanceled(); sweep++) {
+            double[] values = new double[graph.numberOfNodes];
+            for (int u = 0; u < graph.numberOfNodes; u++) {
+                double sum = 0;
+                double weightSum = 0;
+                for (int k = graph.offsets[u]; k < graph.offsets[u + 1]; k++) {
+                    sum += graph.weights[k] * coordinates[graph.neighbors[k]];
+                    weightSum += graph.weights[k];
+                }
+                // move halfway towards the barycenter, nodes without edges stay
+                values[u] = weightSum == 0 ? coordinates[u] : (coordinates[u] + sum / weightSum) / 2;
+            }
+            coordinates = getRankCoordinates(level, values, coordinates);
+            coordinates = swapAdjacentNodes(level, coordinates);
+            double cost = getCost(graph, coordinates);
+            if (cost < bestLevelCost) {
+                bestLevelCost = cost;
+                bestCoordinates = coordinates;
+            }
+            else
+                break;
+        }
+        return swapAdjacentNodes(level, bestCoordinates);
+    }
+
+    /**
+     * Swaps neighboring nodes of the ordering as long as that strictly decreases the cost.
+     */
+    private double[] swapAdjacentNodes(Level level, double[] coordinates) {
+        AxisAdjacencyGraph graph = level.graph;
+        int n = graph.numberOfNodes;
+        coordinates = coordinates.clone();
+        Integer[] boxedOrder = new Integer[n];
+        for (int i = 0; i < n; i++)
+            boxedOrder[i] = i;
+        final double[] finalCoordinates = coordinates;
+        Arrays.sort(boxedOrder, (i, j) -> Double.compare(finalCoordinates[i], finalCoordinates[j]));
+        int[] order = new int[n];
+        for (int i = 0; i < n; i++)
+            order[i] = boxedOrder[i];
+
+        for (int sweep = 0; sweep < SWAP_SWEEPS && !isCanceled(); sweep++) {
+            boolean swapped = false;
+            for (int i = 0; i < n - 1; i++) {
+                int a = order[i];
+                int b = order[i + 1];
+                double newA = coordinates[a] + level.sizes[b];
+                double newB = coordinates[b] - level.sizes[a];
+                double delta = getCostDelta(graph, coordinates, a, b, newA) + getCostDelta(graph, coordinates, b, a, newB);
+                if (delta < -1E-9) {
+                    coordinates[a] = newA;
+                    coordinates[b] = newB;
+                    order[i] = b;
+                    order[i + 1] = a;
+                    swapped = true;
+                }
+            }
+            if (!swapped)
+                break;
+        }
+        return coordinates;
+    }
+
+    /**
+     * Cost change of moving node u to the given coordinate, ignoring the edge to the swap partner
+     * (their distance does not change).
+     */
+    private static double getCostDelta(AxisAdjacencyGraph graph, double[] coordinates, int u, int partner, double newCoordinate) {
+        double delta = 0;
+        double oldCoordinate = coordinates[u];
+        for (int k = graph.offsets[u]; k < graph.offsets[u + 1]; k++) {
+            int v = graph.neighbors[k];
+            if (v != partner) {
+                double oldDistance = oldCoordinate - coordinates[v];
+                double newDistance = newCoordinate - coordinates[v];
+                delta += graph.weights[k] * (newDistance * newDistance - oldDistance * oldDistance);
+            }
+        }
+        return delta;
+    }
+
+    private static double getCost(AxisAdjacencyGraph graph, double[] coordinates) {
+        double cost = 0;
+        for (int u = 0; u < graph.numberOfNodes; u++) {
+            for (int k = graph.offsets[u]; k < graph.offsets[u + 1]; k++) {
+                int v = graph.neighbors[k];
+                if (u < v) {
+                    double d = coordinates[u] - coordinates[v];
+                    cost += graph.weights[k] * d * d;
+                }
+            }
+        }
+        return cost;
+    }
+
+    /**
+     * Projects the coordinates of the given level down to the original graph, and
+     * publishes the resulting ordering if it's better than the best one so far.
+     */
+    private void publish(int levelIndex, double[] coordinates) {
+        for (int l = levelIndex - 1; l >= 0; l--)
+            coordinates = projectCoordinates(levels.get(l), coordinates);
+        Level originalLevel = levels.get(0);
+        double[] rankCoordinates = getRankCoordinates(originalLevel, coordinates, originalLevel.initialCoordinates);
+        int[] positions = new int[rankCoordinates.length];
+        for (int i = 0; i < positions.length; i++)
+            positions[i] = (int)Math.floor(rankCoordinates[i]);
+        double cost = originalLevel.graph.getCost(positions);
+        if (cost < bestCost) {
+            bestCost = cost;
+            bestPositions = positions;
+            if (listener != null)
+                listener.orderingImproved(positions.clone(), cost);
+        }
+    }
+
+    private int[] getRandomPermutation(int n) {
+        int[] permutation = new int[n];
+        for (int i = 0; i < n; i++)
+            permutation[i] = i;
+        for (int i = n - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int tmp = permutation[i];
+            permutation[i] = permutation[j];
+            permutation[j] = tmp;
+        }
+        return permutation;
+    }
+}
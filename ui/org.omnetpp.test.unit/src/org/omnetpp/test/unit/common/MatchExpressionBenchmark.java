@@ -0,0 +1,73 @@
+/*--------------------------------------------------------------*
+  Copyright (C) 2006-2015 OpenSim Ltd.
+
+  This file is distributed WITHOUT ANY WARRANTY. See the file
+  'License' for details on this and other legal matters.
+*--------------------------------------------------------------*/
+
+package org.omnetpp.test.unit.common;
+
+import org.omnetpp.common.engine.JavaMatchableObject;
+import org.omnetpp.common.engine.MatchExpression;
+import org.omnetpp.common.engineext.IMatchableObject;
+import org.omnetpp.common.util.MatchExpressionCompiler;
+
+/**
+ * Compares the per-object cost of the native MatchExpression and the compiled Java matchers
+ * on the objects of MatchExpressionCompilerTest. It is not part of the unit tests, because
+ * the timings depend on the machine; run main() where the native library can be loaded
+ * (e.g. with the launch configuration of the unit tests). Optional arguments: the match
+ * expression and the number of repetitions.
+ */
+public class MatchExpressionBenchmark {
+    private static final String DEFAULT_EXPRESSION = "E or (BS and (n =~ ping* or n =~ *ack*) and not kind =~ {5..9}) or (MC and n =~ \"{a-z}*-1\")";
+    private static final int DEFAULT_REPEAT = 20000;
+    private static final int WARMUP_REPEAT = 2000;
+
+    public static void main(String[] args) {
+        String expression = args.length > 0 ? args[0] : DEFAULT_EXPRESSION;
+        int repeat = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_REPEAT;
+        IMatchableObject[] objects = new IMatchableObject[MatchExpressionCompilerTest.OBJECTS.length];
+        for (int i = 0; i < objects.length; i++)
+            objects[i] = MatchExpressionCompilerTest.makeMatchableObject(MatchExpressionCompilerTest.OBJECTS[i]);
+
+        MatchExpression nativeExpression = new MatchExpression(expression, false, true, false);
+        MatchExpressionCompiler.IMatcher matcher = MatchExpressionCompiler.compile(expression, false, true, false);
+        runNative(nativeExpression, objects, WARMUP_REPEAT);
+        runCompiled(matcher, objects, WARMUP_REPEAT);
+
+        long begin = System.nanoTime();
+        long nativeMatches = runNative(nativeExpression, objects, repeat);
+        double nativeNanos = (double)(System.nanoTime() - begin) / repeat / objects.length;
+        begin = System.nanoTime();
+        long compiledMatches = runCompiled(matcher, objects, repeat);
+        double compiledNanos = (double)(System.nanoTime() - begin) / repeat / objects.length;
+
+        if (nativeMatches != compiledMatches)
+            throw new IllegalStateException("Different number of matches: native " + nativeMatches + ", compiled " + compiledMatches);
+        System.out.println("Expression: " + expression);
+        System.out.println(String.format("MatchExpression per object: native %.1fns, compiled %.1fns (%.1fx)", nativeNanos, compiledNanos, nativeNanos / compiledNanos));
+    }
+
+    private static long runNative(MatchExpression expression, IMatchableObject[] objects, int repeat) {
+        JavaMatchableObject javaMatchableObject = new JavaMatchableObject();
+        long numMatches = 0;
+        for (int k = 0; k < repeat; k++) {
+            for (IMatchableObject object : objects) {
+                javaMatchableObject.setJavaObject(object);
+                if (expression.matches(javaMatchableObject))
+                    numMatches++;
+            }
+        }
+        return numMatches;
+    }
+
+    private static long runCompiled(MatchExpressionCompiler.IMatcher matcher, IMatchableObject[] objects, int repeat) {
+        long numMatches = 0;
+        for (int k = 0; k < repeat; k++)
+            for (IMatchableObject object : objects)
+                if (matcher.matches(object))
+                    numMatches++;
+        return numMatches;
+    }
+}
@@ -0,0 +1,88 @@
+/*--------------------------------------------------------------*
+  Copyright (C) 2006-2015 OpenSim Ltd.
+
+  This file is distributed WITHOUT ANY WARRANTY. See the file
+  'License' for details on this and other legal matters.
+*--------------------------------------------------------------*/
+
+package org.omnetpp.test.unit.common;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+import org.junit.Test;
+
+import org.omnetpp.common.engine.JavaMatchableObject;
+import org.omnetpp.common.engine.MatchExpression;
+import org.omnetpp.common.engineext.IMatchableObject;
+import org.omnetpp.common.util.MatchExpressionCompiler;
+
+/**
+ * Checks that compiled match expressions give the same results as the native MatchExpression.
+ * The per-object cost of the two is compared by MatchExpressionBenchmark.
+ */
+public class MatchExpressionCompilerTest extends TestCase {
+
+    private static final String[] EXPRESSIONS = {
+        "a", "not a", "a OR b", "a Or b and not c", "{50..120} OR bu*bu", "(*one OR *two) AND twenty*", "*one OR *two AND twenty*",
+        "\"a\"", "\"*\"", "*not*", "net.host[2..5].app", "net.**.app", "net.*.app", "{a-c}?x", "{^a-c}*", "E or (BS and n =~ ping*)",
+        "E or (MC and kind =~ {3..5})", "n =~ \"p*\" and not n =~ *ong", "BS or E", "kind =~ 42", "n =~ {a-z}{a-z}ng",
+    };
+
+    static final String[][] OBJECTS = {
+        { "a" }, { "b" }, { "c" }, { "73" }, { "500" }, { "bu--bu" }, { "twenty-one" }, { "thirty-two" }, { "knotty" },
+        { "net.host[3].app" }, { "net.host[7].app" }, { "net.host.app" }, { "net.a.b.app" }, { "bzx" }, { "dx" }, { "E", "n", "ping" },
+        { "BS", "n", "ping-1", "kind", "3" }, { "BS", "n", "pong", "kind", "42" }, { "MC", "kind", "4" }, { "MC" }, { "-", "-", "text" },
+    };
+
+    @Test
+    public void testSameResultsAsNative() {
+        JavaMatchableObject javaMatchableObject = new JavaMatchableObject();
+        for (String expression : EXPRESSIONS) {
+            for (int flags = 0; flags < 8; flags++) {
+                boolean dottedpath = (flags & 1) != 0, fullstring = (flags & 2) != 0, casesensitive = (flags & 4) != 0;
+                MatchExpression nativeExpression = new MatchExpression(expression, dottedpath, fullstring, casesensitive);
+                MatchExpressionCompiler.IMatcher matcher = MatchExpressionCompiler.compile(expression, dottedpath, fullstring, casesensitive);
+                for (String[] object : OBJECTS) {
+                    IMatchableObject matchableObject = makeMatchableObject(object);
+                    javaMatchableObject.setJavaObject(matchableObject);
+                    assertEquals("Different result for '" + expression + "' on " + object[0] + " with flags " + flags,
+                            nativeExpression.matches(javaMatchableObject), matcher.matches(matchableObject));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testParseErrors() {
+        for (String expression : new String[] { "or", "and", "not", "hi(there", "a b", "not not a", "(a", "a =~", "\"abc" }) {
+            try {
+                MatchExpressionCompiler.compile(expression, false, true, false);
+                fail("No parse error for '" + expression + "'");
+            }
+            catch (IllegalArgumentException e) {
+                // expected
+            }
+        }
+    }
+
+    /**
+     * The first element is the default value, the rest are attribute name/value pairs.
+     */
+    static IMatchableObject makeMatchableObject(final String[] object) {
+        final Map<String, String> attributes = new HashMap<String, String>();
+        for (int i = 1; i + 1 < object.length; i += 2)
+            attributes.put(object[i], object[i + 1]);
+        return new IMatchableObject() {
+            public String getAsString() {
+                return object[0];
+            }
+
+            public String getAsString(String name) {
+                return attributes.get(name);
+            }
+        };
+    }
+}
@@ -0,0 +1,78 @@
+/*--------------------------------------------------------------*
+  Copyright (C) 2006-2015 OpenSim Ltd.
+
+  This file is distributed WITHOUT ANY WARRANTY. See the file
+  'License' for details on this and other legal matters.
+*--------------------------------------------------------------*/
+
+package org.omnetpp.test.unit.inifile;
+
+import java.io.ByteArrayInputStream;
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.jface.text.Document;
+import org.eclipse.jface.text.IDocument;
+import org.junit.Test;
+import org.omnetpp.inifile.editor.model.InifileDocument;
+
+/**
+ * Checks that InifileDocument stays consistent with the text when it is edited.
+ */
+public class InifileDocumentTest extends TestCase {
+    private static final String TEXT =
+            "[General]\n" +
+            "\n" +
+            "[Config A]\n" +
+            "\n" +
+            "[Config B]\n" +
+            "\n" +
+            "[Config C]\n" +
+            "extends = A\n";
+
+    private IProject project;
+    private IFile file;
+
+    @Override
+    protected void setUp() throws Exception {
+        project = ResourcesPlugin.getWorkspace().getRoot().getProject("InifileDocumentTest");
+        if (!project.exists())
+            project.create(null);
+        project.open(null);
+        file = project.getFile("omnetpp.ini");
+        if (!file.exists())
+            file.create(new ByteArrayInputStream(TEXT.getBytes()), true, null);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        project.delete(true, true, null);
+    }
+
+    @Test
+    public void testEditExtendsValue() throws Exception {
+        IDocument document = new Document(TEXT);
+        InifileDocument doc = new InifileDocument(document, file);
+        try {
+            List<String> chain = Arrays.asList(doc.getSectionChain("Config C"));
+            assertEquals("Config C", chain.get(0));
+            assertTrue(chain.contains("Config A"));
+
+            // edit the value only: "extends = A" -> "extends = B"
+            document.replace(TEXT.lastIndexOf("A"), 1, "B");
+
+            chain = Arrays.asList(doc.getSectionChain("Config C"));
+            assertEquals("Config C", chain.get(0));
+            assertTrue(chain.contains("Config B"));
+            assertFalse(chain.contains("Config A"));
+        }
+        finally {
+            doc.dispose();
+        }
+    }
+}
@@ -0,0 +1,71 @@
+/*--------------------------------------------------------------*
+  Copyright (C) 2006-2015 OpenSim Ltd.
+
+  This file is distributed WITHOUT ANY WARRANTY. See the file
+  'License' for details on this and other legal matters.
+*--------------------------------------------------------------*/
+
+package org.omnetpp.test.unit.sequencechart;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+
+import org.junit.Test;
+import org.omnetpp.eventlog.EventLog;
+import org.omnetpp.eventlog.IEvent;
+import org.omnetpp.eventlog.IEventLog;
+import org.omnetpp.eventlog.engine.FileReader;
+import org.omnetpp.sequencechart.editors.SyntheticEventLogGenerator;
+
+/**
+ * Checks that the eventlogs generated for the sequence chart benchmark are
+ * reproducible and can be read back with the expected structure.
+ */
+public class SyntheticEventLogGeneratorTest extends TestCase {
+    private static final int NUM_EVENTS = 2000;
+    private static final int NUM_MODULES = 7;
+
+    private File generate(long seed) throws Exception {
+        File file = File.createTempFile("synthetic", ".elog");
+        file.deleteOnExit();
+        new SyntheticEventLogGenerator().setNumEvents(NUM_EVENTS).setNumModules(NUM_MODULES).setNumTokens(3).setSeed(seed).generate(file, null);
+        return file;
+    }
+
+    @Test
+    public void testReproducible() throws Exception {
+        byte[] first = Files.readAllBytes(generate(1).toPath());
+        byte[] second = Files.readAllBytes(generate(1).toPath());
+        byte[] other = Files.readAllBytes(generate(2).toPath());
+        assertTrue(Arrays.equals(first, second));
+        assertFalse(Arrays.equals(first, other));
+    }
+
+    @Test
+    public void testEventLogStructure() throws Exception {
+        File file = generate(1);
+        IEventLog eventLog = new EventLog(new FileReader(file.getAbsolutePath(), 64 * 1024, false));
+        assertEquals(0, eventLog.getFirstEventNumber());
+        assertEquals(NUM_EVENTS - 1, eventLog.getLastEventNumber());
+
+        IEvent previousEvent = null;
+        for (IEvent event = eventLog.getFirstEvent(); event != null; event = event.getNextEvent()) {
+            if (previousEvent != null) {
+                assertEquals(previousEvent.getEventNumber() + 1, event.getEventNumber());
+                assertTrue(event.getSimulationTime().compareTo(previousEvent.getSimulationTime()) >= 0);
+
+                // every event is caused by a message sent from the previous module in the ring
+                IEvent causeEvent = event.getCauseEvent();
+                assertNotNull(causeEvent);
+                assertTrue(causeEvent.getEventNumber() < event.getEventNumber());
+                if (causeEvent.getEventNumber() != 0)
+                    assertEquals((causeEvent.getModuleId() - 2 + 1) % NUM_MODULES + 2, event.getModuleId());
+            }
+            previousEvent = event;
+        }
+        assertEquals(NUM_EVENTS - 1, previousEvent.getEventNumber());
+    }
+}